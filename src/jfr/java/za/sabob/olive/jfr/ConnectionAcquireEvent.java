@@ -0,0 +1,12 @@
+package za.sabob.olive.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Recorded when Olive acquired a new Connection from a DataSource.
+ */
+@Name( "za.sabob.olive.ConnectionAcquire" )
+@Label( "Connection Acquire" )
+public class ConnectionAcquireEvent extends OliveEvent {
+
+}
@@ -0,0 +1,164 @@
+package za.sabob.olive.jfr;
+
+import java.util.*;
+import javax.sql.*;
+import jdk.jfr.*;
+import za.sabob.olive.metrics.*;
+
+/**
+ * Records Olive's SQL parsing, template rendering and JDBC operations as Java Flight Recorder events, so database
+ * latency can be correlated with allocation and GC in a recording.
+ * <p/>
+ * The events are in the "Olive" category. An event begins when Olive starts the work and is committed when the work
+ * completes, so it spans the work in the recording. Events are only created for event types enabled in the recording
+ * settings; while they are disabled each operation costs a setting check and a thread local lookup.
+ * <p/>
+ * Work that completes on another thread than it started on, such as a transaction committed by another thread, is not
+ * recorded. Of two overlapping operations of the same type on one thread, for example two open row streams, only the
+ * last one started is recorded, except for transactions, where nested transactions are part of the outer one.
+ *
+ * <pre class="prettyprint">
+ * Metrics.setListener(new JfrMetricsListener());
+ *
+ * // Or together with JMX
+ * Metrics.setListener(new CompositeMetricsListener(new OliveMetrics(), new JfrMetricsListener()));
+ * </pre>
+ */
+public class JfrMetricsListener extends MetricsListener {
+
+    private static final EventType CONNECTION_ACQUIRE = EventType.getEventType( ConnectionAcquireEvent.class );
+
+    private static final EventType SQL_PARSE = EventType.getEventType( SqlParseEvent.class );
+
+    private static final EventType TEMPLATE_RENDER = EventType.getEventType( TemplateRenderEvent.class );
+
+    private static final EventType STATEMENT_EXECUTE = EventType.getEventType( StatementExecuteEvent.class );
+
+    private static final EventType ROW_MAPPING = EventType.getEventType( RowMappingEvent.class );
+
+    private static final EventType TRANSACTION = EventType.getEventType( TransactionEvent.class );
+
+    /**
+     * The events begun on each thread, indexed by the ordinal of their operation type.
+     */
+    private final ThreadLocal<OliveEvent[]> started = ThreadLocal.withInitial( () -> new OliveEvent[OperationType.values().length] );
+
+    @Override
+    public void onStarted( OperationType operation ) {
+        OliveEvent[] events = started.get();
+
+        if ( operation == OperationType.TRANSACTION && events[operation.ordinal()] != null ) {
+            // A nested transaction only completes with the outer transaction
+            return;
+        }
+
+        OliveEvent event = null;
+
+        switch ( operation ) {
+            case CONNECTION_ACQUIRE:
+                event = CONNECTION_ACQUIRE.isEnabled() ? new ConnectionAcquireEvent() : null;
+                break;
+            case SQL_PARSE:
+                event = SQL_PARSE.isEnabled() ? new SqlParseEvent() : null;
+                break;
+            case TEMPLATE_RENDER:
+                event = TEMPLATE_RENDER.isEnabled() ? new TemplateRenderEvent() : null;
+                break;
+            case STATEMENT_EXECUTE:
+                event = STATEMENT_EXECUTE.isEnabled() ? new StatementExecuteEvent() : null;
+                break;
+            case ROW_MAPPING:
+                event = ROW_MAPPING.isEnabled() ? new RowMappingEvent() : null;
+                break;
+            case TRANSACTION:
+                event = TRANSACTION.isEnabled() ? new TransactionEvent() : null;
+                break;
+            default:
+                // Not recorded
+                return;
+        }
+
+        if ( event != null ) {
+            event.begin();
+        }
+
+        // Always replace the slot, so an event begun for work that failed is not committed for later work
+        events[operation.ordinal()] = event;
+    }
+
+    @Override
+    public void onContextClosed( DataSource ds, long nanos ) {
+        // All work of the thread's root context is done, discard events of work that failed
+        Arrays.fill( started.get(), null );
+    }
+
+    @Override
+    public void onConnectionAcquired( long nanos ) {
+        ConnectionAcquireEvent event = (ConnectionAcquireEvent) take( OperationType.CONNECTION_ACQUIRE );
+        if ( event != null ) {
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onSqlParsed( String name, long nanos ) {
+        SqlParseEvent event = (SqlParseEvent) take( OperationType.SQL_PARSE );
+        if ( event != null ) {
+            event.name = name;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onTemplateRendered( String name, long nanos ) {
+        TemplateRenderEvent event = (TemplateRenderEvent) take( OperationType.TEMPLATE_RENDER );
+        if ( event != null ) {
+            event.name = name;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onStatementExecuted( String name, long nanos ) {
+        StatementExecuteEvent event = (StatementExecuteEvent) take( OperationType.STATEMENT_EXECUTE );
+        if ( event != null ) {
+            event.name = name;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onRowsMapped( String name, long nanos, int rows ) {
+        RowMappingEvent event = (RowMappingEvent) take( OperationType.ROW_MAPPING );
+        if ( event != null ) {
+            event.name = name;
+            event.rows = rows;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onCommit( long nanos ) {
+        transactionCompleted( true );
+    }
+
+    @Override
+    public void onRollback( long nanos ) {
+        transactionCompleted( false );
+    }
+
+    private void transactionCompleted( boolean committed ) {
+        TransactionEvent event = (TransactionEvent) take( OperationType.TRANSACTION );
+        if ( event != null ) {
+            event.committed = committed;
+            event.commit();
+        }
+    }
+
+    private OliveEvent take( OperationType operation ) {
+        OliveEvent[] events = started.get();
+        OliveEvent event = events[operation.ordinal()];
+        events[operation.ordinal()] = null;
+        return event;
+    }
+}
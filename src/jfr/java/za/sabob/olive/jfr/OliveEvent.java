@@ -0,0 +1,15 @@
+package za.sabob.olive.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Base class of the Olive Flight Recorder events.
+ * <p/>
+ * {@link JfrMetricsListener} begins an event when Olive starts the work and commits it when the work completes, so the
+ * event's duration is the time taken by the work.
+ */
+@Category( "Olive" )
+@StackTrace( false )
+public abstract class OliveEvent extends Event {
+
+}
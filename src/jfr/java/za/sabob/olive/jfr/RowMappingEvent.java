@@ -0,0 +1,20 @@
+package za.sabob.olive.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Recorded when Olive mapped the rows of a ResultSet.
+ */
+@Name( "za.sabob.olive.RowMapping" )
+@Label( "Row Mapping" )
+public class RowMappingEvent extends OliveEvent {
+
+    @Label( "Name" )
+    @Description( "The name of the resource the SQL was loaded from" )
+    public String name;
+
+    @Label( "Rows" )
+    @Description( "The number of rows mapped" )
+    public int rows;
+
+}
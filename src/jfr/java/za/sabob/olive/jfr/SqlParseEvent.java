@@ -0,0 +1,16 @@
+package za.sabob.olive.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Recorded when Olive parsed a SQL statement for named parameters.
+ */
+@Name( "za.sabob.olive.SqlParse" )
+@Label( "SQL Parse" )
+public class SqlParseEvent extends OliveEvent {
+
+    @Label( "Name" )
+    @Description( "The name of the resource the SQL was loaded from" )
+    public String name;
+
+}
@@ -0,0 +1,16 @@
+package za.sabob.olive.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Recorded when Olive executed a statement.
+ */
+@Name( "za.sabob.olive.StatementExecute" )
+@Label( "Statement Execute" )
+public class StatementExecuteEvent extends OliveEvent {
+
+    @Label( "Name" )
+    @Description( "The name of the resource the SQL was loaded from" )
+    public String name;
+
+}
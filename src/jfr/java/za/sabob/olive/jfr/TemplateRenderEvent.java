@@ -0,0 +1,16 @@
+package za.sabob.olive.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Recorded when Olive rendered a Mustache template.
+ */
+@Name( "za.sabob.olive.TemplateRender" )
+@Label( "Template Render" )
+public class TemplateRenderEvent extends OliveEvent {
+
+    @Label( "Name" )
+    @Description( "The name of the template resource" )
+    public String name;
+
+}
@@ -0,0 +1,16 @@
+package za.sabob.olive.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Recorded when a JDBCContext committed or rolled back its transaction, spanning the transaction from when it began.
+ */
+@Name( "za.sabob.olive.Transaction" )
+@Label( "Transaction" )
+public class TransactionEvent extends OliveEvent {
+
+    @Label( "Committed" )
+    @Description( "True if the transaction was committed, false if it was rolled back" )
+    public boolean committed;
+
+}
@@ -0,0 +1,139 @@
+package za.sabob.olive.jfr;
+
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+import java.util.stream.*;
+import jdk.jfr.*;
+import jdk.jfr.consumer.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.context.*;
+import za.sabob.olive.metrics.*;
+import za.sabob.olive.ps.*;
+import za.sabob.olive.util.*;
+
+public class JfrMetricsListenerTest extends HSQLDBBaseTest {
+
+    @AfterMethod
+    public void afterMethod() {
+        Metrics.setListener( null );
+    }
+
+    @Test
+    public void testEventsSpanTheWork() throws Exception {
+        Metrics.setListener( new JfrMetricsListener() );
+
+        List<RecordedEvent> events;
+
+        try ( Recording recording = new Recording() ) {
+            for ( String name : Arrays.asList( "SqlParse", "StatementExecute", "RowMapping", "Transaction" ) ) {
+                recording.enable( "za.sabob.olive." + name );
+            }
+            recording.start();
+
+            ParsedSql insert = Olive.parseSql( "insert-person", "insert into person (name) values (:name)" );
+
+            JDBC.inTransaction( ds, ctx -> {
+                PreparedStatement ps = OliveUtils.prepareStatement( ctx, insert, new SqlParams().set( "name", "bob" ) );
+                OliveUtils.executeUpdate( ps );
+
+                // A nested transaction is part of the outer one
+                JDBC.inTransaction( ds, nested -> {
+                    PreparedStatement nestedPs = OliveUtils.prepareStatement( nested, insert, new SqlParams().set( "name", "john" ) );
+                    OliveUtils.executeUpdate( nestedPs );
+                } );
+            } );
+
+            JDBCContext ctx = JDBC.beginTransaction( ds );
+            try {
+                JDBC.rollbackTransaction( ctx );
+
+            } finally {
+                JDBC.cleanupTransaction( ctx );
+            }
+
+            List<String> names = JDBC.inOperation( ds, ctx2 -> {
+                PreparedStatement ps = OliveUtils.prepareStatement( ctx2, "select name from person order by name" );
+                return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getString( 1 ) );
+            } );
+            Assert.assertEquals( names, Arrays.asList( "bob", "john" ) );
+
+            recording.stop();
+
+            Path file = Files.createTempFile( "olive", ".jfr" );
+            try {
+                recording.dump( file );
+                events = RecordingFile.readAllEvents( file );
+
+            } finally {
+                Files.delete( file );
+            }
+        }
+
+        List<RecordedEvent> parses = events( events, "za.sabob.olive.SqlParse" );
+        Assert.assertEquals( parses.size(), 1 );
+        Assert.assertEquals( parses.get( 0 ).getString( "name" ), "insert-person" );
+
+        List<RecordedEvent> executes = events( events, "za.sabob.olive.StatementExecute" );
+        Assert.assertEquals( executes.stream().map( e -> e.getString( "name" ) ).collect( Collectors.toList() ),
+                             Arrays.asList( "insert-person", "insert-person", null ) );
+
+        List<RecordedEvent> mappings = events( events, "za.sabob.olive.RowMapping" );
+        Assert.assertEquals( mappings.size(), 1 );
+        Assert.assertEquals( mappings.get( 0 ).getInt( "rows" ), 2 );
+
+        List<RecordedEvent> transactions = events( events, "za.sabob.olive.Transaction" );
+        Assert.assertEquals( transactions.stream().map( e -> e.getBoolean( "committed" ) ).collect( Collectors.toList() ),
+                             Arrays.asList( true, false ) );
+
+        // The transaction began before its statements were executed and ended after them
+        RecordedEvent committed = transactions.get( 0 );
+        Assert.assertTrue( committed.getStartTime().compareTo( executes.get( 0 ).getStartTime() ) <= 0 );
+        Assert.assertTrue( committed.getEndTime().compareTo( executes.get( 1 ).getEndTime() ) >= 0 );
+        Assert.assertTrue( committed.getDuration().compareTo( executes.get( 0 ).getDuration() ) > 0 );
+    }
+
+    @Test
+    public void testDisabledEventsAreNotRecorded() throws Exception {
+        Metrics.setListener( new JfrMetricsListener() );
+
+        try ( Recording recording = new Recording() ) {
+            for ( String name : Arrays.asList( "ConnectionAcquire", "SqlParse", "TemplateRender", "StatementExecute", "RowMapping" ) ) {
+                recording.disable( "za.sabob.olive." + name );
+            }
+            recording.start();
+
+            JDBC.inTransaction( ds, ctx -> {
+                PreparedStatement ps = OliveUtils.prepareStatement( ctx, "select name from person" );
+                OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getString( 1 ) );
+            } );
+
+            recording.stop();
+
+            Path file = Files.createTempFile( "olive", ".jfr" );
+            try {
+                recording.dump( file );
+                List<String> types = RecordingFile.readAllEvents( file ).stream()
+                    .map( e -> e.getEventType().getName() )
+                    .filter( name -> name.startsWith( "za.sabob.olive." ) )
+                    .collect( Collectors.toList() );
+
+                Assert.assertEquals( types, Arrays.asList( "za.sabob.olive.Transaction" ) );
+
+            } finally {
+                Files.delete( file );
+            }
+        }
+    }
+
+    private static List<RecordedEvent> events( List<RecordedEvent> events, String type ) {
+        return events.stream()
+            .filter( e -> e.getEventType().getName().equals( type ) )
+            .sorted( Comparator.comparing( RecordedEvent::getStartTime ) )
+            .collect( Collectors.toList() );
+    }
+}
@@ -0,0 +1,123 @@
+package za.sabob.olive.jdbc;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.sql.*;
+import org.openjdk.jmh.annotations.*;
+import za.sabob.olive.domain.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.ps.*;
+import za.sabob.olive.util.*;
+
+/**
+ * Benchmarks setting parameters, mapping rows and the JDBC.inOperation / JDBC.inTransaction overhead against an
+ * in-memory HSQLDB database. Only {@link #mapToList(za.sabob.olive.jdbc.StatementBenchmark.Persons)} runs for each
+ * number of rows.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class StatementBenchmark {
+
+    private DataSource ds;
+
+    private Connection conn;
+
+    private PreparedStatement ps;
+
+    private ParsedSql setParamsSql;
+
+    private SqlParams setParamsParams;
+
+    @Setup
+    public void setup() throws SQLException {
+        ds = HSQLDBTestUtils.createDS();
+        HSQLDBTestUtils.createPersonTable( ds );
+
+        conn = ds.getConnection();
+
+        setParamsSql = OliveUtils.parseSql( "select * from person where id = :id and name = :name and name <> :other" );
+        setParamsParams = new SqlParams();
+        setParamsParams.set( "id", 1L );
+        setParamsParams.set( "name", "person1" );
+        setParamsParams.set( "other", "person2" );
+
+        String sql = OliveUtils.substituteNamedParameters( setParamsSql, setParamsParams );
+        ps = conn.prepareStatement( sql );
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        OliveUtils.close( ps, conn );
+        HSQLDBTestUtils.shutdown( ds );
+    }
+
+    @Benchmark
+    public PreparedStatement setParams() {
+        OliveUtils.setParams( ps, setParamsSql, setParamsParams );
+        return ps;
+    }
+
+    @Benchmark
+    public List<Person> mapToList( Persons persons ) {
+        PreparedStatement select = OliveUtils.prepareStatement( conn, persons.selectSql, persons.selectParams );
+
+        try {
+            return OliveUtils.mapToList( select, ( rs, rowNum ) -> {
+                Person person = new Person();
+                person.id = rs.getLong( "id" );
+                person.name = rs.getString( "name" );
+                return person;
+            } );
+
+        } finally {
+            OliveUtils.close( select );
+        }
+    }
+
+    @Benchmark
+    public Long inOperation() {
+        return JDBC.inOperation( ds, ctx -> 1L );
+    }
+
+    @Benchmark
+    public Long inTransaction() {
+        return JDBC.inTransaction( ds, ctx -> 1L );
+    }
+
+    /**
+     * The person rows read by {@link #mapToList(za.sabob.olive.jdbc.StatementBenchmark.Persons)}.
+     */
+    @State( Scope.Benchmark )
+    public static class Persons {
+
+        @Param( { "1", "100", "1000" } )
+        public int rows;
+
+        private ParsedSql selectSql;
+
+        private SqlParams selectParams;
+
+        @Setup
+        public void setup( StatementBenchmark benchmark ) {
+            JDBC.inTransaction( benchmark.ds, ctx -> {
+                OliveUtils.createStatement( ctx ).executeUpdate( "delete from person" );
+
+                PreparedStatement insert = OliveUtils.prepareStatement( ctx, "insert into person (name) values (?)" );
+                for ( int i = 0; i < rows; i++ ) {
+                    insert.setString( 1, "person" + i );
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            } );
+
+            selectSql = OliveUtils.parseSql( "select * from person where id >= :id" );
+            selectParams = new SqlParams();
+            selectParams.set( "id", 0L );
+        }
+    }
+}
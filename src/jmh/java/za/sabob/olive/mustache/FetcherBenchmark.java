@@ -0,0 +1,84 @@
+package za.sabob.olive.mustache;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Mode;
+
+/**
+ * Compares the cost of variable lookups on typical template contexts: a bean read through a
+ * generated accessor, the same bean read through reflection, and a Map.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class FetcherBenchmark {
+
+    private Bean bean;
+
+    private Map<String, Object> map;
+
+    private Mustache.VariableFetcher generated;
+
+    private Mustache.VariableFetcher reflective;
+
+    private Mustache.VariableFetcher mapFetcher;
+
+    private Template template;
+
+    @Setup
+    public void setup() throws Exception {
+        DefaultCollector collector = new DefaultCollector();
+
+        bean = new Bean();
+        map = new HashMap<String, Object>();
+        map.put( "name", bean.getName() );
+
+        generated = collector.createFetcher( bean, "name" );
+        Method getter = Bean.class.getMethod( "getName" );
+        reflective = new Mustache.VariableFetcher() {
+            public Object get( Object ctx, String name ) throws Exception {
+                return getter.invoke( ctx );
+            }
+        };
+        mapFetcher = collector.createFetcher( map, "name" );
+
+        template = Mustache.compiler().compile( "select * from person where name = '{{name}}'" );
+    }
+
+    @Benchmark
+    public Object beanGenerated() throws Exception {
+        return generated.get( bean, "name" );
+    }
+
+    @Benchmark
+    public Object beanReflection() throws Exception {
+        return reflective.get( bean, "name" );
+    }
+
+    @Benchmark
+    public Object map() throws Exception {
+        return mapFetcher.get( map, "name" );
+    }
+
+    @Benchmark
+    public String renderBean() {
+        return template.execute( bean );
+    }
+
+    @Benchmark
+    public String renderMap() {
+        return template.execute( map );
+    }
+
+    public static class Bean {
+
+        public String getName() {
+            return "Steve";
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package za.sabob.olive.template;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Mode;
+import za.sabob.olive.*;
+import za.sabob.olive.mustache.*;
+import za.sabob.olive.ps.*;
+import za.sabob.olive.util.*;
+
+/**
+ * Benchmarks rendering Mustache SQL templates, and rendering followed by parsing the named parameters.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class TemplateBenchmark {
+
+    private TemplateService templateService;
+
+    private Template template;
+
+    private Map<String, Object> data;
+
+    @Setup
+    public void setup() {
+        Olive olive = new Olive( za.sabob.olive.Mode.PRODUCTION );
+        templateService = olive.getTemplateService();
+
+        template = templateService.compileTemplate( "SELECT * FROM person p\n"
+            + "WHERE 1 = 1\n"
+            + "{{#name}}AND p.name = :name\n{{/name}}"
+            + "{{#age}}AND p.age = :age\n{{/age}}"
+            + "{{#columns}}AND p.{{column}} IS NOT NULL\n{{/columns}}"
+            + "ORDER BY {{orderBy}}" );
+
+        List<Map<String, String>> columns = new ArrayList<>();
+        for ( int i = 0; i < 5; i++ ) {
+            columns.add( Collections.singletonMap( "column", "column" + i ) );
+        }
+
+        data = new HashMap<>();
+        data.put( "name", true );
+        data.put( "age", false );
+        data.put( "columns", columns );
+        data.put( "orderBy", "p.name" );
+    }
+
+    @Benchmark
+    public String render() {
+        return templateService.executeTemplate( template, data );
+    }
+
+    @Benchmark
+    public ParsedSql renderAndParse() {
+        return OliveUtils.parseSql( templateService.executeTemplateToBuffer( template, data ) );
+    }
+}
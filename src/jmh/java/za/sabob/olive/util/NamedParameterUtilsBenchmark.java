@@ -0,0 +1,83 @@
+package za.sabob.olive.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import za.sabob.olive.ps.*;
+
+/**
+ * Benchmarks parsing named parameters, substituting them with JDBC placeholders and building the parameter value array.
+ * Only the benchmarks taking an {@link InList} run for each IN list size.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class NamedParameterUtilsBenchmark {
+
+    private static final String SMALL_SQL = "SELECT * FROM person WHERE id = :id";
+
+    private String largeSql;
+
+    @Setup
+    public void setup() {
+        StringBuilder sql = new StringBuilder( "SELECT p.id, p.name, p.surname, p.age, a.street, a.city\n" )
+            .append( "FROM person p\n" )
+            .append( "JOIN address a ON a.person_id = p.id -- join the address: with the :person\n" );
+
+        for ( int i = 0; i < 50; i++ ) {
+            sql.append( i == 0 ? "WHERE " : "AND " ).append( "p.column" ).append( i ).append( " = :param" ).append( i )
+                .append( " /* comment :notAParam */ AND p.text" ).append( i ).append( " <> 'quoted :notAParam'\n" );
+        }
+        largeSql = sql.toString();
+    }
+
+    @Benchmark
+    public ParsedSql parseSmall() {
+        return NamedParameterUtils.parseSqlStatement( SMALL_SQL );
+    }
+
+    @Benchmark
+    public ParsedSql parseLarge() {
+        return NamedParameterUtils.parseSqlStatement( largeSql );
+    }
+
+    @Benchmark
+    public String substituteInList( InList inList ) {
+        return NamedParameterUtils.substituteNamedParameters( inList.sql, inList.params );
+    }
+
+    @Benchmark
+    public SqlParam[] buildValueArray( InList inList ) {
+        return NamedParameterUtils.buildValueArray( inList.sql, inList.params );
+    }
+
+    /**
+     * A statement with an IN list parameter of the given size.
+     */
+    @State( Scope.Benchmark )
+    public static class InList {
+
+        @Param( { "1", "10", "100" } )
+        public int inListSize;
+
+        private ParsedSql sql;
+
+        private SqlParams params;
+
+        @Setup
+        public void setup() {
+            sql = OliveUtils.parseSql( "SELECT * FROM person WHERE id IN (:ids) AND name = :name" );
+
+            List<Long> ids = new ArrayList<>();
+            for ( long i = 0; i < inListSize; i++ ) {
+                ids.add( i );
+            }
+            params = new SqlParams();
+            params.set( "ids", ids );
+            params.set( "name", "Bob" );
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package za.sabob.olive.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import za.sabob.olive.ps.*;
+
+/**
+ * Benchmarks the single pass named parameter parser against the previous parser, which skipped comments and quotes by
+ * matching them against lists of start and stop strings and collected the parameters in a HashSet and ParameterHolder
+ * objects, on reporting SQL with many repeated parameters.
+ * <p/>
+ * Run with: gradlew jmh -PjmhInclude=ParseSqlBenchmark
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ParseSqlBenchmark {
+
+    @Param( { "10", "100" } )
+    public int reports;
+
+    private String reportSql;
+
+    @Setup
+    public void setup() {
+        StringBuilder sql = new StringBuilder( "-- Sales report: totals per region and product for the period :from to :to\n" );
+
+        for ( int i = 0; i < reports; i++ ) {
+            sql.append( i == 0 ? "WITH " : ",\n" ).append( "report" ).append( i ).append( " AS (\n" )
+                .append( "    /* Report " ).append( i ).append( ": totals of the 'active' regions :not_a_param */\n" )
+                .append( "    SELECT r.name, p.code::text AS code, SUM(s.amount) AS total, COUNT(*) AS sales\n" )
+                .append( "    FROM sales s\n" )
+                .append( "    JOIN region r ON r.id = s.region_id AND r.status = 'active: yes'\n" )
+                .append( "    JOIN product p ON p.id = s.product_id -- only products in :category\n" )
+                .append( "    WHERE s.sold_at >= :from AND s.sold_at < :to AND p.category = :category\n" )
+                .append( "      AND s.amount BETWEEN :minAmount AND :maxAmount AND r.country IN (:countries)\n" )
+                .append( "      AND s.channel_id = :channel" ).append( i ).append( "\n" )
+                .append( "    GROUP BY r.name, p.code\n" )
+                .append( "    HAVING SUM(s.amount) > :threshold\n" )
+                .append( ")" );
+        }
+
+        sql.append( "\nSELECT * FROM report0 ORDER BY total DESC LIMIT :limit" );
+        reportSql = sql.toString();
+    }
+
+    @Benchmark
+    public ParsedSql parse() {
+        return NamedParameterUtils.parseSqlStatement( reportSql );
+    }
+
+    @Benchmark
+    public ParsedSql parseLegacy() {
+        return LegacyParser.parseSqlStatement( reportSql );
+    }
+
+    /**
+     * The named parameter parser before the single pass scanner, kept as the baseline.
+     */
+    static class LegacyParser {
+
+        private static final char[] PARAMETER_SEPARATORS = new char[] { '"', '\'', ':', '&', ',', ';', '(', ')', '|', '=', '+', '-', '*', '%',
+            '/', '\\', '<', '>', '^' };
+
+        private static final String[] START_SKIP = new String[] { "'", "\"", "--", "/*" };
+
+        private static final String[] STOP_SKIP = new String[] { "'", "\"", "\n", "*/" };
+
+        public static ParsedSql parseSqlStatement(final CharSequence sql) {
+            if (sql == null) {
+                throw new IllegalArgumentException("SQL must not be null");
+            }
+
+            Set<String> namedParameters = new HashSet<String>();
+            // Only created once an escaped ':' is found, holds the SQL with the escape characters removed
+            StringBuilder sqlToUse = null;
+            int copiedUpTo = 0;
+            List<ParameterHolder> parameterList = new ArrayList<ParameterHolder>();
+
+            CharSequence statement = sql;
+            int length = statement.length();
+            int namedParameterCount = 0;
+            int unnamedParameterCount = 0;
+            int totalParameterCount = 0;
+
+            int escapes = 0;
+            int i = 0;
+            while (i < length) {
+                int skipToPosition = i;
+                while (i < length) {
+                    skipToPosition = skipCommentsAndQuotes(statement, i);
+                    if (i == skipToPosition) {
+                        break;
+                    } else {
+                        i = skipToPosition;
+                    }
+                }
+                if (i >= length) {
+                    break;
+                }
+                char c = statement.charAt(i);
+                if (c == ':' || c == '&') {
+                    int j = i + 1;
+                    if (j < length && statement.charAt(j) == ':' && c == ':') {
+                        // Postgres-style "::" casting operator - to be skipped.
+                        i = i + 2;
+                        continue;
+                    }
+                    String parameter = null;
+                    if (j < length && c == ':' && statement.charAt(j) == '{') {
+                        // :{x} style parameter
+                        while (j < length && !('}' == statement.charAt(j))) {
+                            j++;
+                            if (j < length && (':' == statement.charAt(j) || '{' == statement.charAt(j))) {
+                                throw new IllegalStateException("Parameter name contains invalid character '" + statement.charAt(j)
+                                    + "' at position " + i + " in statement: " + sql);
+                            }
+                        }
+                        if (j >= length) {
+                            throw new IllegalStateException("Non-terminated named parameter declaration at position " + i + " in statement: "
+                                + sql);
+                        }
+                        if (j - i > 3) {
+                            parameter = sql.subSequence(i + 2, j).toString();
+                            namedParameterCount = addNewNamedParameter(namedParameters, namedParameterCount, parameter);
+                            totalParameterCount = addNamedParameter(parameterList, totalParameterCount, escapes, i, j + 1, parameter);
+                        }
+                        j++;
+                    } else {
+                        while (j < length && !isParameterSeparator(statement.charAt(j))) {
+                            j++;
+                        }
+                        if (j - i > 1) {
+                            parameter = sql.subSequence(i + 1, j).toString();
+                            namedParameterCount = addNewNamedParameter(namedParameters, namedParameterCount, parameter);
+                            totalParameterCount = addNamedParameter(parameterList, totalParameterCount, escapes, i, j, parameter);
+                        }
+                    }
+                    i = j - 1;
+                } else {
+                    if (c == '\\') {
+                        int j = i + 1;
+                        if (j < length && statement.charAt(j) == ':') {
+                            // this is an escaped : and should be skipped
+                            if (sqlToUse == null) {
+                                sqlToUse = new StringBuilder(length);
+                            }
+                            sqlToUse.append(sql, copiedUpTo, i);
+                            copiedUpTo = i + 1;
+                            escapes++;
+                            i = i + 2;
+                            continue;
+                        }
+                    }
+                    if (c == '?') {
+                        unnamedParameterCount++;
+                        totalParameterCount++;
+                    }
+                }
+                i++;
+            }
+
+            String originalSql;
+            if (sqlToUse == null) {
+                originalSql = sql.toString();
+            } else {
+                originalSql = sqlToUse.append(sql, copiedUpTo, length).toString();
+            }
+
+            ParsedSql parsedSql = new ParsedSql(originalSql);
+            for (ParameterHolder ph : parameterList) {
+                parsedSql.addNamedParameter(ph.getParameterName(), ph.getStartIndex(), ph.getEndIndex());
+            }
+            parsedSql.setNamedParameterCount(namedParameterCount);
+            parsedSql.setUnnamedParameterCount(unnamedParameterCount);
+            parsedSql.setTotalParameterCount(totalParameterCount);
+            return parsedSql;
+        }
+
+        private static int addNamedParameter(
+            List<ParameterHolder> parameterList, int totalParameterCount, int escapes, int i, int j, String parameter) {
+
+            parameterList.add(new ParameterHolder(parameter, i - escapes, j - escapes));
+            totalParameterCount++;
+            return totalParameterCount;
+        }
+
+        private static int addNewNamedParameter(Set<String> namedParameters, int namedParameterCount, String parameter) {
+            if (!namedParameters.contains(parameter)) {
+                namedParameters.add(parameter);
+                namedParameterCount++;
+            }
+            return namedParameterCount;
+        }
+
+        /**
+         * Skip over comments and quoted names present in an SQL statement
+         * @param statement character sequence containing SQL statement
+         * @param position current position of statement
+         * @return next position to process after any comments or quotes are skipped
+         */
+        private static int skipCommentsAndQuotes(CharSequence statement, int position) {
+            int length = statement.length();
+            for (int i = 0; i < START_SKIP.length; i++) {
+                if (statement.charAt(position) == START_SKIP[i].charAt(0)) {
+                    boolean match = true;
+                    for (int j = 1; j < START_SKIP[i].length(); j++) {
+                        if (position + j >= length || !(statement.charAt(position + j) == START_SKIP[i].charAt(j))) {
+                            match = false;
+                            break;
+                        }
+                    }
+                    if (match) {
+                        int offset = START_SKIP[i].length();
+                        for (int m = position + offset; m < length; m++) {
+                            if (statement.charAt(m) == STOP_SKIP[i].charAt(0)) {
+                                boolean endMatch = true;
+                                int endPos = m;
+                                for (int n = 1; n < STOP_SKIP[i].length(); n++) {
+                                    if (m + n >= length) {
+                                        // last comment not closed properly
+                                        return length;
+                                    }
+                                    if (!(statement.charAt(m + n) == STOP_SKIP[i].charAt(n))) {
+                                        endMatch = false;
+                                        break;
+                                    }
+                                    endPos = m + n;
+                                }
+                                if (endMatch) {
+                                    // found character sequence ending comment or quote
+                                    return endPos + 1;
+                                }
+                            }
+                        }
+                        // character sequence ending comment or quote not found
+                        return length;
+                    }
+
+                }
+            }
+            return position;
+        }
+
+        /**
+         * Determine whether a parameter name ends at the current position,
+         * that is, whether the given character qualifies as a separator.
+         */
+        private static boolean isParameterSeparator(char c) {
+            if (Character.isWhitespace(c)) {
+                return true;
+            }
+            for (char separator : PARAMETER_SEPARATORS) {
+                if (c == separator) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static class ParameterHolder {
+
+            private final String parameterName;
+
+            private final int startIndex;
+
+            private final int endIndex;
+
+            public ParameterHolder(String parameterName, int startIndex, int endIndex) {
+                this.parameterName = parameterName;
+                this.startIndex = startIndex;
+                this.endIndex = endIndex;
+            }
+
+            public String getParameterName() {
+                return this.parameterName;
+            }
+
+            public int getStartIndex() {
+                return this.startIndex;
+            }
+
+            public int getEndIndex() {
+                return this.endIndex;
+            }
+        }
+    }
+}
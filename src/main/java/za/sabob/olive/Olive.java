@@ -16,11 +16,14 @@
 package za.sabob.olive;
 
 import java.io.*;
+import java.lang.ref.*;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.logging.*;
 import za.sabob.olive.loader.*;
+import za.sabob.olive.metrics.*;
 import za.sabob.olive.mustache.*;
 import za.sabob.olive.ps.*;
 import za.sabob.olive.template.*;
@@ -94,11 +97,55 @@ public class Olive {
      */
     private static final Logger LOGGER = Logger.getLogger( Olive.class.getName() );
 
-    private static Map<String, String> fileMap = new ConcurrentHashMap<>();
+    /**
+     * The extensions of the resources loaded by {@link #warmUp(java.lang.String...)}.
+     */
+    public static final List<String> WARM_UP_EXTENSIONS = Collections.unmodifiableList( Arrays.asList( ".sql", ".mustache" ) );
+
+    /**
+     * The loader of Olive instances created without a ResourceLoader, shared so that they share their caches.
+     */
+    private static final ResourceLoader DEFAULT_RESOURCE_LOADER = new ClasspathResourceLoader();
+
+    /**
+     * The caches of loaded files and parsed SQL statements of each ResourceLoader. Resource names are only unique
+     * within a loader, so Olive instances share caches only when they share a loader.
+     */
+    private static final Map<ResourceLoader, ResourceCache> resourceCaches = Collections.synchronizedMap( new WeakHashMap<>() );
+
+    /**
+     * Caches the SQL statements parsed with {@link #parseSql(java.lang.String, java.lang.String)} by name.
+     */
+    private static Map<String, ParsedSql> namedSqlMap = new ConcurrentHashMap<>();
+
+    /**
+     * The caches of this instance's resource loader, looked up once so that cache hits don't synchronize.
+     */
+    private volatile ResourceCache resourceCache;
+
+    /**
+     * Compiled templates depend on this instance's TemplateService settings, so unlike the file and ParsedSql caches they
+     * are cached per Olive instance.
+     */
+    private Map<String, Template> templateMap = new ConcurrentHashMap<>();
+
+    /**
+     * Maps partials to the compiled templates which include them, so templates can be evicted when a partial changes.
+     */
+    private Map<String, Set<String>> dependentTemplates = new ConcurrentHashMap<>();
 
-    private static Map<String, ParsedSql> parsedMap = new ConcurrentHashMap<>();
+    /**
+     * The {@link TemplateService#getCompilerVersion() compiler version} of the templates in templateMap. The templates
+     * are discarded when the TemplateService compiler changes.
+     */
+    private volatile long templateCompilerVersion = -1;
+
+    /**
+     * Evicts changed resources from this instance's caches while this instance is in use, see
+     * {@link #setResourceLoader(za.sabob.olive.loader.ResourceLoader)}.
+     */
+    private InvalidationListener invalidationListener;
 
-    //private static Map<String, Template> templateMap = new ConcurrentHashMap<>();
     private ResourceLoader resourceLoader;
 
     /**
@@ -121,6 +168,16 @@ public class Olive {
      */
     private static Mode mode = Mode.PRODUCTION;
 
+    /**
+     * The fetch size applied to statements without a fetch size of their own, 0 for the driver's default.
+     */
+    private static volatile int defaultFetchSize;
+
+    /**
+     * The fetch size applied inside transactions on Postgres to statements without a fetch size of their own.
+     */
+    private static volatile int transactionFetchSize = 1000;
+
     /**
      * Creates a new Olive instance in {@link Mode#PRODUCTION} mode.
      */
@@ -142,7 +199,7 @@ public class Olive {
      * @param resourceLoader the ResourceLoader for this olive instance
      */
     public Olive( ResourceLoader resourceLoader ) {
-        this.resourceLoader = resourceLoader;
+        setResourceLoader( resourceLoader );
     }
 
     /**
@@ -153,7 +210,7 @@ public class Olive {
      */
     public Olive( Mode mode, ResourceLoader resourceLoader ) {
         Olive.mode = mode;
-        this.resourceLoader = resourceLoader;
+        setResourceLoader( resourceLoader );
     }
 
     /**
@@ -163,18 +220,88 @@ public class Olive {
      */
     public ResourceLoader getResourceLoader() {
         if ( resourceLoader == null ) {
-            resourceLoader = new ClasspathResourceLoader();
+            resourceLoader = DEFAULT_RESOURCE_LOADER;
         }
         return resourceLoader;
     }
 
     /**
      * Sets this olive instance resource loader where SQL files will be loaded from.
+     * <p/>
+     * If the loader is a {@link WatchingResourceLoader}, this instance listens for changes to evict from its caches. The
+     * loader only holds this instance weakly, so an Olive instance which is no longer used can be garbage collected while
+     * the loader lives on; its listener is removed on the next change.
      *
      * @param resourceLoader the resource loaded where SQL files will be loaded from
      */
     public void setResourceLoader( ResourceLoader resourceLoader ) {
+        if ( invalidationListener != null ) {
+            invalidationListener.loader.removeListener( invalidationListener );
+            invalidationListener = null;
+        }
+
         this.resourceLoader = resourceLoader;
+        this.resourceCache = null;
+
+        if ( resourceLoader instanceof WatchingResourceLoader ) {
+            invalidationListener = new InvalidationListener( this, (WatchingResourceLoader) resourceLoader );
+            invalidationListener.loader.addListener( invalidationListener );
+        }
+    }
+
+    /**
+     * Return true if loaded files, parsed SQL statements and compiled templates are cached.
+     * <p/>
+     * Caching is enabled in {@link Mode#PRODUCTION} mode. It is also enabled in other modes when the resource loader is a
+     * {@link WatchingResourceLoader}, as changed resources are then evicted from the caches, see
+     * {@link #invalidate(java.lang.String)}.
+     *
+     * @return true if loaded files, parsed SQL statements and compiled templates are cached
+     */
+    public boolean isCaching() {
+        return getMode() == Mode.PRODUCTION || getResourceLoader() instanceof WatchingResourceLoader;
+    }
+
+    /**
+     * Return the caches of loaded files and parsed SQL statements of this instance's resource loader.
+     *
+     * @return the caches of this instance's resource loader
+     */
+    private ResourceCache getResourceCache() {
+        ResourceCache cache = resourceCache;
+
+        if ( cache == null ) {
+            cache = resourceCaches.computeIfAbsent( getResourceLoader(), loader -> new ResourceCache() );
+            resourceCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Evict the resource with the given name from the caches, together with all compiled templates which include the
+     * resource as a partial. The next request for these resources will load them again.
+     * <p/>
+     * This is called by a {@link WatchingResourceLoader} when a resource changes.
+     *
+     * @param name the name of the resource to evict
+     */
+    public void invalidate( String name ) {
+        ResourceCache cache = getResourceCache();
+
+        // Bump the generation first so that loads which are in flight do not cache what they read
+        cache.generation.incrementAndGet();
+
+        cache.fileMap.remove( name );
+        cache.parsedMap.remove( name );
+        cache.statementsMap.remove( name );
+        templateMap.remove( name );
+
+        Set<String> dependents = dependentTemplates.remove( name );
+        if ( dependents != null ) {
+            for ( String dependent : dependents ) {
+                templateMap.remove( dependent );
+            }
+        }
     }
 
     /**
@@ -196,11 +323,238 @@ public class Olive {
     }
 
     /**
-     * Clear Olive's internal cache containing previously loaded SQL files and parsed SQL statements.
+     * Returns the fetch size Olive applies to PreparedStatements whose {@link ParsedSql} does not specify a
+     * {@link ParsedSql#getFetchSize() fetch size}.
+     *
+     * @return the default fetch size, or 0 to leave the driver's default
+     */
+    public static int getDefaultFetchSize() {
+        return defaultFetchSize;
+    }
+
+    /**
+     * Set the fetch size Olive applies to PreparedStatements whose {@link ParsedSql} does not specify a
+     * {@link ParsedSql#getFetchSize() fetch size}. The default is 0, which leaves the driver's default.
+     *
+     * @param fetchSize the default fetch size, or 0 to leave the driver's default
+     */
+    public static void setDefaultFetchSize( int fetchSize ) {
+        if ( fetchSize < 0 ) {
+            throw new IllegalArgumentException( "fetchSize cannot be negative" );
+        }
+        Olive.defaultFetchSize = fetchSize;
+    }
+
+    /**
+     * Returns the fetch size Olive applies inside transactions on Postgres to PreparedStatements without a fetch size of
+     * their own.
+     *
+     * @return the transaction fetch size, or 0 if disabled
+     */
+    public static int getTransactionFetchSize() {
+        return transactionFetchSize;
+    }
+
+    /**
+     * Set the fetch size Olive applies inside transactions on Postgres, such as {@link za.sabob.olive.jdbc.JDBC#inTransaction},
+     * to PreparedStatements without a fetch size of their own. The default is 1000.
+     * <p/>
+     * The Postgres driver loads the whole result into memory unless a fetch size is set and auto commit is off, in
+     * which case it reads the result through a cursor, fetchSize rows at a time.
+     *
+     * @param fetchSize the transaction fetch size, or 0 to leave the driver's default
+     */
+    public static void setTransactionFetchSize( int fetchSize ) {
+        if ( fetchSize < 0 ) {
+            throw new IllegalArgumentException( "fetchSize cannot be negative" );
+        }
+        Olive.transactionFetchSize = fetchSize;
+    }
+
+    /**
+     * Clear Olive's internal cache containing previously loaded SQL files, parsed SQL statements and compiled templates.
+     * The files and SQL statements are cached per ResourceLoader, so this also clears them for other Olive instances
+     * sharing this instance's loader.
      */
     public void clearCache() {
-        fileMap.clear();
-        parsedMap.clear();
+        ResourceCache cache = getResourceCache();
+        cache.fileMap.clear();
+        cache.parsedMap.clear();
+        cache.statementsMap.clear();
+        namedSqlMap.clear();
+        templateMap.clear();
+    }
+
+    /**
+     * Load, parse and compile all SQL files and templates under the given roots in parallel on the common
+     * {@link ForkJoinPool}, so that requests never find a cold cache.
+     *
+     * @see #warmUp(java.util.concurrent.ForkJoinPool, java.lang.String...)
+     *
+     * @param roots the absolute folders to search for SQL files and templates, for example "/com/mycorp/dao"
+     * @return the outcome of the warm up
+     */
+    public WarmUpResult warmUp( String... roots ) {
+        return warmUp( ForkJoinPool.commonPool(), roots );
+    }
+
+    /**
+     * Load, parse and compile all SQL files and templates under the given roots in parallel on the given
+     * {@link ForkJoinPool}, so that requests never find a cold cache. Call this at startup, for example:
+     *
+     * <pre class="prettyprint">
+     * Olive olive = new Olive();
+     * WarmUpResult result = olive.warmUp("/com/mycorp/dao");
+     * </pre>
+     *
+     * The roots are listed with {@link ResourceLoader#getResourceNames(java.lang.String)}, so they are packages for the
+     * {@link ClasspathResourceLoader} and webapp folders for the {@link WebappResourceLoader}. Loaders that cannot list
+     * their resources have nothing to warm up. All files ending in
+     * {@link #WARM_UP_EXTENSIONS} are loaded. Files containing a mustache tag (<code>{{</code>) are compiled as templates,
+     * together with all partials they include, the others are parsed as SQL.
+     * <p/>
+     * Failures do not stop the warm up, they are logged and returned in the {@link WarmUpResult}.
+     * <p/>
+     * <b>Note:</b> the loaded resources are only cached if {@link #isCaching() caching} is enabled, otherwise the warm up
+     * only checks that the resources load, parse and compile.
+     *
+     * @param pool the pool to load the resources on
+     * @param roots the absolute folders to search for SQL files and templates, for example "/com/mycorp/dao"
+     * @return the outcome of the warm up
+     */
+    public WarmUpResult warmUp( ForkJoinPool pool, String... roots ) {
+        long start = System.nanoTime();
+        final WarmUpResult result = new WarmUpResult();
+
+        Set<String> names = new LinkedHashSet<>();
+        for ( String root : roots ) {
+            try {
+                for ( String name : getResourceLoader().getResourceNames( root ) ) {
+                    if ( isWarmUpResource( name ) ) {
+                        names.add( name );
+                    }
+                }
+
+            } catch ( RuntimeException e ) {
+                result.addFailure( root, e );
+            }
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>( names.size() );
+        for ( final String name : names ) {
+            tasks.add( pool.submit( () -> warmUp( name, result ) ) );
+        }
+
+        for ( ForkJoinTask<?> task : tasks ) {
+            task.join();
+        }
+
+        result.setDurationNanos( System.nanoTime() - start );
+
+        if ( result.hasFailures() ) {
+            for ( Map.Entry<String, Exception> failure : result.getFailures().entrySet() ) {
+                LOGGER.log( Level.WARNING, "Warm up failed for '" + failure.getKey() + "'", failure.getValue() );
+            }
+        }
+        LOGGER.info( result.toString() );
+
+        return result;
+    }
+
+    /**
+     * Load and then parse or compile the resource with the given name, recording the outcome in the result.
+     *
+     * @param name the name of the resource to warm up
+     * @param result the result to record the outcome in
+     */
+    protected void warmUp( String name, WarmUpResult result ) {
+        try {
+            String content = loadContent( name );
+
+            if ( content.contains( "{{" ) ) {
+                Template template = loadCompiledTemplate( name );
+
+                for ( String partial : resolvePartials( template ) ) {
+                    result.addPartial( partial );
+                }
+                result.addTemplateFile( name );
+
+            } else if ( OliveUtils.hasSqlStatements( content ) ) {
+                loadParsedSqlStatements( name );
+                result.addSqlFile( name );
+
+            } else {
+                loadParsedSql( name );
+                result.addSqlFile( name );
+            }
+
+        } catch ( Exception e ) {
+            result.addFailure( name, e );
+        }
+    }
+
+    protected boolean isWarmUpResource( String name ) {
+        for ( String extension : WARM_UP_EXTENSIONS ) {
+            if ( name.endsWith( extension ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Load and compile all partials included by the given template, including partials included by other partials.
+     * Partials which cannot be found, such as partials passed in the render data, are named but not resolved.
+     *
+     * @param template the template which partials must be resolved
+     * @return the names of all partials included by the template
+     */
+    protected Set<String> resolvePartials( Template template ) {
+        final Set<String> partials = new LinkedHashSet<>();
+
+        template.visit( new Mustache.Visitor() {
+
+            @Override
+            public void visitText( String text ) {
+            }
+
+            @Override
+            public void visitVariable( String name ) {
+            }
+
+            @Override
+            public boolean visitInclude( String name ) {
+                // Skip partials seen before so recursive partials end
+                if ( !partials.add( name ) ) {
+                    return false;
+                }
+
+                Template partial;
+
+                try {
+                    partial = getTemplateService().getPartial( name );
+
+                } catch ( MustacheException e ) {
+                    // The partial may be passed in the data, which is only known when the template renders
+                    return false;
+                }
+
+                partial.visit( this );
+                return false;
+            }
+
+            @Override
+            public boolean visitSection( String name ) {
+                return true;
+            }
+
+            @Override
+            public boolean visitInvertedSection( String name ) {
+                return true;
+            }
+        } );
+
+        return partials;
     }
 
     /**
@@ -217,17 +571,20 @@ public class Olive {
         }
 
         if ( getMode() == Mode.PRODUCTION ) {
-            ParsedSql parsedSql = parsedMap.get( name );
+            ParsedSql parsedSql = namedSqlMap.get( name );
 
             if ( parsedSql != null ) {
                 return parsedSql;
             }
         }
 
+        long start = Metrics.start( OperationType.SQL_PARSE );
         ParsedSql parsedSql = OliveUtils.parseSql( sqlStr );
+        parsedSql.setName( name );
+        Metrics.sqlParsed( name, start );
 
         if ( getMode() == Mode.PRODUCTION ) {
-            parsedMap.put( name, parsedSql );
+            namedSqlMap.put( name, parsedSql );
         }
 
         return parsedSql;
@@ -250,19 +607,22 @@ public class Olive {
             throw new IllegalArgumentException( "filename cannot be null!" );
         }
 
-        if ( getMode() == Mode.PRODUCTION ) {
-            String file = fileMap.get( filename );
+        boolean caching = isCaching();
+
+        if ( caching ) {
+            String file = getResourceCache().fileMap.get( filename );
             if ( file != null ) {
                 return file;
             }
         }
 
-        InputStream is = getResourceLoader().getResourceStream( filename );
+        ResourceCache resources = getResourceCache();
+        long generation = resources.generation.get();
 
-        String file = OliveUtils.toString( is );
+        String file = getResourceLoader().getResourceContent( filename ).toString();
 
-        if ( getMode() == Mode.PRODUCTION ) {
-            fileMap.put( filename, file );
+        if ( caching ) {
+            resources.cache( resources.fileMap, filename, file, generation );
         }
         return file;
     }
@@ -302,21 +662,119 @@ public class Olive {
             throw new IllegalArgumentException( "filename cannot be null!" );
         }
 
-        if ( getMode() == Mode.PRODUCTION ) {
-            ParsedSql parsedSql = parsedMap.get( filename );
+        boolean caching = isCaching();
+
+        if ( caching ) {
+            ParsedSql parsedSql = getResourceCache().parsedMap.get( filename );
 
             if ( parsedSql != null ) {
                 return parsedSql;
             }
         }
 
+        ResourceCache resources = getResourceCache();
+        long generation = resources.generation.get();
+
         String sql = loadSql( filename );
+
+        long start = Metrics.start( OperationType.SQL_PARSE );
         ParsedSql parsedSql = OliveUtils.parseSql( sql );
+        parsedSql.setName( filename );
+        Metrics.sqlParsed( filename, start );
 
-        if ( getMode() == Mode.PRODUCTION ) {
-            parsedMap.put( filename, parsedSql );
+        if ( caching ) {
+            resources.cache( resources.parsedMap, filename, parsedSql, generation );
+        }
+
+        return parsedSql;
+    }
+
+    /**
+     * Loads the SQL file for the given filename and parses each of its named statements. One file can hold many
+     * statements, each starting with a <code>-- name: statementName</code> line, so a single resource lookup and cache
+     * entry serves them all.
+     * <p/>
+     * <code>person.sql:</code>
+     * <pre class="prettyprint">
+     * -- name: findPerson
+     * SELECT * FROM person WHERE id = :id;
+     *
+     * -- name: deletePerson
+     * DELETE FROM person WHERE id = :id; </pre>
+     * <p/>
+     * <code>Example.java:</code>
+     * <pre class="prettyprint">
+     * Olive olive = new Olive();
+     * String filename = OliveUtils.normalize(PersonDao.class, "person.sql");
+     * Map&lt;String, ParsedSql&gt; statements = olive.loadParsedSqlStatements(filename);
+     * ParsedSql findPerson = statements.get("findPerson"); </pre>
+     *
+     * @see OliveUtils#parseSqlStatements(java.lang.CharSequence)
+     *
+     * @param filename the name of the SQL file to load and parse
+     * @return the parsed statements by name, in the order they appear in the file
+     * @throws IllegalStateException if the SQL file could not be found
+     */
+    public Map<String, ParsedSql> loadParsedSqlStatements( String filename ) {
+        if ( filename == null ) {
+            throw new IllegalArgumentException( "filename cannot be null!" );
+        }
+
+        boolean caching = isCaching();
+
+        if ( caching ) {
+            Map<String, ParsedSql> statements = getResourceCache().statementsMap.get( filename );
+
+            if ( statements != null ) {
+                return statements;
+            }
+        }
+
+        ResourceCache resources = getResourceCache();
+        long generation = resources.generation.get();
+
+        String sql = loadSql( filename );
+
+        long start = Metrics.start( OperationType.SQL_PARSE );
+        Map<String, ParsedSql> statements = OliveUtils.parseSqlStatements( sql );
+
+        for ( Map.Entry<String, ParsedSql> entry : statements.entrySet() ) {
+            entry.getValue().setName( filename + "#" + entry.getKey() );
+        }
+        Metrics.sqlParsed( filename, start );
+
+        if ( caching ) {
+            resources.cache( resources.statementsMap, filename, statements, generation );
+        }
+
+        return statements;
+    }
+
+    /**
+     * Loads the statement with the given name from a multi-statement SQL file.
+     *
+     * <pre class="prettyprint">
+     * Olive olive = new Olive();
+     * String filename = OliveUtils.normalize(PersonDao.class, "person.sql");
+     * ParsedSql parsedSql = olive.loadParsedSql(filename, "findPerson"); </pre>
+     *
+     * @see #loadParsedSqlStatements(java.lang.String)
+     *
+     * @param filename the name of the SQL file to load and parse
+     * @param name the name of the statement in the SQL file
+     * @return the named statement as a {@link ParsedSql} instance
+     * @throws IllegalStateException if the SQL file could not be found or does not contain the named statement
+     */
+    public ParsedSql loadParsedSql( String filename, String name ) {
+        if ( name == null ) {
+            throw new IllegalArgumentException( "name cannot be null!" );
         }
 
+        ParsedSql parsedSql = loadParsedSqlStatements( filename ).get( name );
+
+        if ( parsedSql == null ) {
+            throw new IllegalStateException( "SQL file '" + filename + "' does not contain the statement '" + name + "'" );
+        }
         return parsedSql;
     }
 
@@ -456,30 +914,53 @@ public class Olive {
     public PreparedStatement prepareStatementFromTemplateFile( Connection conn, String filename, SqlParams params ) {
         // TODO load map from SqlParams
         Map data = params.toMap();
-        String result = executeTemplateFile( filename, data );
-        ParsedSql parsedSql = OliveUtils.parseSql( result );
-        PreparedStatement ps = prepareStatement( conn, parsedSql, params );
-        return ps;
+        return prepareStatementFromTemplateFile( conn, filename, params, data );
     }
 
     public PreparedStatement prepareStatementFromTemplate( Connection conn, String content, SqlParams params, Map data ) {
-        String result = executeTemplate( content, data );
-        ParsedSql parsedSql = OliveUtils.parseSql( result );
-        PreparedStatement ps = prepareStatement( conn, parsedSql, params );
-        return ps;
+        Template template = getTemplateService().compileTemplate( content );
+        return prepareStatementFromTemplate( conn, template, params, data );
     }
 
     public PreparedStatement prepareStatementFromTemplateFile( Connection conn, String filename, SqlParams params, Map data ) {
 
-        String result = executeTemplateFile( filename, data );
-        ParsedSql parsedSql = OliveUtils.parseSql( result );
+        Template template = loadCompiledTemplate( filename, data );
+        return prepareStatementFromTemplate( conn, filename, template, params, data );
+    }
+
+    protected PreparedStatement prepareStatementFromTemplate( Connection conn, Template template, SqlParams params, Map data ) {
+        return prepareStatementFromTemplate( conn, null, template, params, data );
+    }
+
+    /**
+     * Render the given template, parse the rendered SQL and create a PreparedStatement for it.
+     *
+     * @param conn the connection for creating the PreparedStatement with
+     * @param name the name of the template resource, set as the name of the rendered {@link ParsedSql}, or null
+     * @param template the template to render
+     * @param params the params for creating the PreparedStatement with
+     * @param data the data to render the template with
+     * @return the PreparedStatement for the rendered SQL
+     */
+    protected PreparedStatement prepareStatementFromTemplate( Connection conn, String name, Template template, SqlParams params, Map data ) {
+        long start = Metrics.start( OperationType.TEMPLATE_RENDER );
+
+        // Parse the rendered SQL straight out of the render buffer, ParsedSql keeps the only copy of the text
+        CharSequence sql = getTemplateService().executeTemplateToBuffer( template, data );
+        Metrics.templateRendered( name, start );
+
+        start = Metrics.start( OperationType.SQL_PARSE );
+        ParsedSql parsedSql = OliveUtils.parseSql( sql );
+        parsedSql.setName( name );
+        Metrics.sqlParsed( name, start );
+
         PreparedStatement ps = prepareStatement( conn, parsedSql, params );
         return ps;
     }
 
     public String executeTemplateFile( String filename, Map data ) {
         Template template = loadCompiledTemplate( filename, data );
-        String result = executeTemplate( template, data );
+        String result = executeTemplate( filename, template, data );
         return result;
     }
 
@@ -495,64 +976,98 @@ public class Olive {
 //    }
 
     public String executeTemplate( String content, Map data ) {
-        Template template = getTemplateService().compileTemplate( content, data );
+        Template template = compileTemplate( content );
 
         String result = executeTemplate( template, data );
         return result;
     }
 
     public String executeTemplate( Template template, Map data ) {
+        return executeTemplate( null, template, data );
+    }
+
+    private String executeTemplate( String name, Template template, Map data ) {
+        long start = Metrics.start( OperationType.TEMPLATE_RENDER );
         String result = getTemplateService().executeTemplate( template, data );
+        Metrics.templateRendered( name, start );
         return result;
     }
 
+    public Template loadCompiledTemplate( String filename, Map data ) {
+        return loadCompiledTemplate( filename );
+    }
+
+    /**
+     * Loads and compiles the template file for the given filename. In production mode the compiled template is cached and
+     * shared by all threads.
+     * <p/>
+     * Templates can include other template files as partials, for example <code>{{&gt;/sql/person/where-clause.sql}}</code>.
+     * Partials are loaded through this method, so each is compiled once and shared by every template that includes it.
+     *
+     * @param filename the name of the template file to load and compile
+     * @return the compiled template
+     */
     public Template loadCompiledTemplate( String filename ) {
+        if ( filename == null ) {
+            throw new IllegalArgumentException( "filename cannot be null!" );
+        }
 
-        Map data = new HashMap();
-        return loadCompiledTemplate( filename, data );
-    }
+        boolean caching = isCaching();
 
-    public Template loadCompiledTemplate( String filename, Map data ) {
+        if ( caching ) {
+            discardStaleTemplates();
+            Template template = templateMap.get( filename );
+
+            if ( template != null ) {
+                return template;
+            }
+        }
+
+        ResourceCache resources = getResourceCache();
+        long generation = resources.generation.get();
 
         String content = loadContent( filename );
-        Template template = getTemplateService().compileTemplate( content, data );
+        Template template = compileTemplate( content );
+
+        if ( caching ) {
+            resources.cache( templateMap, filename, template, generation );
+
+            if ( getResourceLoader() instanceof WatchingResourceLoader ) {
+                // Record which partials the template includes, so that the template is evicted when a partial changes.
+                // The template is cached first so that a partial which includes itself resolves from the cache.
+                for ( String partial : resolvePartials( template ) ) {
+                    dependentTemplates.computeIfAbsent( partial, key -> ConcurrentHashMap.newKeySet() ).add( filename );
+                }
+            }
+        }
         return template;
     }
 
-//    public Template compileTemplate( String name, String content ) {
-//
-//        Map data = new HashMap();
-//        Template template = compileTemplate( name, content, data );
-//        return template;
-//    }
-
-//    public Template compileTemplate( String name, String content, Map data ) {
-//        // Bercause of partials, DONT cache
-////        if ( getMode() == Mode.PRODUCTION ) {
-////            Template template = templateMap.get( name );
-////
-////            if ( template != null ) {
-////                return template;
-////            }
-////        }
-//
-//        Template template = getTemplateService().compileTemplate( content, data );
-//
-////        if ( getMode() == Mode.PRODUCTION ) {
-////            templateMap.put( name, template );
-////        }
-//        return template;
-//    }
+    /**
+     * Discard the cached compiled templates if the TemplateService compiler changed since they were compiled, for example
+     * because a formatter or escaper was set.
+     */
+    private void discardStaleTemplates() {
+        long version = getTemplateService().getCompilerVersion();
+
+        if ( version != templateCompilerVersion ) {
+            // Bump the generation so that templates compiled with the old compiler, but not yet cached, are not cached
+            getResourceCache().generation.incrementAndGet();
+            templateMap.clear();
+            dependentTemplates.clear();
+            templateCompilerVersion = version;
+        }
+    }
 
     public Template compileTemplate( String content ) {
-        Map data = new HashMap();
-        Template template = getTemplateService().compileTemplate( content, data );
+        Template template = getTemplateService().compileTemplate( content );
         return template;
     }
 
     public TemplateService getTemplateService() {
         if ( templateService == null ) {
             templateService = new TemplateService();
+            templateService.setTemplateLoader( createTemplateLoader() );
         }
 
         return templateService;
@@ -560,6 +1075,99 @@ public class Olive {
 
     public void setTemplateService( TemplateService templateService ) {
         this.templateService = templateService;
+        templateCompilerVersion = -1;
+    }
+
+    /**
+     * Creates the loader for partials which are not registered with the {@link TemplateService} nor passed in the render
+     * data. Partial names are treated as template filenames and loaded with {@link #loadCompiledTemplate(java.lang.String)}.
+     * A partial that cannot be found fails the render with a {@link MustacheException}.
+     *
+     * @return the loader for partials which are not registered with the TemplateService
+     */
+    protected Mustache.TemplateLoader createTemplateLoader() {
+
+        return new Mustache.CompiledTemplateLoader() {
+
+            @Override
+            public Template getCompiledTemplate( String name, Mustache.Compiler compiler ) {
+                try {
+                    return loadCompiledTemplate( name );
+
+                } catch ( IllegalStateException | IllegalArgumentException e ) {
+                    throw new MustacheException( "No partial found for name '" + name + "'", e );
+                }
+            }
+
+            @Override
+            public Reader getTemplate( String name ) {
+                return new StringReader( loadContent( name ) );
+            }
+        };
+    }
+
+    /**
+     * The loaded files and parsed SQL statements of one ResourceLoader.
+     */
+    private static class ResourceCache {
+
+        /**
+         * Incremented whenever a resource is evicted from the caches, see {@link Olive#invalidate(java.lang.String)}.
+         */
+        private final AtomicLong generation = new AtomicLong();
+
+        private final Map<String, String> fileMap = new ConcurrentHashMap<>();
+
+        private final Map<String, ParsedSql> parsedMap = new ConcurrentHashMap<>();
+
+        /**
+         * Caches the named statements of multi-statement SQL files, see {@link Olive#loadParsedSqlStatements(java.lang.String)}.
+         */
+        private final Map<String, Map<String, ParsedSql>> statementsMap = new ConcurrentHashMap<>();
+
+        /**
+         * Cache the value loaded for the given name, unless a resource changed while the value was being loaded, in
+         * which case the value might be stale.
+         *
+         * @param map the cache
+         * @param name the name of the loaded resource
+         * @param value the value loaded from the resource
+         * @param generation the generation of this cache read before the resource was loaded
+         */
+        private <V> void cache( Map<String, V> map, String name, V value, long generation ) {
+            map.put( name, value );
+
+            // Checking after the put covers an invalidation that happens between the check and the put
+            if ( this.generation.get() != generation ) {
+                map.remove( name, value );
+            }
+        }
+    }
+
+    /**
+     * Listens to a WatchingResourceLoader on behalf of an Olive instance without keeping the instance reachable, and
+     * removes itself from the loader once the instance is garbage collected.
+     */
+    private static class InvalidationListener implements ResourceChangeListener {
+
+        private final WeakReference<Olive> olive;
+
+        private final WatchingResourceLoader loader;
+
+        private InvalidationListener( Olive olive, WatchingResourceLoader loader ) {
+            this.olive = new WeakReference<>( olive );
+            this.loader = loader;
+        }
+
+        @Override
+        public void resourceChanged( String name ) {
+            Olive current = olive.get();
+            if ( current == null ) {
+                loader.removeListener( this );
+                return;
+            }
+            current.invalidate( name );
+        }
     }
 
     public static void main( String[] args ) {
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package za.sabob.olive;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The outcome of {@link Olive#warmUp(java.lang.String...)}: which resources were loaded, how long it took and which
+ * resources failed to load, parse or compile.
+ * <p/>
+ * Example usage:
+ * <pre class="prettyprint">
+ * WarmUpResult result = olive.warmUp("/com/mycorp/dao");
+ *
+ * if (result.hasFailures()) {
+ *     throw new IllegalStateException("SQL files failed to load: " + result.getFailures().keySet());
+ * } </pre>
+ */
+public class WarmUpResult {
+
+    private final Set<String> sqlFiles = new ConcurrentSkipListSet<>();
+
+    private final Set<String> templateFiles = new ConcurrentSkipListSet<>();
+
+    private final Set<String> partials = new ConcurrentSkipListSet<>();
+
+    private final Map<String, Exception> failures = new ConcurrentSkipListMap<>();
+
+    private long durationNanos;
+
+    /**
+     * Return the names of the SQL files which were loaded and parsed.
+     *
+     * @return the names of the SQL files which were loaded and parsed
+     */
+    public Set<String> getSqlFiles() {
+        return Collections.unmodifiableSet( sqlFiles );
+    }
+
+    /**
+     * Return the names of the template files which were loaded and compiled.
+     *
+     * @return the names of the template files which were loaded and compiled
+     */
+    public Set<String> getTemplateFiles() {
+        return Collections.unmodifiableSet( templateFiles );
+    }
+
+    /**
+     * Return the names of the partials which were resolved and compiled for the template files.
+     *
+     * @return the names of the partials which were resolved and compiled
+     */
+    public Set<String> getPartials() {
+        return Collections.unmodifiableSet( partials );
+    }
+
+    /**
+     * Return the resources which failed to load, parse or compile, mapped to the exception raised.
+     *
+     * @return the resources which failed mapped to the exception raised
+     */
+    public Map<String, Exception> getFailures() {
+        return Collections.unmodifiableMap( failures );
+    }
+
+    /**
+     * Return true if any resource failed to load, parse or compile.
+     *
+     * @return true if any resource failed to load, parse or compile
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Return the number of resources which were loaded successfully.
+     *
+     * @return the number of resources which were loaded successfully
+     */
+    public int getLoadedCount() {
+        return sqlFiles.size() + templateFiles.size();
+    }
+
+    /**
+     * Return how long the warm up took in the given unit.
+     *
+     * @param unit the unit of the returned duration
+     * @return how long the warm up took in the given unit
+     */
+    public long getDuration( TimeUnit unit ) {
+        return unit.convert( durationNanos, TimeUnit.NANOSECONDS );
+    }
+
+    void addSqlFile( String name ) {
+        sqlFiles.add( name );
+    }
+
+    void addTemplateFile( String name ) {
+        templateFiles.add( name );
+    }
+
+    void addPartial( String name ) {
+        partials.add( name );
+    }
+
+    void addFailure( String name, Exception exception ) {
+        failures.put( name, exception );
+    }
+
+    void setDurationNanos( long durationNanos ) {
+        this.durationNanos = durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Warmed up " + sqlFiles.size() + " SQL files, " + templateFiles.size() + " templates and " + partials.size()
+            + " partials in " + getDuration( TimeUnit.MILLISECONDS ) + " ms with " + failures.size() + " failures";
+    }
+}
@@ -2,6 +2,7 @@ package za.sabob.olive.jdbc.config;
 
 import javax.sql.*;
 import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.context.*;
 
 public class JDBCConfig {
 
@@ -9,6 +10,8 @@ public class JDBCConfig {
 
     private static boolean JOINABLE_TRANSACTIONS_DEFAULT = true;
 
+    private static volatile ConnectionLeakDetector CONNECTION_LEAK_DETECTOR;
+
     public static void setJoinableTransactionsDefault( boolean value ) {
         JOINABLE_TRANSACTIONS_DEFAULT = value;
     }
@@ -31,6 +34,24 @@ public class JDBCConfig {
         return value;
     }
 
+    /**
+     * Returns the detector which tracks root JDBCContexts for connection leaks, null by default.
+     *
+     * @return the connection leak detector, or null if leak detection is disabled
+     */
+    public static ConnectionLeakDetector getConnectionLeakDetector() {
+        return CONNECTION_LEAK_DETECTOR;
+    }
+
+    /**
+     * Set the detector which tracks root JDBCContexts for connection leaks, or null to disable leak detection.
+     *
+     * @param detector the connection leak detector
+     */
+    public static void setConnectionLeakDetector( ConnectionLeakDetector detector ) {
+        CONNECTION_LEAK_DETECTOR = detector;
+    }
+
     public static DataSource getDefault() {
         return DSF.getDefault();
     }
@@ -0,0 +1,233 @@
+package za.sabob.olive.jdbc.context;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.logging.*;
+import javax.sql.*;
+
+/**
+ * Detects Connections which are held too long, typically because a JDBCContext created with JDBC.beginOperation or
+ * JDBC.beginTransaction was never cleaned up, which silently drains the connection pool.
+ * <p/>
+ * The detector is opt-in: register it with JDBCConfig.setConnectionLeakDetector and {@link #start() start} the
+ * sweeper. Every root JDBCContext is tracked from when it acquires its Connection until it is closed. The sweeper
+ * reports contexts held past the threshold once each, logging where the Connection was acquired if the acquisition
+ * stack was sampled.
+ *
+ * <pre class="prettyprint">
+ * // Report connections held for more than 30 seconds, capturing the acquisition stack of every 10th connection
+ * ConnectionLeakDetector detector = new ConnectionLeakDetector(30, TimeUnit.SECONDS, 10);
+ * detector.start();
+ * JDBCConfig.setConnectionLeakDetector(detector);
+ * </pre>
+ *
+ * Capturing a stack trace is relatively expensive, so set the sample rate to 1 only while hunting a leak.
+ */
+public class ConnectionLeakDetector implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger( ConnectionLeakDetector.class.getName() );
+
+    private final ConcurrentMap<JDBCContext, OpenContext> openContexts = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<DataSource, AtomicInteger> openContextsByDataSource = new ConcurrentHashMap<>();
+
+    private final AtomicLong acquisitions = new AtomicLong();
+
+    private final AtomicLong leaks = new AtomicLong();
+
+    private final long thresholdNanos;
+
+    private final int stackSampleRate;
+
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * Creates a new ConnectionLeakDetector which captures the acquisition stack of every Connection.
+     *
+     * @param threshold the time a Connection may be held before it is reported
+     * @param unit the unit of the threshold
+     */
+    public ConnectionLeakDetector( long threshold, TimeUnit unit ) {
+        this( threshold, unit, 1 );
+    }
+
+    /**
+     * Creates a new ConnectionLeakDetector.
+     *
+     * @param threshold the time a Connection may be held before it is reported
+     * @param unit the unit of the threshold
+     * @param stackSampleRate capture the acquisition stack of every n-th Connection, 1 captures every stack and 0 none
+     */
+    public ConnectionLeakDetector( long threshold, TimeUnit unit, int stackSampleRate ) {
+        if ( threshold <= 0 ) {
+            throw new IllegalArgumentException( "threshold must be greater than 0" );
+        }
+
+        if ( stackSampleRate < 0 ) {
+            throw new IllegalArgumentException( "stackSampleRate cannot be negative" );
+        }
+
+        this.thresholdNanos = unit.toNanos( threshold );
+        this.stackSampleRate = stackSampleRate;
+    }
+
+    public long getThreshold( TimeUnit unit ) {
+        return unit.convert( thresholdNanos, TimeUnit.NANOSECONDS );
+    }
+
+    public int getStackSampleRate() {
+        return stackSampleRate;
+    }
+
+    /**
+     * Start a daemon thread which checks for Connections held past the threshold, at an interval of the threshold.
+     */
+    public synchronized void start() {
+        if ( sweeper != null ) {
+            return;
+        }
+
+        sweeper = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            Thread thread = new Thread( runnable, "olive-connection-leak-detector" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        sweeper.scheduleWithFixedDelay( this::sweep, thresholdNanos, thresholdNanos, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Stop the sweeper thread. Contexts are still tracked until the detector is unregistered.
+     */
+    @Override
+    public synchronized void close() {
+        if ( sweeper != null ) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Report all Connections held past the threshold which have not been reported yet.
+     *
+     * @return the number of Connections reported
+     */
+    public int sweep() {
+        int reported = 0;
+
+        try {
+            for ( OpenContext open : findLeaks() ) {
+                if ( open.isReported() ) {
+                    continue;
+                }
+
+                open.setReported( true );
+                leaks.incrementAndGet();
+                reported++;
+                onLeak( open );
+            }
+
+        } catch ( RuntimeException e ) {
+            // Never let an exception cancel the scheduled sweeper
+            LOGGER.log( Level.WARNING, "Connection leak detection failed", e );
+        }
+        return reported;
+    }
+
+    /**
+     * Returns the contexts which have held their Connection past the threshold, longest held first.
+     *
+     * @return the contexts which have held their Connection past the threshold
+     */
+    public List<OpenContext> findLeaks() {
+        List<OpenContext> result = new ArrayList<>();
+
+        for ( OpenContext open : openContexts.values() ) {
+            if ( open.getHeldTime( TimeUnit.NANOSECONDS ) >= thresholdNanos ) {
+                result.add( open );
+            }
+        }
+
+        result.sort( ( o1, o2 ) -> Long.compare( o1.getOpenedAt(), o2.getOpenedAt() ) );
+        return result;
+    }
+
+    /**
+     * Returns all contexts currently holding a Connection.
+     *
+     * @return all contexts currently holding a Connection
+     */
+    public Collection<OpenContext> getOpenContexts() {
+        return Collections.unmodifiableCollection( openContexts.values() );
+    }
+
+    /**
+     * Returns the number of contexts currently holding a Connection from the given DataSource.
+     *
+     * @param ds the DataSource
+     * @return the number of contexts currently holding a Connection from the given DataSource
+     */
+    public int getOpenContextCount( DataSource ds ) {
+        AtomicInteger count = openContextsByDataSource.get( ds );
+        return count == null ? 0 : count.get();
+    }
+
+    public int getOpenContextCount() {
+        return openContexts.size();
+    }
+
+    /**
+     * Returns the number of leaks reported since the detector was created.
+     *
+     * @return the number of leaks reported
+     */
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    /**
+     * Called by the sweeper, once, for every context which held its Connection past the threshold. Logs a warning by
+     * default; override to report leaks elsewhere.
+     *
+     * @param open the context which held its Connection past the threshold
+     */
+    protected void onLeak( OpenContext open ) {
+        String message = "Possible connection leak: " + open + ". Make sure every JDBC.beginOperation and JDBC.beginTransaction"
+            + " is followed by JDBC.cleanupOperation or JDBC.cleanupTransaction.";
+
+        if ( open.getAcquisitionStack() == null ) {
+            LOGGER.warning( message );
+        } else {
+            LOGGER.log( Level.WARNING, message, open.getAcquisitionStack() );
+        }
+    }
+
+    void opened( JDBCContext ctx, DataSource ds ) {
+        Throwable stack = null;
+
+        if ( stackSampleRate > 0 && acquisitions.getAndIncrement() % stackSampleRate == 0 ) {
+            stack = new Throwable( "Connection acquired here" );
+        }
+
+        openContexts.put( ctx, new OpenContext( ctx, ds, stack ) );
+        openContextsByDataSource.computeIfAbsent( ds, key -> new AtomicInteger() ).incrementAndGet();
+    }
+
+    void closed( JDBCContext ctx ) {
+        OpenContext open = openContexts.remove( ctx );
+
+        if ( open == null ) {
+            return;
+        }
+
+        AtomicInteger count = openContextsByDataSource.get( open.getDataSource() );
+        if ( count != null ) {
+            count.decrementAndGet();
+        }
+
+        if ( open.isReported() ) {
+            LOGGER.info( "Connection previously reported as a possible leak was closed after " + open.getHeldTime( TimeUnit.MILLISECONDS ) + " ms" );
+        }
+    }
+}
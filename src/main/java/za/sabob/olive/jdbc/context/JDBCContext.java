@@ -4,6 +4,7 @@ import java.sql.*;
 import java.util.*;
 import java.util.logging.*;
 import za.sabob.olive.jdbc.context.listener.*;
+import za.sabob.olive.metrics.*;
 import za.sabob.olive.util.*;
 import static za.sabob.olive.util.OliveUtils.toRuntimeException;
 
@@ -23,12 +24,16 @@ public class JDBCContext implements AutoCloseable {
 
     private boolean transaction = false;
 
+    private long transactionStart;
+
     private JDBCContextListener listener; // TODO listener or listeners
 
     private final List<Statement> statements = new ArrayList<>();
 
     private final List<ResultSet> resultSets = new ArrayList<>();
 
+    private final List<TransactionListener> transactionListeners = new ArrayList<>();
+
     public JDBCContext( Connection conn ) {
         this.connection = conn;
     }
@@ -36,12 +41,14 @@ public class JDBCContext implements AutoCloseable {
     public JDBCContext( Connection conn, boolean transaction ) {
         this.connection = conn;
         this.transaction = transaction;
+        this.transactionStart = transaction ? Metrics.start( OperationType.TRANSACTION ) : 0;
     }
 
     public JDBCContext( Connection conn, JDBCContextListener listener, boolean transaction ) {
         this.connection = conn;
         this.listener = listener;
         this.transaction = transaction;
+        this.transactionStart = transaction ? Metrics.start( OperationType.TRANSACTION ) : 0;
     }
 
     public JDBCContext( Connection conn, JDBCContextListener listener, boolean transaction, boolean autoCommitValueRetrievedFromDataSource ) {
@@ -79,6 +86,71 @@ public class JDBCContext implements AutoCloseable {
         return transaction;
     }
 
+    /**
+     * Returns the context which started the transaction this context takes part in, or null if this context is not part
+     * of a transaction.
+     *
+     * @return the root transaction context or null if this context is not part of a transaction
+     */
+    public JDBCContext getRootTransactionContext() {
+
+        if ( isClosed() ) {
+            return null;
+        }
+
+        JDBCContext rootTransactionContext = null;
+
+        for ( JDBCContext ctx = this; ctx != null; ctx = ctx.getParent() ) {
+            if ( ctx.transaction ) {
+                rootTransactionContext = ctx;
+            }
+        }
+        return rootTransactionContext;
+    }
+
+    public boolean isInTransaction() {
+        return getRootTransactionContext() != null;
+    }
+
+    /**
+     * Add a listener which is notified after the transaction this context takes part in commits or rolls back.
+     * <p/>
+     * The listener is added to the {@link #getRootTransactionContext() root transaction context}, so work done in nested
+     * contexts is only reported once the whole transaction completes. Listeners which are not notified by the time the
+     * root transaction context is closed are discarded.
+     *
+     * @param listener the listener to notify
+     * @throws IllegalStateException if this context is not part of a transaction
+     */
+    public void addTransactionListener( TransactionListener listener ) {
+        if ( listener == null ) {
+            throw new IllegalArgumentException( "TransactionListener cannot be null" );
+        }
+
+        JDBCContext rootTransactionContext = getRootTransactionContext();
+
+        if ( rootTransactionContext == null ) {
+            throw new IllegalStateException( "Cannot add a TransactionListener to a JDBCContext which is not part of a transaction." );
+        }
+
+        rootTransactionContext.transactionListeners.add( listener );
+    }
+
+    /**
+     * Returns the listeners waiting for the transaction this context takes part in to complete.
+     *
+     * @return the listeners waiting for the transaction to complete, empty if this context is not part of a transaction
+     */
+    public List<TransactionListener> getTransactionListeners() {
+        JDBCContext rootTransactionContext = getRootTransactionContext();
+
+        if ( rootTransactionContext == null ) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList( rootTransactionContext.transactionListeners );
+    }
+
     public boolean isRootContext() {
         boolean isRoot = getParent() == null;
         return isRoot;
@@ -89,26 +161,38 @@ public class JDBCContext implements AutoCloseable {
         if ( canCommit() ) {
             Connection conn = getConnection();
             OliveUtils.commit( conn );
-
+            Metrics.committed( transactionStart );
+            fireAfterCommit();
         }
     }
 
     public RuntimeException commitQuietly() {
         Connection conn = getConnection();
-        return OliveUtils.commitQuietly( conn );
+        RuntimeException exception = OliveUtils.commitQuietly( conn );
+
+        if ( exception == null && canCommit() ) {
+            Metrics.committed( transactionStart );
+            fireAfterCommit();
+        }
+        return exception;
     }
 
     public void rollback() {
         if ( canRollback() ) {
             Connection conn = getConnection();
             OliveUtils.rollback( conn );
+            Metrics.rolledBack( transactionStart );
+            fireAfterRollback();
         }
     }
 
     public RuntimeException rollbackQuietly() {
         if ( canRollback() ) {
             Connection conn = getConnection();
-            return OliveUtils.rollbackQuietly( conn );
+            RuntimeException exception = OliveUtils.rollbackQuietly( conn );
+            Metrics.rolledBack( transactionStart );
+            fireAfterRollback();
+            return exception;
         }
         return null;
     }
@@ -120,7 +204,10 @@ public class JDBCContext implements AutoCloseable {
 
         if ( canRollback() ) {
             Connection conn = getConnection();
-            return OliveUtils.rollback( conn, e );
+            RuntimeException exception = OliveUtils.rollback( conn, e );
+            Metrics.rolledBack( transactionStart );
+            fireAfterRollback();
+            return exception;
         }
         return toRuntimeException( e );
     }
@@ -255,6 +342,7 @@ public class JDBCContext implements AutoCloseable {
 
         // TODO should we nullify connection here to prevent leaks?
         //connection = null;
+        transactionListeners.clear();
         setClosed( true );
 
         detach();
@@ -414,6 +502,28 @@ public class JDBCContext implements AutoCloseable {
         return getListener() != null;
     }
 
+    private void fireAfterCommit() {
+        for ( TransactionListener transactionListener : removeTransactionListeners() ) {
+            transactionListener.afterCommit( this );
+        }
+    }
+
+    private void fireAfterRollback() {
+        for ( TransactionListener transactionListener : removeTransactionListeners() ) {
+            transactionListener.afterRollback( this );
+        }
+    }
+
+    private List<TransactionListener> removeTransactionListeners() {
+        if ( transactionListeners.isEmpty() ) {
+            return Collections.emptyList();
+        }
+
+        List<TransactionListener> removed = new ArrayList<>( transactionListeners );
+        transactionListeners.clear();
+        return removed;
+    }
+
     private void fireConnectionClosed() {
         if ( hasListener() ) {
             getListener().onConnectionClosed( this );
@@ -5,6 +5,7 @@ import javax.sql.*;
 import za.sabob.olive.jdbc.*;
 import za.sabob.olive.jdbc.config.*;
 import za.sabob.olive.jdbc.context.listener.*;
+import za.sabob.olive.metrics.*;
 import za.sabob.olive.util.*;
 
 public class JDBCContextManager {
@@ -15,6 +16,12 @@ public class JDBCContextManager {
 
     private final JDBCContextListener contextListener = new ManagerListener();
 
+    private DataSource rootDataSource;
+
+    private long rootOpened;
+
+    private ConnectionLeakDetector rootLeakDetector;
+
     public JDBCContext createContext( DataSource ds, boolean beginTransaction ) {
         JDBCContext ctx = createJDBCContext( ds, beginTransaction );
         return ctx;
@@ -50,6 +57,7 @@ public class JDBCContextManager {
             autoCommitValueRetrievedFromDataSource = connectionAndAutoCommitValue.autoCommit;
 
             ctx = new JDBCContext( contextConn, contextListener, beginTransaction, autoCommitValueRetrievedFromDataSource );
+            rootContextOpened( ctx, ds );
 
         } else {
 
@@ -92,7 +100,10 @@ public class JDBCContextManager {
         boolean currentAutoCommit = true;
 
         try {
+            long start = Metrics.start( OperationType.CONNECTION_ACQUIRE );
             newConn = OliveUtils.getConnection( ds );
+            Metrics.connectionAcquired( start );
+
             currentAutoCommit = newConn.getAutoCommit();
             OliveUtils.setAutoCommit( newConn, autoCommit );
 
@@ -162,8 +173,36 @@ public class JDBCContextManager {
                 resetConnection();
             }
 
+            rootContextClosed( ctx );
+
+        }
+
+    }
+
+    private void rootContextOpened( JDBCContext ctx, DataSource ds ) {
+        rootDataSource = ds;
+        rootOpened = Metrics.contextOpened( ds );
+
+        // Keep the detector the context was registered with, in case the configured detector changes before it closes
+        rootLeakDetector = JDBCConfig.getConnectionLeakDetector();
+        if ( rootLeakDetector != null ) {
+            rootLeakDetector.opened( ctx, ds );
+        }
+    }
+
+    private void rootContextClosed( JDBCContext ctx ) {
+        if ( rootDataSource == null ) {
+            return;
+        }
+
+        Metrics.contextClosed( rootDataSource, rootOpened );
+
+        if ( rootLeakDetector != null ) {
+            rootLeakDetector.closed( ctx );
         }
 
+        rootDataSource = null;
+        rootLeakDetector = null;
     }
 
     private void removeManager( JDBCContext ctx, boolean isRootContext ) {
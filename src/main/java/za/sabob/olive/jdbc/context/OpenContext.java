@@ -0,0 +1,86 @@
+package za.sabob.olive.jdbc.context;
+
+import java.util.concurrent.*;
+import javax.sql.*;
+
+/**
+ * A root {@link JDBCContext} tracked by the {@link ConnectionLeakDetector}, from the moment it acquired its Connection
+ * until it is closed.
+ */
+public class OpenContext {
+
+    private final JDBCContext context;
+
+    private final DataSource dataSource;
+
+    private final long openedAt;
+
+    private final long openedNanos;
+
+    private final String threadName;
+
+    private final Throwable acquisitionStack;
+
+    private volatile boolean reported;
+
+    OpenContext( JDBCContext context, DataSource dataSource, Throwable acquisitionStack ) {
+        this.context = context;
+        this.dataSource = dataSource;
+        this.openedAt = System.currentTimeMillis();
+        this.openedNanos = System.nanoTime();
+        this.threadName = Thread.currentThread().getName();
+        this.acquisitionStack = acquisitionStack;
+    }
+
+    public JDBCContext getContext() {
+        return context;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Returns when the Connection was acquired, in milliseconds since the epoch.
+     *
+     * @return when the Connection was acquired
+     */
+    public long getOpenedAt() {
+        return openedAt;
+    }
+
+    public long getHeldTime( TimeUnit unit ) {
+        return unit.convert( System.nanoTime() - openedNanos, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Returns the name of the thread which acquired the Connection.
+     *
+     * @return the name of the thread which acquired the Connection
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * Returns the stack trace of where the Connection was acquired, if this acquisition was sampled.
+     *
+     * @return the stack trace of where the Connection was acquired, or null if this acquisition was not sampled
+     */
+    public Throwable getAcquisitionStack() {
+        return acquisitionStack;
+    }
+
+    boolean isReported() {
+        return reported;
+    }
+
+    void setReported( boolean reported ) {
+        this.reported = reported;
+    }
+
+    @Override
+    public String toString() {
+        return "JDBCContext opened by thread '" + threadName + "' held for " + getHeldTime( TimeUnit.MILLISECONDS ) + " ms";
+    }
+}
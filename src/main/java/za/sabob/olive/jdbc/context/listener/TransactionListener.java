@@ -0,0 +1,16 @@
+package za.sabob.olive.jdbc.context.listener;
+
+import za.sabob.olive.jdbc.context.*;
+
+/**
+ * Notified when the root transaction context it was {@link JDBCContext#addTransactionListener(TransactionListener) added to}
+ * commits or rolls back. A listener is notified once and then removed.
+ */
+public abstract class TransactionListener {
+
+    public void afterCommit( JDBCContext ctx ) {
+    }
+
+    public void afterRollback( JDBCContext ctx ) {
+    }
+}
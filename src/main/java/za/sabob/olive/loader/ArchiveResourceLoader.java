@@ -0,0 +1,391 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package za.sabob.olive.loader;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import za.sabob.olive.util.*;
+
+/**
+ * Resource loader that serves SQL and template files from a single archive, packed at build time by
+ * {@link #writeArchive(java.util.List, java.io.OutputStream, java.lang.String...)}, for example from the
+ * <code>sqlArchive</code> task in <code>build.gradle</code>.
+ * <p/>
+ * The archive is read into memory with a single read when the loader is created and indexed by name, so looking up a
+ * resource is a HashMap lookup with no class loader scanning, which is much faster than {@link ClasspathResourceLoader}
+ * in large (fat) jars. All resources share the archive's backing buffer.
+ * <p/>
+ * Example usage:
+ * <pre class="prettyprint">
+ * // Loads /olive-sql.archive from the classpath
+ * ArchiveResourceLoader loader = new ArchiveResourceLoader();
+ * Olive olive = new Olive(loader);
+ *
+ * // Names are the same as for the ClasspathResourceLoader
+ * String filename = OliveUtils.normalize(PersonDao.class, "select-person.sql");
+ * ParsedSql parsedSql = olive.loadParsedSql(filename);
+ * </pre>
+ *
+ * To pack the archive in an application's Gradle build, run this class with the archive file followed by the folders
+ * to pack, and add the archive to the resources:
+ * <pre class="prettyprint">
+ * task sqlArchive(type: JavaExec) {
+ *     def archive = file("$buildDir/sql-archive/olive-sql.archive")
+ *     main = "za.sabob.olive.loader.ArchiveResourceLoader"
+ *     classpath = configurations.runtimeClasspath
+ *     args = [archive.absolutePath, file("src/main/resources").absolutePath]
+ *     outputs.file archive
+ * }
+ *
+ * processResources {
+ *     from sqlArchive
+ * }
+ * </pre>
+ *
+ * The archive format is:
+ * <pre>
+ * int     magic (0x4F4C5341, "OLSA")
+ * int     version (1)
+ * long    time the archive was created, in milliseconds since the epoch, or 0 if not recorded
+ *         (writeArchive writes 0 so that building the same files gives the same archive)
+ * int     number of entries
+ * entries name (modified UTF-8, see DataOutput.writeUTF), offset and length (ints) of each resource
+ * bytes   the UTF-8 content of all resources, the offsets are relative to the start of this section
+ * </pre>
+ */
+public class ArchiveResourceLoader implements ResourceLoader {
+
+    /**
+     * The name of the archive on the classpath created by the <code>sqlArchive</code> Gradle task.
+     */
+    public static final String DEFAULT_ARCHIVE = "/olive-sql.archive";
+
+    /**
+     * The first int of an archive.
+     */
+    public static final int MAGIC = 0x4F4C5341;
+
+    /**
+     * The archive format version.
+     */
+    public static final int VERSION = 1;
+
+    private final byte[] data;
+
+    private final int dataOffset;
+
+    private final long created;
+
+    private final Map<String, Entry> index;
+
+    /**
+     * Creates a new ArchiveResourceLoader for the {@link #DEFAULT_ARCHIVE} on the classpath.
+     */
+    public ArchiveResourceLoader() {
+        this(DEFAULT_ARCHIVE);
+    }
+
+    /**
+     * Creates a new ArchiveResourceLoader for the archive with the given absolute name on the classpath.
+     *
+     * @param archive the absolute name of the archive on the classpath
+     */
+    public ArchiveResourceLoader(String archive) {
+        this(openClasspathArchive(archive));
+    }
+
+    /**
+     * Creates a new ArchiveResourceLoader for the given archive file.
+     *
+     * @param archive the archive file
+     */
+    public ArchiveResourceLoader(Path archive) {
+        this(readAllBytes(archive));
+    }
+
+    /**
+     * Creates a new ArchiveResourceLoader which reads the archive from the given stream. The stream is read fully and
+     * closed.
+     *
+     * @param archive the stream to read the archive from
+     */
+    public ArchiveResourceLoader(InputStream archive) {
+        this(readAllBytes(archive));
+    }
+
+    private ArchiveResourceLoader(byte[] data) {
+        this.data = data;
+
+        try {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+            DataInputStream in = new DataInputStream(bytes);
+
+            if (in.readInt() != MAGIC) {
+                throw new IllegalStateException("ArchiveResourceLoader: not an Olive SQL archive");
+            }
+
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IllegalStateException("ArchiveResourceLoader: unsupported archive version " + version);
+            }
+
+            created = in.readLong();
+
+            int count = in.readInt();
+            Map<String, Entry> entries = new HashMap<String, Entry>(count * 4 / 3 + 1);
+
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int offset = in.readInt();
+                int length = in.readInt();
+                entries.put(name, new Entry(offset, length));
+            }
+
+            index = entries;
+            dataOffset = data.length - bytes.available();
+
+        } catch (IOException e) {
+            throw new IllegalStateException("ArchiveResourceLoader: corrupt archive", e);
+        }
+
+        for (Entry entry : index.values()) {
+            if (entry.offset < 0 || entry.length < 0 || (long) dataOffset + entry.offset + entry.length > data.length) {
+                throw new IllegalStateException("ArchiveResourceLoader: corrupt archive");
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link InputStream} of the resource with the given name. The stream reads from the archive's buffer.
+     *
+     * @param name the absolute name of the resource
+     * @return the InputStream for the given source name
+     * @throws IllegalStateException if no resource is found for the given source
+     */
+    @Override
+    public InputStream getResourceStream(String name) {
+        Entry entry = getEntry(name);
+        return new ByteArrayInputStream(data, dataOffset + entry.offset, entry.length);
+    }
+
+    /**
+     * Returns the content of the resource with the given name, decoded straight from the archive's buffer.
+     *
+     * @param name the absolute name of the resource
+     * @return the content of the resource
+     * @throws IllegalStateException if no resource is found for the given source
+     */
+    @Override
+    public CharSequence getResourceContent(String name) {
+        Entry entry = getEntry(name);
+        return new String(data, dataOffset + entry.offset, entry.length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the time the archive was created for resources in the archive, if it was recorded, otherwise -1.
+     *
+     * @param name the absolute name of the resource
+     * @return the time the archive was created, or -1 if it was not recorded or the resource is not in the archive
+     */
+    @Override
+    public long getLastModified(String name) {
+        return created > 0 && index.containsKey(name) ? created : -1;
+    }
+
+    /**
+     * Returns the names of all resources in the archive under the given root folder.
+     *
+     * @param root the absolute name of the root folder, for example "/com/mycorp/dao"
+     * @return the names of all resources under the given root folder
+     */
+    @Override
+    public Collection<String> getResourceNames(String root) {
+        if (root == null) {
+            throw new IllegalArgumentException("root cannot be null!");
+        }
+
+        String prefix = root.endsWith("/") ? root : root + "/";
+
+        Set<String> names = new TreeSet<String>();
+        for (String name : index.keySet()) {
+            if (name.startsWith(prefix)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private Entry getEntry(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("source cannot be null!");
+        }
+
+        Entry entry = index.get(name);
+        if (entry == null) {
+            throw new IllegalStateException("ArchiveResourceLoader: Could not find " + name + " in the archive");
+        }
+        return entry;
+    }
+
+    /**
+     * Write an archive of all files under the given folder that end with one of the given extensions.
+     *
+     * @param folder the folder to pack, resource names are absolute to this folder
+     * @param out the stream to write the archive to, the stream is not closed
+     * @param extensions the extensions of the files to pack, for example ".sql"
+     */
+    public static void writeArchive(Path folder, OutputStream out, String... extensions) {
+        writeArchive(Collections.singletonList(folder), out, extensions);
+    }
+
+    /**
+     * Write an archive of all files under the given folders that end with one of the given extensions. Resources are
+     * ordered by name and no timestamps are recorded, so packing the same files always writes the same bytes.
+     *
+     * @param folders the folders to pack, resource names are absolute to their folder
+     * @param out the stream to write the archive to, the stream is not closed
+     * @param extensions the extensions of the files to pack, for example ".sql"
+     */
+    public static void writeArchive(List<Path> folders, OutputStream out, String... extensions) {
+        Map<String, byte[]> entries = new TreeMap<String, byte[]>();
+
+        try {
+            for (Path folder : folders) {
+                try (Stream<Path> files = Files.walk(folder)) {
+                    for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                        String name = "/" + folder.relativize(file).toString().replace(File.separatorChar, '/');
+
+                        for (String extension : extensions) {
+                            if (name.endsWith(extension)) {
+                                entries.put(name, Files.readAllBytes(file));
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(0);
+            data.writeInt(entries.size());
+
+            int offset = 0;
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                data.writeUTF(entry.getKey());
+                data.writeInt(offset);
+                data.writeInt(entry.getValue().length);
+                offset += entry.getValue().length;
+            }
+
+            for (byte[] bytes : entries.values()) {
+                data.write(bytes);
+            }
+            data.flush();
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Packs the SQL and Mustache files of the given folders into an archive, used by the <code>sqlArchive</code> Gradle
+     * task.
+     * <pre class="prettyprint">
+     * java za.sabob.olive.loader.ArchiveResourceLoader build/olive-sql.archive src/main/java src/main/resources
+     * </pre>
+     *
+     * @param args the archive file to write, followed by the folders to pack
+     * @throws IOException if the archive cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Usage: ArchiveResourceLoader <archive> <folder>...");
+        }
+
+        List<Path> folders = new ArrayList<Path>();
+        for (int i = 1; i < args.length; i++) {
+            Path folder = Paths.get(args[i]);
+            if (Files.isDirectory(folder)) {
+                folders.add(folder);
+            }
+        }
+
+        Path archive = Paths.get(args[0]);
+        if (archive.getParent() != null) {
+            Files.createDirectories(archive.getParent());
+        }
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(archive))) {
+            writeArchive(folders, out, ".sql", ".mustache");
+        }
+    }
+
+    private static InputStream openClasspathArchive(String archive) {
+        InputStream is = OliveUtils.getResourceAsStream(ArchiveResourceLoader.class, archive);
+
+        if (is == null) {
+            throw new IllegalStateException("ArchiveResourceLoader: The archive '" + archive + "' cannot be found on the classpath!");
+        }
+        return is;
+    }
+
+    private static byte[] readAllBytes(Path archive) {
+        try {
+            return Files.readAllBytes(archive);
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] readAllBytes(InputStream is) {
+        try (InputStream in = is) {
+            byte[] buffer = new byte[Math.max(in.available(), 8192)];
+            int length = 0;
+            int read;
+
+            while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+
+            return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class Entry {
+
+        private final int offset;
+
+        private final int length;
+
+        private Entry(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
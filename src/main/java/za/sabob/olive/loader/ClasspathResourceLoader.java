@@ -16,6 +16,11 @@
 package za.sabob.olive.loader;
 
 import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.jar.*;
+import java.util.stream.*;
 import za.sabob.olive.util.*;
 
 /**
@@ -124,6 +129,89 @@ public class ClasspathResourceLoader implements ResourceLoader {
         return is;
     }
 
+    /**
+     * Returns the names of all resources under the given root package, including those in sub packages. Resources are
+     * found in classpath folders and jar files.
+     * <p/>
+     * For example:
+     *
+     * <pre class="prettyprint">
+     * ClasspathResourceLoader loader = new ClasspathResourceLoader();
+     *
+     * // Returns "/com/mycorp/dao/person/select-person.sql", "/com/mycorp/dao/product/insert-product.sql" etc.
+     * Collection&lt;String&gt; names = loader.getResourceNames("/com/mycorp/dao");
+     * </pre>
+     *
+     * @param root the absolute name of the root package, for example "/com/mycorp/dao"
+     * @return the names of all resources under the given root package
+     */
+    @Override
+    public Collection<String> getResourceNames(String root) {
+        if (root == null) {
+            throw new IllegalArgumentException("root cannot be null!");
+        }
+
+        String path = root;
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (path.length() > 0 && !path.endsWith("/")) {
+            path = path + "/";
+        }
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = getClass().getClassLoader();
+        }
+
+        Set<String> names = new TreeSet<String>();
+
+        try {
+            Enumeration<URL> urls = classLoader.getResources(path);
+
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+
+                if ("file".equals(url.getProtocol())) {
+                    addFolderResources(names, path, Paths.get(url.toURI()));
+
+                } else if ("jar".equals(url.getProtocol())) {
+                    addJarResources(names, path, (JarURLConnection) url.openConnection());
+                }
+            }
+
+        } catch (IOException | URISyntaxException e) {
+            throw new RuntimeException("Could not list the resources under '" + root + "'", e);
+        }
+
+        return names;
+    }
+
+    private void addFolderResources(Set<String> names, String path, Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String relative = folder.relativize(file).toString().replace(File.separatorChar, '/');
+                names.add("/" + path + relative);
+            }
+        }
+    }
+
+    private void addJarResources(Set<String> names, String path, JarURLConnection connection) throws IOException {
+        connection.setUseCaches(false);
+
+        try (JarFile jar = connection.getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+
+                if (!entry.isDirectory() && entry.getName().startsWith(path)) {
+                    names.add("/" + entry.getName());
+                }
+            }
+        }
+    }
+
     /**
      * Return the folder of the filename.
      *
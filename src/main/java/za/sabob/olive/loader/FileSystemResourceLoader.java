@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package za.sabob.olive.loader;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Resource loader that loads resources (SQL files) from a folder on the file system.
+ * <p/>
+ * <b>Note:</b> all paths must be absolute to the root folder.
+ * <p>
+ * For example, given the following resources:
+ *
+ * <pre class="prettyprint">
+ * /opt/myapp/sql/person/select-person.sql
+ * </pre>
+ *
+ * Example usage:
+ * <pre class="prettyprint">
+ * FileSystemResourceLoader loader = new FileSystemResourceLoader(Paths.get("/opt/myapp/sql"));
+ *
+ * // We specify the absolute path to the root folder
+ * InputStream is = loader.getResourceStream("/person/select-person.sql");
+ * String sql = OliveUtils.toString(is);
+ * </pre>
+ */
+public class FileSystemResourceLoader implements ResourceLoader {
+
+    /**
+     * The root folder to load resources from.
+     */
+    protected final Path root;
+
+    /**
+     * Creates a new FileSystemResourceLoader for the given root folder.
+     *
+     * @param root the root folder to load resources from
+     */
+    public FileSystemResourceLoader(Path root) {
+        if (root == null) {
+            throw new IllegalArgumentException("root cannot be null!");
+        }
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Returns the root folder resources are loaded from.
+     *
+     * @return the root folder resources are loaded from
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the {@link InputStream} of the resource with the given name.
+     *
+     * @param name the name of the resource, absolute to the root folder
+     * @return the InputStream for the given source name
+     * @throws IllegalStateException if no resource is found for the given source
+     */
+    @Override
+    public InputStream getResourceStream(String name) {
+        Path file = getPath(name);
+
+        try {
+            return Files.newInputStream(file);
+
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("FileSystemResourceLoader: Could not load " + name + " from " + root);
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the time the resource with the given name was last modified, in milliseconds since the epoch, or -1 if
+     * the resource does not exist.
+     *
+     * @param name the name of the resource, absolute to the root folder
+     * @return the time the resource was last modified, or -1 if the resource does not exist
+     */
+    @Override
+    public long getLastModified(String name) {
+        try {
+            return Files.getLastModifiedTime(getPath(name)).toMillis();
+
+        } catch (NoSuchFileException e) {
+            return -1;
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the names of all resources under the given folder, including those in sub folders.
+     *
+     * @param folder the folder absolute to the root folder, for example "/person"
+     * @return the names of all resources under the given folder
+     */
+    @Override
+    public Collection<String> getResourceNames(String folder) {
+        Path path = getPath(folder);
+
+        Set<String> names = new TreeSet<String>();
+
+        if (!Files.isDirectory(path)) {
+            return names;
+        }
+
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                names.add(getName(file));
+            }
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return names;
+    }
+
+    /**
+     * Returns the file for the given resource name.
+     *
+     * @param name the name of the resource, absolute to the root folder
+     * @return the file for the given resource name
+     * @throws IllegalArgumentException if the name points outside the root folder
+     */
+    protected Path getPath(String name) {
+        if (name == null || name.length() == 0) {
+            throw new IllegalArgumentException("FileSystemResourceLoader: source name is required!");
+        }
+
+        String relative = name;
+        while (relative.startsWith("/")) {
+            relative = relative.substring(1);
+        }
+
+        Path file = root.resolve(relative).normalize();
+
+        if (!file.startsWith(root)) {
+            throw new IllegalArgumentException("FileSystemResourceLoader: " + name + " is outside of " + root);
+        }
+
+        return file;
+    }
+
+    /**
+     * Returns the resource name for the given file, the inverse of {@link #getPath(java.lang.String)}.
+     *
+     * @param file the file under the root folder
+     * @return the resource name for the given file
+     */
+    protected String getName(Path file) {
+        String relative = root.relativize(file).toString().replace(File.separatorChar, '/');
+        return "/" + relative;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package za.sabob.olive.loader;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A {@link FileSystemResourceLoader} which memory-maps resources with {@link FileChannel#map} instead of reading them
+ * through streams.
+ * <p/>
+ * {@link #getResourceContent(java.lang.String)} decodes the mapped file from UTF-8 straight into a String, with no
+ * intermediate stream buffers, and does not use the mapping afterwards. The decoded content is kept and reused until
+ * the file's size or modification stamp changes, so loading an unchanged file again costs a single file attribute
+ * lookup and returns the same String.
+ * <p/>
+ * Example usage:
+ * <pre class="prettyprint">
+ * MappedFileResourceLoader loader = new MappedFileResourceLoader(Paths.get("/opt/myapp/sql"));
+ * Olive olive = new Olive(loader);
+ *
+ * String sql = olive.loadSql("/person/select-person.sql");
+ * </pre>
+ * <b>Note:</b> the operating system only releases a mapping once its buffer is garbage collected. On Windows a mapped
+ * file cannot be deleted, truncated or replaced until then, so editing SQL files in place while the application runs
+ * can fail there; use {@link FileSystemResourceLoader} or {@link WatchingResourceLoader} when files are edited at
+ * runtime. Mapping is not worthwhile for tiny files on all platforms, so measure before switching.
+ */
+public class MappedFileResourceLoader extends FileSystemResourceLoader {
+
+    private final Map<String, LoadedContent> contents = new ConcurrentHashMap<String, LoadedContent>();
+
+    /**
+     * Creates a new MappedFileResourceLoader for the given root folder.
+     *
+     * @param root the root folder to load resources from
+     */
+    public MappedFileResourceLoader(Path root) {
+        super(root);
+    }
+
+    /**
+     * Returns the content of the resource with the given name. The file is memory-mapped and decoded from UTF-8 when it
+     * is first loaded or after it changed.
+     *
+     * @param name the name of the resource, absolute to the root folder
+     * @return the content of the resource
+     * @throws IllegalStateException if no resource is found for the given source
+     */
+    @Override
+    public CharSequence getResourceContent(String name) {
+        Path file = getPath(name);
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+        } catch (NoSuchFileException e) {
+            contents.remove(name);
+            throw new IllegalStateException("MappedFileResourceLoader: Could not load " + name + " from " + root);
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        LoadedContent content = contents.get(name);
+        if (content != null && content.lastModified == lastModified && content.size == size) {
+            return content.text;
+        }
+
+        content = new LoadedContent(decode(map(file, size)), lastModified, size);
+        contents.put(name, content);
+        return content.text;
+    }
+
+    private MappedByteBuffer map(Path file, long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("MappedFileResourceLoader: " + file + " is too large to map");
+        }
+
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String decode(ByteBuffer bytes) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(bytes)
+                .toString();
+
+        } catch (CharacterCodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The decoded content of a file with the stamp it was loaded at.
+     */
+    private static class LoadedContent {
+
+        private final String text;
+
+        private final long lastModified;
+
+        private final long size;
+
+        private LoadedContent(String text, long lastModified, long size) {
+            this.text = text;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
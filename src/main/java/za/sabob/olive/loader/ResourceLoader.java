@@ -16,6 +16,8 @@
 package za.sabob.olive.loader;
 
 import java.io.*;
+import java.util.*;
+import za.sabob.olive.util.*;
 
 /**
  * Provides an interface for loading resources such as SQL files.
@@ -30,4 +32,52 @@ public interface ResourceLoader {
      * @throws IllegalStateException if no resource is found for the given source
      */
     public InputStream getResourceStream(String name);
+
+    /**
+     * Returns the content of the resource with the given name, decoded as UTF-8.
+     * <p/>
+     * The default implementation reads {@link #getResourceStream(java.lang.String)} into a String. Loaders that can avoid
+     * the copies of stream based reading, such as {@link MappedFileResourceLoader}, override it.
+     *
+     * @param name the name of the resource for which the content must be returned
+     * @return the content of the resource
+     * @throws IllegalStateException if no resource is found for the given source
+     */
+    public default CharSequence getResourceContent(String name) {
+        try (InputStream is = getResourceStream(name)) {
+            return OliveUtils.toString(is);
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the time the resource with the given name was last modified, in milliseconds since the epoch, or -1 if
+     * it is not known. Comparing stamps is a cheap way of checking whether a loaded resource is stale.
+     * <p/>
+     * The default implementation returns -1.
+     *
+     * @param name the name of the resource
+     * @return the time the resource was last modified, or -1 if not known
+     */
+    public default long getLastModified(String name) {
+        return -1;
+    }
+
+    /**
+     * Returns the names of all resources under the given root folder, including those in sub folders. Each name can be
+     * passed to {@link #getResourceStream(java.lang.String)}.
+     * <p/>
+     * This is used by {@link za.sabob.olive.Olive#warmUp(java.lang.String...)} to find the SQL files to precompile. The
+     * default implementation returns an empty collection, so loaders that cannot list their resources have nothing to
+     * warm up. Loaders that can list their resources override it.
+     *
+     * @param root the absolute name of the root folder, for example "/com/mycorp/dao"
+     * @return the names of all resources under the given root folder, or an empty collection if this loader cannot list
+     * its resources
+     */
+    public default Collection<String> getResourceNames(String root) {
+        return Collections.emptyList();
+    }
 }
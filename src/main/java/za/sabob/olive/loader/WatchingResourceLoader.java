@@ -0,0 +1,196 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package za.sabob.olive.loader;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
+import java.util.stream.*;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * A {@link FileSystemResourceLoader} which watches its root folder for changes and notifies
+ * {@link ResourceChangeListener listeners} when a resource is created, modified or deleted.
+ * <p/>
+ * Olive keeps its caches enabled when it uses a WatchingResourceLoader, also in {@link za.sabob.olive.Mode#DEVELOPMENT}
+ * mode, and only evicts the changed resources (and the templates that include them). This gives the edit-and-reload
+ * experience of development mode without rereading and reparsing every file on every request.
+ * <p/>
+ * Example usage:
+ * <pre class="prettyprint">
+ * WatchingResourceLoader loader = new WatchingResourceLoader(Paths.get("src/main/resources"));
+ * Olive olive = new Olive(Mode.DEVELOPMENT, loader);
+ *
+ * // Stop watching on shutdown
+ * loader.close();
+ * </pre>
+ * The folders are watched by a daemon thread using a {@link WatchService}. Note that some platforms poll for changes, so
+ * it can take a few seconds before a change is picked up.
+ */
+public class WatchingResourceLoader extends FileSystemResourceLoader implements Closeable {
+
+    /**
+     * Logger to use for logging messages.
+     */
+    private static final Logger LOGGER = Logger.getLogger(WatchingResourceLoader.class.getName());
+
+    private final List<ResourceChangeListener> listeners = new CopyOnWriteArrayList<ResourceChangeListener>();
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> folders = new ConcurrentHashMap<WatchKey, Path>();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a new WatchingResourceLoader for the given root folder and starts watching it.
+     *
+     * @param root the root folder to load and watch resources in
+     */
+    public WatchingResourceLoader(Path root) {
+        super(root);
+
+        try {
+            watchService = this.root.getFileSystem().newWatchService();
+            registerAll(this.root);
+
+        } catch (IOException e) {
+            throw new RuntimeException("Could not watch " + root, e);
+        }
+
+        Thread watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "olive-resource-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Add a listener to notify when a resource changes.
+     *
+     * @param listener the listener to notify when a resource changes
+     */
+    public void addListener(ResourceChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove the given listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(ResourceChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stop watching the root folder.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Notify the listeners that the resource with the given name changed.
+     *
+     * @param name the name of the resource which changed
+     */
+    protected void fireResourceChanged(String name) {
+        for (ResourceChangeListener listener : listeners) {
+            try {
+                listener.resourceChanged(name);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Listener failed for change to " + name, e);
+            }
+        }
+    }
+
+    private void watch() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path folder = folders.get(key);
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                try {
+                    handle(folder, event);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Could not process change in " + folder, e);
+                }
+            }
+
+            if (!key.reset()) {
+                folders.remove(key);
+            }
+        }
+    }
+
+    private void handle(Path folder, WatchEvent<?> event) throws IOException {
+        if (event.kind() == OVERFLOW || folder == null) {
+            // Events were lost, so treat everything as changed
+            for (String name : getResourceNames("/")) {
+                fireResourceChanged(name);
+            }
+            return;
+        }
+
+        Path file = folder.resolve((Path) event.context());
+
+        if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+            registerAll(file);
+
+            try (Stream<Path> files = Files.walk(file)) {
+                for (Path created : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                    fireResourceChanged(getName(created));
+                }
+            }
+            return;
+        }
+
+        fireResourceChanged(getName(file));
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                folders.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
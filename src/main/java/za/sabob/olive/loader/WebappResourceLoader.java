@@ -19,6 +19,7 @@
 package za.sabob.olive.loader;
 
 import java.io.*;
+import java.util.*;
 import java.util.logging.*;
 import javax.servlet.*;
 
@@ -125,4 +126,54 @@ public class WebappResourceLoader implements ResourceLoader {
         return result;
     }
 
+    /**
+     * Returns the names of all resources under the given folder of the webapp, including those in sub folders.
+     * <p/>
+     * For example:
+     *
+     * <pre class="prettyprint">
+     * ServletContext servletContext = ...
+     * WebappResourceLoader loader = new WebappResourceLoader(servletContext);
+     *
+     * // Returns "/sql/person/select-person.sql", "/sql/product/insert-product.sql" etc.
+     * Collection&lt;String&gt; names = loader.getResourceNames("/sql");
+     * </pre>
+     *
+     * @param root the folder absolute to the root of the webapp, for example "/sql"
+     * @return the names of all resources under the given folder
+     */
+    @Override
+    public Collection<String> getResourceNames(String root) {
+        if (root == null || root.length() == 0) {
+            throw new IllegalArgumentException("WebappResourceLoader: root is required!");
+        }
+
+        if (!root.startsWith("/")) {
+            root = "/" + root;
+        }
+
+        if (!root.endsWith("/")) {
+            root = root + "/";
+        }
+
+        Set<String> names = new TreeSet<String>();
+        addResourceNames(names, root);
+        return names;
+    }
+
+    private void addResourceNames(Set<String> names, String folder) {
+        Set<String> paths = servletContext.getResourcePaths(folder);
+
+        if (paths == null) {
+            return;
+        }
+
+        for (String path : paths) {
+            if (path.endsWith("/")) {
+                addResourceNames(names, path);
+            } else {
+                names.add(path);
+            }
+        }
+    }
 }
@@ -0,0 +1,109 @@
+package za.sabob.olive.metrics;
+
+import java.util.*;
+import javax.sql.*;
+
+/**
+ * Reports to several {@link MetricsListener listeners}, for example to {@link OliveMetrics} for JMX and to a listener
+ * which emits Java Flight Recorder events.
+ *
+ * <pre class="prettyprint">
+ * Metrics.setListener(new CompositeMetricsListener(new OliveMetrics(), new JfrMetricsListener()));
+ * </pre>
+ */
+public class CompositeMetricsListener extends MetricsListener {
+
+    private final MetricsListener[] listeners;
+
+    public CompositeMetricsListener( MetricsListener... listeners ) {
+        this( Arrays.asList( listeners ) );
+    }
+
+    public CompositeMetricsListener( List<? extends MetricsListener> listeners ) {
+        if ( listeners == null || listeners.contains( null ) ) {
+            throw new IllegalArgumentException( "listeners cannot be null!" );
+        }
+        this.listeners = listeners.toArray( new MetricsListener[listeners.size()] );
+    }
+
+    public List<MetricsListener> getListeners() {
+        return Collections.unmodifiableList( Arrays.asList( listeners ) );
+    }
+
+    @Override
+    public void onStarted( OperationType operation ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onStarted( operation );
+        }
+    }
+
+    @Override
+    public void onContextOpened( DataSource ds ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onContextOpened( ds );
+        }
+    }
+
+    @Override
+    public void onContextClosed( DataSource ds, long nanos ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onContextClosed( ds, nanos );
+        }
+    }
+
+    @Override
+    public void onConnectionAcquired( long nanos ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onConnectionAcquired( nanos );
+        }
+    }
+
+    @Override
+    public void onSqlParsed( String name, long nanos ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onSqlParsed( name, nanos );
+        }
+    }
+
+    @Override
+    public void onTemplateRendered( String name, long nanos ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onTemplateRendered( name, nanos );
+        }
+    }
+
+    @Override
+    public void onStatementPrepared( long nanos ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onStatementPrepared( nanos );
+        }
+    }
+
+    @Override
+    public void onStatementExecuted( String name, long nanos ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onStatementExecuted( name, nanos );
+        }
+    }
+
+    @Override
+    public void onRowsMapped( String name, long nanos, int rows ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onRowsMapped( name, nanos, rows );
+        }
+    }
+
+    @Override
+    public void onCommit( long nanos ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onCommit( nanos );
+        }
+    }
+
+    @Override
+    public void onRollback( long nanos ) {
+        for ( MetricsListener listener : listeners ) {
+            listener.onRollback( nanos );
+        }
+    }
+}
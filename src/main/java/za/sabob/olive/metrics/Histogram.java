@@ -0,0 +1,134 @@
+package za.sabob.olive.metrics;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A lock-free histogram of positive long values, such as durations in nanoseconds.
+ * <p/>
+ * Like an HDR histogram, values are counted in buckets whose width grows with the magnitude of the value: every power of
+ * two is split into {@value #SUB_BUCKETS} linear sub-buckets, so any recorded value is reported within 1/{@value #SUB_BUCKETS}
+ * (12.5%) of its real value. Recording is a few bit operations and a {@link LongAdder} increment, so it scales under
+ * contention.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = ( 64 - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator( Math::max, 0 );
+
+    public Histogram() {
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record the given value, negative values are recorded as 0.
+     *
+     * @param value the value to record
+     */
+    public void record( long value ) {
+        if ( value < 0 ) {
+            value = 0;
+        }
+
+        counts[bucket( value )].increment();
+        count.increment();
+        sum.add( value );
+        max.accumulate( value );
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall. The value is the upper bound of the
+     * bucket the percentile falls into, capped at the maximum recorded value.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the given percentile, or 0 if no values were recorded
+     */
+    public long getValueAtPercentile( double percentile ) {
+        if ( percentile < 0 || percentile > 100 ) {
+            throw new IllegalArgumentException( "percentile must be between 0 and 100" );
+        }
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+
+        if ( total == 0 ) {
+            return 0;
+        }
+
+        long rank = Math.max( 1, (long) Math.ceil( total * percentile / 100 ) );
+        long seen = 0;
+
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            seen += snapshot[i];
+            if ( seen >= rank ) {
+                return Math.min( upperBound( i ), getMax() );
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for ( LongAdder bucket : counts ) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    static int bucket( long value ) {
+        if ( value < SUB_BUCKETS ) {
+            return (int) value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros( value );
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) ( value >>> shift ) & ( SUB_BUCKETS - 1 );
+        return ( shift + 1 ) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound( int bucket ) {
+        if ( bucket < SUB_BUCKETS ) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lower = ( SUB_BUCKETS + subBucket ) << shift;
+        long width = 1L << shift;
+        return lower + width - 1 < 0 ? Long.MAX_VALUE : lower + width - 1;
+    }
+}
@@ -0,0 +1,65 @@
+package za.sabob.olive.metrics;
+
+import java.beans.*;
+
+/**
+ * A point in time view of a {@link Histogram}, exposed over JMX as a CompositeData.
+ */
+public class HistogramSnapshot {
+
+    private final long count;
+
+    private final double mean;
+
+    private final long p50;
+
+    private final long p90;
+
+    private final long p99;
+
+    private final long max;
+
+    @ConstructorProperties( { "count", "mean", "p50", "p90", "p99", "max" } )
+    public HistogramSnapshot( long count, double mean, long p50, long p90, long p99, long max ) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    public HistogramSnapshot( Histogram histogram ) {
+        this( histogram.getCount(), histogram.getMean(), histogram.getValueAtPercentile( 50 ), histogram.getValueAtPercentile( 90 ),
+              histogram.getValueAtPercentile( 99 ), histogram.getMax() );
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + (long) mean + ", p50=" + p50 + ", p90=" + p90 + ", p99=" + p99 + ", max=" + max;
+    }
+}
@@ -0,0 +1,298 @@
+package za.sabob.olive.metrics;
+
+import java.sql.*;
+import java.util.*;
+import javax.sql.*;
+import za.sabob.olive.ps.*;
+
+/**
+ * Holds the {@link MetricsListener} which Olive reports the timings of its operations to, and the
+ * {@link SlowQueryLog} which captures slow statements.
+ * <p/>
+ * Neither is registered by default, in which case measuring costs two volatile reads and no calls to
+ * {@link System#nanoTime()} are made.
+ *
+ * <pre class="prettyprint">
+ * OliveMetrics metrics = new OliveMetrics();
+ * metrics.register(); // export to JMX as za.sabob.olive:type=Metrics
+ * Metrics.setListener(metrics);
+ * </pre>
+ *
+ * Use a {@link CompositeMetricsListener} to report to more than one listener.
+ */
+public class Metrics {
+
+    /**
+     * The most statements remembered per thread. Statements prepared outside a JDBCContext are never forgotten by
+     * {@link #contextClosed(javax.sql.DataSource, long)}, so the thread's statements are forgotten once it prepares more
+     * than this.
+     */
+    static final int MAX_PREPARED = 64;
+
+    /**
+     * The statements prepared on each thread, by identity, so that their executions can be reported with the statement's
+     * name even when another statement was prepared in between. A PreparedInfo only keeps the statement's name, SQL and
+     * parameter types, and the map is cleared when the thread's root JDBCContext closes so that a pooled thread does not
+     * keep closed statements reachable.
+     */
+    private static final ThreadLocal<Map<PreparedStatement, PreparedInfo>> PREPARED = new ThreadLocal<>();
+
+    private static volatile MetricsListener listener;
+
+    private static volatile SlowQueryLog slowQueryLog;
+
+    public static MetricsListener getListener() {
+        return listener;
+    }
+
+    public static void setListener( MetricsListener listener ) {
+        Metrics.listener = listener;
+    }
+
+    public static SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    public static void setSlowQueryLog( SlowQueryLog slowQueryLog ) {
+        Metrics.slowQueryLog = slowQueryLog;
+    }
+
+    public static boolean isEnabled() {
+        return listener != null || slowQueryLog != null;
+    }
+
+    /**
+     * Returns the start time of an operation to measure, or 0 if neither a listener nor a slow query log is registered.
+     *
+     * @return the start time in nanoseconds, or 0 if metrics are disabled
+     */
+    public static long start() {
+        return listener == null && slowQueryLog == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Returns the start time of the given operation, or 0 if neither a listener nor a slow query log is registered, and
+     * notifies the listener that the operation started.
+     *
+     * @param operation the operation which starts
+     * @return the start time in nanoseconds, or 0 if metrics are disabled
+     */
+    public static long start( OperationType operation ) {
+        MetricsListener current = listener;
+        if ( current == null ) {
+            return slowQueryLog == null ? 0 : System.nanoTime();
+        }
+
+        current.onStarted( operation );
+        return System.nanoTime();
+    }
+
+    /**
+     * Report that a root JDBCContext acquired a connection from the given DataSource.
+     *
+     * @param ds the DataSource the connection was acquired from
+     * @return the time the context was opened, to pass to {@link #contextClosed(javax.sql.DataSource, long)}, or 0 if no
+     * listener was notified
+     */
+    public static long contextOpened( DataSource ds ) {
+        MetricsListener current = listener;
+        if ( current == null ) {
+            return 0;
+        }
+
+        current.onContextOpened( ds );
+        return System.nanoTime();
+    }
+
+    /**
+     * Report that a root JDBCContext closed its connection, and forget the statements prepared on this thread.
+     *
+     * @param ds the DataSource the connection was acquired from
+     * @param start the time returned by {@link #contextOpened(javax.sql.DataSource)}
+     */
+    public static void contextClosed( DataSource ds, long start ) {
+        Map<PreparedStatement, PreparedInfo> prepared = PREPARED.get();
+        if ( prepared != null ) {
+            prepared.clear();
+        }
+
+        MetricsListener current = listener;
+        if ( current != null && start != 0 ) {
+            current.onContextClosed( ds, System.nanoTime() - start );
+        }
+    }
+
+    public static void connectionAcquired( long start ) {
+        MetricsListener current = listener;
+        if ( current != null && start != 0 ) {
+            current.onConnectionAcquired( System.nanoTime() - start );
+        }
+    }
+
+    public static void sqlParsed( String name, long start ) {
+        MetricsListener current = listener;
+        if ( current != null && start != 0 ) {
+            current.onSqlParsed( name, System.nanoTime() - start );
+        }
+    }
+
+    public static void templateRendered( String name, long start ) {
+        MetricsListener current = listener;
+        if ( current != null && start != 0 ) {
+            current.onTemplateRendered( name, System.nanoTime() - start );
+        }
+    }
+
+    public static void statementPrepared( long start ) {
+        MetricsListener current = listener;
+        if ( current != null && start != 0 ) {
+            current.onStatementPrepared( System.nanoTime() - start );
+        }
+    }
+
+    /**
+     * Report a prepared statement and remember how it was prepared, so that its execution can be reported with its name
+     * and a slow execution of it can be described.
+     *
+     * @param start the start time returned by {@link #start()}
+     * @param ps the prepared statement
+     * @param parsedSql the parsed SQL the statement was prepared from, or null for plain SQL
+     * @param sql the SQL the statement was prepared with
+     * @param params the parameters set on the statement, or null for plain SQL
+     */
+    public static void statementPrepared( long start, PreparedStatement ps, ParsedSql parsedSql, String sql, SqlParams params ) {
+        if ( start == 0 ) {
+            return;
+        }
+
+        statementPrepared( start );
+
+        Map<PreparedStatement, PreparedInfo> prepared = PREPARED.get();
+        if ( prepared == null ) {
+            prepared = new IdentityHashMap<>();
+            PREPARED.set( prepared );
+
+        } else if ( prepared.size() >= MAX_PREPARED ) {
+            prepared.clear();
+        }
+
+        // Parameter types are only needed to describe slow statements
+        List<String> parameterTypes = parsedSql == null || slowQueryLog == null
+            ? Collections.<String>emptyList()
+            : getParameterTypes( parsedSql, params );
+
+        prepared.put( ps, new PreparedInfo( parsedSql == null ? null : parsedSql.getName(), sql, parameterTypes ) );
+    }
+
+    public static void statementExecuted( PreparedStatement ps, long start ) {
+        MetricsListener current = listener;
+        if ( current != null && start != 0 ) {
+            current.onStatementExecuted( getName( ps ), System.nanoTime() - start );
+        }
+    }
+
+    public static void rowsMapped( PreparedStatement ps, long start, int rows ) {
+        MetricsListener current = listener;
+        if ( current != null && start != 0 ) {
+            current.onRowsMapped( getName( ps ), System.nanoTime() - start, rows );
+        }
+    }
+
+    /**
+     * Report that a statement was executed and its rows were mapped, capturing it in the slow query log if it exceeded
+     * the threshold.
+     *
+     * @param ps the executed statement
+     * @param start the start time returned by {@link #start()} before the statement was executed
+     * @param rows the number of rows mapped or updated, or -1 if unknown
+     */
+    public static void statementCompleted( PreparedStatement ps, long start, int rows ) {
+        SlowQueryLog log = slowQueryLog;
+        if ( log != null && start != 0 ) {
+            log.executed( ps, System.nanoTime() - start, rows );
+        }
+    }
+
+    public static void committed( long start ) {
+        MetricsListener current = listener;
+        if ( current != null && start != 0 ) {
+            current.onCommit( System.nanoTime() - start );
+        }
+    }
+
+    public static void rolledBack( long start ) {
+        MetricsListener current = listener;
+        if ( current != null && start != 0 ) {
+            current.onRollback( System.nanoTime() - start );
+        }
+    }
+
+    /**
+     * Returns how the given statement was prepared, if it was prepared on this thread and not forgotten since.
+     *
+     * @param ps the prepared statement
+     * @return how the given statement was prepared, or null if unknown
+     */
+    static PreparedInfo getPreparedInfo( PreparedStatement ps ) {
+        Map<PreparedStatement, PreparedInfo> prepared = PREPARED.get();
+        if ( prepared == null || ps == null ) {
+            return null;
+        }
+        return prepared.get( ps );
+    }
+
+    private static String getName( PreparedStatement ps ) {
+        PreparedInfo info = getPreparedInfo( ps );
+        return info == null ? null : info.getName();
+    }
+
+    private static List<String> getParameterTypes( ParsedSql parsedSql, SqlParams params ) {
+        List<String> types = new ArrayList<>( parsedSql.getParameterNames().size() );
+
+        for ( String name : parsedSql.getParameterNames() ) {
+            SqlParam param = params == null ? null : params.get( name );
+            Object value = param == null ? null : param.getValue();
+
+            if ( value == null ) {
+                types.add( "null" );
+
+            } else if ( value instanceof Collection ) {
+                types.add( value.getClass().getSimpleName() + "[" + ( (Collection<?>) value ).size() + "]" );
+
+            } else {
+                types.add( value.getClass().getSimpleName() );
+            }
+        }
+        return types;
+    }
+
+    /**
+     * How a statement was prepared. Parameter values are not kept.
+     */
+    static class PreparedInfo {
+
+        private final String name;
+
+        private final String sql;
+
+        private final List<String> parameterTypes;
+
+        private PreparedInfo( String name, String sql, List<String> parameterTypes ) {
+            this.name = name;
+            this.sql = sql;
+            this.parameterTypes = parameterTypes;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getSql() {
+            return sql;
+        }
+
+        List<String> getParameterTypes() {
+            return parameterTypes;
+        }
+    }
+}
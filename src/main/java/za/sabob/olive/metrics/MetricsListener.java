@@ -0,0 +1,111 @@
+package za.sabob.olive.metrics;
+
+import javax.sql.*;
+
+/**
+ * Receives timings of Olive's SQL parsing, template rendering and JDBC operations. Override the callbacks of interest and register the listener with
+ * {@link Metrics#setListener(za.sabob.olive.metrics.MetricsListener)}.
+ * <p/>
+ * Callbacks are invoked on the thread doing the work, so implementations must be thread safe and cheap.
+ * {@link OliveMetrics} provides a lock-free implementation which can be exported to JMX.
+ * <p/>
+ * All durations are in nanoseconds.
+ */
+public abstract class MetricsListener {
+
+    /**
+     * Called on the thread doing the work when an operation starts. The operation is reported to the matching callback
+     * once it completes, normally on the same thread, or not at all if it fails. Listeners that only need durations
+     * can ignore this, it lets listeners such as Flight Recorder events time the work themselves.
+     *
+     * @param operation the operation which started
+     */
+    public void onStarted( OperationType operation ) {
+    }
+
+    /**
+     * Called after a new Connection was acquired from a DataSource.
+     *
+     * @param nanos the time taken to acquire the connection
+     */
+    public void onConnectionAcquired( long nanos ) {
+    }
+
+    /**
+     * Called after a root JDBCContext acquired a new Connection from the given DataSource.
+     *
+     * @param ds the DataSource the connection was acquired from
+     */
+    public void onContextOpened( DataSource ds ) {
+    }
+
+    /**
+     * Called after a root JDBCContext closed its Connection.
+     *
+     * @param ds the DataSource the connection was acquired from
+     * @param nanos the time the connection was held
+     */
+    public void onContextClosed( DataSource ds, long nanos ) {
+    }
+
+    /**
+     * Called after a SQL statement was parsed for named parameters. Parsed SQL loaded from cache is not reported.
+     *
+     * @param name the name of the resource the SQL was loaded from, or null if the SQL was not loaded from a resource
+     * @param nanos the time taken to parse the statement
+     */
+    public void onSqlParsed( String name, long nanos ) {
+    }
+
+    /**
+     * Called after a template was rendered.
+     *
+     * @param name the name of the template resource, or null if the template was not loaded from a resource
+     * @param nanos the time taken to render the template
+     */
+    public void onTemplateRendered( String name, long nanos ) {
+    }
+
+    /**
+     * Called after a PreparedStatement was prepared and its parameters were set.
+     *
+     * @param nanos the time taken to prepare the statement
+     */
+    public void onStatementPrepared( long nanos ) {
+    }
+
+    /**
+     * Called after a statement was executed.
+     *
+     * @param name the {@link za.sabob.olive.ps.ParsedSql#getName() name} of the statement, or null if unknown
+     * @param nanos the time taken to execute the statement
+     */
+    public void onStatementExecuted( String name, long nanos ) {
+    }
+
+    /**
+     * Called after the rows of a ResultSet were mapped.
+     *
+     * @param name the {@link za.sabob.olive.ps.ParsedSql#getName() name} of the statement, or null if unknown
+     * @param nanos the time taken to map the rows
+     * @param rows the number of rows mapped
+     */
+    public void onRowsMapped( String name, long nanos, int rows ) {
+    }
+
+    /**
+     * Called after a transaction was committed.
+     *
+     * @param nanos the duration of the transaction, from when it began until it was committed
+     */
+    public void onCommit( long nanos ) {
+    }
+
+    /**
+     * Called after a transaction was rolled back.
+     *
+     * @param nanos the duration of the transaction, from when it began until it was rolled back
+     */
+    public void onRollback( long nanos ) {
+    }
+}
@@ -0,0 +1,248 @@
+package za.sabob.olive.metrics;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+import javax.sql.*;
+
+/**
+ * A lock-free {@link MetricsListener} which keeps {@link Histogram histograms} of parse, render, connection acquire,
+ * prepare, execute, mapping and transaction times, counts rows mapped, commits and rollbacks, and tracks the number of open JDBCContexts
+ * per DataSource.
+ * <p/>
+ * The metrics can be exported to JMX with {@link #register()}.
+ *
+ * <pre class="prettyprint">
+ * OliveMetrics metrics = new OliveMetrics();
+ * metrics.register();
+ * Metrics.setListener(metrics);
+ * ...
+ * long p99 = metrics.getExecuteTime().getP99();
+ * </pre>
+ */
+public class OliveMetrics extends MetricsListener implements OliveMetricsMXBean {
+
+    /**
+     * The default JMX ObjectName the metrics are registered under.
+     */
+    public static final String DEFAULT_OBJECT_NAME = "za.sabob.olive:type=Metrics";
+
+    private final Histogram parseTime = new Histogram();
+
+    private final Histogram renderTime = new Histogram();
+
+    private final Histogram connectionAcquireTime = new Histogram();
+
+    private final Histogram prepareTime = new Histogram();
+
+    private final Histogram executeTime = new Histogram();
+
+    private final Histogram mappingTime = new Histogram();
+
+    private final Histogram transactionTime = new Histogram();
+
+    private final Histogram connectionHeldTime = new Histogram();
+
+    private final ConcurrentMap<DataSource, LongAdder> openContexts = new ConcurrentHashMap<>();
+
+    private final LongAdder rowsMapped = new LongAdder();
+
+    private final LongAdder commits = new LongAdder();
+
+    private final LongAdder rollbacks = new LongAdder();
+
+    private ObjectName objectName;
+
+    @Override
+    public void onConnectionAcquired( long nanos ) {
+        connectionAcquireTime.record( nanos );
+    }
+
+    @Override
+    public void onContextOpened( DataSource ds ) {
+        openContexts.computeIfAbsent( ds, key -> new LongAdder() ).increment();
+    }
+
+    @Override
+    public void onContextClosed( DataSource ds, long nanos ) {
+        connectionHeldTime.record( nanos );
+
+        LongAdder open = openContexts.get( ds );
+        if ( open != null ) {
+            open.decrement();
+        }
+    }
+
+    @Override
+    public void onSqlParsed( String name, long nanos ) {
+        parseTime.record( nanos );
+    }
+
+    @Override
+    public void onTemplateRendered( String name, long nanos ) {
+        renderTime.record( nanos );
+    }
+
+    @Override
+    public void onStatementPrepared( long nanos ) {
+        prepareTime.record( nanos );
+    }
+
+    @Override
+    public void onStatementExecuted( String name, long nanos ) {
+        executeTime.record( nanos );
+    }
+
+    @Override
+    public void onRowsMapped( String name, long nanos, int rows ) {
+        mappingTime.record( nanos );
+        rowsMapped.add( rows );
+    }
+
+    @Override
+    public void onCommit( long nanos ) {
+        transactionTime.record( nanos );
+        commits.increment();
+    }
+
+    @Override
+    public void onRollback( long nanos ) {
+        transactionTime.record( nanos );
+        rollbacks.increment();
+    }
+
+    @Override
+    public HistogramSnapshot getParseTime() {
+        return new HistogramSnapshot( parseTime );
+    }
+
+    @Override
+    public HistogramSnapshot getRenderTime() {
+        return new HistogramSnapshot( renderTime );
+    }
+
+    @Override
+    public HistogramSnapshot getConnectionAcquireTime() {
+        return new HistogramSnapshot( connectionAcquireTime );
+    }
+
+    @Override
+    public HistogramSnapshot getPrepareTime() {
+        return new HistogramSnapshot( prepareTime );
+    }
+
+    @Override
+    public HistogramSnapshot getExecuteTime() {
+        return new HistogramSnapshot( executeTime );
+    }
+
+    @Override
+    public HistogramSnapshot getMappingTime() {
+        return new HistogramSnapshot( mappingTime );
+    }
+
+    @Override
+    public HistogramSnapshot getTransactionTime() {
+        return new HistogramSnapshot( transactionTime );
+    }
+
+    @Override
+    public HistogramSnapshot getConnectionHeldTime() {
+        return new HistogramSnapshot( connectionHeldTime );
+    }
+
+    @Override
+    public Map<String, Long> getOpenContexts() {
+        Map<String, Long> result = new TreeMap<>();
+
+        for ( Map.Entry<DataSource, LongAdder> entry : openContexts.entrySet() ) {
+            DataSource ds = entry.getKey();
+            String name = ds.getClass().getName() + "@" + Integer.toHexString( System.identityHashCode( ds ) );
+            result.put( name, entry.getValue().sum() );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of open root JDBCContexts, and thus Connections held, for the given DataSource.
+     *
+     * @param ds the DataSource to return the number of open contexts for
+     * @return the number of open root JDBCContexts for the given DataSource
+     */
+    public long getOpenContexts( DataSource ds ) {
+        LongAdder open = openContexts.get( ds );
+        return open == null ? 0 : open.sum();
+    }
+
+    @Override
+    public long getRowsMapped() {
+        return rowsMapped.sum();
+    }
+
+    @Override
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    @Override
+    public long getRollbacks() {
+        return rollbacks.sum();
+    }
+
+    @Override
+    public void reset() {
+        parseTime.reset();
+        renderTime.reset();
+        connectionAcquireTime.reset();
+        prepareTime.reset();
+        executeTime.reset();
+        mappingTime.reset();
+        transactionTime.reset();
+        connectionHeldTime.reset();
+        rowsMapped.reset();
+        commits.reset();
+        rollbacks.reset();
+    }
+
+    /**
+     * Register the metrics with the platform MBeanServer under {@link #DEFAULT_OBJECT_NAME}.
+     */
+    public void register() {
+        register( DEFAULT_OBJECT_NAME );
+    }
+
+    /**
+     * Register the metrics with the platform MBeanServer under the given ObjectName.
+     *
+     * @param name the ObjectName to register the metrics under
+     */
+    public synchronized void register( String name ) {
+        try {
+            ObjectName newName = new ObjectName( name );
+            ManagementFactory.getPlatformMBeanServer().registerMBean( this, newName );
+            objectName = newName;
+
+        } catch ( JMException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    /**
+     * Unregister the metrics from the platform MBeanServer, if registered.
+     */
+    public synchronized void unregister() {
+        if ( objectName == null ) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean( objectName );
+            objectName = null;
+
+        } catch ( JMException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+}
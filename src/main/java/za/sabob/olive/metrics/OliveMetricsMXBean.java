@@ -0,0 +1,40 @@
+package za.sabob.olive.metrics;
+
+import java.util.*;
+
+/**
+ * The JMX view of {@link OliveMetrics}. All durations are in nanoseconds.
+ */
+public interface OliveMetricsMXBean {
+
+    HistogramSnapshot getParseTime();
+
+    HistogramSnapshot getRenderTime();
+
+    HistogramSnapshot getConnectionAcquireTime();
+
+    HistogramSnapshot getPrepareTime();
+
+    HistogramSnapshot getExecuteTime();
+
+    HistogramSnapshot getMappingTime();
+
+    HistogramSnapshot getTransactionTime();
+
+    HistogramSnapshot getConnectionHeldTime();
+
+    /**
+     * Returns the number of open root JDBCContexts, and thus Connections held, per DataSource.
+     *
+     * @return the number of open root JDBCContexts by DataSource
+     */
+    Map<String, Long> getOpenContexts();
+
+    long getRowsMapped();
+
+    long getCommits();
+
+    long getRollbacks();
+
+    void reset();
+}
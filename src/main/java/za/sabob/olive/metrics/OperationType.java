@@ -0,0 +1,45 @@
+package za.sabob.olive.metrics;
+
+/**
+ * The operations Olive measures, passed to {@link MetricsListener#onStarted(za.sabob.olive.metrics.OperationType)} when
+ * one starts.
+ */
+public enum OperationType {
+
+    /**
+     * Acquiring a Connection from a DataSource, reported with {@link MetricsListener#onConnectionAcquired(long)}.
+     */
+    CONNECTION_ACQUIRE,
+
+    /**
+     * Parsing a SQL statement for named parameters, reported with {@link MetricsListener#onSqlParsed(java.lang.String, long)}.
+     */
+    SQL_PARSE,
+
+    /**
+     * Rendering a template, reported with {@link MetricsListener#onTemplateRendered(java.lang.String, long)}.
+     */
+    TEMPLATE_RENDER,
+
+    /**
+     * Preparing a statement and setting its parameters, reported with {@link MetricsListener#onStatementPrepared(long)}.
+     */
+    STATEMENT_PREPARE,
+
+    /**
+     * Executing a statement, reported with {@link MetricsListener#onStatementExecuted(java.lang.String, long)}.
+     */
+    STATEMENT_EXECUTE,
+
+    /**
+     * Mapping the rows of a ResultSet, reported with {@link MetricsListener#onRowsMapped(java.lang.String, long, int)}.
+     */
+    ROW_MAPPING,
+
+    /**
+     * A transaction, from when it began until it was committed or rolled back, reported with
+     * {@link MetricsListener#onCommit(long)} or {@link MetricsListener#onRollback(long)}.
+     */
+    TRANSACTION
+
+}
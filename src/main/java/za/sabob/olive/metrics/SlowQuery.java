@@ -0,0 +1,99 @@
+package za.sabob.olive.metrics;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A statement execution which exceeded the {@link SlowQueryLog} threshold.
+ */
+public class SlowQuery {
+
+    private final String name;
+
+    private final String sql;
+
+    private final List<String> parameterTypes;
+
+    private final int rows;
+
+    private final long nanos;
+
+    private final long timestamp;
+
+    private final String threadName;
+
+    public SlowQuery( String name, String sql, List<String> parameterTypes, int rows, long nanos, long timestamp, String threadName ) {
+        this.name = name;
+        this.sql = sql;
+        this.parameterTypes = parameterTypes;
+        this.rows = rows;
+        this.nanos = nanos;
+        this.timestamp = timestamp;
+        this.threadName = threadName;
+    }
+
+    /**
+     * Returns the name of the resource the statement was loaded from, see {@link za.sabob.olive.ps.ParsedSql#getName()}.
+     *
+     * @return the name of the resource the statement was loaded from, or null if unknown
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the SQL sent to the database, with named parameters substituted by JDBC placeholders ('?'). If the
+     * statement was not prepared through Olive on the executing thread, this is the driver's
+     * {@link java.sql.PreparedStatement#toString()} instead.
+     *
+     * @return the SQL sent to the database, or null if unknown
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Returns the types of the named parameters, in the order they appear in the statement, for example
+     * ["String", "Long", "ArrayList[3]"]. Parameter values are not captured.
+     *
+     * @return the types of the named parameters
+     */
+    public List<String> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * Returns the number of rows mapped.
+     *
+     * @return the number of rows mapped, or -1 if the ResultSet was returned to the caller unmapped
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getDuration( TimeUnit unit ) {
+        return unit.convert( nanos, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Returns when the statement completed, in milliseconds since the epoch.
+     *
+     * @return when the statement completed
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    @Override
+    public String toString() {
+        return getDuration( TimeUnit.MILLISECONDS ) + " ms, " + rows + " rows, " + ( name == null ? "" : name + ", " ) + sql + " " + parameterTypes;
+    }
+}
@@ -0,0 +1,128 @@
+package za.sabob.olive.metrics;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import za.sabob.olive.ps.*;
+
+/**
+ * Captures statements whose execution exceeds a threshold into a fixed-size, lock-free ring buffer, so the worst
+ * offenders can be inspected in production without enabling {@link za.sabob.olive.Mode#TRACE} logging.
+ * <p/>
+ * For every slow statement the {@link ParsedSql#getName() resource name}, the SQL sent to the database, the parameter
+ * types (not values) and the number of rows mapped are captured. Once the buffer is full the oldest entries are
+ * overwritten.
+ *
+ * <pre class="prettyprint">
+ * SlowQueryLog log = new SlowQueryLog(100, 250, TimeUnit.MILLISECONDS);
+ * Metrics.setSlowQueryLog(log);
+ * ...
+ * for (SlowQuery query : log.getSlowQueries()) {
+ *     System.out.println(query);
+ * }
+ * </pre>
+ */
+public class SlowQueryLog {
+
+    private final AtomicReferenceArray<SlowQuery> entries;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final long thresholdNanos;
+
+    /**
+     * Creates a new SlowQueryLog which keeps the last given number of statements that took at least the given time to
+     * execute.
+     *
+     * @param capacity the number of slow statements to keep
+     * @param threshold the minimum execution time of statements to capture
+     * @param unit the unit of the threshold
+     */
+    public SlowQueryLog( int capacity, long threshold, TimeUnit unit ) {
+        if ( capacity <= 0 ) {
+            throw new IllegalArgumentException( "capacity must be greater than 0" );
+        }
+
+        if ( threshold < 0 ) {
+            throw new IllegalArgumentException( "threshold cannot be negative" );
+        }
+
+        this.entries = new AtomicReferenceArray<>( capacity );
+        this.thresholdNanos = unit.toNanos( threshold );
+    }
+
+    public int getCapacity() {
+        return entries.length();
+    }
+
+    public long getThreshold( TimeUnit unit ) {
+        return unit.convert( thresholdNanos, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Returns the number of slow statements captured since the log was created or cleared, including those which have
+     * since been overwritten.
+     *
+     * @return the number of slow statements captured
+     */
+    public long getCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Returns the captured slow statements, slowest first.
+     *
+     * @return the captured slow statements, slowest first
+     */
+    public List<SlowQuery> getSlowQueries() {
+        List<SlowQuery> result = new ArrayList<>( entries.length() );
+
+        for ( int i = 0; i < entries.length(); i++ ) {
+            SlowQuery query = entries.get( i );
+            if ( query != null ) {
+                result.add( query );
+            }
+        }
+
+        result.sort( ( q1, q2 ) -> Long.compare( q2.getNanos(), q1.getNanos() ) );
+        return result;
+    }
+
+    public void clear() {
+        for ( int i = 0; i < entries.length(); i++ ) {
+            entries.set( i, null );
+        }
+        sequence.set( 0 );
+    }
+
+    /**
+     * Record the execution of the given statement if it took at least the threshold.
+     *
+     * @param ps the statement which was executed
+     * @param nanos the time taken to execute the statement and map its rows
+     * @param rows the number of rows mapped, or -1 if unknown
+     */
+    public void executed( PreparedStatement ps, long nanos, int rows ) {
+        if ( nanos < thresholdNanos ) {
+            return;
+        }
+
+        Metrics.PreparedInfo info = Metrics.getPreparedInfo( ps );
+
+        SlowQuery query;
+        if ( info == null ) {
+            // Not prepared through Olive on this thread, or forgotten since, so the driver's description is the best we have
+            String sql = ps == null ? null : ps.toString();
+            query = new SlowQuery( null, sql, Collections.<String>emptyList(), rows, nanos, System.currentTimeMillis(),
+                                   Thread.currentThread().getName() );
+
+        } else {
+            query = new SlowQuery( info.getName(), info.getSql(), info.getParameterTypes(), rows, nanos,
+                                   System.currentTimeMillis(), Thread.currentThread().getName() );
+        }
+
+        long index = sequence.getAndIncrement();
+        entries.set( (int) ( index % entries.length() ), query );
+    }
+}
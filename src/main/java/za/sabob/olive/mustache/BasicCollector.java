@@ -4,7 +4,6 @@
 
 package za.sabob.olive.mustache;
 
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -51,9 +50,8 @@ public abstract class BasicCollector implements Mustache.Collector
         return null;
     }
 
-    /** This should return a thread-safe map, either {@link Collections#synchronizedMap} called on
-     * a standard {@link Map} implementation or something like {@code ConcurrentHashMap}. */
-    public abstract <K,V> Map<K,V> createFetcherCache ();
+    /** This should return a thread-safe cache, for example a {@link ClassValueFetcherCache}. */
+    public abstract Mustache.FetcherCache createFetcherCache ();
 
     protected static ArrayHelper arrayHelper (Object ctx) {
         if (ctx instanceof Object[]) return OBJECT_ARRAY_HELPER;
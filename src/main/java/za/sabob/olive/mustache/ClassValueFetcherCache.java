@@ -0,0 +1,52 @@
+//
+// JMustache - A Java implementation of the Mustache templating language
+// http://github.za.sabob.olive/jmustache/blob/master/LICENSE
+
+package za.sabob.olive.mustache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link Mustache.FetcherCache} which keeps a map of fetchers per context class in a {@link
+ * ClassValue}. Lookups do not allocate, the cache can be shared by many templates and threads, and
+ * the fetchers cached for a class go away along with the class itself. The number of names cached
+ * per class is bounded, so contexts keyed by generated names cannot grow the cache forever.
+ */
+public class ClassValueFetcherCache implements Mustache.FetcherCache
+{
+    /** The default maximum number of variable names cached per context class. */
+    public static final int DEFAULT_MAX_NAMES_PER_CLASS = 512;
+
+    public ClassValueFetcherCache () {
+        this(DEFAULT_MAX_NAMES_PER_CLASS);
+    }
+
+    public ClassValueFetcherCache (int maxNamesPerClass) {
+        _maxNamesPerClass = maxNamesPerClass;
+    }
+
+    @Override public Mustache.VariableFetcher get (Class<?> cclass, String name) {
+        return _fetchers.get(cclass).get(name);
+    }
+
+    @Override public void put (Class<?> cclass, String name, Mustache.VariableFetcher fetcher) {
+        ConcurrentMap<String, Mustache.VariableFetcher> fetchers = _fetchers.get(cclass);
+        // once a class is full we keep replacing the fetchers we have (the call site may have gone
+        // polymorphic) but stop adding new names; the size check races with other writers, so the
+        // bound may be overshot by a few entries, which is fine
+        if (fetchers.size() < _maxNamesPerClass || fetchers.containsKey(name)) {
+            fetchers.put(name, fetcher);
+        }
+    }
+
+    protected final int _maxNamesPerClass;
+
+    protected final ClassValue<ConcurrentMap<String, Mustache.VariableFetcher>> _fetchers =
+        new ClassValue<ConcurrentMap<String, Mustache.VariableFetcher>>() {
+            @Override protected ConcurrentMap<String, Mustache.VariableFetcher> computeValue (
+                Class<?> type) {
+                return new ConcurrentHashMap<String, Mustache.VariableFetcher>();
+            }
+        };
+}
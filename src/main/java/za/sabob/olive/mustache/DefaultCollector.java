@@ -4,16 +4,21 @@
 
 package za.sabob.olive.mustache;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 import java.util.AbstractList;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * The default collector used by JMustache.
@@ -27,14 +32,8 @@ public class DefaultCollector extends BasicCollector
 
         // first check for a getter which provides the value
         Class<?> cclass = ctx.getClass();
-        final Method m = getMethod(cclass, name);
-        if (m != null) {
-            return new Mustache.VariableFetcher() {
-                public Object get (Object ctx, String name) throws Exception {
-                    return m.invoke(ctx);
-                }
-            };
-        }
+        Method m = getMethod(cclass, name);
+        if (m != null) return createMethodFetcher(m);
 
         // next check for a getter which provides the value
         final Field f = getField(cclass, name);
@@ -48,21 +47,79 @@ public class DefaultCollector extends BasicCollector
 
         // finally check for a default interface method which provides the value (this is left to
         // last because it's much more expensive and hopefully something already matched above)
-        final Method im = getIfaceMethod(cclass, name);
-        if (im != null) {
+        Method im = getIfaceMethod(cclass, name);
+        if (im != null) return createMethodFetcher(im);
+
+        return null;
+    }
+
+    /** Returns the single cache shared by every template that uses this collector, the fetchers
+      * created here depend only on the context class and variable name. */
+    @Override
+    public Mustache.FetcherCache createFetcherCache () {
+        return _fetcherCache;
+    }
+
+    /** Creates a fetcher which calls {@code m} on the context. Where possible the call is made
+      * through a function generated by {@link LambdaMetafactory}, which the JIT treats like a
+      * direct call to the getter, otherwise we fall back to {@link Method#invoke}. */
+    protected Mustache.VariableFetcher createMethodFetcher (final Method m) {
+        final Function<Object,Object> accessor = createAccessor(m);
+        if (accessor != null) {
             return new Mustache.VariableFetcher() {
                 public Object get (Object ctx, String name) throws Exception {
-                    return im.invoke(ctx);
+                    return accessor.apply(ctx);
                 }
             };
         }
 
-        return null;
+        return new Mustache.VariableFetcher() {
+            public Object get (Object ctx, String name) throws Exception {
+                return m.invoke(ctx);
+            }
+        };
     }
 
-    @Override
-    public <K,V> Map<K,V> createFetcherCache () {
-        return new ConcurrentHashMap<K,V>();
+    /** Returns a function which calls {@code m} on its argument, or null if no such function can
+      * be generated, in which case the caller should use reflection. */
+    protected Function<Object,Object> createAccessor (Method m) {
+        Class<?> owner = m.getDeclaringClass();
+        // the generated class lives in our class loader, so it can only link against members that
+        // we can see and that are public in the JVM's eyes; everything else goes via reflection
+        if (!isPublic(owner) || !Modifier.isPublic(m.getModifiers()) ||
+            !isVisible(owner) || !isVisible(m.getReturnType())) return null;
+
+        try {
+            MethodHandle getter = LOOKUP.findVirtual(
+                owner, m.getName(), MethodType.methodType(m.getReturnType()));
+            CallSite site = LambdaMetafactory.metafactory(
+                LOOKUP, "apply", MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class), getter, getter.type().wrap());
+            @SuppressWarnings("unchecked") Function<Object,Object> accessor =
+                (Function<Object,Object>)site.getTarget().invoke();
+            return accessor;
+        } catch (Throwable t) {
+            // the metafactory refuses some members (e.g. those of classes in unexported modules)
+            return null;
+        }
+    }
+
+    private static boolean isPublic (Class<?> clazz) {
+        for (Class<?> cc = clazz; cc != null; cc = cc.getEnclosingClass()) {
+            if (!Modifier.isPublic(cc.getModifiers())) return false;
+        }
+        return true;
+    }
+
+    private static boolean isVisible (Class<?> clazz) {
+        while (clazz.isArray()) clazz = clazz.getComponentType();
+        if (clazz.isPrimitive()) return true;
+        try {
+            return Class.forName(clazz.getName(), false, DefaultCollector.class.getClassLoader()) ==
+                clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
     }
 
     protected Method getMethod (Class<?> clazz, String name) {
@@ -144,4 +201,8 @@ public class DefaultCollector extends BasicCollector
         }
         return null;
     }
+
+    protected final Mustache.FetcherCache _fetcherCache = new ClassValueFetcherCache();
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
 }
@@ -209,7 +209,8 @@ public class Mustache {
 
         /** Loads and compiles the template {@code name} using this compiler's configured template
           * loader. Note that this does no caching: the caller should cache the loaded template if
-          * they expect to use it multiple times.
+          * they expect to use it multiple times. If the loader is a {@link CompiledTemplateLoader}
+          * the template it supplies is returned as is, so it may do the caching instead.
           * @return the compiled template.
           * @throw MustacheException if the template could not be loaded (due to I/O exception) or
           * compiled (due to syntax error, etc.).
@@ -217,6 +218,9 @@ public class Mustache {
         public Template loadTemplate (String name) throws MustacheException {
             Reader tin = null;
             try {
+                if (loader instanceof CompiledTemplateLoader) {
+                    return ((CompiledTemplateLoader)loader).getCompiledTemplate(name, this);
+                }
                 tin = loader.getTemplate(name);
                 return compile(tin);
             } catch (Exception e) {
@@ -290,6 +294,19 @@ public class Mustache {
         Object get (Object ctx, String name) throws Exception;
     }
 
+    /** Caches {@link VariableFetcher} instances by context class and variable name. Templates
+      * consult the cache on every variable lookup, possibly from many threads at once, so
+      * implementations must be thread-safe and should not allocate on lookup. */
+    public interface FetcherCache {
+
+        /** Returns the fetcher cached for the so-named variable on instances of {@code cclass}, or
+          * null if no fetcher has been cached. */
+        VariableFetcher get (Class<?> cclass, String name);
+
+        /** Caches {@code fetcher} for the so-named variable on instances of {@code cclass}. */
+        void put (Class<?> cclass, String name, VariableFetcher fetcher);
+    }
+
     /** Handles escaping characters in substituted text. */
     public interface Escaper {
 
@@ -306,6 +323,18 @@ public class Mustache {
         Reader getTemplate (String name) throws Exception;
     }
 
+    /** A template loader which supplies compiled templates. This allows a partial to be compiled
+      * once and shared by every template (and thread) which includes it. Included partials are
+      * requested from the loader every time they execute, so the loader must cache them, and can
+      * replace a partial without recompiling the templates which include it. */
+    public interface CompiledTemplateLoader extends TemplateLoader {
+
+        /** Returns the compiled template with the supplied name. {@code compiler} is the compiler
+          * that is loading the template, for loaders that compile templates on demand.
+          * @throws Exception if the template could not be loaded for any reason. */
+        Template getCompiledTemplate (String name, Compiler compiler) throws Exception;
+    }
+
     /** Handles interpreting objects as collections. */
     public interface Collector {
 
@@ -318,10 +347,10 @@ public class Mustache {
           * {@code octx.getClass().equals(nctx.getClass()}. */
         VariableFetcher createFetcher (Object ctx, String name);
 
-        /** Creates a map to be used to cache {@link VariableFetcher} instances. The GWT-compatible
-          * collector returns a HashMap here, but the reflection based fetcher (which only works on
-          * the JVM and Android, returns a concurrent hashmap. */
-        <K,V> Map<K,V> createFetcherCache ();
+        /** Returns the cache to be used for {@link VariableFetcher} instances created by this
+          * collector. Collectors may return the same cache to every template they are used with,
+          * in which case the fetchers resolved by one template are reused by the others. */
+        FetcherCache createFetcherCache ();
     }
 
     /** Used to visit the tags in a template without executing it. */
@@ -364,7 +393,7 @@ public class Mustache {
         return new Compiler(/*standardsMode=*/false, /*strictSections=*/false, /*nullValue=*/null,
                             /*missingIsNull=*/false, /*emptyStringIsFalse=*/false,
                             /*zeroIsFalse=*/false, DEFAULT_FORMATTER, Escapers.HTML, FAILING_LOADER,
-                            new DefaultCollector(), new Delims());
+                            DEFAULT_COLLECTOR, new Delims());
     }
 
     /**
@@ -824,6 +853,10 @@ public class Mustache {
             }
         }
         protected Template getTemplate () {
+            if (_comp.loader instanceof CompiledTemplateLoader) {
+                // the loader caches the partial and may replace it, so ask it on every execution
+                return _comp.loadTemplate(_name);
+            }
             // we compile our template lazily to avoid infinie recursion if a template includes
             // itself (see issue #13)
             if (_template == null) {
@@ -833,7 +866,8 @@ public class Mustache {
         }
         protected final Compiler _comp;
         protected final String _name;
-        private Template _template;
+        // templates may be shared across threads, so make the lazily loaded partial visible to all
+        private volatile Template _template;
     }
 
     /** A helper class for named segments. */
@@ -1018,6 +1052,9 @@ public class Mustache {
         }
     };
 
+    /** Shared by all default compilers so that their templates share one fetcher cache. */
+    protected static final Collector DEFAULT_COLLECTOR = new DefaultCollector();
+
     protected static final Formatter DEFAULT_FORMATTER = new Formatter() {
         public String format (Object value) {
             return String.valueOf(value);
@@ -302,17 +302,17 @@ public class Template {
                 "Null context for variable '" + name + "' on line " + line);
         }
 
-        Key key = new Key(data.getClass(), name);
-        Mustache.VariableFetcher fetcher = _fcache.get(key);
+        Class<?> cclass = data.getClass();
+        Mustache.VariableFetcher fetcher = _fcache.get(cclass, name);
         if (fetcher != null) {
             try {
                 return fetcher.get(data, name);
             } catch (Exception e) {
                 // zoiks! non-monomorphic call site, update the cache and try again
-                fetcher = _compiler.collector.createFetcher(data, key.name);
+                fetcher = _compiler.collector.createFetcher(data, name);
             }
         } else {
-            fetcher = _compiler.collector.createFetcher(data, key.name);
+            fetcher = _compiler.collector.createFetcher(data, name);
         }
 
         // if we were unable to create a fetcher, use the NOT_FOUND_FETCHER which will return
@@ -325,7 +325,7 @@ public class Template {
 
         try {
             Object value = fetcher.get(data, name);
-            _fcache.put(key, fetcher);
+            _fcache.put(cclass, name, fetcher);
             return value;
         } catch (Exception e) {
             throw new MustacheException.Context(
@@ -345,7 +345,7 @@ public class Template {
 
     protected final Segment[] _segs;
     protected final Mustache.Compiler _compiler;
-    protected final Map<Key, Mustache.VariableFetcher> _fcache;
+    protected final Mustache.FetcherCache _fcache;
 
     protected static class Context {
         public final Object data;
@@ -388,30 +388,6 @@ public class Template {
         }
     }
 
-    /** Used to cache variable fetchers for a given context class, name combination. */
-    protected static class Key {
-        public final Class<?> cclass;
-        public final String name;
-
-        public Key (Class<?> cclass, String name) {
-            this.cclass = cclass;
-            this.name = name;
-        }
-
-        @Override public int hashCode () {
-            return cclass.hashCode() * 31 + name.hashCode();
-        }
-
-        @Override public boolean equals (Object other) {
-            Key okey = (Key)other;
-            return okey.cclass == cclass && okey.name.equals(name);
-        }
-
-        @Override public String toString () {
-            return cclass.getName() + ":" + name;
-        }
-    }
-
     protected static final String DOT_NAME = ".";
     protected static final String THIS_NAME = "this";
     protected static final String FIRST_NAME = "-first";
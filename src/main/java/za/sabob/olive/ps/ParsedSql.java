@@ -46,11 +46,14 @@ public class ParsedSql {
     /** The original sql string before being parsed. */
     private String originalSql;
 
+    /** The name of the resource the SQL was loaded from, if any. */
+    private String name;
+
     /** List of named parameters in the SQL string. */
     private List<String> parameterNames = new ArrayList<String>();
 
-    /** List of indexes (start and end) of the named parameters in the SQ: string. */
-    private List<int[]> parameterIndexes = new ArrayList<int[]>();
+    /** Indexes of the named parameters in the SQL string, stored flat as pairs: start0, end0, start1, end1... */
+    private int[] parameterIndexes = new int[0];
 
     /** The number of named parameters in the SQL string. */
     private int namedParameterCount;
@@ -61,6 +64,9 @@ public class ParsedSql {
     /** The total number of named and unnamed parameters (question marks '?') in the SQL string. */
     private int totalParameterCount;
 
+    /** The number of rows to fetch per round trip, or 0 for the driver's default. */
+    private int fetchSize;
+
     /**
      * Create a new ParsedSql instance for the given SQL string.
      * @param originalSql the SQL statement to be parsed
@@ -78,6 +84,25 @@ public class ParsedSql {
         return this.originalSql;
     }
 
+    /**
+     * Return the name of the resource the SQL statement was loaded from, for example "/sql/person/insert-person.sql",
+     * or "/sql/person.sql#insertPerson" for a statement in a multi-statement file.
+     *
+     * @return the name of the resource the SQL statement was loaded from, or null if the SQL was not loaded from a resource
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Set the name of the resource the SQL statement was loaded from.
+     *
+     * @param name the name of the resource the SQL statement was loaded from
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
     /**
      * Return all of the named parameters in the parsed SQL statement.
      * Repeated occurrences of the same parameter name are included here.
@@ -95,16 +120,51 @@ public class ParsedSql {
      * @return the start index and end index, combined into a int array of length 2
      */
     public int[] getParameterIndexes(int parameterPosition) {
-        return this.parameterIndexes.get(parameterPosition);
+        return new int[] { getParameterStartIndex(parameterPosition), getParameterEndIndex(parameterPosition) };
+    }
+
+    /**
+     * Return the start index of the named parameter at the specified parameter position.
+     *
+     * @param parameterPosition the position of the parameter (as index in the parameter names List)
+     * @return the start index of the parameter in the original SQL String
+     */
+    public int getParameterStartIndex(int parameterPosition) {
+        checkParameterPosition(parameterPosition);
+        return this.parameterIndexes[parameterPosition * 2];
+    }
+
+    /**
+     * Return the end index of the named parameter at the specified parameter position.
+     *
+     * @param parameterPosition the position of the parameter (as index in the parameter names List)
+     * @return the end index of the parameter in the original SQL String
+     */
+    public int getParameterEndIndex(int parameterPosition) {
+        checkParameterPosition(parameterPosition);
+        return this.parameterIndexes[parameterPosition * 2 + 1];
     }
 
     /**
      * Return all the named parameter indexes in the parsed SQL string.
+     * <p/>
+     * The indexes are stored as one flat int array, the returned List is a read-only view creating the start and end
+     * index pair of a parameter as it is read.
      * 
      * @return all the named parameter indexes in the parsed SQL string
      */
     public List<int[]> getParameterIndexes() {
-        return this.parameterIndexes;
+        return new AbstractList<int[]>() {
+            @Override
+            public int[] get(int index) {
+                return getParameterIndexes(index);
+            }
+
+            @Override
+            public int size() {
+                return parameterNames.size();
+            }
+        };
     }
 
     /**
@@ -154,8 +214,31 @@ public class ParsedSql {
      * @param endIndex the end index in the original SQL String
      */
     public void addNamedParameter(String parameterName, int startIndex, int endIndex) {
+        int pair = this.parameterNames.size() * 2;
+        if (pair == this.parameterIndexes.length) {
+            this.parameterIndexes = Arrays.copyOf(this.parameterIndexes, Math.max(8, pair * 2));
+        }
+        this.parameterIndexes[pair] = startIndex;
+        this.parameterIndexes[pair + 1] = endIndex;
         this.parameterNames.add(parameterName);
-        this.parameterIndexes.add(new int[] { startIndex, endIndex });
+    }
+
+    /**
+     * Set all of the named parameters parsed from this SQL statement at once, replacing any added before.
+     * <p/>
+     * The indexes are not copied, the array holds the start and end index of each parameter in turn and may be longer
+     * than needed.
+     *
+     * @param parameterNames the names of the parameters, including repeated occurrences
+     * @param parameterIndexes the start and end index in the original SQL String of each parameter
+     */
+    public void setNamedParameters(List<String> parameterNames, int[] parameterIndexes) {
+        if (parameterIndexes.length < parameterNames.size() * 2) {
+            throw new IllegalArgumentException("parameterIndexes must hold a start and end index for each of the "
+                + parameterNames.size() + " parameters");
+        }
+        this.parameterNames = parameterNames;
+        this.parameterIndexes = parameterIndexes;
     }
 
     /**
@@ -189,6 +272,42 @@ public class ParsedSql {
         this.totalParameterCount = totalParameterCount;
     }
 
+    /**
+     * Return the number of rows the driver should fetch per round trip when executing this statement.
+     * <p/>
+     * The fetch size is read from a <code>-- fetchSize: 500</code> line in the comments heading the SQL statement, for
+     * example:
+     *
+     * <pre class="prettyprint">
+     * -- fetchSize: 500
+     * SELECT * FROM orders WHERE created &gt; :since </pre>
+     *
+     * @return the fetch size, or 0 for the driver's default
+     */
+    public int getFetchSize() {
+        return this.fetchSize;
+    }
+
+    /**
+     * Set the number of rows the driver should fetch per round trip when executing this statement. Olive applies it to
+     * the PreparedStatements it creates for this statement.
+     *
+     * @param fetchSize the fetch size, or 0 for the driver's default
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize cannot be negative");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    private void checkParameterPosition(int parameterPosition) {
+        if (parameterPosition < 0 || parameterPosition >= this.parameterNames.size()) {
+            throw new IndexOutOfBoundsException("Parameter position: " + parameterPosition + ", parameters: "
+                + this.parameterNames.size());
+        }
+    }
+
     /**
      * Exposes the original SQL String.
      *
@@ -244,14 +244,15 @@ public class SqlParam implements Serializable {
     }
     
     /**
-     * Set the value of the SqlParam and convert the value to a list if it is an array.
+     * Set the value of the SqlParam and convert the value to a list if it is an array. Arrays of primitives are wrapped in a
+     * fixed-size view of the array, see {@link OliveUtils#toBindList(java.lang.Object)}.
      * 
      * @param value the value of the SqlParam
      */
     private void setValueAndConvertArrayToList(Object value) {
 
         if ( OliveUtils.isArray( value ) ) {
-            value = OliveUtils.toList( value );
+            value = OliveUtils.toBindList( value );
         }
 
         this.value = value;
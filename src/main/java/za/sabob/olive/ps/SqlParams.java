@@ -19,6 +19,7 @@ import java.io.*;
 import java.math.*;
 import java.net.*;
 import java.sql.*;
+import java.time.*;
 import java.util.Map.Entry;
 import java.util.*;
 import za.sabob.olive.util.*;
@@ -941,6 +942,132 @@ public class SqlParams {
         return set( param );
     }
 
+    /**
+     * Set a named parameter for the given given name and {@link java.time.LocalDate} on the {@link #paramMap parameter map}.
+     * <p/>
+     * A new {@link SqlParam} will be created for the given name and {@link java.time.LocalDate} and set on the {@link #paramMap parameter map}.
+     * <p/>
+     * The {@link SqlParam#sqlType} will be set to {@link java.sql.Types#DATE}. The value is passed to the JDBC 4.2
+     * driver as is, without converting it to a java.sql type.
+     *
+     * @param name the name of the named parameter to set
+     * @param value the {@link java.time.LocalDate} of the named parameter to set
+     * @return this SqlParams instance to enable chained calls
+     * @throws IllegalArgumentException if the name is not defined
+     */
+    public SqlParams setLocalDate( String name, LocalDate value ) {
+        SqlParam param = new SqlParam( name, value, Types.DATE );
+        return set( param );
+    }
+
+    /**
+     * Set a named parameter for the given given name and {@link java.time.LocalTime} on the {@link #paramMap parameter map}.
+     * <p/>
+     * A new {@link SqlParam} will be created for the given name and {@link java.time.LocalTime} and set on the {@link #paramMap parameter map}.
+     * <p/>
+     * The {@link SqlParam#sqlType} will be set to {@link java.sql.Types#TIME}. The value is passed to the JDBC 4.2
+     * driver as is, without converting it to a java.sql type.
+     *
+     * @param name the name of the named parameter to set
+     * @param value the {@link java.time.LocalTime} of the named parameter to set
+     * @return this SqlParams instance to enable chained calls
+     * @throws IllegalArgumentException if the name is not defined
+     */
+    public SqlParams setLocalTime( String name, LocalTime value ) {
+        SqlParam param = new SqlParam( name, value, Types.TIME );
+        return set( param );
+    }
+
+    /**
+     * Set a named parameter for the given given name and {@link java.time.LocalDateTime} on the {@link #paramMap parameter map}.
+     * <p/>
+     * A new {@link SqlParam} will be created for the given name and {@link java.time.LocalDateTime} and set on the {@link #paramMap parameter map}.
+     * <p/>
+     * The {@link SqlParam#sqlType} will be set to {@link java.sql.Types#TIMESTAMP}. The value is passed to the JDBC 4.2
+     * driver as is, without converting it to a java.sql type.
+     *
+     * @param name the name of the named parameter to set
+     * @param value the {@link java.time.LocalDateTime} of the named parameter to set
+     * @return this SqlParams instance to enable chained calls
+     * @throws IllegalArgumentException if the name is not defined
+     */
+    public SqlParams setLocalDateTime( String name, LocalDateTime value ) {
+        SqlParam param = new SqlParam( name, value, Types.TIMESTAMP );
+        return set( param );
+    }
+
+    /**
+     * Set a named parameter for the given given name and {@link java.time.OffsetTime} on the {@link #paramMap parameter map}.
+     * <p/>
+     * A new {@link SqlParam} will be created for the given name and {@link java.time.OffsetTime} and set on the {@link #paramMap parameter map}.
+     * <p/>
+     * The {@link SqlParam#sqlType} will be set to {@link java.sql.Types#TIME_WITH_TIMEZONE}. The value is passed to the JDBC 4.2
+     * driver as is, without converting it to a java.sql type.
+     *
+     * @param name the name of the named parameter to set
+     * @param value the {@link java.time.OffsetTime} of the named parameter to set
+     * @return this SqlParams instance to enable chained calls
+     * @throws IllegalArgumentException if the name is not defined
+     */
+    public SqlParams setOffsetTime( String name, OffsetTime value ) {
+        SqlParam param = new SqlParam( name, value, Types.TIME_WITH_TIMEZONE );
+        return set( param );
+    }
+
+    /**
+     * Set a named parameter for the given given name and {@link java.time.OffsetDateTime} on the {@link #paramMap parameter map}.
+     * <p/>
+     * A new {@link SqlParam} will be created for the given name and {@link java.time.OffsetDateTime} and set on the {@link #paramMap parameter map}.
+     * <p/>
+     * The {@link SqlParam#sqlType} will be set to {@link java.sql.Types#TIMESTAMP_WITH_TIMEZONE}. The value is passed to the JDBC 4.2
+     * driver as is, without converting it to a java.sql type.
+     *
+     * @param name the name of the named parameter to set
+     * @param value the {@link java.time.OffsetDateTime} of the named parameter to set
+     * @return this SqlParams instance to enable chained calls
+     * @throws IllegalArgumentException if the name is not defined
+     */
+    public SqlParams setOffsetDateTime( String name, OffsetDateTime value ) {
+        SqlParam param = new SqlParam( name, value, Types.TIMESTAMP_WITH_TIMEZONE );
+        return set( param );
+    }
+
+    /**
+     * Set a named parameter for the given given name and {@link java.time.Instant} on the {@link #paramMap parameter map}.
+     * <p/>
+     * A new {@link SqlParam} will be created for the given name and {@link java.time.Instant} and set on the {@link #paramMap parameter map}.
+     * <p/>
+     * The {@link SqlParam#sqlType} will be set to {@link java.sql.Types#TIMESTAMP}.
+     *
+     * @param name the name of the named parameter to set
+     * @param value the {@link java.time.Instant} of the named parameter to set
+     * @return this SqlParams instance to enable chained calls
+     * @throws IllegalArgumentException if the name is not defined
+     */
+    public SqlParams setInstant( String name, Instant value ) {
+        SqlParam param = new SqlParam( name, value, Types.TIMESTAMP );
+        return set( param );
+    }
+
+    /**
+     * Set a named parameter for the given given name and {@link java.util.UUID} on the {@link #paramMap parameter map}.
+     * <p/>
+     * A new {@link SqlParam} will be created for the given name and {@link java.util.UUID} and set on the {@link #paramMap parameter map}.
+     * <p/>
+     * The {@link SqlParam#sqlType} is left unknown, so the UUID is bound natively on drivers which support UUIDs,
+     * for example Postgres and H2. Use {@link #set(java.lang.String, java.lang.Object, int)} with
+     * {@link java.sql.Types#VARCHAR} to bind it as a String instead.
+     *
+     * @param name the name of the named parameter to set
+     * @param value the {@link java.util.UUID} of the named parameter to set
+     * @return this SqlParams instance to enable chained calls
+     * @throws IllegalArgumentException if the name is not defined
+     */
+    public SqlParams setUUID( String name, UUID value ) {
+        SqlParam param = new SqlParam( name, value );
+        return set( param );
+    }
+
     /**
      * Set a named parameter for the given given name and ascii InputStream on the {@link #paramMap parameter map}.
      * <p/>
@@ -1059,6 +1186,44 @@ public class SqlParams {
         return set( param );
     }
 
+    /**
+     * Set a named parameter for the given given name and collection or array on the {@link #paramMap parameter map}, bound
+     * as a single {@link java.sql.Array} instead of being expanded into a placeholder per element.
+     * <p/>
+     * The SQL type name of the elements is derived from the element type, see {@link SqlArrayValue}.
+     *
+     * <pre class="prettyprint">
+     * params.setArrayOf("ids", new long[] { 1, 2, 3 }); // SELECT * FROM person WHERE id = ANY(:ids)
+     * </pre>
+     *
+     * @param name the name of the named parameter to set
+     * @param values the collection, array of objects or array of primitives of the named parameter to set
+     * @return this SqlParams instance to enable chained calls
+     * @throws IllegalArgumentException if the name is not defined or values is not a collection or an array
+     */
+    public SqlParams setArrayOf( String name, Object values ) {
+        return setArrayOf( name, null, values );
+    }
+
+    /**
+     * Set a named parameter for the given given name and collection or array on the {@link #paramMap parameter map}, bound
+     * as a single {@link java.sql.Array} of the given SQL type name instead of being expanded into a placeholder per element.
+     * <p/>
+     * The {@link SqlParam#sqlType} will be set to {@link java.sql.Types#ARRAY}.
+     *
+     * @param name the name of the named parameter to set
+     * @param typeName the database specific SQL type name of the elements, for example "bigint"
+     * @param values the collection, array of objects or array of primitives of the named parameter to set, or null to
+     * bind SQL NULL
+     * @return this SqlParams instance to enable chained calls
+     * @throws IllegalArgumentException if the name is not defined or values is not a collection or an array
+     */
+    public SqlParams setArrayOf( String name, String typeName, Object values ) {
+        Object value = values == null ? null : new SqlArrayValue( typeName, values );
+        SqlParam param = new SqlParam( name, value, Types.ARRAY );
+        return set( param );
+    }
+
     /**
      * Set a named parameter for the given given name and {@link java.net.URL} on the {@link #paramMap parameter map}.
      * <p/>
@@ -0,0 +1,418 @@
+package za.sabob.olive.query;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * The rows of a ResultSet stored column by column, with one primitive array per numeric column and dictionary encoded
+ * strings for all other columns.
+ * <p/>
+ * Use a ColumnarResult instead of {@link za.sabob.olive.util.OliveUtils#mapToList(java.sql.PreparedStatement, za.sabob.olive.query.RowMapper)}
+ * for analytics queries returning millions of rows of a few columns. The ResultSet is read in one pass, with the type
+ * of each column resolved once from the {@link ResultSetMetaData}, and a million rows of a BIGINT column take 8MB
+ * instead of a million row objects holding a million Longs.
+ *
+ * <pre class="prettyprint">
+ * PreparedStatement ps = OliveUtils.prepareStatement(ctx, "SELECT region, year, amount FROM sales", params);
+ * ColumnarResult result = OliveUtils.mapToColumns(ps);
+ *
+ * String[] regions = result.getDictionary("region");
+ * int[] regionCodes = result.getStringCodes("region");
+ * int[] years = result.getInts("year");
+ * double[] amounts = result.getDoubles("amount");
+ *
+ * double[] totals = new double[regions.length];
+ * for (int row = 0; row &lt; result.getRowCount(); row++) {
+ *     totals[regionCodes[row]] += amounts[row];
+ * }
+ * </pre>
+ *
+ * Columns are mapped by their SQL type:
+ * <ul>
+ * <li>BIGINT and DECIMAL/NUMERIC without a scale that fit in 18 digits: long[]</li>
+ * <li>INTEGER, SMALLINT, TINYINT, BIT and BOOLEAN: int[], booleans as 0 or 1</li>
+ * <li>DOUBLE, FLOAT, REAL and other DECIMAL/NUMERIC columns: double[]</li>
+ * <li>anything else: int[] codes into a String[] dictionary, read with {@link ResultSet#getString(int)}</li>
+ * </ul>
+ *
+ * SQL NULLs are stored as 0 in numeric columns and as the code -1 in string columns, check {@link #isNull(int, int)}
+ * to tell a NULL from a 0. Columns are numbered from 1, like the ResultSet, and rows from 0.
+ */
+public final class ColumnarResult {
+
+    public enum ColumnType {
+        LONG, INT, DOUBLE, STRING
+    }
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final String[] names;
+
+    private final Column[] columns;
+
+    private int rowCount;
+
+    private ColumnarResult( String[] names, Column[] columns ) {
+        this.names = names;
+        this.columns = columns;
+    }
+
+    /**
+     * Read the remaining rows of the given ResultSet. The ResultSet is not closed.
+     *
+     * @param rs the ResultSet to read
+     * @return the rows stored column by column
+     * @throws SQLException if the ResultSet cannot be read
+     */
+    public static ColumnarResult read( ResultSet rs ) throws SQLException {
+        return read( rs, DEFAULT_CAPACITY );
+    }
+
+    /**
+     * Read the remaining rows of the given ResultSet, sizing the columns for the expected number of rows. The ResultSet
+     * is not closed.
+     *
+     * @param rs the ResultSet to read
+     * @param expectedRows the expected number of rows, the columns grow if more rows are read
+     * @return the rows stored column by column
+     * @throws SQLException if the ResultSet cannot be read
+     */
+    public static ColumnarResult read( ResultSet rs, int expectedRows ) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        int count = md.getColumnCount();
+        int capacity = Math.max( expectedRows, 1 );
+
+        String[] names = new String[count];
+        Column[] columns = new Column[count];
+
+        for ( int i = 0; i < count; i++ ) {
+            names[i] = md.getColumnLabel( i + 1 );
+            columns[i] = createColumn( md, i + 1, capacity );
+        }
+
+        ColumnarResult result = new ColumnarResult( names, columns );
+        int row = 0;
+
+        while ( rs.next() ) {
+            for ( Column column : columns ) {
+                column.read( rs, row );
+            }
+            row++;
+        }
+
+        for ( Column column : columns ) {
+            column.trim( row );
+        }
+
+        result.rowCount = row;
+        return result;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getColumnName( int column ) {
+        return names[column - 1];
+    }
+
+    /**
+     * Returns the index of the column with the given label, ignoring case.
+     *
+     * @param name the label of the column
+     * @return the index of the column, starting at 1
+     * @throws IllegalArgumentException if there is no column with the given label
+     */
+    public int getColumnIndex( String name ) {
+        for ( int i = 0; i < names.length; i++ ) {
+            if ( names[i].equalsIgnoreCase( name ) ) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException( "No column named '" + name + "'" );
+    }
+
+    public ColumnType getColumnType( int column ) {
+        return getColumn( column ).type;
+    }
+
+    public ColumnType getColumnType( String name ) {
+        return getColumnType( getColumnIndex( name ) );
+    }
+
+    public long[] getLongs( int column ) {
+        return ( (LongColumn) getColumn( column, ColumnType.LONG ) ).values;
+    }
+
+    public long[] getLongs( String name ) {
+        return getLongs( getColumnIndex( name ) );
+    }
+
+    public int[] getInts( int column ) {
+        return ( (IntColumn) getColumn( column, ColumnType.INT ) ).values;
+    }
+
+    public int[] getInts( String name ) {
+        return getInts( getColumnIndex( name ) );
+    }
+
+    public double[] getDoubles( int column ) {
+        return ( (DoubleColumn) getColumn( column, ColumnType.DOUBLE ) ).values;
+    }
+
+    public double[] getDoubles( String name ) {
+        return getDoubles( getColumnIndex( name ) );
+    }
+
+    /**
+     * Returns the code of every row of a string column, an index into the column's {@link #getDictionary(int) dictionary},
+     * or -1 for NULL.
+     *
+     * @param column the index of the column, starting at 1
+     * @return the codes of the rows
+     */
+    public int[] getStringCodes( int column ) {
+        return ( (StringColumn) getColumn( column, ColumnType.STRING ) ).codes;
+    }
+
+    public int[] getStringCodes( String name ) {
+        return getStringCodes( getColumnIndex( name ) );
+    }
+
+    /**
+     * Returns the distinct values of a string column, in the order they were first read.
+     *
+     * @param column the index of the column, starting at 1
+     * @return the distinct values of the column
+     */
+    public String[] getDictionary( int column ) {
+        return ( (StringColumn) getColumn( column, ColumnType.STRING ) ).dictionary;
+    }
+
+    public String[] getDictionary( String name ) {
+        return getDictionary( getColumnIndex( name ) );
+    }
+
+    public String getString( int column, int row ) {
+        StringColumn strings = (StringColumn) getColumn( column, ColumnType.STRING );
+        int code = strings.codes[row];
+        return code < 0 ? null : strings.dictionary[code];
+    }
+
+    public boolean isNull( int column, int row ) {
+        if ( row < 0 || row >= rowCount ) {
+            throw new IndexOutOfBoundsException( "row " + row + " is not between 0 and " + rowCount );
+        }
+
+        BitSet nulls = getColumn( column ).nulls;
+        return nulls != null && nulls.get( row );
+    }
+
+    private Column getColumn( int column ) {
+        if ( column < 1 || column > columns.length ) {
+            throw new IllegalArgumentException( "column " + column + " is not between 1 and " + columns.length );
+        }
+        return columns[column - 1];
+    }
+
+    private Column getColumn( int column, ColumnType type ) {
+        Column result = getColumn( column );
+
+        if ( result.type != type ) {
+            throw new IllegalArgumentException( "column " + column + " (" + names[column - 1] + ") is a " + result.type + " column, not " + type );
+        }
+        return result;
+    }
+
+    private static Column createColumn( ResultSetMetaData md, int column, int capacity ) throws SQLException {
+        switch ( md.getColumnType( column ) ) {
+            case Types.BIGINT:
+                return new LongColumn( column, capacity );
+
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return new IntColumn( column, capacity );
+
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                if ( md.getScale( column ) == 0 && md.getPrecision( column ) > 0 && md.getPrecision( column ) <= 18 ) {
+                    return new LongColumn( column, capacity );
+                }
+                return new DoubleColumn( column, capacity );
+
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                return new DoubleColumn( column, capacity );
+
+            default:
+                return new StringColumn( column, capacity );
+        }
+    }
+
+    private abstract static class Column {
+
+        final int index;
+
+        final ColumnType type;
+
+        BitSet nulls;
+
+        Column( int index, ColumnType type ) {
+            this.index = index;
+            this.type = type;
+        }
+
+        abstract void read( ResultSet rs, int row ) throws SQLException;
+
+        abstract void trim( int rows );
+
+        void readNull( ResultSet rs, int row ) throws SQLException {
+            if ( rs.wasNull() ) {
+                if ( nulls == null ) {
+                    nulls = new BitSet();
+                }
+                nulls.set( row );
+            }
+        }
+    }
+
+    private static class LongColumn extends Column {
+
+        long[] values;
+
+        LongColumn( int index, int capacity ) {
+            super( index, ColumnType.LONG );
+            values = new long[capacity];
+        }
+
+        @Override
+        void read( ResultSet rs, int row ) throws SQLException {
+            if ( row == values.length ) {
+                values = Arrays.copyOf( values, row << 1 );
+            }
+            values[row] = rs.getLong( index );
+            readNull( rs, row );
+        }
+
+        @Override
+        void trim( int rows ) {
+            if ( rows != values.length ) {
+                values = Arrays.copyOf( values, rows );
+            }
+        }
+    }
+
+    private static class IntColumn extends Column {
+
+        int[] values;
+
+        IntColumn( int index, int capacity ) {
+            super( index, ColumnType.INT );
+            values = new int[capacity];
+        }
+
+        @Override
+        void read( ResultSet rs, int row ) throws SQLException {
+            if ( row == values.length ) {
+                values = Arrays.copyOf( values, row << 1 );
+            }
+            values[row] = rs.getInt( index );
+            readNull( rs, row );
+        }
+
+        @Override
+        void trim( int rows ) {
+            if ( rows != values.length ) {
+                values = Arrays.copyOf( values, rows );
+            }
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+
+        double[] values;
+
+        DoubleColumn( int index, int capacity ) {
+            super( index, ColumnType.DOUBLE );
+            values = new double[capacity];
+        }
+
+        @Override
+        void read( ResultSet rs, int row ) throws SQLException {
+            if ( row == values.length ) {
+                values = Arrays.copyOf( values, row << 1 );
+            }
+            values[row] = rs.getDouble( index );
+            readNull( rs, row );
+        }
+
+        @Override
+        void trim( int rows ) {
+            if ( rows != values.length ) {
+                values = Arrays.copyOf( values, rows );
+            }
+        }
+    }
+
+    private static class StringColumn extends Column {
+
+        int[] codes;
+
+        String[] dictionary;
+
+        // Only needed while reading, dropped by trim
+        private Map<String, Integer> lookup = new HashMap<>();
+
+        StringColumn( int index, int capacity ) {
+            super( index, ColumnType.STRING );
+            codes = new int[capacity];
+        }
+
+        @Override
+        void read( ResultSet rs, int row ) throws SQLException {
+            if ( row == codes.length ) {
+                codes = Arrays.copyOf( codes, row << 1 );
+            }
+
+            String value = rs.getString( index );
+
+            if ( value == null ) {
+                codes[row] = -1;
+                if ( nulls == null ) {
+                    nulls = new BitSet();
+                }
+                nulls.set( row );
+                return;
+            }
+
+            Integer code = lookup.get( value );
+
+            if ( code == null ) {
+                code = lookup.size();
+                lookup.put( value, code );
+            }
+            codes[row] = code;
+        }
+
+        @Override
+        void trim( int rows ) {
+            if ( rows != codes.length ) {
+                codes = Arrays.copyOf( codes, rows );
+            }
+
+            dictionary = new String[lookup.size()];
+            for ( Map.Entry<String, Integer> entry : lookup.entrySet() ) {
+                dictionary[entry.getValue()] = entry.getKey();
+            }
+            lookup = null;
+        }
+    }
+}
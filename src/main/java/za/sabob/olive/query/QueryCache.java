@@ -0,0 +1,436 @@
+package za.sabob.olive.query;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import za.sabob.olive.jdbc.context.*;
+import za.sabob.olive.jdbc.context.listener.*;
+import za.sabob.olive.ps.*;
+import za.sabob.olive.util.*;
+
+/**
+ * Caches the mapped results of queries, keyed on the {@link ParsedSql}, the values bound from the {@link SqlParams} and
+ * how the rows are mapped: the kind of result and the RowMapper or Class it is mapped with. Share a RowMapper instance,
+ * or a non-capturing lambda, between calls to hit the cache.
+ * <p/>
+ * Results are cached for a limited time and the cache holds a limited number of results, evicting the least recently
+ * used result when full. Queries are tagged with the
+ * tables they read, and writes executed through the cache invalidate the results of every query sharing one of their
+ * tags. A write inside a transaction invalidates its tags after the transaction commits, not before, and queries with
+ * those tags bypass the cache for the remainder of the transaction, so the transaction sees its own writes without
+ * caching them.
+ * <p/>
+ * The cache is opt-in, only queries executed through it are cached. It suits reference tables which change rarely.
+ * <p/>
+ * <b>Note:</b> the same cached list or bean is returned to every caller, on every thread. Lists are unmodifiable, but
+ * the rows in them and the beans returned by {@link #mapToBean(za.sabob.olive.jdbc.context.JDBCContext, za.sabob.olive.ps.ParsedSql, za.sabob.olive.ps.SqlParams, za.sabob.olive.query.RowMapper, java.lang.String...) mapToBean}
+ * are not copied, so mappers must create immutable objects, or callers must not modify them.
+ *
+ * <pre class="prettyprint">
+ * QueryCache cache = new QueryCache(1000, 5, TimeUnit.MINUTES);
+ *
+ * JDBCContext ctx = JDBC.beginOperation(ds);
+ * ParsedSql select = olive.loadParsedSql("/sql/country/select-countries.sql");
+ * List&lt;Country&gt; countries = cache.mapToList(ctx, select, params, mapper, "country");
+ * JDBC.cleanupOperation(ctx);
+ *
+ * ctx = JDBC.beginTransaction(ds);
+ * ParsedSql insert = olive.loadParsedSql("/sql/country/insert-country.sql");
+ * cache.executeUpdate(ctx, insert, params, "country");
+ * JDBC.commitTransaction(ctx); // "country" results are invalidated here
+ * JDBC.cleanupTransaction(ctx);
+ * </pre>
+ */
+public class QueryCache {
+
+    private static final String[] NO_TAGS = new String[0];
+
+    /**
+     * The cached results in access order, so the eldest entry is the least recently used. Guarded by its own lock.
+     */
+    private final LinkedHashMap<Key, CachedResult> entries;
+
+    /**
+     * The generation of each tag, incremented on every invalidation. Results record the generations of their tags when
+     * the query started, so a result loaded concurrently with an invalidation is never served.
+     */
+    private final ConcurrentHashMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Create a cache holding up to maxSize results, each for the given time to live.
+     *
+     * @param maxSize the maximum number of results to cache
+     * @param ttl how long a result is cached
+     * @param unit the unit of ttl
+     */
+    public QueryCache( int maxSize, long ttl, TimeUnit unit ) {
+        if ( maxSize <= 0 ) {
+            throw new IllegalArgumentException( "maxSize must be greater than 0" );
+        }
+
+        if ( ttl <= 0 ) {
+            throw new IllegalArgumentException( "ttl must be greater than 0" );
+        }
+
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos( ttl );
+
+        this.entries = new LinkedHashMap<Key, CachedResult>( 16, 0.75f, true ) {
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Key, CachedResult> eldest ) {
+                return size() > QueryCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached list for the given query, or executes the query with {@link OliveUtils#mapToList(java.sql.PreparedStatement, za.sabob.olive.query.RowMapper)}
+     * and caches the result.
+     *
+     * @param ctx the context to execute the query in
+     * @param parsedSql the query
+     * @param params the parameters of the query
+     * @param mapper the mapper of the rows
+     * @param tags the tables the query reads
+     * @param <T> the type of the mapped rows
+     * @return the unmodifiable list of mapped rows, shared with other callers
+     */
+    public <T> List<T> mapToList( JDBCContext ctx, ParsedSql parsedSql, SqlParams params, RowMapper<T> mapper, String... tags ) {
+        return get( ctx, ResultKind.LIST, mapper, parsedSql, params, tags, ps -> Collections.unmodifiableList( OliveUtils.mapToList( ps, mapper ) ) );
+    }
+
+    /**
+     * Returns the cached bean for the given query, or executes the query with {@link OliveUtils#mapToBean(java.sql.PreparedStatement, za.sabob.olive.query.RowMapper)}
+     * and caches the result. A query without rows caches null.
+     * <p/>
+     * The same bean is returned to every caller, so the mapper must create immutable beans, or callers must not modify
+     * them.
+     *
+     * @param ctx the context to execute the query in
+     * @param parsedSql the query
+     * @param params the parameters of the query
+     * @param mapper the mapper of the row
+     * @param tags the tables the query reads
+     * @param <T> the type of the mapped row
+     * @return the mapped row, shared with other callers, or null if the query returned no rows
+     */
+    public <T> T mapToBean( JDBCContext ctx, ParsedSql parsedSql, SqlParams params, RowMapper<T> mapper, String... tags ) {
+        return get( ctx, ResultKind.BEAN, mapper, parsedSql, params, tags, ps -> OliveUtils.mapToBean( ps, mapper ) );
+    }
+
+    /**
+     * Returns the cached value for the given query, or executes the query with {@link OliveUtils#mapToPrimitive(java.lang.Class, java.sql.PreparedStatement)}
+     * and caches the result.
+     *
+     * @param cls the type of the value
+     * @param ctx the context to execute the query in
+     * @param parsedSql the query
+     * @param params the parameters of the query
+     * @param tags the tables the query reads
+     * @param <T> the type of the value
+     * @return the value of the first column of the first row, or null if the query returned no rows
+     */
+    public <T> T mapToPrimitive( Class<T> cls, JDBCContext ctx, ParsedSql parsedSql, SqlParams params, String... tags ) {
+        return get( ctx, ResultKind.PRIMITIVE, cls, parsedSql, params, tags, ps -> OliveUtils.mapToPrimitive( cls, ps ) );
+    }
+
+    /**
+     * Execute the given INSERT, UPDATE or DELETE statement and invalidate the given tags, after the transaction commits if
+     * the context is part of a transaction.
+     *
+     * @param ctx the context to execute the statement in
+     * @param parsedSql the statement
+     * @param params the parameters of the statement
+     * @param tags the tables the statement writes
+     * @return the row count of the statement
+     */
+    public int executeUpdate( JDBCContext ctx, ParsedSql parsedSql, SqlParams params, String... tags ) {
+        PreparedStatement ps = OliveUtils.prepareStatement( ctx, parsedSql, params );
+        int result = OliveUtils.executeUpdate( ps );
+        invalidate( ctx, tags );
+        return result;
+    }
+
+    /**
+     * Invalidate the results of the queries with the given tags, after the transaction commits if the context is part of
+     * a transaction.
+     *
+     * @param ctx the context the tables were written in
+     * @param tags the tables written
+     */
+    public void invalidate( JDBCContext ctx, String... tags ) {
+        JDBCContext rootTransactionContext = ctx.getRootTransactionContext();
+
+        if ( rootTransactionContext == null ) {
+            invalidate( tags );
+            return;
+        }
+
+        PendingInvalidation pending = getPendingInvalidation( rootTransactionContext );
+
+        if ( pending == null ) {
+            pending = new PendingInvalidation();
+            rootTransactionContext.addTransactionListener( pending );
+        }
+
+        Collections.addAll( pending.tags, tags );
+    }
+
+    /**
+     * Invalidate the results of the queries with the given tags immediately.
+     *
+     * @param tags the tables written
+     */
+    public void invalidate( String... tags ) {
+        for ( String tag : tags ) {
+            generation( tag ).incrementAndGet();
+        }
+    }
+
+    public void clear() {
+        synchronized ( entries ) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized ( entries ) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the cached result of the given query, or loads and caches it.
+     *
+     * @param ctx the context to execute the query in
+     * @param kind the kind of result the loader returns
+     * @param mapping the RowMapper or Class the loader maps the rows with
+     * @param parsedSql the query
+     * @param params the parameters of the query
+     * @param tags the tables the query reads
+     * @param loader loads the result from the prepared query
+     * @param <T> the type of the result
+     * @return the cached or loaded result
+     */
+    @SuppressWarnings( "unchecked" ) // The key holds the kind and mapping, so a cached value was loaded by an equivalent loader
+    protected <T> T get( JDBCContext ctx, ResultKind kind, Object mapping, ParsedSql parsedSql, SqlParams params, String[] tags,
+                         Loader<T> loader ) {
+        if ( tags == null ) {
+            tags = NO_TAGS;
+        }
+
+        if ( isPending( ctx, tags ) ) {
+            // The transaction wrote these tables, so the cache holds neither what the transaction sees nor what
+            // other transactions will see once it commits
+            misses.increment();
+            return load( ctx, parsedSql, params, loader );
+        }
+
+        Key key = new Key( kind, mapping, parsedSql, params );
+        long now = System.nanoTime();
+
+        CachedResult entry;
+        synchronized ( entries ) {
+            entry = entries.get( key );
+        }
+
+        if ( entry != null ) {
+            if ( entry.isValid( this, now ) ) {
+                hits.increment();
+                return (T) entry.value;
+            }
+
+            synchronized ( entries ) {
+                entries.remove( key, entry );
+            }
+        }
+
+        misses.increment();
+
+        long[] tagGenerations = new long[tags.length];
+        for ( int i = 0; i < tags.length; i++ ) {
+            tagGenerations[i] = generation( tags[i] ).get();
+        }
+
+        T value = load( ctx, parsedSql, params, loader );
+
+        synchronized ( entries ) {
+            // Evicts the least recently used result if the cache is full
+            entries.put( key, new CachedResult( value, tags.clone(), tagGenerations, now + ttlNanos ) );
+        }
+
+        return value;
+    }
+
+    private <T> T load( JDBCContext ctx, ParsedSql parsedSql, SqlParams params, Loader<T> loader ) {
+        PreparedStatement ps = OliveUtils.prepareStatement( ctx, parsedSql, params );
+        return loader.load( ps );
+    }
+
+    private AtomicLong generation( String tag ) {
+        return generations.computeIfAbsent( tag, t -> new AtomicLong() );
+    }
+
+    private boolean isPending( JDBCContext ctx, String[] tags ) {
+        if ( tags.length == 0 ) {
+            return false;
+        }
+
+        PendingInvalidation pending = getPendingInvalidation( ctx );
+
+        if ( pending == null ) {
+            return false;
+        }
+
+        for ( String tag : tags ) {
+            if ( pending.tags.contains( tag ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private PendingInvalidation getPendingInvalidation( JDBCContext ctx ) {
+        for ( TransactionListener listener : ctx.getTransactionListeners() ) {
+            if ( listener instanceof PendingInvalidation && ( (PendingInvalidation) listener ).getCache() == this ) {
+                return (PendingInvalidation) listener;
+            }
+        }
+        return null;
+    }
+
+    protected interface Loader<T> {
+
+        T load( PreparedStatement ps );
+    }
+
+    /**
+     * The kinds of results, part of the key so that the same query mapped differently is cached separately.
+     */
+    protected enum ResultKind {
+        LIST, BEAN, PRIMITIVE
+    }
+
+    /**
+     * The tags written in a transaction, invalidated when the transaction commits and discarded when it rolls back.
+     */
+    private class PendingInvalidation extends TransactionListener {
+
+        private final Set<String> tags = new HashSet<>();
+
+        private QueryCache getCache() {
+            return QueryCache.this;
+        }
+
+        @Override
+        public void afterCommit( JDBCContext ctx ) {
+            invalidate( tags.toArray( new String[tags.size()] ) );
+        }
+    }
+
+    private static class Key {
+
+        private final ResultKind kind;
+
+        private final Object mapping;
+
+        private final String sql;
+
+        private final Object[] values;
+
+        private final int hash;
+
+        private Key( ResultKind kind, Object mapping, ParsedSql parsedSql, SqlParams params ) {
+            this.kind = kind;
+            this.mapping = mapping;
+            this.sql = parsedSql.getOriginalSql();
+
+            List<String> names = parsedSql.getParameterNames();
+            this.values = new Object[names.size() * 2];
+
+            for ( int i = 0; i < names.size(); i++ ) {
+                SqlParam param = params == null ? null : params.get( names.get( i ) );
+
+                if ( param != null ) {
+                    values[i * 2] = param.getValue();
+                    values[i * 2 + 1] = param.getSqlType();
+                }
+            }
+
+            this.hash = 31 * ( 31 * ( 31 * kind.hashCode() + Objects.hashCode( mapping ) ) + sql.hashCode() ) + Arrays.deepHashCode( values );
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if ( this == obj ) {
+                return true;
+            }
+
+            if ( !( obj instanceof Key ) ) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return hash == other.hash && kind == other.kind && Objects.equals( mapping, other.mapping ) && sql.equals( other.sql )
+                && Arrays.deepEquals( values, other.values );
+        }
+    }
+
+    private static class CachedResult {
+
+        private final Object value;
+
+        private final String[] tags;
+
+        private final long[] tagGenerations;
+
+        private final long expires;
+
+        private CachedResult( Object value, String[] tags, long[] tagGenerations, long expires ) {
+            this.value = value;
+            this.tags = tags;
+            this.tagGenerations = tagGenerations;
+            this.expires = expires;
+        }
+
+        private boolean isValid( QueryCache cache, long now ) {
+            if ( now - expires >= 0 ) {
+                return false;
+            }
+
+            for ( int i = 0; i < tags.length; i++ ) {
+                if ( cache.generation( tags[i] ).get() != tagGenerations[i] ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -2,10 +2,30 @@ package za.sabob.olive.template;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import za.sabob.olive.mustache.*;
+import za.sabob.olive.util.*;
 
 public class TemplateService {
 
+    /**
+     * Buffers larger than this are not kept for reuse, so a single huge render does not pin its memory to the thread.
+     */
+    private static final int MAX_RETAINED_BUFFER_CAPACITY = 64 * 1024;
+
+    /**
+     * The number of partials passed in the render data which are kept compiled, keyed by their content.
+     */
+    private static final int MAX_DATA_PARTIALS = 256;
+
+    private static final ThreadLocal<RenderBuffer> RENDER_BUFFER = new ThreadLocal<RenderBuffer>() {
+        @Override
+        protected RenderBuffer initialValue() {
+            return new RenderBuffer();
+        }
+    };
+
     private Mustache.Compiler templateCompiler;
 
     private Mustache.Formatter templateFormatter;
@@ -16,16 +36,37 @@ public class TemplateService {
 
     private Mustache.TemplateLoader templateLoader;
 
-//    public String executeTemplateFile( String filename, Map data ) {
-//        Template template = loadCompiledTemplate( filename, data );
-//        String result = executeTemplate( template, data );
-//        return result;
-//    }
+    /**
+     * The compiler shared by all threads, built from the settings above the first time it is needed and discarded
+     * when a setting changes.
+     */
+    private volatile Mustache.Compiler compiler;
+
+    private final Map<String, String> partialSources = new ConcurrentHashMap<>();
+
+    private final Map<String, Template> compiledPartials = new ConcurrentHashMap<>();
+
+    /**
+     * Partials compiled from the template loader, kept apart from the registered partials as they are only used when the
+     * render data does not supply the partial.
+     */
+    private final Map<String, Template> loadedPartials = new ConcurrentHashMap<>();
+
+    /**
+     * Partials passed in the render data, compiled once per content and evicted least recently used first.
+     */
+    private final Map<String, Template> dataPartials = new LinkedHashMap<String, Template>( 16, 0.75f, true ) {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Template> eldest ) {
+            return size() > MAX_DATA_PARTIALS;
+        }
+    };
 
-//    public String executeTemplateFromFile( String filename, Map data ) {
-//        String result = executeTemplateFile( filename, data );
-//        return result;
-//    }
+    /**
+     * Incremented whenever the compiler is discarded, so that caches of templates compiled by this service, such as
+     * Olive's compiled template files, can tell their templates are stale.
+     */
+    private final AtomicLong compilerVersion = new AtomicLong();
 
     public String executeTemplate( String name, String content, Map data ) {
         Template template = compileTemplate( name, content );
@@ -34,65 +75,131 @@ public class TemplateService {
     }
 
     public String executeTemplate( String content, Map data ) {
-        Template template = compileTemplate( content, data );
+        Template template = compileTemplate( content );
 
         String result = executeTemplate( template, data );
         return result;
     }
 
     public String executeTemplate( Template template, Map data ) {
-        String result = template.execute( data );
+        CharSequence buffer = executeTemplateToBuffer( template, data );
+        String result = buffer.toString();
         return result;
 
     }
 
-//    public Template loadCompiledTemplate( String filename ) {
-//
-//        Map data = new HashMap();
-//        return loadCompiledTemplate( filename, data );
-//    }
+    /**
+     * Render the template into a buffer owned by the calling thread and return that buffer.
+     * <p/>
+     * The buffer is reused by every render on the thread, so no output buffer is allocated and the output is not copied
+     * into a String. This suits output that is consumed straight away, such as SQL which is passed to
+     * {@link za.sabob.olive.util.OliveUtils#parseSql(java.lang.CharSequence)}.
+     * <p/>
+     * <b>Note:</b> the returned CharSequence is only valid until the next call to this method on the same thread. Copy
+     * it with toString() if it must be kept.
+     *
+     * @param template the template to render
+     * @param data the data to render the template with
+     * @return the rendered output
+     */
+    public CharSequence executeTemplateToBuffer( Template template, Map data ) {
+        RenderBuffer buffer = RENDER_BUFFER.get();
+
+        if ( buffer.rendering ) {
+            // A lambda in the outer template is rendering a template on this thread, so the buffer is in use
+            Map outerData = buffer.data;
+            buffer.data = data;
+
+            try {
+                StringBuilderWriter writer = new StringBuilderWriter();
+                template.execute( data, writer );
+                return writer.getBuilder();
+
+            } finally {
+                buffer.data = outerData;
+            }
+        }
 
-//    public Template loadCompiledTemplate( String filename, Map data ) {
-//
-//        String content = loadContent( filename );
-//        Template template = compileTemplate( filename, content, data );
-//        return template;
-//    }
+        StringBuilderWriter writer = buffer.reset();
+        buffer.rendering = true;
+        buffer.data = data;
 
-    public Template compileTemplate( String name, String content ) {
+        try {
+            template.execute( data, writer );
+            return writer.getBuilder();
 
-        Map data = new HashMap();
-        Template template = compileTemplate( name, content, data );
-        return template;
+        } finally {
+            buffer.rendering = false;
+            buffer.data = null;
+        }
     }
 
-    public Template compileTemplate( String name, String content, Map data ) {
-        // Bercause of partials, DONT cache
-//        if ( getMode() == Mode.PRODUCTION ) {
-//            Template template = templateMap.get( name );
-//
-//            if ( template != null ) {
-//                return template;
-//            }
-//        }
-
-        Template template = compileTemplate( content, data );
-
-//        if ( getMode() == Mode.PRODUCTION ) {
-//            templateMap.put( name, template );
-//        }
-        return template;
+    public Template compileTemplate( String name, String content ) {
+        return compileTemplate( content );
     }
 
-    public Template compileTemplate( String content ) {
-        Map data = new HashMap();
+    /**
+     * Compile the given template content, including partials supplied as String values of the given data.
+     *
+     * @param name the name of the template
+     * @param content the template content
+     * @param data the data to look up partials in before the other partials, see {@link #getPartial(java.lang.String)}
+     * @return the compiled template
+     * @deprecated partials are looked up in the data the template is rendered with, so the data is not needed to compile
+     * a template, use {@link #compileTemplate(java.lang.String)}
+     */
+    @Deprecated
+    public Template compileTemplate( String name, String content, Map data ) {
         return compileTemplate( content, data );
     }
 
+    /**
+     * Compile the given template content, including partials supplied as String values of the given data.
+     * <p/>
+     * Unlike templates compiled with {@link #compileTemplate(java.lang.String)}, the template is bound to the given data,
+     * so its partials are found when it is executed directly with {@link Template#execute(java.lang.Object)}.
+     *
+     * @param content the template content
+     * @param data the data to look up partials in before the other partials, see {@link #getPartial(java.lang.String)}
+     * @return the compiled template
+     * @deprecated partials are looked up in the data the template is rendered with, so the data is not needed to compile
+     * a template, use {@link #compileTemplate(java.lang.String)}
+     */
+    @Deprecated
     public Template compileTemplate( String content, Map data ) {
+        if ( data == null || data.isEmpty() ) {
+            return compileTemplate( content );
+        }
+
+        Mustache.Compiler dataCompiler = getCompiler().withLoader( createDataPartialLoader( data ) );
+        return dataCompiler.compile( content );
+    }
+
+    public Template compileTemplate( String content ) {
+        Template template = getCompiler().compile( content );
+        return template;
+    }
+
+    /**
+     * Return the compiler used for all templates of this service. The compiler is immutable and shared by all threads.
+     * It is built from the configured compiler, formatter, collector and escaper the first time it is needed, and
+     * rebuilt after any of them change.
+     *
+     * @return the compiler used for all templates of this service
+     */
+    public Mustache.Compiler getCompiler() {
+        Mustache.Compiler activeCompiler = compiler;
+
+        if ( activeCompiler == null ) {
+            activeCompiler = createCompiler();
+            compiler = activeCompiler;
+        }
+        return activeCompiler;
+    }
+
+    protected Mustache.Compiler createCompiler() {
 
         Mustache.Compiler activeCompiler = getTemplateCompiler();
-        Mustache.TemplateLoader activeTemplateLoader = getTemplateLoader();
         Mustache.Collector activeTemplateCollector = getTemplateCollector();
         Mustache.Formatter activeTemplateFormatter = getTemplateFormatter();
         Mustache.Escaper activeTemplateEscaper = getTemplateEscaper();
@@ -101,10 +208,7 @@ public class TemplateService {
             activeCompiler = Mustache.compiler();
         }
 
-        if ( activeTemplateLoader == null ) {
-            activeTemplateLoader = createDefaultTemplateLoader( data );
-        }
-        activeCompiler = activeCompiler.withLoader( activeTemplateLoader );
+        activeCompiler = activeCompiler.withLoader( createPartialLoader() );
 
         if ( activeTemplateCollector != null ) {
             activeCompiler = activeCompiler.withCollector( activeTemplateCollector );
@@ -118,13 +222,178 @@ public class TemplateService {
             activeCompiler = activeCompiler.withEscaper( activeTemplateEscaper );
         }
 
-        Template template = activeCompiler.compile( content );
+        return activeCompiler;
+    }
 
-        return template;
+    /**
+     * Register a partial under the given name. Templates include the partial with <code>{{&gt;name}}</code>. The
+     * partial is compiled once and shared by all templates that include it. Registering a partial under the name of an
+     * existing partial replaces it in templates that are already compiled too.
+     *
+     * @param name the name of the partial
+     * @param content the partial template content
+     */
+    public void registerPartial( String name, String content ) {
+        if ( name == null ) {
+            throw new IllegalArgumentException( "name cannot be null!" );
+        }
+
+        if ( content == null ) {
+            throw new IllegalArgumentException( "content cannot be null!" );
+        }
+
+        partialSources.put( name, content );
+        compiledPartials.remove( name );
+    }
+
+    /**
+     * Remove the partial registered under the given name.
+     *
+     * @param name the name of the partial to remove
+     */
+    public void removePartial( String name ) {
+        partialSources.remove( name );
+        compiledPartials.remove( name );
+    }
+
+    /**
+     * Return the compiled partial for the given name. The partial is looked up in order:
+     * <ul>
+     * <li>the {@link #registerPartial(java.lang.String, java.lang.String) registered} partials</li>
+     * <li>a String value under the partial name in the data the template is being rendered with</li>
+     * <li>the configured {@link #getTemplateLoader() template loader}</li>
+     * </ul>
+     * Partials passed in the data are compiled once per content and kept in a bounded cache.
+     * <p/>
+     * Partials are resolved every time a template including them renders, so a partial that is registered again is
+     * picked up by templates that are already compiled.
+     *
+     * @param name the name of the partial
+     * @return the compiled partial
+     * @throws MustacheException if the partial is not found
+     */
+    public Template getPartial( String name ) {
+        return getPartial( name, RENDER_BUFFER.get().data );
+    }
+
+    private Template getPartial( String name, Map data ) {
+        Template partial = compiledPartials.get( name );
+        if ( partial != null ) {
+            return partial;
+        }
+
+        String content = partialSources.get( name );
+        if ( content != null ) {
+            partial = getCompiler().compile( content );
+            compiledPartials.put( name, partial );
+            return partial;
+        }
+
+        Object value = data == null ? null : data.get( name );
+        if ( value instanceof String ) {
+            return getDataPartial( (String) value );
+        }
+
+        Mustache.TemplateLoader activeTemplateLoader = getTemplateLoader();
+        if ( activeTemplateLoader == null ) {
+            throw new MustacheException( "No partial found for name '" + name + "'" );
+        }
+
+        try {
+            if ( activeTemplateLoader instanceof Mustache.CompiledTemplateLoader ) {
+                // The loader does its own caching
+                return ( (Mustache.CompiledTemplateLoader) activeTemplateLoader ).getCompiledTemplate( name, getCompiler() );
+            }
+
+            partial = loadedPartials.get( name );
+            if ( partial != null ) {
+                return partial;
+            }
+
+            Reader reader = activeTemplateLoader.getTemplate( name );
+            try {
+                partial = getCompiler().compile( reader );
+                loadedPartials.put( name, partial );
+                return partial;
+            } finally {
+                reader.close();
+            }
+
+        } catch ( RuntimeException e ) {
+            throw e;
+
+        } catch ( Exception e ) {
+            throw new MustacheException( "Unable to load partial: " + name, e );
+        }
+    }
+
+    private Template getDataPartial( String content ) {
+        synchronized ( dataPartials ) {
+            Template partial = dataPartials.get( content );
+
+            if ( partial == null ) {
+                partial = getCompiler().compile( content );
+                dataPartials.put( content, partial );
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * Creates the loader for templates compiled with {@link #compileTemplate(java.lang.String, java.util.Map)}, which looks
+     * up partials in the given data before the render data.
+     *
+     * @param data the data the template is compiled with
+     * @return the loader for partials of templates compiled with the given data
+     */
+    protected Mustache.TemplateLoader createDataPartialLoader( final Map data ) {
+
+        return new Mustache.CompiledTemplateLoader() {
+
+            @Override
+            public Template getCompiledTemplate( String name, Mustache.Compiler compiler ) {
+                Map partialData = data.get( name ) instanceof String ? data : RENDER_BUFFER.get().data;
+                return getPartial( name, partialData );
+            }
+
+            @Override
+            public Reader getTemplate( String name ) {
+                Object value = data.get( name );
+                if ( !( value instanceof String ) ) {
+                    throw new MustacheException( "No partial found for name '" + name + "'" );
+                }
+
+                return new StringReader( (String) value );
+            }
+        };
+    }
+
+    protected Mustache.TemplateLoader createPartialLoader() {
+
+        Mustache.TemplateLoader partialLoader = new Mustache.CompiledTemplateLoader() {
+
+            @Override
+            public Template getCompiledTemplate( String name, Mustache.Compiler compiler ) {
+                return getPartial( name );
+            }
+
+            @Override
+            public Reader getTemplate( String name ) {
+                String partial = partialSources.get( name );
+                if ( partial == null ) {
+                    throw new MustacheException( "No partial registered for name '" + name + "'" );
+                }
+
+                return new StringReader( partial );
+            }
+        };
+
+        return partialLoader;
     }
 
     public void setTemplateCompiler( Mustache.Compiler templateCompiler ) {
         this.templateCompiler = templateCompiler;
+        resetCompiler();
     }
 
     public Mustache.Compiler getTemplateCompiler() {
@@ -141,6 +410,7 @@ public class TemplateService {
 
     public void setTemplateFormatter( Mustache.Formatter templateFormatter ) {
         this.templateFormatter = templateFormatter;
+        resetCompiler();
     }
 
     public Mustache.Collector getTemplateCollector() {
@@ -149,6 +419,7 @@ public class TemplateService {
 
     public void setTemplateCollector( Mustache.Collector templateCollector ) {
         this.templateCollector = templateCollector;
+        resetCompiler();
     }
 
     public Mustache.Escaper getTemplateEscaper() {
@@ -157,32 +428,58 @@ public class TemplateService {
 
     public void setTemplateEscaper( Mustache.Escaper templateEscaper ) {
         this.templateEscaper = templateEscaper;
+        resetCompiler();
     }
 
     public void setTemplateLoader( Mustache.TemplateLoader templateLoader ) {
         this.templateLoader = templateLoader;
+        resetCompiler();
     }
 
-    protected Mustache.TemplateLoader createDefaultTemplateLoader( final Map<String, String> data ) {
-
-        Mustache.TemplateLoader defaultTemplateLoader = new Mustache.TemplateLoader() {
-            @Override
-            public Reader getTemplate( String name ) {
-                String partial = data.get( name );
-                if ( partial == null ) {
-                    partial = "";
-                };
-
-                return new StringReader( partial );
-            }
-        };
+    /**
+     * Return the version of the compiler, which changes whenever the compiler is discarded because a setting changed.
+     * Templates compiled under an earlier version are stale.
+     *
+     * @return the version of the compiler
+     */
+    public long getCompilerVersion() {
+        return compilerVersion.get();
+    }
 
-        return defaultTemplateLoader;
+    /**
+     * Discard the shared compiler and the partials compiled with it, so that new settings take effect.
+     */
+    protected void resetCompiler() {
+        compiler = null;
+        compiledPartials.clear();
+        loadedPartials.clear();
 
+        synchronized ( dataPartials ) {
+            dataPartials.clear();
+        }
+        compilerVersion.incrementAndGet();
     }
-}
 
+    private static class RenderBuffer {
+
+        private StringBuilderWriter writer = new StringBuilderWriter( 1024 );
 
+        private boolean rendering;
 
+        /**
+         * The data of the template being rendered on this thread, partials not found elsewhere are looked up in it.
+         */
+        private Map data;
 
+        private StringBuilderWriter reset() {
+            StringBuilder builder = writer.getBuilder();
 
+            if ( builder.capacity() > MAX_RETAINED_BUFFER_CAPACITY ) {
+                writer = new StringBuilderWriter( 1024 );
+            } else {
+                builder.setLength( 0 );
+            }
+            return writer;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+import za.sabob.olive.metrics.*;
+
+/**
+ * Streams the first column of a ResultSet as primitives, reading one row per element so that no boxed values or
+ * intermediate arrays are created.
+ * <p/>
+ * Closing the stream closes the ResultSet. Once the last row is read the rows mapped are reported to {@link Metrics}.
+ */
+class ColumnStreams {
+
+    static LongStream longs( PreparedStatement ps, ResultSet rs, long start ) {
+        Cursor cursor = new Cursor( ps, rs, start );
+
+        Spliterator.OfLong spliterator = new Spliterators.AbstractLongSpliterator( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL ) {
+            @Override
+            public boolean tryAdvance( LongConsumer action ) {
+                try {
+                    if ( !cursor.next() ) {
+                        return false;
+                    }
+                    action.accept( rs.getLong( 1 ) );
+                    return true;
+
+                } catch ( SQLException ex ) {
+                    throw new RuntimeException( ex );
+                }
+            }
+        };
+
+        return StreamSupport.longStream( spliterator, false ).onClose( cursor::close );
+    }
+
+    static IntStream ints( PreparedStatement ps, ResultSet rs, long start ) {
+        Cursor cursor = new Cursor( ps, rs, start );
+
+        Spliterator.OfInt spliterator = new Spliterators.AbstractIntSpliterator( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL ) {
+            @Override
+            public boolean tryAdvance( IntConsumer action ) {
+                try {
+                    if ( !cursor.next() ) {
+                        return false;
+                    }
+                    action.accept( rs.getInt( 1 ) );
+                    return true;
+
+                } catch ( SQLException ex ) {
+                    throw new RuntimeException( ex );
+                }
+            }
+        };
+
+        return StreamSupport.intStream( spliterator, false ).onClose( cursor::close );
+    }
+
+    static DoubleStream doubles( PreparedStatement ps, ResultSet rs, long start ) {
+        Cursor cursor = new Cursor( ps, rs, start );
+
+        Spliterator.OfDouble spliterator = new Spliterators.AbstractDoubleSpliterator( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL ) {
+            @Override
+            public boolean tryAdvance( DoubleConsumer action ) {
+                try {
+                    if ( !cursor.next() ) {
+                        return false;
+                    }
+                    action.accept( rs.getDouble( 1 ) );
+                    return true;
+
+                } catch ( SQLException ex ) {
+                    throw new RuntimeException( ex );
+                }
+            }
+        };
+
+        return StreamSupport.doubleStream( spliterator, false ).onClose( cursor::close );
+    }
+
+    private static class Cursor {
+
+        private final PreparedStatement ps;
+
+        private final ResultSet rs;
+
+        private final long start;
+
+        private final long mapStart;
+
+        private int rows;
+
+        private boolean done;
+
+        private Cursor( PreparedStatement ps, ResultSet rs, long start ) {
+            this.ps = ps;
+            this.rs = rs;
+            this.start = start;
+            this.mapStart = Metrics.start( OperationType.ROW_MAPPING );
+        }
+
+        private boolean next() throws SQLException {
+            if ( done ) {
+                return false;
+            }
+
+            if ( rs.next() ) {
+                rows++;
+                return true;
+            }
+
+            completed();
+            return false;
+        }
+
+        private void close() {
+            completed();
+            OliveUtils.close( rs );
+        }
+
+        private void completed() {
+            if ( done ) {
+                return;
+            }
+
+            done = true;
+            Metrics.rowsMapped( ps, mapStart, rows );
+            Metrics.statementCompleted( ps, start, rows );
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Remembers the {@link DatabaseMetaData} Olive needs about each Connection, so it is looked up once per connection
+ * instead of on every statement.
+ * <p/>
+ * Connections are weakly referenced, so closed connections which are no longer used are forgotten.
+ */
+class ConnectionInfo {
+
+    private static final Map<Connection, ConnectionInfo> INFOS = Collections.synchronizedMap( new WeakHashMap<Connection, ConnectionInfo>() );
+
+    private final String driverName;
+
+    private final boolean postgres;
+
+    private ConnectionInfo( DatabaseMetaData metaData ) throws SQLException {
+        this.driverName = metaData.getDriverName();
+
+        String productName = metaData.getDatabaseProductName();
+        this.postgres = productName != null && productName.startsWith( "PostgreSQL" );
+    }
+
+    /**
+     * Returns the information of the given connection, looking it up the first time.
+     *
+     * @param conn the connection
+     * @return the information of the given connection
+     * @throws SQLException if the connection's metadata cannot be read
+     */
+    static ConnectionInfo get( Connection conn ) throws SQLException {
+        ConnectionInfo info = INFOS.get( conn );
+
+        if ( info == null ) {
+            info = new ConnectionInfo( conn.getMetaData() );
+            INFOS.put( conn, info );
+        }
+        return info;
+    }
+
+    String getDriverName() {
+        return driverName;
+    }
+
+    boolean isPostgres() {
+        return postgres;
+    }
+}
@@ -0,0 +1,36 @@
+package za.sabob.olive.util;
+
+import java.util.*;
+
+/**
+ * Collects double values into a growing double[] without boxing them.
+ */
+class DoubleArrayBuilder {
+
+    private double[] values;
+
+    private int size;
+
+    DoubleArrayBuilder() {
+        this( 16 );
+    }
+
+    DoubleArrayBuilder( int initialCapacity ) {
+        values = new double[Math.max( initialCapacity, 1 )];
+    }
+
+    void add( double value ) {
+        if ( size == values.length ) {
+            values = Arrays.copyOf( values, size << 1 );
+        }
+        values[size++] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double[] toArray() {
+        return size == values.length ? values : Arrays.copyOf( values, size );
+    }
+}
@@ -0,0 +1,36 @@
+package za.sabob.olive.util;
+
+import java.util.*;
+
+/**
+ * Collects int values into a growing int[] without boxing them.
+ */
+class IntArrayBuilder {
+
+    private int[] values;
+
+    private int size;
+
+    IntArrayBuilder() {
+        this( 16 );
+    }
+
+    IntArrayBuilder( int initialCapacity ) {
+        values = new int[Math.max( initialCapacity, 1 )];
+    }
+
+    void add( int value ) {
+        if ( size == values.length ) {
+            values = Arrays.copyOf( values, size << 1 );
+        }
+        values[size++] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return size == values.length ? values : Arrays.copyOf( values, size );
+    }
+}
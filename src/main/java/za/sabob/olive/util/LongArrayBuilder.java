@@ -0,0 +1,36 @@
+package za.sabob.olive.util;
+
+import java.util.*;
+
+/**
+ * Collects long values into a growing long[] without boxing them.
+ */
+class LongArrayBuilder {
+
+    private long[] values;
+
+    private int size;
+
+    LongArrayBuilder() {
+        this( 16 );
+    }
+
+    LongArrayBuilder( int initialCapacity ) {
+        values = new long[Math.max( initialCapacity, 1 )];
+    }
+
+    void add( long value ) {
+        if ( size == values.length ) {
+            values = Arrays.copyOf( values, size << 1 );
+        }
+        values[size++] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] toArray() {
+        return size == values.length ? values : Arrays.copyOf( values, size );
+    }
+}
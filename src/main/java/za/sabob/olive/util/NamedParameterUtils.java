@@ -16,6 +16,7 @@
 package za.sabob.olive.util;
 
 import java.util.*;
+import java.util.regex.*;
 import za.sabob.olive.ps.*;
 
 /**
@@ -38,14 +39,25 @@ class NamedParameterUtils {
         '/', '\\', '<', '>', '^' };
 
     /**
-     * Set of characters that qualify as comment or quotes starting characters.
+     * Lookup table of the ASCII characters that end a parameter name: the parameter separators and whitespace.
      */
-    private static final String[] START_SKIP = new String[] { "'", "\"", "--", "/*" };
+    private static final boolean[] ASCII_SEPARATORS = new boolean[128];
+
+    static {
+        for (char c = 0; c < ASCII_SEPARATORS.length; c++) {
+            ASCII_SEPARATORS[c] = Character.isWhitespace(c);
+        }
+        for (char separator : PARAMETER_SEPARATORS) {
+            ASCII_SEPARATORS[separator] = true;
+        }
+    }
+
+    private static final int[] EMPTY_INDEXES = new int[0];
 
     /**
-     * Set of characters that at are the corresponding comment or quotes ending characters.
+     * Matches the "-- fetchSize: 500" comment line giving the fetch size of a statement.
      */
-    private static final String[] STOP_SKIP = new String[] { "'", "\"", "\n", "*/" };
+    private static final Pattern FETCH_SIZE_PATTERN = Pattern.compile("--[ \\t]*fetchSize:[ \\t]*(\\d{1,9})[ \\t]*\\r?");
 
        //-------------------------------------------------------------------------
     // Core methods used by NamedParameterJdbcTemplate and SqlQuery/SqlUpdate
@@ -53,167 +65,208 @@ class NamedParameterUtils {
     /**
      * Parse the SQL statement and locate any placeholders or named parameters.
      * Named parameters are substituted for a JDBC placeholder.
+     * <p>
+     * The statement is read in place, so a buffer holding generated SQL can be parsed without first copying it into a
+     * String; only the resulting {@link ParsedSql} holds a copy of the text.
+     * <p>
+     * The statement is scanned once, skipping quotes and comments as they are found. Repeated parameter names share a
+     * single String and the parameter indexes are collected in one flat int array.
      * @param sql the SQL statement
      * @return the parsed statement, represented as ParsedSql instance
      */
-    public static ParsedSql parseSqlStatement(final String sql) {
+    public static ParsedSql parseSqlStatement(final CharSequence sql) {
         if (sql == null) {
             throw new IllegalArgumentException("SQL must not be null");
         }
 
-        Set<String> namedParameters = new HashSet<String>();
-        String sqlToUse = sql;
-        List<ParameterHolder> parameterList = new ArrayList<ParameterHolder>();
+        // Only created once a named parameter is found, shares one String between repeated parameter names
+        SymbolTable symbols = null;
+        List<String> parameterNames = new ArrayList<String>();
+        // The start and end index of each named parameter in turn
+        int[] parameterIndexes = EMPTY_INDEXES;
+        // Only created once an escaped ':' is found, holds the SQL with the escape characters removed
+        StringBuilder sqlToUse = null;
+        int copiedUpTo = 0;
 
-        char[] statement = sql.toCharArray();
-        int namedParameterCount = 0;
+        int length = sql.length();
         int unnamedParameterCount = 0;
         int totalParameterCount = 0;
 
         int escapes = 0;
         int i = 0;
-        while (i < statement.length) {
-            int skipToPosition = i;
-            while (i < statement.length) {
-                skipToPosition = skipCommentsAndQuotes(statement, i);
-                if (i == skipToPosition) {
-                    break;
-                } else {
-                    i = skipToPosition;
-                }
-            }
-            if (i >= statement.length) {
-                break;
-            }
-            char c = statement[i];
-            if (c == ':' || c == '&') {
-                int j = i + 1;
-                if (j < statement.length && statement[j] == ':' && c == ':') {
-                    // Postgres-style "::" casting operator - to be skipped.
-                    i = i + 2;
+        while (i < length) {
+            char c = sql.charAt(i);
+            switch (c) {
+                case '\'':
+                case '"':
+                    i = skipPast(sql, i + 1, c);
                     continue;
-                }
-                String parameter = null;
-                if (j < statement.length && c == ':' && statement[j] == '{') {
-                    // :{x} style parameter
-                    while (j < statement.length && !('}' == statement[j])) {
-                        j++;
-                        if (':' == statement[j] || '{' == statement[j]) {
-                            throw new IllegalStateException("Parameter name contains invalid character '" + statement[j] + "' at position "
-                                + i + " in statement: " + sql);
-                        }
-                    }
-                    if (j >= statement.length) {
-                        throw new IllegalStateException("Non-terminated named parameter declaration at position " + i + " in statement: "
-                            + sql);
-                    }
-                    if (j - i > 3) {
-                        parameter = sql.substring(i + 2, j);
-                        namedParameterCount = addNewNamedParameter(namedParameters, namedParameterCount, parameter);
-                        totalParameterCount = addNamedParameter(parameterList, totalParameterCount, escapes, i, j + 1, parameter);
-                    }
-                    j++;
-                } else {
-                    while (j < statement.length && !isParameterSeparator(statement[j])) {
-                        j++;
+                case '-':
+                    if (i + 1 < length && sql.charAt(i + 1) == '-') {
+                        i = skipPast(sql, i + 2, '\n');
+                        continue;
                     }
-                    if (j - i > 1) {
-                        parameter = sql.substring(i + 1, j);
-                        namedParameterCount = addNewNamedParameter(namedParameters, namedParameterCount, parameter);
-                        totalParameterCount = addNamedParameter(parameterList, totalParameterCount, escapes, i, j, parameter);
+                    break;
+                case '/':
+                    if (i + 1 < length && sql.charAt(i + 1) == '*') {
+                        i = skipBlockComment(sql, i + 2);
+                        continue;
                     }
-                }
-                i = j - 1;
-            } else {
-                if (c == '\\') {
-                    int j = i + 1;
-                    if (j < statement.length && statement[j] == ':') {
+                    break;
+                case '?':
+                    unnamedParameterCount++;
+                    totalParameterCount++;
+                    break;
+                case '\\':
+                    if (i + 1 < length && sql.charAt(i + 1) == ':') {
                         // this is an escaped : and should be skipped
-                        sqlToUse = sqlToUse.substring(0, i - escapes) + sqlToUse.substring(i - escapes + 1);
+                        if (sqlToUse == null) {
+                            sqlToUse = new StringBuilder(length);
+                        }
+                        sqlToUse.append(sql, copiedUpTo, i);
+                        copiedUpTo = i + 1;
                         escapes++;
                         i = i + 2;
                         continue;
                     }
+                    break;
+                case ':':
+                case '&': {
+                    int j = i + 1;
+                    if (j < length && sql.charAt(j) == ':' && c == ':') {
+                        // Postgres-style "::" casting operator - to be skipped.
+                        i = i + 2;
+                        continue;
+                    }
+                    int nameStart = 0;
+                    int nameEnd = 0;
+                    int parameterEnd = 0;
+                    if (j < length && c == ':' && sql.charAt(j) == '{') {
+                        // :{x} style parameter
+                        while (j < length && !('}' == sql.charAt(j))) {
+                            j++;
+                            if (j < length && (':' == sql.charAt(j) || '{' == sql.charAt(j))) {
+                                throw new IllegalStateException("Parameter name contains invalid character '" + sql.charAt(j)
+                                    + "' at position " + i + " in statement: " + sql);
+                            }
+                        }
+                        if (j >= length) {
+                            throw new IllegalStateException("Non-terminated named parameter declaration at position " + i + " in statement: "
+                                + sql);
+                        }
+                        if (j - i > 3) {
+                            nameStart = i + 2;
+                            nameEnd = j;
+                            parameterEnd = j + 1;
+                        }
+                        j++;
+                    } else {
+                        while (j < length && !isParameterSeparator(sql.charAt(j))) {
+                            j++;
+                        }
+                        if (j - i > 1) {
+                            nameStart = i + 1;
+                            nameEnd = j;
+                            parameterEnd = j;
+                        }
+                    }
+                    if (nameEnd > nameStart) {
+                        if (symbols == null) {
+                            symbols = new SymbolTable();
+                        }
+                        int pair = parameterNames.size() * 2;
+                        if (pair == parameterIndexes.length) {
+                            parameterIndexes = Arrays.copyOf(parameterIndexes, Math.max(8, pair * 2));
+                        }
+                        parameterIndexes[pair] = i - escapes;
+                        parameterIndexes[pair + 1] = parameterEnd - escapes;
+                        parameterNames.add(symbols.intern(sql, nameStart, nameEnd));
+                        totalParameterCount++;
+                    }
+                    i = j;
+                    continue;
                 }
-                if (c == '?') {
-                    unnamedParameterCount++;
-                    totalParameterCount++;
-                }
+                default:
+                    break;
             }
             i++;
         }
-        ParsedSql parsedSql = new ParsedSql(sqlToUse);
-        for (ParameterHolder ph : parameterList) {
-            parsedSql.addNamedParameter(ph.getParameterName(), ph.getStartIndex(), ph.getEndIndex());
+
+        String originalSql;
+        if (sqlToUse == null) {
+            originalSql = sql.toString();
+        } else {
+            originalSql = sqlToUse.append(sql, copiedUpTo, length).toString();
         }
-        parsedSql.setNamedParameterCount(namedParameterCount);
+
+        ParsedSql parsedSql = new ParsedSql(originalSql);
+        parsedSql.setNamedParameters(parameterNames, parameterIndexes);
+        parsedSql.setNamedParameterCount(symbols == null ? 0 : symbols.size());
         parsedSql.setUnnamedParameterCount(unnamedParameterCount);
         parsedSql.setTotalParameterCount(totalParameterCount);
+        parsedSql.setFetchSize(parseFetchSize(sql));
         return parsedSql;
     }
 
-    private static int addNamedParameter(
-        List<ParameterHolder> parameterList, int totalParameterCount, int escapes, int i, int j, String parameter) {
-
-        parameterList.add(new ParameterHolder(parameter, i - escapes, j - escapes));
-        totalParameterCount++;
-        return totalParameterCount;
+    /**
+     * Read the fetch size from a "-- fetchSize: 500" line in the comment lines heading the SQL statement.
+     * @param sql the SQL statement
+     * @return the fetch size, or 0 if the statement has no fetch size hint
+     */
+    static int parseFetchSize(CharSequence sql) {
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                i++;
+            }
+            if (i + 1 >= length || sql.charAt(i) != '-' || sql.charAt(i + 1) != '-') {
+                return 0;
+            }
+            int end = i;
+            while (end < length && sql.charAt(end) != '\n') {
+                end++;
+            }
+            Matcher matcher = FETCH_SIZE_PATTERN.matcher(sql.subSequence(i, end));
+            if (matcher.matches()) {
+                return Integer.parseInt(matcher.group(1));
+            }
+            i = end;
+        }
+        return 0;
     }
 
-    private static int addNewNamedParameter(Set<String> namedParameters, int namedParameterCount, String parameter) {
-        if (!namedParameters.contains(parameter)) {
-            namedParameters.add(parameter);
-            namedParameterCount++;
+    /**
+     * Skip over a quoted name or literal, or a line comment, that ends with the given character.
+     * @param statement character sequence containing SQL statement
+     * @param position the position after the opening quote or comment characters
+     * @param stop the character ending the quote or comment
+     * @return next position to process after the quote or comment, or the length of the statement if it is not closed
+     */
+    private static int skipPast(CharSequence statement, int position, char stop) {
+        int length = statement.length();
+        for (int m = position; m < length; m++) {
+            if (statement.charAt(m) == stop) {
+                return m + 1;
+            }
         }
-        return namedParameterCount;
+        return length;
     }
 
     /**
-     * Skip over comments and quoted names present in an SQL statement
-     * @param statement character array containing SQL statement
-     * @param position current position of statement
-     * @return next position to process after any comments or quotes are skipped
+     * Skip over a block comment.
+     * @param statement character sequence containing SQL statement
+     * @param position the position after the opening "/*"
+     * @return next position to process after the comment, or the length of the statement if it is not closed
      */
-    private static int skipCommentsAndQuotes(char[] statement, int position) {
-        for (int i = 0; i < START_SKIP.length; i++) {
-            if (statement[position] == START_SKIP[i].charAt(0)) {
-                boolean match = true;
-                for (int j = 1; j < START_SKIP[i].length(); j++) {
-                    if (!(statement[position + j] == START_SKIP[i].charAt(j))) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) {
-                    int offset = START_SKIP[i].length();
-                    for (int m = position + offset; m < statement.length; m++) {
-                        if (statement[m] == STOP_SKIP[i].charAt(0)) {
-                            boolean endMatch = true;
-                            int endPos = m;
-                            for (int n = 1; n < STOP_SKIP[i].length(); n++) {
-                                if (m + n >= statement.length) {
-                                    // last comment not closed properly
-                                    return statement.length;
-                                }
-                                if (!(statement[m + n] == STOP_SKIP[i].charAt(n))) {
-                                    endMatch = false;
-                                    break;
-                                }
-                                endPos = m + n;
-                            }
-                            if (endMatch) {
-                                // found character sequence ending comment or quote
-                                return endPos + 1;
-                            }
-                        }
-                    }
-                    // character sequence ending comment or quote not found
-                    return statement.length;
-                }
-
+    private static int skipBlockComment(CharSequence statement, int position) {
+        int length = statement.length();
+        for (int m = position; m + 1 < length; m++) {
+            if (statement.charAt(m) == '*' && statement.charAt(m + 1) == '/') {
+                return m + 2;
             }
         }
-        return position;
+        return length;
     }
 
     /**
@@ -241,9 +294,8 @@ class NamedParameterUtils {
         int lastIndex = 0;
         for (int i = 0; i < paramNames.size(); i++) {
             String paramName = paramNames.get(i);
-            int[] indexes = parsedSql.getParameterIndexes(i);
-            int startIndex = indexes[0];
-            int endIndex = indexes[1];
+            int startIndex = parsedSql.getParameterStartIndex(i);
+            int endIndex = parsedSql.getParameterEndIndex(i);
             actualSql.append(originalSql, lastIndex, startIndex);
             if (paramSource != null && paramSource.containsKey(paramName)) {
                 SqlParam sqlParam = paramSource.get(paramName);
@@ -253,10 +305,19 @@ class NamedParameterUtils {
                 //}
 
                 if ( OliveUtils.isArray( value ) ) {
-                    value = OliveUtils.toList( value );
+                    value = OliveUtils.toBindList( value );
                 }
 
-                if (value instanceof Collection) {
+                if (value instanceof PrimitiveArrayList) {
+                    // Elements of a primitive array can't be nested arrays, so don't box them just to check
+                    int size = ((PrimitiveArrayList) value).size();
+                    for (int k = 0; k < size; k++) {
+                        if (k > 0) {
+                            actualSql.append(", ");
+                        }
+                        actualSql.append("?");
+                    }
+                } else if (value instanceof Collection) {
                     Iterator<?> entryIter = ((Collection<?>) value).iterator();
                     int k = 0;
                     while (entryIter.hasNext()) {
@@ -365,6 +426,35 @@ class NamedParameterUtils {
         }
     }
 
+    /**
+     * Return the parameter for the given name, failing if no value was supplied.
+     * @param paramSource the source for named parameters
+     * @param paramName the name of the parameter
+     * @return the parameter for the given name
+     * @throws IllegalStateException if no value was supplied for the parameter
+     */
+    static SqlParam getRequiredSqlParam(SqlParams paramSource, String paramName) {
+        SqlParam sqlParam = paramSource == null ? null : paramSource.get(paramName);
+        if (sqlParam == null) {
+            throw new IllegalStateException("No value supplied for the SQL parameter '" + paramName + "'");
+        }
+        return sqlParam;
+    }
+
+    /**
+     * Fail if the given statement mixes named parameters and traditional ? placeholders.
+     * @param parsedSql the parsed SQL statement
+     * @throws IllegalStateException if the statement mixes named parameters and traditional ? placeholders
+     */
+    static void checkNotMixed(ParsedSql parsedSql) {
+        if (parsedSql.getNamedParameterCount() > 0 && parsedSql.getUnnamedParameterCount() > 0) {
+            throw new IllegalStateException(
+                "Not allowed to mix named and traditional ? placeholders. You have " + parsedSql.getNamedParameterCount()
+                + " named parameter(s) and " + parsedSql.getUnnamedParameterCount() + " traditional placeholder(s) in statement: "
+                + parsedSql.getOriginalSql());
+        }
+    }
+
     /**
      * Convert a Map of named parameter values to a corresponding array.
      * @param parsedSql the parsed SQL statement
@@ -377,12 +467,7 @@ class NamedParameterUtils {
         //SqlParam[] paramArray = new SqlParam[parsedSql.getTotalParameterCount()];
         List<SqlParam> paramList = new ArrayList<SqlParam>(parsedSql.getTotalParameterCount());
 
-        if (parsedSql.getNamedParameterCount() > 0 && parsedSql.getUnnamedParameterCount() > 0) {
-            throw new IllegalStateException(
-                "Not allowed to mix named and traditional ? placeholders. You have " + parsedSql.getNamedParameterCount()
-                + " named parameter(s) and " + parsedSql.getUnnamedParameterCount() + " traditional placeholder(s) in statement: "
-                + parsedSql.getOriginalSql());
-        }
+        checkNotMixed(parsedSql);
 
         List<String> paramNames = parsedSql.getParameterNames();
         for (String paramName : paramNames) {
@@ -476,15 +561,10 @@ class NamedParameterUtils {
      * that is, whether the given character qualifies as a separator.
      */
     private static boolean isParameterSeparator(char c) {
-        if (Character.isWhitespace(c)) {
-            return true;
+        if (c < ASCII_SEPARATORS.length) {
+            return ASCII_SEPARATORS[c];
         }
-        for (char separator : PARAMETER_SEPARATORS) {
-            if (c == separator) {
-                return true;
-            }
-        }
-        return false;
+        return Character.isWhitespace(c);
     }
 
     /**
@@ -530,7 +610,7 @@ class NamedParameterUtils {
      * Named parameters are substituted for a JDBC placeholder.
      * <p>
      * This is a shortcut version of
-     * {@link #parseSqlStatement(String)} in combination with
+     * {@link #parseSqlStatement(CharSequence)} in combination with
      * {@link #substituteNamedParameters(ParsedSql, SqlParams)}.
      * @param sql the SQL statement
      * @return the actual (parsed) SQL statement
@@ -571,30 +651,81 @@ class NamedParameterUtils {
         return buildValueArray(parsedSql, sqlParams);
     }
 
-    private static class ParameterHolder {
+    /**
+     * The distinct parameter names of one statement, in an open addressing hash table keyed on the characters of the
+     * statement. A name is only copied out of the statement the first time it is found, repeated occurrences look it up
+     * in place and share the same String.
+     */
+    private static class SymbolTable {
+
+        private String[] names = new String[16];
+
+        private int[] hashes = new int[16];
+
+        private int size;
 
-        private final String parameterName;
+        public String intern(CharSequence sql, int start, int end) {
+            int hash = 0;
+            for (int k = start; k < end; k++) {
+                hash = 31 * hash + sql.charAt(k);
+            }
 
-        private final int startIndex;
+            int mask = names.length - 1;
+            int slot = spread(hash) & mask;
+            String name;
+            while ((name = names[slot]) != null) {
+                if (hashes[slot] == hash && matches(name, sql, start, end)) {
+                    return name;
+                }
+                slot = (slot + 1) & mask;
+            }
 
-        private final int endIndex;
+            name = sql.subSequence(start, end).toString();
+            names[slot] = name;
+            hashes[slot] = hash;
+            if (++size * 2 > names.length) {
+                resize();
+            }
+            return name;
+        }
 
-        public ParameterHolder(String parameterName, int startIndex, int endIndex) {
-            this.parameterName = parameterName;
-            this.startIndex = startIndex;
-            this.endIndex = endIndex;
+        public int size() {
+            return this.size;
         }
 
-        public String getParameterName() {
-            return this.parameterName;
+        private static boolean matches(String name, CharSequence sql, int start, int end) {
+            if (name.length() != end - start) {
+                return false;
+            }
+            for (int k = 0; k < name.length(); k++) {
+                if (name.charAt(k) != sql.charAt(start + k)) {
+                    return false;
+                }
+            }
+            return true;
         }
 
-        public int getStartIndex() {
-            return this.startIndex;
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
         }
 
-        public int getEndIndex() {
-            return this.endIndex;
+        private void resize() {
+            String[] oldNames = names;
+            int[] oldHashes = hashes;
+            names = new String[oldNames.length * 2];
+            hashes = new int[oldNames.length * 2];
+            int mask = names.length - 1;
+
+            for (int k = 0; k < oldNames.length; k++) {
+                if (oldNames[k] != null) {
+                    int slot = spread(oldHashes[k]) & mask;
+                    while (names[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    names[slot] = oldNames[k];
+                    hashes[slot] = oldHashes[k];
+                }
+            }
         }
     }
 
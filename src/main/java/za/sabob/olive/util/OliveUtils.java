@@ -17,14 +17,21 @@ package za.sabob.olive.util;
 
 import java.io.*;
 import java.math.*;
+import java.nio.*;
 import java.sql.*;
+import java.time.*;
 import java.util.*;
+import java.util.function.*;
 import java.util.logging.*;
+import java.util.regex.*;
+import java.util.stream.*;
 import javax.sql.*;
 import javax.xml.parsers.*;
 import org.w3c.dom.*;
 import org.xml.sax.*;
+import za.sabob.olive.*;
 import za.sabob.olive.jdbc.context.*;
+import za.sabob.olive.metrics.*;
 import za.sabob.olive.ps.*;
 import za.sabob.olive.query.*;
 
@@ -97,6 +104,11 @@ public class OliveUtils {
      */
     public static final int TYPE_UNKNOWN = Integer.MIN_VALUE;
 
+    /**
+     * Matches the "-- name: statementName" line which starts a named statement in a multi-statement SQL file.
+     */
+    private static final Pattern STATEMENT_NAME_PATTERN = Pattern.compile( "^[ \\t]*--[ \\t]*name:[ \\t]*(\\S+)[ \\t]*\\r?$", Pattern.MULTILINE );
+
     /**
      * Commit the given connection and wraps SQLExceptions as RuntimeExcepions.
      * <p/>
@@ -872,6 +884,7 @@ public class OliveUtils {
      * @param st the statement from which to get the generatedKeys
      *
      * @return the list of generated keys as long values
+     * @see #getGeneratedKeyArray(java.sql.Statement)
      */
     public static List<Long> getGeneratedKeys( Statement st ) {
 
@@ -901,6 +914,239 @@ public class OliveUtils {
         }
     }
 
+    /**
+     * Returns the generated keys as an array of longs and wraps any SQLExceptions thrown as a RuntimeExcepion.
+     * <p/>
+     * Unlike {@link #getGeneratedKeys(java.sql.Statement)} the keys are not boxed, they are read from the first column
+     * into a growing long[].
+     *
+     * @param st the statement from which to get the generatedKeys
+     *
+     * @return the generated keys, or an empty array if no keys were generated
+     */
+    public static long[] getGeneratedKeyArray( Statement st ) {
+        LongArrayBuilder keys = new LongArrayBuilder();
+        readGeneratedKeys( st, keys );
+        return keys.toArray();
+    }
+
+    /**
+     * Returns the generated keys mapped by the given mapper and wraps any SQLExceptions thrown as a RuntimeExcepion.
+     * <p/>
+     * Use a mapper for keys spanning multiple columns or keys which are not longs, such as UUIDs.
+     *
+     * <pre class="prettyprint">
+     * List&lt;UUID&gt; keys = OliveUtils.getGeneratedKeys(ps, (rs, rowNum) -&gt; OliveUtils.getValue(rs, 1, UUID.class));
+     * </pre>
+     *
+     * @param st the statement from which to get the generatedKeys
+     * @param mapper maps each row of generated keys
+     * @param <T> the type of the keys
+     *
+     * @return the list of generated keys
+     */
+    public static <T> List<T> getGeneratedKeys( Statement st, RowMapper<T> mapper ) {
+
+        ResultSet rs = null;
+
+        Exception exception = null;
+
+        try {
+            rs = st.getGeneratedKeys();
+
+            List<T> list = new ArrayList<>();
+            int rowNum = 0;
+
+            while ( rs.next() ) {
+                list.add( mapper.map( rs, rowNum++ ) );
+            }
+
+            return list;
+
+        } catch ( Exception e ) {
+            exception = e;
+            throw new RuntimeException( e );
+
+        } finally {
+            exception = closeQuietly( exception, rs );
+            throwAsRuntimeIfException( exception );
+        }
+    }
+
+    private static void readGeneratedKeys( Statement st, LongArrayBuilder keys ) {
+
+        ResultSet rs = null;
+
+        Exception exception = null;
+
+        try {
+            rs = st.getGeneratedKeys();
+
+            while ( rs.next() ) {
+                keys.add( rs.getLong( 1 ) );
+            }
+
+        } catch ( Exception e ) {
+            exception = e;
+            throw new RuntimeException( e );
+
+        } finally {
+            exception = closeQuietly( exception, rs );
+            throwAsRuntimeIfException( exception );
+        }
+    }
+
+    /**
+     * Set the given parameters on the PreparedStatement and add them to its batch of commands. The parameters must
+     * produce the same SQL the PreparedStatement was created with, so collections must have the same size for every
+     * batch.
+     *
+     * @param ps the PreparedStatement to add the parameters to
+     * @param parsedSql the parsed sql which named parameters must be replaced
+     * @param parameters the source for named parameters
+     */
+    public static void addBatch( PreparedStatement ps, ParsedSql parsedSql, SqlParams parameters ) {
+        setParams( ps, parsedSql, parameters );
+
+        try {
+            ps.addBatch();
+
+        } catch ( SQLException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    /**
+     * Execute the batch of commands added to the given PreparedStatement and wraps SQLExceptions as RuntimeExceptions.
+     * The execution time is reported to the {@link Metrics#getListener() metrics listener}.
+     *
+     * @param ps the PreparedStatement to execute
+     * @return the update counts of the commands in the batch
+     */
+    public static int[] executeBatch( PreparedStatement ps ) {
+
+        try {
+
+            long start = Metrics.start( OperationType.STATEMENT_EXECUTE );
+            int[] counts = ps.executeBatch();
+            Metrics.statementExecuted( ps, start );
+
+            if ( start != 0 ) {
+                int rows = 0;
+                for ( int count : counts ) {
+                    if ( count > 0 ) {
+                        rows += count;
+                    }
+                }
+                Metrics.statementCompleted( ps, start, rows );
+            }
+            return counts;
+
+        } catch ( SQLException ex ) {
+            throw new RuntimeException( convertSqlExceptionToSuppressed( ex ) );
+        }
+    }
+
+    /**
+     * Insert the given rows in batches of batchSize and return the keys generated for all the rows, in one long[].
+     * <p/>
+     * The statement is prepared once with {@link Statement#RETURN_GENERATED_KEYS} and added to the given context. After
+     * each batch is executed its generated keys are read straight into a primitive buffer sized for the number of
+     * rows.
+     *
+     * <pre class="prettyprint">
+     * ParsedSql insert = OliveUtils.parseSql("INSERT INTO person (name, age) VALUES (:name, :age)");
+     * List&lt;SqlParams&gt; rows = ...;
+     * long[] ids = OliveUtils.insertBatch(ctx, insert, rows, 500);
+     * </pre>
+     *
+     * @param ctx the context to create the PreparedStatement with
+     * @param parsedSql the parsed INSERT statement
+     * @param rows the parameters of each row, which must all produce the same SQL
+     * @param batchSize the number of rows to execute per batch
+     * @return the generated keys, read from the first column of the generated keys
+     * @throws IllegalArgumentException if a row expands to another number of placeholders than the first row, for example
+     * because it binds a collection of another size. The batches executed before that row are not undone unless the
+     * context is transactional
+     */
+    public static long[] insertBatch( JDBCContext ctx, ParsedSql parsedSql, List<SqlParams> rows, int batchSize ) {
+        LongArrayBuilder keys = new LongArrayBuilder( rows.size() );
+        executeBatches( ctx, parsedSql, rows, batchSize, ps -> readGeneratedKeys( ps, keys ) );
+        return keys.toArray();
+    }
+
+    /**
+     * Insert the given rows in batches of batchSize and return the keys generated for all the rows, mapped by the given
+     * mapper.
+     *
+     * @param ctx the context to create the PreparedStatement with
+     * @param parsedSql the parsed INSERT statement
+     * @param rows the parameters of each row, which must all produce the same SQL
+     * @param batchSize the number of rows to execute per batch
+     * @param mapper maps each row of generated keys
+     * @param <T> the type of the keys
+     * @return the generated keys
+     * @throws IllegalArgumentException if a row expands to another number of placeholders than the first row
+     * @see #getGeneratedKeys(java.sql.Statement, za.sabob.olive.query.RowMapper)
+     */
+    public static <T> List<T> insertBatch( JDBCContext ctx, ParsedSql parsedSql, List<SqlParams> rows, int batchSize, RowMapper<T> mapper ) {
+        List<T> keys = new ArrayList<>( rows.size() );
+        executeBatches( ctx, parsedSql, rows, batchSize, ps -> keys.addAll( getGeneratedKeys( ps, mapper ) ) );
+        return keys;
+    }
+
+    private static void executeBatches( JDBCContext ctx, ParsedSql parsedSql, List<SqlParams> rows, int batchSize,
+        Consumer<PreparedStatement> afterBatch ) {
+
+        if ( batchSize < 1 ) {
+            throw new IllegalArgumentException( "batchSize must be greater than 0" );
+        }
+
+        if ( rows.isEmpty() ) {
+            return;
+        }
+
+        long start = Metrics.start( OperationType.STATEMENT_PREPARE );
+        String sql = NamedParameterUtils.substituteNamedParameters( parsedSql, rows.get( 0 ) );
+
+        try {
+            PreparedStatement ps = ctx.getConnection().prepareStatement( sql, Statement.RETURN_GENERATED_KEYS );
+            ctx.add( ps );
+            Metrics.statementPrepared( start, ps, parsedSql, sql, rows.get( 0 ) );
+
+            int placeholders = countPlaceholders( parsedSql, rows.get( 0 ) );
+            int pending = 0;
+
+            for ( int i = 0; i < rows.size(); i++ ) {
+                SqlParams row = rows.get( i );
+
+                // The SQL is built from the first row, so a row which expands a collection to another size can't be added
+                int count = countPlaceholders( parsedSql, row );
+                if ( count != placeholders ) {
+                    throw new IllegalArgumentException( "Row " + i + " has " + count + " placeholders but the first row has "
+                        + placeholders + ", all rows must produce the same SQL: " + sql );
+                }
+
+                setParams( ps, parsedSql, row, sql );
+                ps.addBatch();
+
+                if ( ++pending == batchSize ) {
+                    executeBatch( ps );
+                    afterBatch.accept( ps );
+                    pending = 0;
+                }
+            }
+
+            if ( pending > 0 ) {
+                executeBatch( ps );
+                afterBatch.accept( ps );
+            }
+
+        } catch ( SQLException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
     /**
      * Parse the given SQL statement and find any named parameters contained therein.
      *
@@ -912,6 +1158,105 @@ public class OliveUtils {
         return parsedSql;
     }
 
+    /**
+     * Parse the given SQL statement and find any named parameters contained therein.
+     * <p/>
+     * The statement is read in place, so SQL rendered into a buffer, such as the one returned by
+     * {@link za.sabob.olive.template.TemplateService#executeTemplateToBuffer(za.sabob.olive.mustache.Template, java.util.Map)},
+     * can be parsed without first being copied into a String.
+     *
+     * @param sql the SQL statement which named parameters is to be parsed
+     * @return a {@link ParsedSql} instance
+     */
+    public static ParsedSql parseSql( CharSequence sql ) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement( sql );
+        return parsedSql;
+    }
+
+    /**
+     * Parse the given multi-statement SQL content into its named statements. Each statement starts with a
+     * <code>-- name: statementName</code> line and runs up to the next such line or the end of the content, for example:
+     *
+     * <pre class="prettyprint">
+     * -- name: findPerson
+     * SELECT * FROM person WHERE id = :id;
+     *
+     * -- name: deletePerson
+     * DELETE FROM person WHERE id = :id; </pre>
+     *
+     * Statements are trimmed and a trailing semicolon is removed. Any content before the first named statement, such as a
+     * comment header, is ignored.
+     *
+     * @param content the SQL content containing the named statements
+     * @return the parsed statements by name, in the order they appear in the content
+     * @throws IllegalArgumentException if a statement name is repeated or a statement is empty
+     */
+    public static Map<String, ParsedSql> parseSqlStatements( CharSequence content ) {
+        if ( content == null ) {
+            throw new IllegalArgumentException( "content cannot be null!" );
+        }
+
+        Map<String, ParsedSql> statements = new LinkedHashMap<>();
+        Matcher matcher = STATEMENT_NAME_PATTERN.matcher( content );
+
+        String name = null;
+        int start = 0;
+
+        while ( matcher.find() ) {
+            if ( name != null ) {
+                addSqlStatement( statements, name, content, start, matcher.start() );
+            }
+            name = matcher.group( 1 );
+            start = matcher.end();
+        }
+
+        if ( name != null ) {
+            addSqlStatement( statements, name, content, start, content.length() );
+        }
+
+        return Collections.unmodifiableMap( statements );
+    }
+
+    /**
+     * Return true if the given SQL content contains named statements, see {@link #parseSqlStatements(java.lang.CharSequence)}.
+     *
+     * @param content the SQL content to check
+     * @return true if the given SQL content contains named statements, false otherwise
+     */
+    public static boolean hasSqlStatements( CharSequence content ) {
+        return content != null && STATEMENT_NAME_PATTERN.matcher( content ).find();
+    }
+
+    private static void addSqlStatement( Map<String, ParsedSql> statements, String name, CharSequence content, int start, int end ) {
+        while ( start < end && Character.isWhitespace( content.charAt( start ) ) ) {
+            start++;
+        }
+
+        while ( end > start && Character.isWhitespace( content.charAt( end - 1 ) ) ) {
+            end--;
+        }
+
+        if ( end > start && content.charAt( end - 1 ) == ';' ) {
+            end--;
+
+            while ( end > start && Character.isWhitespace( content.charAt( end - 1 ) ) ) {
+                end--;
+            }
+        }
+
+        if ( start == end ) {
+            throw new IllegalArgumentException( "SQL statement '" + name + "' is empty!" );
+        }
+
+        if ( statements.containsKey( name ) ) {
+            throw new IllegalArgumentException( "SQL statement '" + name + "' is defined more than once!" );
+        }
+
+        ParsedSql parsedSql = parseSql( content.subSequence( start, end ).toString() );
+        parsedSql.setName( name );
+        statements.put( name, parsedSql );
+    }
+
     /**
      * Replace all named parameters with the given parameters.
      * <p/>
@@ -947,11 +1292,13 @@ public class OliveUtils {
      * @return the PreparedStatement with all named parameters replaced by the given parameters
      */
     public static PreparedStatement prepareStatement( Connection conn, ParsedSql parsedSql, SqlParams parameters ) {
+        long start = Metrics.start( OperationType.STATEMENT_PREPARE );
         String sql = NamedParameterUtils.substituteNamedParameters( parsedSql, parameters );
 
         try {
-            PreparedStatement ps = conn.prepareStatement( sql );
-            setParams( ps, parsedSql, parameters );
+            PreparedStatement ps = prepareStatement( conn, sql, parsedSql );
+            setParams( ps, parsedSql, parameters, sql );
+            Metrics.statementPrepared( start, ps, parsedSql, sql, parameters );
             return ps;
 
         } catch ( SQLException ex ) {
@@ -959,17 +1306,96 @@ public class OliveUtils {
         }
     }
 
+    /**
+     * Create and return a PreparedStatement for the given context, parsedSql and parameters, and add it to the context.
+     * <p/>
+     * Inside a transaction on Postgres, a statement without a fetch size is given the
+     * {@link Olive#getTransactionFetchSize() transaction fetch size}, so that the driver reads the result through a cursor
+     * instead of loading it into memory.
+     *
+     * @param ctx the context to create the PreparedStatement with
+     * @param parsedSql the parsed representation of the SQL statement
+     * @param parameters the source for named parameters
+     * @return the PreparedStatement with all named parameters replaced by the given parameters
+     */
     public static PreparedStatement prepareStatement( JDBCContext ctx, ParsedSql parsedSql, SqlParams parameters ) {
         Connection conn = ctx.getConnection();
         PreparedStatement ps = prepareStatement( conn, parsedSql, parameters );
         ctx.add( ps );
+        applyTransactionFetchSize( ctx, ps );
+        return ps;
+    }
+
+    /**
+     * Prepare the given SQL, applying the fetch size of the parsedSql or else {@link Olive#getDefaultFetchSize()}. Statements
+     * with a fetch size are prepared forward only and read only, which drivers such as Postgres require to stream the result.
+     * The parsedSql is null for plain SQL.
+     */
+    private static PreparedStatement prepareStatement( Connection conn, String sql, ParsedSql parsedSql ) throws SQLException {
+        int fetchSize = getFetchSize( parsedSql );
+
+        if ( fetchSize == 0 ) {
+            return conn.prepareStatement( sql );
+        }
+
+        PreparedStatement ps = conn.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+
+        try {
+            ps.setFetchSize( fetchSize );
+
+        } catch ( SQLException ex ) {
+            closeQuietly( ex, ps );
+            throw ex;
+        }
+
         return ps;
     }
 
+    private static int getFetchSize( ParsedSql parsedSql ) {
+        return parsedSql != null && parsedSql.getFetchSize() > 0 ? parsedSql.getFetchSize() : Olive.getDefaultFetchSize();
+    }
+
+    private static void applyTransactionFetchSize( JDBCContext ctx, PreparedStatement ps ) {
+        int fetchSize = Olive.getTransactionFetchSize();
+
+        if ( fetchSize == 0 || !ctx.isInTransaction() ) {
+            return;
+        }
+
+        try {
+            if ( isPostgres( ctx.getConnection() ) && ps.getFetchSize() == 0 ) {
+                ps.setFetchSize( fetchSize );
+            }
+
+        } catch ( SQLException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    private static boolean isPostgres( Connection conn ) {
+        try {
+            return ConnectionInfo.get( conn ).isPostgres();
+
+        } catch ( Throwable ex ) {
+            LOGGER.log( Level.FINE, "Could not determine the database, the transaction fetch size will not be applied", ex );
+            return false;
+        }
+    }
+
+    /**
+     * Create and return a PreparedStatement for the given connection and plain SQL, with the
+     * {@link Olive#getDefaultFetchSize() default fetch size}.
+     *
+     * @param conn the connection to create the PreparedStatement with
+     * @param sql the SQL statement, with JDBC placeholders ('?') if any
+     * @return the PreparedStatement
+     */
     public static PreparedStatement prepareStatement( Connection conn, String sql ) {
+        long start = Metrics.start( OperationType.STATEMENT_PREPARE );
 
         try {
-            PreparedStatement ps = conn.prepareStatement( sql );
+            PreparedStatement ps = prepareStatement( conn, sql, (ParsedSql) null );
+            Metrics.statementPrepared( start, ps, null, sql, null );
             return ps;
 
         } catch ( SQLException ex ) {
@@ -977,10 +1403,20 @@ public class OliveUtils {
         }
     }
 
+    /**
+     * Create and return a PreparedStatement for the given context and plain SQL, and add it to the context.
+     * <p/>
+     * The fetch size is applied as by {@link #prepareStatement(za.sabob.olive.jdbc.context.JDBCContext, za.sabob.olive.ps.ParsedSql, za.sabob.olive.ps.SqlParams)}.
+     *
+     * @param ctx the context to create the PreparedStatement with
+     * @param sql the SQL statement, with JDBC placeholders ('?') if any
+     * @return the PreparedStatement
+     */
     public static PreparedStatement prepareStatement( JDBCContext ctx, String sql ) {
         Connection conn = ctx.getConnection();
         PreparedStatement ps = prepareStatement( conn, sql );
         ctx.add( ps );
+        applyTransactionFetchSize( ctx, ps );
         return ps;
     }
 
@@ -1034,10 +1470,12 @@ public class OliveUtils {
      * @return the PreparedStatement with all named parameters replaced by the given parameters
      */
     public static PreparedStatement prepareStatement( Connection conn, ParsedSql parsedSql, SqlParams parameters, int autoGeneratedKeys ) {
+        long start = Metrics.start( OperationType.STATEMENT_PREPARE );
         String sql = NamedParameterUtils.substituteNamedParameters( parsedSql, parameters );
         try {
             PreparedStatement ps = conn.prepareStatement( sql, autoGeneratedKeys );
-            setParams( ps, parsedSql, parameters );
+            setParams( ps, parsedSql, parameters, sql );
+            Metrics.statementPrepared( start, ps, parsedSql, sql, parameters );
             return ps;
 
         } catch ( SQLException ex ) {
@@ -1067,10 +1505,16 @@ public class OliveUtils {
      */
     public static PreparedStatement prepareStatement( Connection conn, ParsedSql parsedSql, SqlParams parameters, int resultSetType, int resultSetConcurrency,
         int resultSetHoldability ) {
+        long start = Metrics.start( OperationType.STATEMENT_PREPARE );
         String sql = NamedParameterUtils.substituteNamedParameters( parsedSql, parameters );
         try {
             PreparedStatement ps = conn.prepareStatement( sql, resultSetType, resultSetConcurrency, resultSetHoldability );
-            setParams( ps, parsedSql, parameters );
+            int fetchSize = getFetchSize( parsedSql );
+            if ( fetchSize > 0 ) {
+                ps.setFetchSize( fetchSize );
+            }
+            setParams( ps, parsedSql, parameters, sql );
+            Metrics.statementPrepared( start, ps, parsedSql, sql, parameters );
             return ps;
 
         } catch ( SQLException ex ) {
@@ -1099,13 +1543,15 @@ public class OliveUtils {
      * @return the PreparedStatement with all named parameters replaced by the given parameters
      */
     public static PreparedStatement prepareStatement( Connection conn, String sqlStatement, SqlParams parameters ) {
+        long start = Metrics.start( OperationType.STATEMENT_PREPARE );
 
         ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement( sqlStatement );
         String sql = NamedParameterUtils.substituteNamedParameters( parsedSql, parameters );
 
         try {
-            PreparedStatement ps = conn.prepareStatement( sql );
-            setParams( ps, parsedSql, parameters );
+            PreparedStatement ps = prepareStatement( conn, sql, parsedSql );
+            setParams( ps, parsedSql, parameters, sql );
+            Metrics.statementPrepared( start, ps, parsedSql, sql, parameters );
             return ps;
 
         } catch ( SQLException ex ) {
@@ -1117,25 +1563,148 @@ public class OliveUtils {
         Connection conn = ctx.getConnection();
         PreparedStatement ps = prepareStatement( conn, sqlStatement, parameters );
         ctx.add( ps );
+        applyTransactionFetchSize( ctx, ps );
         return ps;
     }
 
     /**
-     * Replace the named parameters defined on the parsedSql with JDBC placeholders ('?') on the PreparedStatement for the given parameters.
-     *
-     * @param ps the PreparedStatement which named parameters must be replaced with JDBC placeholders('?')
-     * @param parsedSql the parsed sql which named parameters must be replaced
-     * @param parameters the source for named parameters
+     * Replace the named parameters defined on the parsedSql with JDBC placeholders ('?') on the PreparedStatement for the given parameters.
+     *
+     * @param ps the PreparedStatement which named parameters must be replaced with JDBC placeholders('?')
+     * @param parsedSql the parsed sql which named parameters must be replaced
+     * @param parameters the source for named parameters
+     */
+    public static void setParams( PreparedStatement ps, ParsedSql parsedSql, SqlParams parameters ) {
+        setParams( ps, parsedSql, parameters, null );
+    }
+
+    /**
+     * Replace the named parameters defined on the parsedSql with JDBC placeholders ('?') on the PreparedStatement for the given parameters.
+     * <p/>
+     * The SQL types resolved from the {@link ParameterMetaData} for null parameters of unknown type are remembered for the given
+     * SQL and JDBC driver, so later binds of the same SQL do not query the metadata again.
+     *
+     * @param ps the PreparedStatement which named parameters must be replaced with JDBC placeholders('?')
+     * @param parsedSql the parsed sql which named parameters must be replaced
+     * @param parameters the source for named parameters
+     * @param sql the SQL the PreparedStatement was created with, or null to not remember parameter types
+     */
+    public static void setParams( PreparedStatement ps, ParsedSql parsedSql, SqlParams parameters, String sql ) {
+
+        // Binds the same values in the same order as NamedParameterUtils.buildValueArray, but without creating a
+        // SqlParam per element of a collection, and binds arrays of primitives straight from the array
+        NamedParameterUtils.checkNotMixed( parsedSql );
+        ParameterTypes parameterTypes = new ParameterTypes( ps, sql );
+
+        int index = 1;
+
+        for ( String paramName : parsedSql.getParameterNames() ) {
+            SqlParam sqlParam = NamedParameterUtils.getRequiredSqlParam( parameters, paramName );
+            Object value = sqlParam.getValue();
+
+            if ( isArray( value ) ) {
+                value = toBindList( value );
+            }
+
+            if ( value instanceof Collection ) {
+                index = setCollectionParam( ps, index, (Collection<?>) value, sqlParam, parameterTypes );
+
+            } else {
+                setParam( ps, index++, sqlParam, parameterTypes );
+            }
+        }
+    }
+
+    /**
+     * Returns the number of JDBC placeholders {@link NamedParameterUtils#substituteNamedParameters(za.sabob.olive.ps.ParsedSql, za.sabob.olive.ps.SqlParams)}
+     * expands the named parameters to for the given parameters, without building the SQL.
+     */
+    private static int countPlaceholders( ParsedSql parsedSql, SqlParams parameters ) {
+        int count = 0;
+
+        for ( String paramName : parsedSql.getParameterNames() ) {
+            SqlParam sqlParam = parameters == null ? null : parameters.get( paramName );
+            Object value = sqlParam == null ? null : sqlParam.getValue();
+
+            if ( isArray( value ) ) {
+                value = toBindList( value );
+            }
+
+            if ( value instanceof PrimitiveArrayList ) {
+                count += ( (PrimitiveArrayList) value ).size();
+
+            } else if ( value instanceof Collection ) {
+                for ( Object element : (Collection<?>) value ) {
+                    if ( element instanceof Collection ) {
+                        count += ( (Collection<?>) element ).size();
+
+                    } else if ( isArray( element ) ) {
+                        count += getArrayLength( element );
+
+                    } else {
+                        count++;
+                    }
+                }
+
+            } else {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int setCollectionParam( PreparedStatement ps, int index, Collection<?> values, SqlParam parent, ParameterTypes parameterTypes ) {
+
+        if ( values instanceof PrimitiveArrayList && isUntyped( parent ) ) {
+            return setPrimitiveParams( ps, index, (PrimitiveArrayList) values );
+        }
+
+        for ( Object value : values ) {
+
+            if ( value instanceof PrimitiveArrayList ) {
+                index = setPrimitiveParams( ps, index, (PrimitiveArrayList) value );
+
+            } else if ( value instanceof Collection ) {
+                for ( Object innerValue : (Collection<?>) value ) {
+                    setParam( ps, index++, NamedParameterUtils.createSqlParam( innerValue, parent.getName() ), parameterTypes );
+                }
+
+            } else if ( value instanceof Object[] ) {
+                for ( Object innerValue : (Object[]) value ) {
+                    setParam( ps, index++, NamedParameterUtils.createSqlParam( innerValue, parent.getName() ), parameterTypes );
+                }
+
+            } else if ( isArray( value ) ) {
+                index = setPrimitiveParams( ps, index, PrimitiveArrayList.of( value ) );
+
+            } else {
+                setParam( ps, index++, NamedParameterUtils.createSqlParam( value, parent ), parameterTypes );
+            }
+        }
+
+        return index;
+    }
+
+    private static int setPrimitiveParams( PreparedStatement ps, int index, PrimitiveArrayList values ) {
+
+        try {
+            return StatementUtils.setPrimitiveValues( ps, index, values.getArray() );
+
+        } catch ( SQLException e ) {
+            close( ps );
+            throw new RuntimeException( e );
+        }
+    }
+
+    private static boolean isUntyped( SqlParam param ) {
+        return param.getSqlType() == TYPE_UNKNOWN && param.getTypeName() == null && param.getScale() == null;
+    }
+
+    /**
+     * Clear the SQL types remembered for null parameters of unknown type, for example after the database schema changed.
      */
-    public static void setParams( PreparedStatement ps, ParsedSql parsedSql, SqlParams parameters ) {
-
-        SqlParam[] input = NamedParameterUtils.buildValueArray( parsedSql, parameters );
-        if ( input != null ) {
-            for ( int i = 0; i < input.length; i++ ) {
-                SqlParam arg = input[i];
-                setParam( ps, i + 1, arg );
-            }
-        }
+    public static void clearParameterTypes() {
+        ParameterTypes.clear();
     }
 
     /**
@@ -1146,9 +1715,13 @@ public class OliveUtils {
      * @param parameter the parameter value that must replace the named parameter
      */
     public static void setParam( PreparedStatement ps, int indexPosition, SqlParam parameter ) {
+        setParam( ps, indexPosition, parameter, null );
+    }
+
+    private static void setParam( PreparedStatement ps, int indexPosition, SqlParam parameter, ParameterTypes parameterTypes ) {
 
         try {
-            StatementUtils.setParameterValue( ps, indexPosition, parameter );
+            StatementUtils.setParameterValue( ps, indexPosition, parameter, parameterTypes );
 
             /*
              if (param.hasSqlType()) {
@@ -1613,6 +2186,41 @@ public class OliveUtils {
         return list;
     }
 
+    /**
+     * Convert the given array to a list for binding its elements as parameters. Unlike {@link #toList(java.lang.Object)}, arrays of
+     * primitives, also when nested in the given array, are not copied but wrapped in a fixed-size {@link PrimitiveArrayList} view so
+     * that their elements are bound straight from the array without boxing.
+     *
+     * @param array the array to convert into a list
+     * @return the converted list
+     * @throws IllegalArgumentException if array is not an actual array
+     */
+    public static List<?> toBindList( Object array ) {
+
+        if ( !isArray( array ) ) {
+            throw new IllegalArgumentException( "object must be an array" );
+        }
+
+        if ( isPrimitiveArray( array ) ) {
+            return PrimitiveArrayList.of( array );
+        }
+
+        Object[] objects = (Object[]) array;
+        List<Object> list = new ArrayList<>( objects.length );
+
+        for ( Object arrayItem : objects ) {
+
+            if ( isPrimitiveArray( arrayItem ) ) {
+                list.add( PrimitiveArrayList.of( arrayItem ) );
+
+            } else {
+                list.add( arrayItem );
+            }
+        }
+
+        return list;
+    }
+
     /**
      * Adds the given suppressedException to the mainException and returns the mainException, unless it is null, in which case the suppressedException is
      * returned.
@@ -2230,8 +2838,11 @@ public class OliveUtils {
         Exception exception = null;
 
         try {
+            long executeStart = Metrics.start( OperationType.STATEMENT_EXECUTE );
             rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, executeStart );
 
+            long start = Metrics.start( OperationType.ROW_MAPPING );
             int rowNum = 0;
 
             while ( rs.next() ) {
@@ -2239,9 +2850,13 @@ public class OliveUtils {
                 // Dont use rs.getRow, scrollable ResultSet curosrs not supported by Derby
                 //int rowNum = rs.getRow();
                 T t = mapper.map( rs, rowNum++ );
+                Metrics.rowsMapped( ps, start, 1 );
+                Metrics.statementCompleted( ps, executeStart, 1 );
                 return t;
             }
 
+            Metrics.statementCompleted( ps, executeStart, 0 );
+
         } catch ( Exception ex ) {
             exception = ex;
             throw new RuntimeException( ex );
@@ -2280,8 +2895,11 @@ public class OliveUtils {
 
         try {
 
+            long executeStart = Metrics.start( OperationType.STATEMENT_EXECUTE );
             rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, executeStart );
 
+            long start = Metrics.start( OperationType.ROW_MAPPING );
             int rowNum = 0;
 
             while ( rs.next() ) {
@@ -2292,6 +2910,9 @@ public class OliveUtils {
                 list.add( t );
             }
 
+            Metrics.rowsMapped( ps, start, rowNum );
+            Metrics.statementCompleted( ps, executeStart, rowNum );
+
         } catch ( SQLException ex ) {
             exception = ex;
             throw new RuntimeException( ex );
@@ -2316,66 +2937,405 @@ public class OliveUtils {
 
         try {
 
+            long start = Metrics.start( OperationType.STATEMENT_EXECUTE );
             rs = ps.executeQuery();
-            if ( rs.next() ) {
+            Metrics.statementExecuted( ps, start );
 
-                if ( cls == int.class || cls == Integer.class ) {
-                    Integer value = rs.getInt( 1 );
-                    return (T) value;
+            boolean found = rs.next();
+            Metrics.statementCompleted( ps, start, found ? 1 : 0 );
+
+            if ( found ) {
+                return getValue( rs, 1, cls );
+            }
 
-                } else if ( cls == long.class || cls == Long.class ) {
-                    Long value = rs.getLong( 1 );
-                    return (T) value;
+        } catch ( SQLException ex ) {
+            exception = ex;
+            throw new RuntimeException( exception );
 
-                } else if ( cls == byte.class || cls == Byte.class ) {
-                    Byte value = rs.getByte( 1 );
-                    return (T) value;
+        } finally {
+            exception = closeQuietly( exception, rs );
+            throwAsRuntimeIfException( exception );
 
-                } else if ( cls == boolean.class || cls == Boolean.class ) {
-                    Boolean value = rs.getBoolean( 1 );
-                    return (T) value;
+        }
 
-                } else if ( cls == double.class || cls == Double.class ) {
-                    Double value = rs.getDouble( 1 );
-                    return (T) value;
+        return null;
+    }
 
-                } else if ( cls == float.class || cls == Float.class ) {
-                    Float value = rs.getFloat( 1 );
-                    return (T) value;
+    /**
+     * Execute the given PreparedStatement's query and return the first column of every row as a long[], read with
+     * {@link ResultSet#getLong(int)} into a growing primitive array, so no Long objects are created.
+     *
+     * <pre class="prettyprint">
+     * PreparedStatement ps = OliveUtils.prepareStatement(ctx, "SELECT id FROM person", params);
+     * long[] ids = OliveUtils.mapToLongs(ps);
+     * </pre>
+     *
+     * @param ps the PreparedStatement to execute
+     * @return the values of the first column, with SQL NULL read as 0
+     */
+    public static long[] mapToLongs( PreparedStatement ps ) {
 
-                } else if ( cls == short.class || cls == Short.class ) {
-                    Short value = rs.getShort( 1 );
-                    return (T) value;
+        ResultSet rs = null;
 
-                } else if ( cls == String.class ) {
-                    String value = rs.getString( 1 );
-                    return (T) value;
+        Exception exception = null;
 
-                } else if ( cls == java.util.Date.class ) {
-                    java.util.Date value = rs.getTimestamp( 1 );
-                    return (T) value;
+        try {
 
-                } else if ( cls == BigDecimal.class ) {
-                    BigDecimal value = rs.getBigDecimal( 1 );
-                    return (T) value;
+            long executeStart = Metrics.start( OperationType.STATEMENT_EXECUTE );
+            rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, executeStart );
 
-                } else {
-                    throw new IllegalArgumentException( cls + " is not a supported type" );
+            long start = Metrics.start( OperationType.ROW_MAPPING );
+            LongArrayBuilder values = new LongArrayBuilder();
 
-                }
+            while ( rs.next() ) {
+                values.add( rs.getLong( 1 ) );
             }
 
+            Metrics.rowsMapped( ps, start, values.size() );
+            Metrics.statementCompleted( ps, executeStart, values.size() );
+
+            return values.toArray();
+
         } catch ( SQLException ex ) {
             exception = ex;
-            throw new RuntimeException( exception );
+            throw new RuntimeException( ex );
+
+        } finally {
+            exception = closeQuietly( exception, rs );
+            throwAsRuntimeIfException( exception );
+        }
+    }
+
+    /**
+     * Execute the given PreparedStatement's query and return the first column of every row as an int[], read with
+     * {@link ResultSet#getInt(int)} into a growing primitive array, so no Integer objects are created.
+     *
+     * <pre class="prettyprint">
+     * PreparedStatement ps = OliveUtils.prepareStatement(ctx, "SELECT age FROM person", params);
+     * int[] ages = OliveUtils.mapToInts(ps);
+     * </pre>
+     *
+     * @param ps the PreparedStatement to execute
+     * @return the values of the first column, with SQL NULL read as 0
+     */
+    public static int[] mapToInts( PreparedStatement ps ) {
+
+        ResultSet rs = null;
+
+        Exception exception = null;
+
+        try {
+
+            long executeStart = Metrics.start( OperationType.STATEMENT_EXECUTE );
+            rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, executeStart );
+
+            long start = Metrics.start( OperationType.ROW_MAPPING );
+            IntArrayBuilder values = new IntArrayBuilder();
+
+            while ( rs.next() ) {
+                values.add( rs.getInt( 1 ) );
+            }
+
+            Metrics.rowsMapped( ps, start, values.size() );
+            Metrics.statementCompleted( ps, executeStart, values.size() );
+
+            return values.toArray();
+
+        } catch ( SQLException ex ) {
+            exception = ex;
+            throw new RuntimeException( ex );
 
         } finally {
             exception = closeQuietly( exception, rs );
             throwAsRuntimeIfException( exception );
+        }
+    }
+
+    /**
+     * Execute the given PreparedStatement's query and return the first column of every row as a double[], read with
+     * {@link ResultSet#getDouble(int)} into a growing primitive array, so no Double objects are created.
+     *
+     * <pre class="prettyprint">
+     * PreparedStatement ps = OliveUtils.prepareStatement(ctx, "SELECT salary FROM person", params);
+     * double[] salaries = OliveUtils.mapToDoubles(ps);
+     * </pre>
+     *
+     * @param ps the PreparedStatement to execute
+     * @return the values of the first column, with SQL NULL read as 0.0
+     */
+    public static double[] mapToDoubles( PreparedStatement ps ) {
+
+        ResultSet rs = null;
+
+        Exception exception = null;
+
+        try {
+
+            long executeStart = Metrics.start( OperationType.STATEMENT_EXECUTE );
+            rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, executeStart );
+
+            long start = Metrics.start( OperationType.ROW_MAPPING );
+            DoubleArrayBuilder values = new DoubleArrayBuilder();
+
+            while ( rs.next() ) {
+                values.add( rs.getDouble( 1 ) );
+            }
+
+            Metrics.rowsMapped( ps, start, values.size() );
+            Metrics.statementCompleted( ps, executeStart, values.size() );
+
+            return values.toArray();
+
+        } catch ( SQLException ex ) {
+            exception = ex;
+            throw new RuntimeException( ex );
 
+        } finally {
+            exception = closeQuietly( exception, rs );
+            throwAsRuntimeIfException( exception );
         }
+    }
 
-        return null;
+    /**
+     * Execute the given PreparedStatement's query and return the first column of every row as a LongStream, read with
+     * {@link ResultSet#getLong(int)} one row at a time.
+     * <p/>
+     * The ResultSet is added to the given context, and closed when the stream is closed or the context is closed.
+     *
+     * <pre class="prettyprint">
+     * try (LongStream ids = OliveUtils.mapToLongStream(ctx, ps)) {
+     *     ids.forEach(...);
+     * }
+     * </pre>
+     *
+     * @param ctx the context to add the ResultSet to
+     * @param ps the PreparedStatement to execute
+     * @return the values of the first column, with SQL NULL read as 0
+     */
+    public static LongStream mapToLongStream( JDBCContext ctx, PreparedStatement ps ) {
+
+        try {
+
+            long start = Metrics.start( OperationType.STATEMENT_EXECUTE );
+            ResultSet rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, start );
+            ctx.add( rs );
+
+            return ColumnStreams.longs( ps, rs, start );
+
+        } catch ( SQLException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    /**
+     * Execute the given PreparedStatement's query and return the first column of every row as an IntStream, read with
+     * {@link ResultSet#getInt(int)} one row at a time.
+     * <p/>
+     * The ResultSet is added to the given context, and closed when the stream is closed or the context is closed.
+     *
+     * <pre class="prettyprint">
+     * try (IntStream ages = OliveUtils.mapToIntStream(ctx, ps)) {
+     *     ages.forEach(...);
+     * }
+     * </pre>
+     *
+     * @param ctx the context to add the ResultSet to
+     * @param ps the PreparedStatement to execute
+     * @return the values of the first column, with SQL NULL read as 0
+     */
+    public static IntStream mapToIntStream( JDBCContext ctx, PreparedStatement ps ) {
+
+        try {
+
+            long start = Metrics.start( OperationType.STATEMENT_EXECUTE );
+            ResultSet rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, start );
+            ctx.add( rs );
+
+            return ColumnStreams.ints( ps, rs, start );
+
+        } catch ( SQLException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    /**
+     * Execute the given PreparedStatement's query and return the first column of every row as a DoubleStream, read with
+     * {@link ResultSet#getDouble(int)} one row at a time.
+     * <p/>
+     * The ResultSet is added to the given context, and closed when the stream is closed or the context is closed.
+     *
+     * <pre class="prettyprint">
+     * try (DoubleStream salaries = OliveUtils.mapToDoubleStream(ctx, ps)) {
+     *     salaries.forEach(...);
+     * }
+     * </pre>
+     *
+     * @param ctx the context to add the ResultSet to
+     * @param ps the PreparedStatement to execute
+     * @return the values of the first column, with SQL NULL read as 0.0
+     */
+    public static DoubleStream mapToDoubleStream( JDBCContext ctx, PreparedStatement ps ) {
+
+        try {
+
+            long start = Metrics.start( OperationType.STATEMENT_EXECUTE );
+            ResultSet rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, start );
+            ctx.add( rs );
+
+            return ColumnStreams.doubles( ps, rs, start );
+
+        } catch ( SQLException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    /**
+     * Execute the given PreparedStatement's query and return its rows stored column by column, with one primitive array
+     * per numeric column and dictionary encoded strings for the other columns.
+     *
+     * @param ps the PreparedStatement to execute
+     * @return the rows stored column by column
+     * @see ColumnarResult
+     */
+    public static ColumnarResult mapToColumns( PreparedStatement ps ) {
+        return mapToColumns( ps, 64 );
+    }
+
+    /**
+     * Execute the given PreparedStatement's query and return its rows stored column by column, sizing the columns for
+     * the expected number of rows.
+     *
+     * @param ps the PreparedStatement to execute
+     * @param expectedRows the expected number of rows, the columns grow if more rows are read
+     * @return the rows stored column by column
+     * @see ColumnarResult
+     */
+    public static ColumnarResult mapToColumns( PreparedStatement ps, int expectedRows ) {
+
+        ResultSet rs = null;
+
+        Exception exception = null;
+
+        try {
+
+            long executeStart = Metrics.start( OperationType.STATEMENT_EXECUTE );
+            rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, executeStart );
+
+            long start = Metrics.start( OperationType.ROW_MAPPING );
+            ColumnarResult result = ColumnarResult.read( rs, expectedRows );
+
+            Metrics.rowsMapped( ps, start, result.getRowCount() );
+            Metrics.statementCompleted( ps, executeStart, result.getRowCount() );
+
+            return result;
+
+        } catch ( SQLException ex ) {
+            exception = ex;
+            throw new RuntimeException( ex );
+
+        } finally {
+            exception = closeQuietly( exception, rs );
+            throwAsRuntimeIfException( exception );
+        }
+    }
+
+    /**
+     * Returns the value of the given column of the current row of the ResultSet as an instance of the given class.
+     * <p/>
+     * java.time types (LocalDate, LocalTime, LocalDateTime, OffsetDateTime and OffsetTime) are read with the JDBC 4.2
+     * {@link ResultSet#getObject(int, java.lang.Class)}, so no intermediate java.sql.Timestamp is created. An Instant is
+     * read from the column's Timestamp, and a UUID from the driver's native UUID, a String or 16 bytes.
+     *
+     * <pre class="prettyprint">
+     * LocalDate born = OliveUtils.getValue(rs, 1, LocalDate.class);
+     * UUID id = OliveUtils.getValue(rs, 2, UUID.class);
+     * </pre>
+     *
+     * @param rs the ResultSet positioned on a row
+     * @param columnIndex the index of the column, starting at 1
+     * @param cls the class of the value
+     * @param <T> the type of the value
+     * @return the value of the column, which for primitive types follows the ResultSet getter, e.g. 0 for a null int
+     * @throws SQLException if the value cannot be read
+     * @throws IllegalArgumentException if the class is not supported
+     */
+    @SuppressWarnings( "unchecked" ) // Each branch reads a value of the class it checked cls against
+    public static <T> T getValue( ResultSet rs, int columnIndex, Class<T> cls ) throws SQLException {
+
+        if ( cls == int.class || cls == Integer.class ) {
+            Integer value = rs.getInt( columnIndex );
+            return (T) value;
+
+        } else if ( cls == long.class || cls == Long.class ) {
+            Long value = rs.getLong( columnIndex );
+            return (T) value;
+
+        } else if ( cls == byte.class || cls == Byte.class ) {
+            Byte value = rs.getByte( columnIndex );
+            return (T) value;
+
+        } else if ( cls == boolean.class || cls == Boolean.class ) {
+            Boolean value = rs.getBoolean( columnIndex );
+            return (T) value;
+
+        } else if ( cls == double.class || cls == Double.class ) {
+            Double value = rs.getDouble( columnIndex );
+            return (T) value;
+
+        } else if ( cls == float.class || cls == Float.class ) {
+            Float value = rs.getFloat( columnIndex );
+            return (T) value;
+
+        } else if ( cls == short.class || cls == Short.class ) {
+            Short value = rs.getShort( columnIndex );
+            return (T) value;
+
+        } else if ( cls == String.class ) {
+            String value = rs.getString( columnIndex );
+            return (T) value;
+
+        } else if ( cls == java.util.Date.class ) {
+            java.util.Date value = rs.getTimestamp( columnIndex );
+            return (T) value;
+
+        } else if ( cls == BigDecimal.class ) {
+            BigDecimal value = rs.getBigDecimal( columnIndex );
+            return (T) value;
+
+        } else if ( cls == LocalDate.class || cls == LocalDateTime.class || cls == LocalTime.class
+            || cls == OffsetDateTime.class || cls == OffsetTime.class ) {
+            return rs.getObject( columnIndex, cls );
+
+        } else if ( cls == Instant.class ) {
+            Timestamp value = rs.getTimestamp( columnIndex );
+            return value == null ? null : (T) value.toInstant();
+
+        } else if ( cls == UUID.class ) {
+            return (T) toUUID( rs.getObject( columnIndex ) );
+
+        } else {
+            throw new IllegalArgumentException( cls + " is not a supported type" );
+        }
+    }
+
+    private static UUID toUUID( Object value ) {
+        if ( value == null || value instanceof UUID ) {
+            return (UUID) value;
+        }
+
+        if ( value instanceof byte[] && ( (byte[]) value ).length == 16 ) {
+            ByteBuffer buffer = ByteBuffer.wrap( (byte[]) value );
+            return new UUID( buffer.getLong(), buffer.getLong() );
+        }
+
+        return UUID.fromString( value.toString() );
     }
 
     public static ResultSet query( JDBCContext ctx, PreparedStatement ps ) {
@@ -2384,7 +3344,10 @@ public class OliveUtils {
 
         try {
 
+            long start = Metrics.start( OperationType.STATEMENT_EXECUTE );
             rs = ps.executeQuery();
+            Metrics.statementExecuted( ps, start );
+            Metrics.statementCompleted( ps, start, -1 );
             ctx.add( rs );
 
         } catch ( SQLException ex ) {
@@ -2394,6 +3357,28 @@ public class OliveUtils {
         return rs;
     }
 
+    /**
+     * Execute the given PreparedStatement's INSERT, UPDATE, DELETE or DDL statement and wraps SQLExceptions as
+     * RuntimeExceptions. The execution time is reported to the {@link Metrics#getListener() metrics listener}.
+     *
+     * @param ps the PreparedStatement to execute
+     * @return the row count for DML statements, or 0 for statements that return nothing
+     */
+    public static int executeUpdate( PreparedStatement ps ) {
+
+        try {
+
+            long start = Metrics.start( OperationType.STATEMENT_EXECUTE );
+            int result = ps.executeUpdate();
+            Metrics.statementExecuted( ps, start );
+            Metrics.statementCompleted( ps, start, result );
+            return result;
+
+        } catch ( SQLException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
     public static SQLException convertSqlExceptionToSuppressed( SQLException e ) {
         for ( SQLException next = e.getNextException(); next != null; next = next.getNextException() ) {
             e.addSuppressed( next );
@@ -0,0 +1,29 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+
+/**
+ * Binds a non-null value of a specific Java type to a {@link PreparedStatement} parameter.
+ * <p/>
+ * Binders are registered with {@link ParameterBinders} and resolved once per value class and SQL type, after which
+ * Olive calls them directly for every parameter of that class.
+ *
+ * <pre class="prettyprint">
+ * ParameterBinders.register(UUID.class, (ps, paramIndex, value, sqlType, scale) -&gt; ps.setString(paramIndex, value.toString()));
+ * </pre>
+ */
+@FunctionalInterface
+public interface ParameterBinder {
+
+    /**
+     * Set the given value on the PreparedStatement at the paramIndex.
+     *
+     * @param ps the PreparedStatement to work on
+     * @param paramIndex the index of the parameter, starting at 1
+     * @param value the value to set, never null
+     * @param sqlType the SQL type of the parameter, or {@link OliveUtils#TYPE_UNKNOWN} if not specified
+     * @param scale the number of digits after the decimal point, or null if not specified
+     * @throws SQLException if thrown by PreparedStatement methods
+     */
+    void bind( PreparedStatement ps, int paramIndex, Object value, int sqlType, Integer scale ) throws SQLException;
+}
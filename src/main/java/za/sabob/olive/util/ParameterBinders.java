@@ -0,0 +1,213 @@
+package za.sabob.olive.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Registry of the {@link ParameterBinder}s Olive binds non-null parameter values with.
+ * <p/>
+ * The binder for a value is resolved once per value class and SQL type and cached in a {@link ClassValue}, so binding
+ * a parameter costs a lookup and a direct call instead of a chain of type checks. Registered binders take precedence
+ * over the built-in ones, so applications can bind types such as enums without falling back to
+ * {@link java.sql.PreparedStatement#setObject(int, java.lang.Object)}.
+ *
+ * <pre class="prettyprint">
+ * // Bind enums by name when the parameter has no SQL type
+ * ParameterBinders.register(Enum.class, (ps, paramIndex, value, sqlType, scale) -&gt; ps.setString(paramIndex, ((Enum) value).name()));
+ *
+ * // Bind enums by ordinal when the parameter is declared as an INTEGER
+ * ParameterBinders.register(Enum.class, Types.INTEGER, (ps, paramIndex, value, sqlType, scale) -&gt; ps.setInt(paramIndex, ((Enum) value).ordinal()));
+ * </pre>
+ *
+ * A binder registered for a class also binds subclasses of that class. A binder registered for the exact class of a
+ * value wins, otherwise the most recently registered binder for a superclass or interface is used. Register binders
+ * at startup, since every registration discards the resolved binders.
+ */
+public class ParameterBinders {
+
+    private static final List<Registration> REGISTRATIONS = new CopyOnWriteArrayList<>();
+
+    private static volatile ClassValue<Binders> binders = newCache();
+
+    /**
+     * Register a binder for values of the given type, used for parameters which do not specify an SQL type.
+     *
+     * @param type the type of values to bind, including subclasses
+     * @param binder the binder
+     */
+    public static void register( Class<?> type, ParameterBinder binder ) {
+        register( type, OliveUtils.TYPE_UNKNOWN, binder );
+    }
+
+    /**
+     * Register a binder for values of the given type, used for parameters of the given SQL type.
+     *
+     * @param type the type of values to bind, including subclasses
+     * @param sqlType the SQL type of the parameters, see {@link java.sql.Types}, or {@link OliveUtils#TYPE_UNKNOWN} for
+     * parameters which do not specify an SQL type
+     * @param binder the binder
+     */
+    public static synchronized void register( Class<?> type, int sqlType, ParameterBinder binder ) {
+        if ( type == null ) {
+            throw new IllegalArgumentException( "type cannot be null" );
+        }
+
+        if ( binder == null ) {
+            throw new IllegalArgumentException( "binder cannot be null" );
+        }
+
+        // Most recent first
+        REGISTRATIONS.add( 0, new Registration( type, sqlType, binder ) );
+        binders = newCache();
+    }
+
+    /**
+     * Remove the binders registered for the given type, for any SQL type.
+     *
+     * @param type the type the binders were registered for
+     */
+    public static synchronized void unregister( Class<?> type ) {
+        REGISTRATIONS.removeIf( registration -> registration.type == type );
+        binders = newCache();
+    }
+
+    /**
+     * Remove all registered binders, leaving only the built-in ones.
+     */
+    public static synchronized void clear() {
+        REGISTRATIONS.clear();
+        binders = newCache();
+    }
+
+    /**
+     * Returns the binder for values of the given class and parameters of the given SQL type.
+     *
+     * @param type the class of the value
+     * @param sqlType the SQL type of the parameter, or {@link OliveUtils#TYPE_UNKNOWN}
+     * @return the binder, never null
+     */
+    public static ParameterBinder getBinder( Class<?> type, int sqlType ) {
+        return binders.get( type ).get( type, sqlType );
+    }
+
+    private static ParameterBinder resolve( Class<?> type, int sqlType ) {
+        Registration assignable = null;
+
+        for ( Registration registration : REGISTRATIONS ) {
+            if ( registration.sqlType != sqlType ) {
+                continue;
+            }
+
+            if ( registration.type == type ) {
+                return registration.binder;
+            }
+
+            if ( assignable == null && registration.type.isAssignableFrom( type ) ) {
+                assignable = registration;
+            }
+        }
+
+        if ( assignable != null ) {
+            return assignable.binder;
+        }
+
+        return StatementUtils.getDefaultBinder( type, sqlType );
+    }
+
+    private static ClassValue<Binders> newCache() {
+        return new ClassValue<Binders>() {
+            @Override
+            protected Binders computeValue( Class<?> type ) {
+                return new Binders();
+            }
+        };
+    }
+
+    /**
+     * The binders resolved for one value class.
+     */
+    private static class Binders {
+
+        // Parameters without an SQL type are the common case, keep them out of the table
+        private volatile ParameterBinder unknownTypeBinder;
+
+        // A value class is bound with a handful of SQL types at most, so look them up in a small table keyed by the int
+        // SQL type instead of a map, which would box the SQL type on every bind
+        private volatile SqlTypeBinders sqlTypeBinders = SqlTypeBinders.EMPTY;
+
+        private ParameterBinder get( Class<?> type, int sqlType ) {
+            if ( sqlType == OliveUtils.TYPE_UNKNOWN ) {
+                ParameterBinder binder = unknownTypeBinder;
+
+                if ( binder == null ) {
+                    binder = resolve( type, sqlType );
+                    unknownTypeBinder = binder;
+                }
+                return binder;
+            }
+
+            ParameterBinder binder = sqlTypeBinders.get( sqlType );
+
+            if ( binder == null ) {
+                binder = resolve( type, sqlType );
+                add( sqlType, binder );
+            }
+            return binder;
+        }
+
+        private synchronized void add( int sqlType, ParameterBinder binder ) {
+            if ( sqlTypeBinders.get( sqlType ) == null ) {
+                sqlTypeBinders = sqlTypeBinders.with( sqlType, binder );
+            }
+        }
+    }
+
+    /**
+     * An immutable table of the binders resolved for the SQL types of one value class.
+     */
+    private static class SqlTypeBinders {
+
+        private static final SqlTypeBinders EMPTY = new SqlTypeBinders( new int[0], new ParameterBinder[0] );
+
+        private final int[] sqlTypes;
+
+        private final ParameterBinder[] binders;
+
+        private SqlTypeBinders( int[] sqlTypes, ParameterBinder[] binders ) {
+            this.sqlTypes = sqlTypes;
+            this.binders = binders;
+        }
+
+        private ParameterBinder get( int sqlType ) {
+            for ( int i = 0; i < sqlTypes.length; i++ ) {
+                if ( sqlTypes[i] == sqlType ) {
+                    return binders[i];
+                }
+            }
+            return null;
+        }
+
+        private SqlTypeBinders with( int sqlType, ParameterBinder binder ) {
+            int[] newSqlTypes = Arrays.copyOf( sqlTypes, sqlTypes.length + 1 );
+            ParameterBinder[] newBinders = Arrays.copyOf( binders, binders.length + 1 );
+            newSqlTypes[sqlTypes.length] = sqlType;
+            newBinders[binders.length] = binder;
+            return new SqlTypeBinders( newSqlTypes, newBinders );
+        }
+    }
+
+    private static class Registration {
+
+        private final Class<?> type;
+
+        private final int sqlType;
+
+        private final ParameterBinder binder;
+
+        private Registration( Class<?> type, int sqlType, ParameterBinder binder ) {
+            this.type = type;
+            this.sqlType = sqlType;
+            this.binder = binder;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
+
+/**
+ * Remembers the SQL types {@link StatementUtils} resolved for null parameters of unknown type, keyed on the JDBC driver
+ * and the SQL of the statement.
+ * <p/>
+ * Resolving the type of a null parameter calls {@link ParameterMetaData#getParameterType(int)}, which some drivers, such as
+ * Postgres, implement with a round trip to the database. The type is resolved the first time a statement binds null to a
+ * parameter and reused by later binds of the same SQL.
+ */
+class ParameterTypes {
+
+    private static final Logger LOGGER = Logger.getLogger( ParameterTypes.class.getName() );
+
+    /**
+     * Resolved type of a parameter which must be bound with {@link PreparedStatement#setObject(int, java.lang.Object)}.
+     */
+    static final int USE_SET_OBJECT = Integer.MIN_VALUE + 1;
+
+    /**
+     * The maximum number of statements to remember types for. Generated SQL, such as IN lists of varying size, must not
+     * grow the cache unbounded.
+     */
+    static final int MAX_STATEMENTS = 2048;
+
+    /**
+     * The resolved types by statement. The arrays are never modified once cached, see {@link #set(int, int)}.
+     */
+    private static final ConcurrentHashMap<Key, int[]> TYPES = new ConcurrentHashMap<>();
+
+    private final PreparedStatement ps;
+
+    private final String sql;
+
+    private Key key;
+
+    private int[] types;
+
+    ParameterTypes( PreparedStatement ps, String sql ) {
+        this.ps = ps;
+        this.sql = sql;
+    }
+
+    /**
+     * Returns the type previously resolved for the given parameter.
+     *
+     * @param paramIndex the index of the parameter, starting at 1
+     * @return the resolved type, {@link #USE_SET_OBJECT} or {@link OliveUtils#TYPE_UNKNOWN} if not resolved yet
+     */
+    int get( int paramIndex ) {
+        int[] resolved = getTypes();
+
+        if ( resolved == null || paramIndex > resolved.length ) {
+            return OliveUtils.TYPE_UNKNOWN;
+        }
+        return resolved[paramIndex - 1];
+    }
+
+    /**
+     * Remembers the type resolved for the given parameter. The cached arrays are shared between threads and never
+     * modified, so the type is published in a copy which replaces the cached array only if no other thread replaced or
+     * removed it meanwhile.
+     *
+     * @param paramIndex the index of the parameter, starting at 1
+     * @param sqlType the resolved type, or {@link #USE_SET_OBJECT}
+     */
+    void set( int paramIndex, int sqlType ) {
+        int[] resolved = getTypes();
+
+        if ( resolved == null ) {
+            return;
+        }
+
+        types = with( resolved, paramIndex, sqlType );
+
+        while ( true ) {
+            int[] cached = TYPES.get( key );
+
+            // Not cached because the cache is full or was cleared, so only this statement remembers the type
+            if ( cached == null ) {
+                return;
+            }
+
+            int[] updated = with( cached, paramIndex, sqlType );
+            if ( TYPES.replace( key, cached, updated ) ) {
+                types = updated;
+                return;
+            }
+        }
+    }
+
+    static void clear() {
+        TYPES.clear();
+    }
+
+    static int size() {
+        return TYPES.size();
+    }
+
+    private int[] getTypes() {
+        if ( types != null || sql == null ) {
+            return types;
+        }
+
+        String driverName;
+
+        try {
+            driverName = ConnectionInfo.get( ps.getConnection() ).getDriverName();
+
+        } catch ( Throwable ex ) {
+            LOGGER.log( Level.FINE, "Could not determine the JDBC driver, parameter types will not be cached", ex );
+            return null;
+        }
+
+        key = new Key( driverName, sql );
+        types = TYPES.get( key );
+
+        if ( types == null ) {
+            int[] unresolved = new int[0];
+
+            if ( TYPES.size() < MAX_STATEMENTS ) {
+                int[] existing = TYPES.putIfAbsent( key, unresolved );
+                types = existing == null ? unresolved : existing;
+
+            } else {
+                types = unresolved;
+            }
+        }
+
+        return types;
+    }
+
+    /**
+     * Returns a copy of the given types with the given parameter set. Parameters are only remembered once they were bound
+     * to null, so the copy grows to the highest such parameter.
+     */
+    private static int[] with( int[] types, int paramIndex, int sqlType ) {
+        int[] copy = Arrays.copyOf( types, Math.max( types.length, paramIndex ) );
+        Arrays.fill( copy, types.length, copy.length, OliveUtils.TYPE_UNKNOWN );
+        copy[paramIndex - 1] = sqlType;
+        return copy;
+    }
+
+    private static class Key {
+
+        private final String driverName;
+
+        private final String sql;
+
+        private Key( String driverName, String sql ) {
+            this.driverName = driverName;
+            this.sql = sql;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode( driverName ) + sql.hashCode();
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if ( !( obj instanceof Key ) ) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return Objects.equals( driverName, other.driverName ) && sql.equals( other.sql );
+        }
+    }
+}
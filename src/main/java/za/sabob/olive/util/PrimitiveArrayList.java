@@ -0,0 +1,77 @@
+package za.sabob.olive.util;
+
+import java.util.*;
+
+/**
+ * A fixed-size list view of an array of primitives, such as a long[] or int[], which reads from and writes through to
+ * the array, similar to {@link Arrays#asList(java.lang.Object[])}.
+ * <p/>
+ * Elements are only boxed when read through {@link #get(int)}, so wrapping a large array allocates nothing per
+ * element. Olive binds the elements of the view straight from the {@link #getArray() array} when expanding it into
+ * placeholders.
+ *
+ * <pre class="prettyprint">
+ * long[] ids = { 1, 2, 3 };
+ * List&lt;Object&gt; list = PrimitiveArrayList.of(ids);
+ * </pre>
+ */
+public final class PrimitiveArrayList extends AbstractList<Object> implements RandomAccess {
+
+    private final Object array;
+
+    private final int length;
+
+    private PrimitiveArrayList( Object array ) {
+        this.array = array;
+        this.length = java.lang.reflect.Array.getLength( array );
+    }
+
+    /**
+     * Returns a list view of the given array of primitives.
+     *
+     * @param array the array of primitives
+     * @return the list view of the array
+     * @throws IllegalArgumentException if array is not an array of primitives
+     */
+    public static PrimitiveArrayList of( Object array ) {
+        if ( !OliveUtils.isPrimitiveArray( array ) ) {
+            throw new IllegalArgumentException( "array must be an array of primitives" );
+        }
+        return new PrimitiveArrayList( array );
+    }
+
+    /**
+     * Returns the array of primitives backing this list.
+     *
+     * @return the array of primitives backing this list
+     */
+    public Object getArray() {
+        return array;
+    }
+
+    /**
+     * Returns the primitive type of the elements, for example long.class.
+     *
+     * @return the primitive type of the elements
+     */
+    public Class<?> getComponentType() {
+        return array.getClass().getComponentType();
+    }
+
+    @Override
+    public Object get( int index ) {
+        return java.lang.reflect.Array.get( array, index );
+    }
+
+    @Override
+    public Object set( int index, Object element ) {
+        Object previous = get( index );
+        java.lang.reflect.Array.set( array, index, element );
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+}
@@ -0,0 +1,252 @@
+package za.sabob.olive.util;
+
+import java.math.*;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Binds a collection or array to a single parameter as a {@link java.sql.Array} created with
+ * {@link Connection#createArrayOf(java.lang.String, java.lang.Object[])}, instead of expanding it into one placeholder
+ * per element.
+ * <p/>
+ * The SQL text stays the same whatever the number of elements, so the database can reuse its plan, and large lists
+ * do not produce huge statements. The SQL must compare against the array, for example with "= ANY(:ids)" on Postgres
+ * or "IN (UNNEST(:ids))" on HSQLDB.
+ *
+ * <pre class="prettyprint">
+ * SqlParams params = new SqlParams();
+ * params.setArrayOf("ids", new long[] { 1, 2, 3 });
+ * PreparedStatement ps = OliveUtils.prepareStatement(ctx, "SELECT * FROM person WHERE id = ANY(:ids)", params);
+ * </pre>
+ *
+ * Primitive arrays are copied straight into the element array, without going through {@link OliveUtils#toList(java.lang.Object)}.
+ */
+public class SqlArrayValue implements SqlValue {
+
+    private final String typeName;
+
+    private final Object values;
+
+    /**
+     * Create an array value for the given collection or array, with the SQL type name of the elements derived from the
+     * element type.
+     *
+     * @param values a collection, an array of objects or an array of primitives
+     */
+    public SqlArrayValue( Object values ) {
+        this( null, values );
+    }
+
+    /**
+     * Create an array value for the given collection or array.
+     *
+     * @param typeName the database specific SQL type name of the elements, for example "bigint", or null to derive
+     * the type name from the element type
+     * @param values a collection, an array of objects or an array of primitives
+     */
+    public SqlArrayValue( String typeName, Object values ) {
+        if ( !( values instanceof Collection ) && !OliveUtils.isArray( values ) ) {
+            throw new IllegalArgumentException( "values must be a Collection or an array" );
+        }
+
+        this.typeName = typeName;
+        this.values = values;
+    }
+
+    public Object getValues() {
+        return values;
+    }
+
+    /**
+     * Returns the SQL type name of the elements, derived from the element type if not given.
+     *
+     * @return the SQL type name of the elements
+     */
+    public String getTypeName() {
+        if ( typeName != null ) {
+            return typeName;
+        }
+
+        Class<?> elementType = values.getClass().getComponentType();
+
+        if ( elementType == null || elementType == Object.class ) {
+            elementType = null;
+
+            for ( Object element : toElements() ) {
+                if ( element != null ) {
+                    elementType = element.getClass();
+                    break;
+                }
+            }
+        }
+
+        return getTypeName( elementType );
+    }
+
+    @Override
+    public void setValue( PreparedStatement ps, int paramIndex ) throws SQLException {
+        Connection conn = ps.getConnection();
+        Array array = conn.createArrayOf( getTypeName(), toElements() );
+        ps.setArray( paramIndex, array );
+    }
+
+    /**
+     * Returns the elements as an array of objects. Arrays of objects are returned as is.
+     *
+     * @return the elements as an array of objects
+     */
+    public Object[] toElements() {
+        if ( values instanceof Object[] ) {
+            return (Object[]) values;
+        }
+
+        if ( values instanceof Collection ) {
+            return ( (Collection) values ).toArray();
+        }
+
+        if ( values instanceof long[] ) {
+            long[] longs = (long[]) values;
+            Long[] elements = new Long[longs.length];
+            for ( int i = 0; i < longs.length; i++ ) {
+                elements[i] = longs[i];
+            }
+            return elements;
+        }
+
+        if ( values instanceof int[] ) {
+            int[] ints = (int[]) values;
+            Integer[] elements = new Integer[ints.length];
+            for ( int i = 0; i < ints.length; i++ ) {
+                elements[i] = ints[i];
+            }
+            return elements;
+        }
+
+        if ( values instanceof short[] ) {
+            short[] shorts = (short[]) values;
+            Short[] elements = new Short[shorts.length];
+            for ( int i = 0; i < shorts.length; i++ ) {
+                elements[i] = shorts[i];
+            }
+            return elements;
+        }
+
+        if ( values instanceof double[] ) {
+            double[] doubles = (double[]) values;
+            Double[] elements = new Double[doubles.length];
+            for ( int i = 0; i < doubles.length; i++ ) {
+                elements[i] = doubles[i];
+            }
+            return elements;
+        }
+
+        if ( values instanceof float[] ) {
+            float[] floats = (float[]) values;
+            Float[] elements = new Float[floats.length];
+            for ( int i = 0; i < floats.length; i++ ) {
+                elements[i] = floats[i];
+            }
+            return elements;
+        }
+
+        if ( values instanceof boolean[] ) {
+            boolean[] booleans = (boolean[]) values;
+            Boolean[] elements = new Boolean[booleans.length];
+            for ( int i = 0; i < booleans.length; i++ ) {
+                elements[i] = booleans[i];
+            }
+            return elements;
+        }
+
+        if ( values instanceof char[] ) {
+            char[] chars = (char[]) values;
+            String[] elements = new String[chars.length];
+            for ( int i = 0; i < chars.length; i++ ) {
+                elements[i] = String.valueOf( chars[i] );
+            }
+            return elements;
+        }
+
+        byte[] bytes = (byte[]) values;
+        Short[] elements = new Short[bytes.length];
+        for ( int i = 0; i < bytes.length; i++ ) {
+            elements[i] = (short) bytes[i];
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the standard SQL type name for elements of the given type.
+     *
+     * @param elementType the element type, or null if unknown
+     * @return the SQL type name
+     */
+    protected String getTypeName( Class<?> elementType ) {
+        if ( elementType == null ) {
+            return "VARCHAR";
+        }
+
+        if ( elementType == long.class || elementType == Long.class || elementType == BigInteger.class ) {
+            return "BIGINT";
+        }
+
+        if ( elementType == int.class || elementType == Integer.class ) {
+            return "INTEGER";
+        }
+
+        if ( elementType == short.class || elementType == Short.class || elementType == byte.class || elementType == Byte.class ) {
+            return "SMALLINT";
+        }
+
+        if ( elementType == double.class || elementType == Double.class ) {
+            return "FLOAT";
+        }
+
+        if ( elementType == float.class || elementType == Float.class ) {
+            return "REAL";
+        }
+
+        if ( elementType == boolean.class || elementType == Boolean.class ) {
+            return "BOOLEAN";
+        }
+
+        if ( BigDecimal.class.isAssignableFrom( elementType ) ) {
+            return "NUMERIC";
+        }
+
+        if ( java.sql.Date.class.isAssignableFrom( elementType ) ) {
+            return "DATE";
+        }
+
+        if ( java.sql.Time.class.isAssignableFrom( elementType ) ) {
+            return "TIME";
+        }
+
+        if ( java.util.Date.class.isAssignableFrom( elementType ) ) {
+            return "TIMESTAMP";
+        }
+
+        return "VARCHAR";
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode( typeName ) + Arrays.deepHashCode( new Object[] { values } );
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if ( !( obj instanceof SqlArrayValue ) ) {
+            return false;
+        }
+
+        SqlArrayValue other = (SqlArrayValue) obj;
+        return Objects.equals( typeName, other.typeName ) && Arrays.deepEquals( new Object[] { values }, new Object[] { other.values } );
+    }
+
+    @Override
+    public String toString() {
+        int length = values instanceof Collection ? ( (Collection) values ).size() : OliveUtils.getArrayLength( values );
+        return getTypeName() + "[" + length + "]";
+    }
+}
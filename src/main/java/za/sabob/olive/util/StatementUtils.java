@@ -18,6 +18,7 @@ package za.sabob.olive.util;
 import java.io.*;
 import java.math.*;
 import java.sql.*;
+import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.*;
@@ -65,6 +66,12 @@ class StatementUtils {
         javaTypeToSqlTypeMap.put(java.sql.Date.class, Types.DATE);
         javaTypeToSqlTypeMap.put(java.sql.Time.class, Types.TIME);
         javaTypeToSqlTypeMap.put(java.sql.Timestamp.class, Types.TIMESTAMP);
+        javaTypeToSqlTypeMap.put(LocalDate.class, Types.DATE);
+        javaTypeToSqlTypeMap.put(LocalTime.class, Types.TIME);
+        javaTypeToSqlTypeMap.put(LocalDateTime.class, Types.TIMESTAMP);
+        javaTypeToSqlTypeMap.put(Instant.class, Types.TIMESTAMP);
+        javaTypeToSqlTypeMap.put(OffsetTime.class, Types.TIME_WITH_TIMEZONE);
+        javaTypeToSqlTypeMap.put(OffsetDateTime.class, Types.TIMESTAMP_WITH_TIMEZONE);
         javaTypeToSqlTypeMap.put(Blob.class, Types.BLOB);
         javaTypeToSqlTypeMap.put(Clob.class, Types.CLOB);
     }
@@ -101,7 +108,69 @@ class StatementUtils {
      */
     public static void setParameterValue(PreparedStatement ps, int paramIndex,  SqlParam inValue) throws SQLException {
 
-        setParameterValueInternal(ps, paramIndex, inValue);
+        setParameterValueInternal(ps, paramIndex, inValue, null);
+    }
+
+    /**
+     * Set the value for a parameter, reusing the SQL type previously resolved for a null value of unknown type.
+     * @param ps the prepared statement or callable statement
+     * @param paramIndex index of the parameter we are setting
+     * @param inValue the value to set
+     * @param parameterTypes the types resolved for the parameters of the statement, may be {@code null}
+     * @throws SQLException if thrown by PreparedStatement methods
+     */
+    static void setParameterValue(PreparedStatement ps, int paramIndex, SqlParam inValue, ParameterTypes parameterTypes) throws SQLException {
+
+        setParameterValueInternal(ps, paramIndex, inValue, parameterTypes);
+    }
+
+    /**
+     * Set the elements of an array of primitives as consecutive parameters, reading
+     * each element straight from the array with the matching typed setter.
+     * <p>Elements of a char[] are bound as single character strings with setString,
+     * whereas a boxed Character is bound with setObject, which drivers such as
+     * HSQLDB reject for character columns.
+     * @param ps the prepared statement or callable statement
+     * @param paramIndex index of the parameter to set the first element to
+     * @param array the array of primitives, for example a long[]
+     * @return the index of the parameter following the last element
+     * @throws SQLException if thrown by PreparedStatement methods
+     */
+    static int setPrimitiveValues(PreparedStatement ps, int paramIndex, Object array) throws SQLException {
+        if (array instanceof long[]) {
+            for (long value : (long[]) array) {
+                ps.setLong(paramIndex++, value);
+            }
+        } else if (array instanceof int[]) {
+            for (int value : (int[]) array) {
+                ps.setInt(paramIndex++, value);
+            }
+        } else if (array instanceof short[]) {
+            for (short value : (short[]) array) {
+                ps.setShort(paramIndex++, value);
+            }
+        } else if (array instanceof byte[]) {
+            for (byte value : (byte[]) array) {
+                ps.setByte(paramIndex++, value);
+            }
+        } else if (array instanceof double[]) {
+            for (double value : (double[]) array) {
+                ps.setDouble(paramIndex++, value);
+            }
+        } else if (array instanceof float[]) {
+            for (float value : (float[]) array) {
+                ps.setFloat(paramIndex++, value);
+            }
+        } else if (array instanceof boolean[]) {
+            for (boolean value : (boolean[]) array) {
+                ps.setBoolean(paramIndex++, value);
+            }
+        } else {
+            for (char value : (char[]) array) {
+                ps.setString(paramIndex++, String.valueOf(value));
+            }
+        }
+        return paramIndex;
     }
 
     /**
@@ -115,10 +184,11 @@ class StatementUtils {
      * @param scale the number of digits after the decimal point
      * (for DECIMAL and NUMERIC types)
      * @param inValue the value to set (plain value or a SqlTypeValue)
+     * @param parameterTypes the types resolved for the parameters of the statement, may be {@code null}
      * @throws SQLException if thrown by PreparedStatement methods
      * @see SqlTypeValue
      */
-    private static void setParameterValueInternal(PreparedStatement ps, int paramIndex, SqlParam inValue) throws SQLException {
+    private static void setParameterValueInternal(PreparedStatement ps, int paramIndex, SqlParam inValue, ParameterTypes parameterTypes) throws SQLException {
 
         String typeNameToUse = inValue.getTypeName();
         int sqlTypeToUse = inValue.getSqlType();
@@ -145,7 +215,7 @@ class StatementUtils {
         }
 
         if (inValueToUse == null) {
-            setNull(ps, paramIndex, sqlTypeToUse, typeNameToUse);
+            setNull(ps, paramIndex, sqlTypeToUse, typeNameToUse, parameterTypes);
         } else {
             setValue(ps, paramIndex, sqlTypeToUse, typeNameToUse, scale, inValueToUse);
         }
@@ -155,56 +225,16 @@ class StatementUtils {
      * Set the specified PreparedStatement parameter to null,
      * respecting database-specific peculiarities.
      */
-    private static void setNull(PreparedStatement ps, int paramIndex, int sqlType, String typeName) throws SQLException {
+    private static void setNull(PreparedStatement ps, int paramIndex, int sqlType, String typeName, ParameterTypes parameterTypes) throws SQLException {
         if (sqlType == OliveUtils.TYPE_UNKNOWN) {
-            boolean useSetObject = false;
-            Integer sqlTypeToUse = null;
-            DatabaseMetaData dbmd = null;
-            String jdbcDriverName = null;
-            boolean checkGetParameterType = true;
-            if (!driversWithNoSupportForGetParameterType.isEmpty()) {
-                try {
-                    dbmd = ps.getConnection().getMetaData();
-                    jdbcDriverName = dbmd.getDriverName();
-                    checkGetParameterType = !driversWithNoSupportForGetParameterType.contains(jdbcDriverName);
-                } catch (Throwable ex) {
-                    LOGGER.log(Level.SEVERE, "Could not check connection metadata", ex);
+            int sqlTypeToUse = parameterTypes == null ? OliveUtils.TYPE_UNKNOWN : parameterTypes.get(paramIndex);
+            if (sqlTypeToUse == OliveUtils.TYPE_UNKNOWN) {
+                sqlTypeToUse = resolveNullType(ps, paramIndex);
+                if (parameterTypes != null) {
+                    parameterTypes.set(paramIndex, sqlTypeToUse);
                 }
             }
-            if (checkGetParameterType) {
-                try {
-                    sqlTypeToUse = ps.getParameterMetaData().getParameterType(paramIndex);
-                } catch (Throwable ex) {
-                    if (Olive.getMode() == Mode.TRACE) {
-                        LOGGER.log(Level.INFO, "JDBC 3.0 getParameterType call not supported - using fallback method instead: ", ex);
-                    }
-                }
-            }
-            if (sqlTypeToUse == null) {
-                // JDBC driver not compliant with JDBC 3.0 -> proceed with database-specific checks
-                sqlTypeToUse = Types.NULL;
-                try {
-                    if (dbmd == null) {
-                        dbmd = ps.getConnection().getMetaData();
-                    }
-                    if (jdbcDriverName == null) {
-                        jdbcDriverName = dbmd.getDriverName();
-                    }
-                    if (checkGetParameterType) {
-                        driversWithNoSupportForGetParameterType.add(jdbcDriverName);
-                    }
-                    String databaseProductName = dbmd.getDatabaseProductName();
-                    if (databaseProductName.startsWith("Informix") || jdbcDriverName.startsWith("Microsoft SQL Server")) {
-                        useSetObject = true;
-                    } else if (databaseProductName.startsWith("DB2") || jdbcDriverName.startsWith("jConnect") || jdbcDriverName.startsWith(
-                        "SQLServer") || jdbcDriverName.startsWith("Apache Derby")) {
-                        sqlTypeToUse = Types.VARCHAR;
-                    }
-                } catch (Throwable ex) {
-                    LOGGER.log(Level.SEVERE, "Could not check connection metadata", ex);
-                }
-            }
-            if (useSetObject) {
+            if (sqlTypeToUse == ParameterTypes.USE_SET_OBJECT) {
                 ps.setObject(paramIndex, null);
             } else {
                 ps.setNull(paramIndex, sqlTypeToUse);
@@ -216,77 +246,196 @@ class StatementUtils {
         }
     }
 
+    /**
+     * Resolve the SQL type to bind null to the specified PreparedStatement parameter with,
+     * respecting database-specific peculiarities.
+     * @return the SQL type, or {@link ParameterTypes#USE_SET_OBJECT} if null must be bound with setObject
+     */
+    private static int resolveNullType(PreparedStatement ps, int paramIndex) {
+        boolean useSetObject = false;
+        Integer sqlTypeToUse = null;
+        DatabaseMetaData dbmd = null;
+        String jdbcDriverName = null;
+        boolean checkGetParameterType = true;
+        if (!driversWithNoSupportForGetParameterType.isEmpty()) {
+            try {
+                dbmd = ps.getConnection().getMetaData();
+                jdbcDriverName = dbmd.getDriverName();
+                checkGetParameterType = !driversWithNoSupportForGetParameterType.contains(jdbcDriverName);
+            } catch (Throwable ex) {
+                LOGGER.log(Level.SEVERE, "Could not check connection metadata", ex);
+            }
+        }
+        if (checkGetParameterType) {
+            try {
+                sqlTypeToUse = ps.getParameterMetaData().getParameterType(paramIndex);
+            } catch (Throwable ex) {
+                if (Olive.getMode() == Mode.TRACE) {
+                    LOGGER.log(Level.INFO, "JDBC 3.0 getParameterType call not supported - using fallback method instead: ", ex);
+                }
+            }
+        }
+        if (sqlTypeToUse == null) {
+            // JDBC driver not compliant with JDBC 3.0 -> proceed with database-specific checks
+            sqlTypeToUse = Types.NULL;
+            try {
+                if (dbmd == null) {
+                    dbmd = ps.getConnection().getMetaData();
+                }
+                if (jdbcDriverName == null) {
+                    jdbcDriverName = dbmd.getDriverName();
+                }
+                if (checkGetParameterType) {
+                    driversWithNoSupportForGetParameterType.add(jdbcDriverName);
+                }
+                String databaseProductName = dbmd.getDatabaseProductName();
+                if (databaseProductName.startsWith("Informix") || jdbcDriverName.startsWith("Microsoft SQL Server")) {
+                    useSetObject = true;
+                } else if (databaseProductName.startsWith("DB2") || jdbcDriverName.startsWith("jConnect") || jdbcDriverName.startsWith(
+                    "SQLServer") || jdbcDriverName.startsWith("Apache Derby")) {
+                    sqlTypeToUse = Types.VARCHAR;
+                }
+            } catch (Throwable ex) {
+                LOGGER.log(Level.SEVERE, "Could not check connection metadata", ex);
+            }
+        }
+        return useSetObject ? ParameterTypes.USE_SET_OBJECT : sqlTypeToUse;
+    }
+
     private static void setValue(PreparedStatement ps, int paramIndex, int sqlType, String typeName,
         Integer scale, Object inValue) throws SQLException {
 
-        if (inValue instanceof SqlValue) {
-            ((SqlValue) inValue).setValue(ps, paramIndex);
-        } else if (sqlType == Types.VARCHAR || sqlType == Types.LONGVARCHAR || (sqlType == Types.CLOB && isStringValue(inValue.getClass()))) {
-            ps.setString(paramIndex, inValue.toString());
+        ParameterBinders.getBinder(inValue.getClass(), sqlType).bind(ps, paramIndex, inValue, sqlType, scale);
+    }
+
+    private static final ParameterBinder SQL_VALUE_BINDER = (ps, paramIndex, value, sqlType, scale) -> ((SqlValue) value).setValue(ps, paramIndex);
+
+    private static final ParameterBinder STRING_BINDER = (ps, paramIndex, value, sqlType, scale) -> ps.setString(paramIndex, value.toString());
+
+    private static final ParameterBinder BIG_DECIMAL_BINDER = (ps, paramIndex, value, sqlType, scale) -> ps.setBigDecimal(paramIndex, (BigDecimal) value);
+
+    private static final ParameterBinder NUMERIC_BINDER = (ps, paramIndex, value, sqlType, scale) -> {
+        if (scale != null) {
+            ps.setObject(paramIndex, value, sqlType, scale);
+        } else {
+            ps.setObject(paramIndex, value, sqlType);
+        }
+    };
+
+    private static final ParameterBinder SQL_DATE_BINDER = (ps, paramIndex, value, sqlType, scale) -> ps.setDate(paramIndex, (java.sql.Date) value);
+
+    private static final ParameterBinder DATE_AS_DATE_BINDER = (ps, paramIndex, value, sqlType, scale) ->
+        ps.setDate(paramIndex, new java.sql.Date(((java.util.Date) value).getTime()));
+
+    private static final ParameterBinder CALENDAR_AS_DATE_BINDER = (ps, paramIndex, value, sqlType, scale) -> {
+        Calendar cal = (Calendar) value;
+        ps.setDate(paramIndex, new java.sql.Date(cal.getTime().getTime()), cal);
+    };
+
+    private static final ParameterBinder SQL_TIME_BINDER = (ps, paramIndex, value, sqlType, scale) -> ps.setTime(paramIndex, (java.sql.Time) value);
+
+    private static final ParameterBinder DATE_AS_TIME_BINDER = (ps, paramIndex, value, sqlType, scale) ->
+        ps.setTime(paramIndex, new java.sql.Time(((java.util.Date) value).getTime()));
+
+    private static final ParameterBinder CALENDAR_AS_TIME_BINDER = (ps, paramIndex, value, sqlType, scale) -> {
+        Calendar cal = (Calendar) value;
+        ps.setTime(paramIndex, new java.sql.Time(cal.getTime().getTime()), cal);
+    };
+
+    private static final ParameterBinder SQL_TIMESTAMP_BINDER = (ps, paramIndex, value, sqlType, scale) -> ps.setTimestamp(paramIndex, (java.sql.Timestamp) value);
+
+    private static final ParameterBinder DATE_AS_TIMESTAMP_BINDER = (ps, paramIndex, value, sqlType, scale) ->
+        ps.setTimestamp(paramIndex, new java.sql.Timestamp(((java.util.Date) value).getTime()));
+
+    private static final ParameterBinder CALENDAR_AS_TIMESTAMP_BINDER = (ps, paramIndex, value, sqlType, scale) -> {
+        Calendar cal = (Calendar) value;
+        ps.setTimestamp(paramIndex, new java.sql.Timestamp(cal.getTime().getTime()), cal);
+    };
+
+    private static final ParameterBinder INSTANT_AS_TIMESTAMP_BINDER = (ps, paramIndex, value, sqlType, scale) ->
+        ps.setTimestamp(paramIndex, Timestamp.from((Instant) value));
+
+    private static final ParameterBinder OBJECT_BINDER = (ps, paramIndex, value, sqlType, scale) -> ps.setObject(paramIndex, value);
+
+    private static final ParameterBinder TYPED_OBJECT_BINDER = (ps, paramIndex, value, sqlType, scale) -> ps.setObject(paramIndex, value, sqlType);
+
+    /**
+     * Resolve the built-in binder for values of the given class. The method used is based on the SQL type
+     * of the parameter and we can handle complex types like arrays and LOBs.
+     * <p>
+     * Called once per value class and SQL type by {@link ParameterBinders}, which caches the result.
+     * @param valueType the class of the value
+     * @param sqlType the SQL type of the parameter
+     * @return the binder, never {@code null}
+     */
+    static ParameterBinder getDefaultBinder(Class<?> valueType, int sqlType) {
+        if (SqlValue.class.isAssignableFrom(valueType)) {
+            return SQL_VALUE_BINDER;
+        } else if (sqlType == Types.VARCHAR || sqlType == Types.LONGVARCHAR || (sqlType == Types.CLOB && isStringValue(valueType))) {
+            return STRING_BINDER;
         } else if (sqlType == Types.DECIMAL || sqlType == Types.NUMERIC) {
-            if (inValue instanceof BigDecimal) {
-                ps.setBigDecimal(paramIndex, (BigDecimal) inValue);
-            } else if (scale != null) {
-                ps.setObject(paramIndex, inValue, sqlType, scale);
-            } else {
-                ps.setObject(paramIndex, inValue, sqlType);
+            if (BigDecimal.class.isAssignableFrom(valueType)) {
+                return BIG_DECIMAL_BINDER;
             }
+            return NUMERIC_BINDER;
         } else if (sqlType == Types.DATE) {
-            if (inValue instanceof java.util.Date) {
-                if (inValue instanceof java.sql.Date) {
-                    ps.setDate(paramIndex, (java.sql.Date) inValue);
-                } else {
-                    ps.setDate(paramIndex, new java.sql.Date(((java.util.Date) inValue).getTime()));
-                }
-            } else if (inValue instanceof Calendar) {
-                Calendar cal = (Calendar) inValue;
-                ps.setDate(paramIndex, new java.sql.Date(cal.getTime().getTime()), cal);
-            } else {
-                ps.setObject(paramIndex, inValue, Types.DATE);
+            if (java.sql.Date.class.isAssignableFrom(valueType)) {
+                return SQL_DATE_BINDER;
+            } else if (java.util.Date.class.isAssignableFrom(valueType)) {
+                return DATE_AS_DATE_BINDER;
+            } else if (Calendar.class.isAssignableFrom(valueType)) {
+                return CALENDAR_AS_DATE_BINDER;
             }
+            // java.time values are bound natively by the setObject call with SQL type specified
+            return TYPED_OBJECT_BINDER;
         } else if (sqlType == Types.TIME) {
-            if (inValue instanceof java.util.Date) {
-                if (inValue instanceof java.sql.Time) {
-                    ps.setTime(paramIndex, (java.sql.Time) inValue);
-                } else {
-                    ps.setTime(paramIndex, new java.sql.Time(((java.util.Date) inValue).getTime()));
-                }
-            } else if (inValue instanceof Calendar) {
-                Calendar cal = (Calendar) inValue;
-                ps.setTime(paramIndex, new java.sql.Time(cal.getTime().getTime()), cal);
-            } else {
-                ps.setObject(paramIndex, inValue, Types.TIME);
+            if (java.sql.Time.class.isAssignableFrom(valueType)) {
+                return SQL_TIME_BINDER;
+            } else if (java.util.Date.class.isAssignableFrom(valueType)) {
+                return DATE_AS_TIME_BINDER;
+            } else if (Calendar.class.isAssignableFrom(valueType)) {
+                return CALENDAR_AS_TIME_BINDER;
             }
+            return TYPED_OBJECT_BINDER;
         } else if (sqlType == Types.TIMESTAMP) {
-            if (inValue instanceof java.util.Date) {
-                if (inValue instanceof java.sql.Timestamp) {
-                    ps.setTimestamp(paramIndex, (java.sql.Timestamp) inValue);
-                } else {
-                    ps.setTimestamp(paramIndex, new java.sql.Timestamp(((java.util.Date) inValue).getTime()));
-                }
-            } else if (inValue instanceof Calendar) {
-                Calendar cal = (Calendar) inValue;
-                ps.setTimestamp(paramIndex, new java.sql.Timestamp(cal.getTime().getTime()), cal);
-            } else {
-                ps.setObject(paramIndex, inValue, Types.TIMESTAMP);
+            if (java.sql.Timestamp.class.isAssignableFrom(valueType)) {
+                return SQL_TIMESTAMP_BINDER;
+            } else if (java.util.Date.class.isAssignableFrom(valueType)) {
+                return DATE_AS_TIMESTAMP_BINDER;
+            } else if (Calendar.class.isAssignableFrom(valueType)) {
+                return CALENDAR_AS_TIMESTAMP_BINDER;
+            } else if (valueType == Instant.class) {
+                return INSTANT_AS_TIMESTAMP_BINDER;
             }
+            return TYPED_OBJECT_BINDER;
         } else if (sqlType == OliveUtils.TYPE_UNKNOWN) {
-            if (isStringValue(inValue.getClass())) {
-                ps.setString(paramIndex, inValue.toString());
-            } else if (isDateValue(inValue.getClass())) {
-                ps.setTimestamp(paramIndex, new java.sql.Timestamp(((java.util.Date) inValue).getTime()));
-            } else if (inValue instanceof Calendar) {
-                Calendar cal = (Calendar) inValue;
-                ps.setTimestamp(paramIndex, new java.sql.Timestamp(cal.getTime().getTime()), cal);
-            } else {
-                // Fall back to generic setObject call without SQL type specified.
-                ps.setObject(paramIndex, inValue);
+            if (isStringValue(valueType)) {
+                return STRING_BINDER;
+            } else if (isDateValue(valueType)) {
+                return DATE_AS_TIMESTAMP_BINDER;
+            } else if (Calendar.class.isAssignableFrom(valueType)) {
+                return CALENDAR_AS_TIMESTAMP_BINDER;
+            } else if (isJavaTimeValue(valueType)) {
+                // JDBC 4.2 drivers bind java.time values natively, without a java.sql type in between
+                return OBJECT_BINDER;
+            } else if (valueType == Instant.class) {
+                return INSTANT_AS_TIMESTAMP_BINDER;
             }
-        } else {
-            // TODO add blob clob etc?
-            // Fall back to generic setObject call with SQL type specified.
-            ps.setObject(paramIndex, inValue, sqlType);
+            // Fall back to generic setObject call without SQL type specified,
+            // which binds a UUID natively on drivers that support it.
+            return OBJECT_BINDER;
         }
+        // TODO add blob clob etc?
+        // Fall back to generic setObject call with SQL type specified.
+        return TYPED_OBJECT_BINDER;
+    }
+
+    /**
+     * Check whether the given value is one of the java.time types JDBC 4.2 drivers bind natively.
+     */
+    private static boolean isJavaTimeValue(Class<?> inValueType) {
+        return inValueType == LocalDate.class || inValueType == LocalDateTime.class || inValueType == LocalTime.class
+            || inValueType == OffsetDateTime.class || inValueType == OffsetTime.class;
     }
 
     /**
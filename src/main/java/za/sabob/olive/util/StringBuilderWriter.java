@@ -30,7 +30,7 @@ import java.io.*;
  * @version $Id$
  * @since 2.0
  */
-class StringBuilderWriter extends Writer implements Serializable {
+public class StringBuilderWriter extends Writer implements Serializable {
 
     private final StringBuilder builder;
 
@@ -0,0 +1,83 @@
+package za.sabob.olive.jdbc.leak;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.config.*;
+import za.sabob.olive.jdbc.context.*;
+import za.sabob.olive.metrics.*;
+
+public class ConnectionLeakDetectorTest extends HSQLDBBaseTest {
+
+    @AfterMethod
+    public void afterMethod() {
+        JDBCConfig.setConnectionLeakDetector( null );
+        Metrics.setListener( null );
+    }
+
+    @Test
+    public void testTrackRootContexts() {
+        ConnectionLeakDetector detector = new ConnectionLeakDetector( 1, TimeUnit.HOURS );
+        JDBCConfig.setConnectionLeakDetector( detector );
+
+        OliveMetrics metrics = new OliveMetrics();
+        Metrics.setListener( metrics );
+
+        JDBCContext ctx = JDBC.beginTransaction( ds );
+        JDBCContext child = JDBC.beginOperation( ds );
+
+        // Only the root context holds the connection
+        Assert.assertEquals( detector.getOpenContextCount( ds ), 1 );
+        Assert.assertEquals( metrics.getOpenContexts( ds ), 1 );
+
+        OpenContext open = detector.getOpenContexts().iterator().next();
+        Assert.assertSame( open.getContext(), ctx );
+        Assert.assertNotNull( open.getAcquisitionStack() );
+        Assert.assertTrue( detector.findLeaks().isEmpty() );
+
+        JDBC.cleanupOperation( child );
+        Assert.assertEquals( detector.getOpenContextCount( ds ), 1 );
+
+        JDBC.cleanupTransaction( ctx );
+        Assert.assertTrue( ctx.isClosed() );
+        Assert.assertEquals( detector.getOpenContextCount( ds ), 0 );
+        Assert.assertEquals( metrics.getOpenContexts( ds ), 0 );
+        Assert.assertEquals( metrics.getConnectionHeldTime().getCount(), 1 );
+    }
+
+    @Test
+    public void testSweeperReportsLeakOnce() throws Exception {
+        CountDownLatch latch = new CountDownLatch( 1 );
+        List<OpenContext> leaks = new CopyOnWriteArrayList<>();
+
+        ConnectionLeakDetector detector = new ConnectionLeakDetector( 20, TimeUnit.MILLISECONDS, 0 ) {
+            @Override
+            protected void onLeak( OpenContext open ) {
+                leaks.add( open );
+                latch.countDown();
+            }
+        };
+        JDBCConfig.setConnectionLeakDetector( detector );
+
+        JDBCContext ctx = JDBC.beginOperation( ds );
+
+        try ( ConnectionLeakDetector sweeper = detector ) {
+            sweeper.start();
+            Assert.assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+
+            // Already reported leaks are not reported again
+            Assert.assertEquals( detector.sweep(), 0 );
+
+        } finally {
+            JDBC.cleanupOperation( ctx );
+        }
+
+        Assert.assertEquals( leaks.size(), 1 );
+        Assert.assertNull( leaks.get( 0 ).getAcquisitionStack() );
+        Assert.assertEquals( detector.getLeakCount(), 1 );
+        Assert.assertEquals( detector.getOpenContextCount( ds ), 0 );
+    }
+}
@@ -0,0 +1,87 @@
+package za.sabob.olive.loader;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.util.*;
+
+public class ArchiveResourceLoaderTest {
+
+    private Path root;
+
+    @BeforeMethod
+    public void beforeMethod() throws Exception {
+        root = Files.createTempDirectory( "olive-archive" );
+        Files.createDirectories( root.resolve( "person/where" ) );
+        write( "person/select-person.sql", "SELECT * FROM person WHERE name = :name -- \u00e9" );
+        write( "person/where/by-id.sql", "WHERE id = :id" );
+        write( "person/readme.txt", "not packed" );
+    }
+
+    @Test
+    public void testContent() throws Exception {
+        ArchiveResourceLoader loader = new ArchiveResourceLoader( pack() );
+
+        Assert.assertEquals( loader.getResourceContent( "/person/select-person.sql" ).toString(), "SELECT * FROM person WHERE name = :name -- \u00e9" );
+        Assert.assertEquals( OliveUtils.toString( loader.getResourceStream( "/person/where/by-id.sql" ) ), "WHERE id = :id" );
+        Assert.assertEquals( loader.getLastModified( "/person/where/by-id.sql" ), -1 );
+        Assert.assertEquals( loader.getLastModified( "/person/readme.txt" ), -1 );
+
+        Assert.assertEquals( new ArrayList<String>( loader.getResourceNames( "/person" ) ),
+                             Arrays.asList( "/person/select-person.sql", "/person/where/by-id.sql" ) );
+        Assert.assertEquals( loader.getResourceNames( "/person/where/" ).size(), 1 );
+
+        Olive olive = new Olive( loader );
+        Assert.assertEquals( olive.loadParsedSql( "/person/select-person.sql" ).getParameterNames().get( 0 ), "name" );
+    }
+
+    @Test
+    public void testReproducible() throws Exception {
+        byte[] archive = packBytes();
+        Thread.sleep( 5 );
+
+        Assert.assertEquals( packBytes(), archive );
+    }
+
+    @Test
+    public void testMain() throws Exception {
+        Path resources = Files.createTempDirectory( "olive-archive" );
+        Files.write( resources.resolve( "search.mustache" ), "SELECT * FROM person {{>where}}".getBytes( StandardCharsets.UTF_8 ) );
+        Path archive = Files.createTempDirectory( "olive-archive" ).resolve( "build/olive-sql.archive" );
+
+        ArchiveResourceLoader.main( new String[] { archive.toString(), root.toString(), resources.toString(), root.resolve( "missing" ).toString() } );
+
+        ArchiveResourceLoader loader = new ArchiveResourceLoader( archive );
+        Assert.assertEquals( new ArrayList<String>( loader.getResourceNames( "/" ) ),
+                             Arrays.asList( "/person/select-person.sql", "/person/where/by-id.sql", "/search.mustache" ) );
+        Assert.assertEquals( loader.getResourceContent( "/search.mustache" ).toString(), "SELECT * FROM person {{>where}}" );
+    }
+
+    @Test( expectedExceptions = IllegalStateException.class )
+    public void testMissingResource() throws Exception {
+        new ArchiveResourceLoader( pack() ).getResourceContent( "/person/readme.txt" );
+    }
+
+    @Test( expectedExceptions = IllegalStateException.class )
+    public void testNotAnArchive() {
+        new ArchiveResourceLoader( new ByteArrayInputStream( "SELECT 1".getBytes( StandardCharsets.UTF_8 ) ) );
+    }
+
+    private InputStream pack() {
+        return new ByteArrayInputStream( packBytes() );
+    }
+
+    private byte[] packBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArchiveResourceLoader.writeArchive( root, out, ".sql", ".mustache" );
+        return out.toByteArray();
+    }
+
+    private void write( String name, String content ) throws Exception {
+        Files.write( root.resolve( name ), content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
@@ -0,0 +1,80 @@
+package za.sabob.olive.loader;
+
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.util.*;
+
+public class MappedFileResourceLoaderTest {
+
+    private Path root;
+
+    @BeforeMethod
+    public void beforeMethod() throws Exception {
+        root = Files.createTempDirectory( "olive-mapped" );
+        Files.createDirectories( root.resolve( "person" ) );
+        write( "person/select-person.sql", "SELECT * FROM person WHERE name = :name -- \u00e9" );
+    }
+
+    @Test
+    public void testContent() {
+        MappedFileResourceLoader loader = new MappedFileResourceLoader( root );
+
+        CharSequence content = loader.getResourceContent( "/person/select-person.sql" );
+        Assert.assertEquals( content.toString(), "SELECT * FROM person WHERE name = :name -- \u00e9" );
+        Assert.assertEquals( content.length(), 44 );
+        Assert.assertEquals( content.charAt( 43 ), '\u00e9' );
+
+        Assert.assertEquals( OliveUtils.toString( loader.getResourceStream( "/person/select-person.sql" ) ), content.toString() );
+
+        Olive olive = new Olive( loader );
+        Assert.assertEquals( olive.loadParsedSql( "/person/select-person.sql" ).getParameterNames().get( 0 ), "name" );
+    }
+
+    @Test
+    public void testContentReusedUntilFileChanges() throws Exception {
+        MappedFileResourceLoader loader = new MappedFileResourceLoader( root );
+
+        CharSequence content = loader.getResourceContent( "/person/select-person.sql" );
+        Assert.assertSame( loader.getResourceContent( "/person/select-person.sql" ), content );
+
+        long lastModified = loader.getLastModified( "/person/select-person.sql" );
+        Assert.assertTrue( lastModified > 0 );
+
+        write( "person/select-person.sql", "SELECT * FROM person" );
+        Files.setLastModifiedTime( root.resolve( "person/select-person.sql" ), FileTime.fromMillis( lastModified + 2000 ) );
+
+        Assert.assertEquals( loader.getLastModified( "/person/select-person.sql" ), lastModified + 2000 );
+        Assert.assertEquals( loader.getResourceContent( "/person/select-person.sql" ).toString(), "SELECT * FROM person" );
+    }
+
+    @Test
+    public void testTruncatedFile() throws Exception {
+        MappedFileResourceLoader loader = new MappedFileResourceLoader( root );
+
+        CharSequence content = loader.getResourceContent( "/person/select-person.sql" );
+
+        // Content is decoded when loaded, so it does not read from a mapping which no longer covers the file
+        write( "person/select-person.sql", "" );
+        Assert.assertEquals( content.toString(), "SELECT * FROM person WHERE name = :name -- \u00e9" );
+        Assert.assertEquals( content.charAt( 43 ), '\u00e9' );
+        Assert.assertEquals( loader.getResourceContent( "/person/select-person.sql" ).toString(), "" );
+    }
+
+    @Test( expectedExceptions = IllegalStateException.class )
+    public void testMissingResource() {
+        new MappedFileResourceLoader( root ).getResourceContent( "/person/missing.sql" );
+    }
+
+    @Test
+    public void testMissingResourceStamp() {
+        Assert.assertEquals( new MappedFileResourceLoader( root ).getLastModified( "/person/missing.sql" ), -1 );
+    }
+
+    private void write( String name, String content ) throws Exception {
+        Files.write( root.resolve( name ), content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
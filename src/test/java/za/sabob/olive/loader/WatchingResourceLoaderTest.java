@@ -0,0 +1,141 @@
+package za.sabob.olive.loader;
+
+import java.lang.ref.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.ps.*;
+
+public class WatchingResourceLoaderTest {
+
+    private Path root;
+
+    private WatchingResourceLoader loader;
+
+    @BeforeMethod
+    public void beforeMethod() throws Exception {
+        root = Files.createTempDirectory( "olive-watch" );
+        Files.createDirectories( root.resolve( "person" ) );
+        write( "person/select-person.sql", "SELECT * FROM person WHERE id = :id" );
+        write( "person/where.sql", "WHERE name = :name" );
+        write( "person/search-person.sql", "SELECT * FROM person {{>/person/where.sql}}" );
+
+        loader = new WatchingResourceLoader( root );
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        loader.close();
+    }
+
+    @Test
+    public void testChangedFileIsReloaded() throws Exception {
+        Olive olive = new Olive( loader );
+        Assert.assertTrue( olive.isCaching() );
+
+        ParsedSql parsedSql = olive.loadParsedSql( "/person/select-person.sql" );
+        Assert.assertSame( olive.loadParsedSql( "/person/select-person.sql" ), parsedSql );
+
+        write( "person/select-person.sql", "SELECT * FROM person WHERE name = :name" );
+
+        waitFor( () -> olive.loadParsedSql( "/person/select-person.sql" ) != parsedSql );
+        Assert.assertEquals( olive.loadParsedSql( "/person/select-person.sql" ).getParameterNames(), Arrays.asList( "name" ) );
+    }
+
+    @Test
+    public void testChangedPartialEvictsTemplate() throws Exception {
+        Olive olive = new Olive( loader );
+
+        Map data = new HashMap();
+        Assert.assertEquals( olive.executeTemplateFile( "/person/search-person.sql", data ), "SELECT * FROM person WHERE name = :name" );
+
+        write( "person/where.sql", "WHERE id = :id" );
+
+        waitFor( () -> olive.executeTemplateFile( "/person/search-person.sql", data ).endsWith( ":id" ) );
+        Assert.assertEquals( olive.executeTemplateFile( "/person/search-person.sql", data ), "SELECT * FROM person WHERE id = :id" );
+    }
+
+    @Test
+    public void testLoaderDoesNotKeepOliveReachable() throws Exception {
+        WeakReference<Olive> olive = new WeakReference<>( new Olive( loader ) );
+
+        for ( int i = 0; i < 50 && olive.get() != null; i++ ) {
+            System.gc();
+            Thread.sleep( 20 );
+        }
+        Assert.assertNull( olive.get() );
+
+        // The listener of the collected instance removes itself
+        loader.fireResourceChanged( "/person/select-person.sql" );
+    }
+
+    @Test
+    public void testDataPartialInTemplateFile() throws Exception {
+        write( "person/filter-person.sql", "SELECT * FROM person {{>filter}}" );
+        Olive olive = new Olive( loader );
+
+        Map data = new HashMap();
+        data.put( "filter", "WHERE id = :id" );
+        Assert.assertEquals( olive.executeTemplateFile( "/person/filter-person.sql", data ), "SELECT * FROM person WHERE id = :id" );
+    }
+
+    @Test
+    public void testInvalidate() {
+        Mode mode = Olive.getMode();
+
+        try {
+            Olive olive = new Olive( Mode.PRODUCTION, new FileSystemResourceLoader( root ) );
+            olive.clearCache();
+
+            Assert.assertEquals( olive.loadContent( "/person/where.sql" ), "WHERE name = :name" );
+            Assert.assertSame( olive.loadContent( "/person/where.sql" ), olive.loadContent( "/person/where.sql" ) );
+
+            String content = olive.loadContent( "/person/where.sql" );
+            olive.invalidate( "/person/where.sql" );
+            Assert.assertNotSame( olive.loadContent( "/person/where.sql" ), content );
+
+        } finally {
+            new Olive( mode );
+        }
+    }
+
+    @Test
+    public void testLoadersDoNotShareCache() throws Exception {
+        Path otherRoot = Files.createTempDirectory( "olive-watch" );
+        Files.createDirectories( otherRoot.resolve( "person" ) );
+        Files.write( otherRoot.resolve( "person/where.sql" ), "WHERE id = :id".getBytes( StandardCharsets.UTF_8 ) );
+
+        try ( WatchingResourceLoader otherLoader = new WatchingResourceLoader( otherRoot ) ) {
+            Olive olive = new Olive( loader );
+            Olive otherOlive = new Olive( otherLoader );
+
+            Assert.assertEquals( olive.loadContent( "/person/where.sql" ), "WHERE name = :name" );
+            Assert.assertEquals( otherOlive.loadContent( "/person/where.sql" ), "WHERE id = :id" );
+            Assert.assertEquals( olive.loadParsedSql( "/person/where.sql" ).getParameterNames(), Arrays.asList( "name" ) );
+            Assert.assertEquals( otherOlive.loadParsedSql( "/person/where.sql" ).getParameterNames(), Arrays.asList( "id" ) );
+        }
+    }
+
+    @Test( expectedExceptions = IllegalArgumentException.class )
+    public void testNameOutsideRoot() {
+        loader.getResourceStream( "/../outside.sql" );
+    }
+
+    private void write( String name, String content ) throws Exception {
+        Files.write( root.resolve( name ), content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private void waitFor( java.util.function.BooleanSupplier condition ) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+
+        while ( !condition.getAsBoolean() ) {
+            if ( System.currentTimeMillis() > deadline ) {
+                Assert.fail( "Change was not picked up" );
+            }
+            Thread.sleep( 50 );
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package za.sabob.olive.metrics;
+
+import java.lang.management.*;
+import java.sql.*;
+import java.util.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+import javax.sql.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.context.*;
+import za.sabob.olive.ps.*;
+import za.sabob.olive.util.*;
+
+public class MetricsTest {
+
+    @AfterMethod
+    public void afterMethod() {
+        Metrics.setListener( null );
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for ( long value : new long[] { 0, 1, 7, 8, 9, 15, 16, 1000, 123456789L, Long.MAX_VALUE } ) {
+            int bucket = Histogram.bucket( value );
+            Assert.assertTrue( Histogram.upperBound( bucket ) >= value, "value " + value );
+            Assert.assertTrue( bucket == 0 || Histogram.upperBound( bucket - 1 ) < value, "value " + value );
+        }
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals( histogram.getValueAtPercentile( 99 ), 0 );
+
+        for ( int i = 1; i <= 1000; i++ ) {
+            histogram.record( i * 1000L );
+        }
+
+        Assert.assertEquals( histogram.getCount(), 1000 );
+        Assert.assertEquals( histogram.getMax(), 1000000 );
+        Assert.assertEquals( histogram.getMean(), 500500.0, 0.001 );
+
+        long p50 = histogram.getValueAtPercentile( 50 );
+        Assert.assertTrue( p50 >= 500000 && p50 <= 500000 * 1.125, "p50 " + p50 );
+
+        long p99 = histogram.getValueAtPercentile( 99 );
+        Assert.assertTrue( p99 >= 990000 && p99 <= 1000000, "p99 " + p99 );
+
+        histogram.reset();
+        Assert.assertEquals( histogram.getCount(), 0 );
+        Assert.assertEquals( histogram.getMax(), 0 );
+    }
+
+    @Test
+    public void testDisabled() {
+        Assert.assertFalse( Metrics.isEnabled() );
+        Assert.assertEquals( Metrics.start(), 0 );
+    }
+
+    @Test
+    public void testListener() {
+        OliveMetrics metrics = new OliveMetrics();
+        Metrics.setListener( metrics );
+
+        long start = Metrics.start();
+        Metrics.statementExecuted( null, start );
+        Metrics.rowsMapped( null, start, 5 );
+        Metrics.rowsMapped( null, start, 3 );
+        Metrics.committed( start );
+        Metrics.rolledBack( start );
+
+        // A measurement started while disabled is ignored
+        Metrics.connectionAcquired( 0 );
+
+        Assert.assertEquals( metrics.getExecuteTime().getCount(), 1 );
+        Assert.assertEquals( metrics.getMappingTime().getCount(), 2 );
+        Assert.assertEquals( metrics.getRowsMapped(), 8 );
+        Assert.assertEquals( metrics.getCommits(), 1 );
+        Assert.assertEquals( metrics.getRollbacks(), 1 );
+        Assert.assertEquals( metrics.getTransactionTime().getCount(), 2 );
+        Assert.assertEquals( metrics.getConnectionAcquireTime().getCount(), 0 );
+
+        metrics.reset();
+        Assert.assertEquals( metrics.getRowsMapped(), 0 );
+    }
+
+    @Test
+    public void testJdbcOperations() {
+        final List<String> events = new ArrayList<String>();
+        MetricsListener recorder = new MetricsListener() {
+            @Override
+            public void onStatementExecuted( String name, long nanos ) {
+                events.add( "executed:" + name );
+            }
+
+            @Override
+            public void onRowsMapped( String name, long nanos, int rows ) {
+                events.add( "mapped:" + name + ":" + rows );
+            }
+
+            @Override
+            public void onCommit( long nanos ) {
+                events.add( "commit" );
+            }
+
+            @Override
+            public void onRollback( long nanos ) {
+                events.add( "rollback" );
+            }
+        };
+
+        DataSource ds = HSQLDBTestUtils.createDS();
+
+        try {
+            HSQLDBTestUtils.createPersonTable( ds );
+            Metrics.setListener( recorder );
+
+            ParsedSql insert = Olive.parseSql( "insert-person", "insert into person (name) values (:name)" );
+            ParsedSql select = Olive.parseSql( "select-persons", "select name from person where name = :name" );
+
+            JDBC.inTransaction( ds, ctx -> {
+                PreparedStatement ps = OliveUtils.prepareStatement( ctx, insert, new SqlParams().set( "name", "bob" ) );
+                Assert.assertEquals( OliveUtils.executeUpdate( ps ), 1 );
+            } );
+
+            JDBCContext ctx = JDBC.beginTransaction( ds );
+            try {
+                PreparedStatement ps = OliveUtils.prepareStatement( ctx, insert, new SqlParams().set( "name", "john" ) );
+                OliveUtils.executeUpdate( ps );
+                JDBC.rollbackTransaction( ctx );
+
+            } finally {
+                JDBC.cleanupTransaction( ctx );
+            }
+
+            List<String> names = JDBC.inTransaction( ds, c -> {
+                PreparedStatement ps = OliveUtils.prepareStatement( c, select, new SqlParams().set( "name", "bob" ) );
+                return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getString( "name" ) );
+            } );
+
+            Assert.assertEquals( names, Arrays.asList( "bob" ) );
+            Assert.assertEquals( events, Arrays.asList( "executed:insert-person", "commit",
+                                                        "executed:insert-person", "rollback",
+                                                        "executed:select-persons", "mapped:select-persons:1", "commit" ) );
+
+        } finally {
+            Metrics.setListener( null );
+            HSQLDBTestUtils.shutdown( ds );
+        }
+    }
+
+    @Test
+    public void testComposite() {
+        final List<String> names = new ArrayList<String>();
+        MetricsListener recorder = new MetricsListener() {
+            @Override
+            public void onSqlParsed( String name, long nanos ) {
+                names.add( "parsed:" + name );
+            }
+
+            @Override
+            public void onTemplateRendered( String name, long nanos ) {
+                names.add( "rendered:" + name );
+            }
+        };
+
+        OliveMetrics metrics = new OliveMetrics();
+        Metrics.setListener( new CompositeMetricsListener( metrics, recorder ) );
+
+        Olive.parseSql( "person", "select * from person where id = :id" );
+        new Olive().executeTemplate( "select * from {{table}}", Collections.singletonMap( "table", "person" ) );
+
+        Assert.assertEquals( names, Arrays.asList( "parsed:person", "rendered:null" ) );
+        Assert.assertEquals( metrics.getParseTime().getCount(), 1 );
+        Assert.assertEquals( metrics.getRenderTime().getCount(), 1 );
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        OliveMetrics metrics = new OliveMetrics();
+        metrics.onRowsMapped( null, 2000, 10 );
+        metrics.register( "za.sabob.olive:type=Metrics,name=test" );
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( "za.sabob.olive:type=Metrics,name=test" );
+
+            Assert.assertEquals( server.getAttribute( name, "RowsMapped" ), 10L );
+
+            CompositeData mapping = (CompositeData) server.getAttribute( name, "MappingTime" );
+            Assert.assertEquals( mapping.get( "count" ), 1L );
+            Assert.assertEquals( mapping.get( "max" ), 2000L );
+
+        } finally {
+            metrics.unregister();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package za.sabob.olive.metrics;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.ps.*;
+import za.sabob.olive.util.*;
+
+public class SlowQueryLogTest extends HSQLDBBaseTest {
+
+    @BeforeMethod
+    public void beforeMethod() {
+        JDBC.inTransaction( ds, ctx -> {
+            Statement stmt = OliveUtils.createStatement( ctx );
+            stmt.executeUpdate( "CREATE TABLE IF NOT EXISTS slow_person (name varchar(100))" );
+            stmt.executeUpdate( "DELETE FROM slow_person" );
+
+            for ( String name : Arrays.asList( "Bob", "Bob", "John" ) ) {
+                PreparedStatement ps = OliveUtils.prepareStatement( ctx, "insert into slow_person (name) values (:name)", new SqlParams().set( "name", name ) );
+                OliveUtils.executeUpdate( ps );
+            }
+        } );
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        Metrics.setSlowQueryLog( null );
+    }
+
+    @Test
+    public void testCapture() {
+        SlowQueryLog log = new SlowQueryLog( 10, 0, TimeUnit.MILLISECONDS );
+        Metrics.setSlowQueryLog( log );
+
+        ParsedSql parsedSql = OliveUtils.parseSql( "SELECT * FROM slow_person WHERE name IN (:names) AND name <> :name" );
+        parsedSql.setName( "/sql/person.sql#findPersons" );
+
+        SqlParams params = new SqlParams();
+        params.set( "names", Arrays.asList( "Bob", "John", "Mary" ) );
+        params.set( "name", "John" );
+
+        List<String> names = JDBC.inTransaction( ds, ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, parsedSql, params );
+            return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getString( "name" ) );
+        } );
+        Assert.assertEquals( names, Arrays.asList( "Bob", "Bob" ) );
+
+        List<SlowQuery> queries = log.getSlowQueries();
+        Assert.assertEquals( queries.size(), 1 );
+
+        SlowQuery query = queries.get( 0 );
+        Assert.assertEquals( query.getName(), "/sql/person.sql#findPersons" );
+        Assert.assertEquals( query.getSql(), "SELECT * FROM slow_person WHERE name IN (?, ?, ?) AND name <> ?" );
+        Assert.assertEquals( query.getParameterTypes(), Arrays.asList( "ArrayList[3]", "String" ) );
+        Assert.assertEquals( query.getRows(), 2 );
+    }
+
+    @Test
+    public void testPlainSql() {
+        SlowQueryLog log = new SlowQueryLog( 10, 0, TimeUnit.MILLISECONDS );
+        Metrics.setSlowQueryLog( log );
+
+        JDBC.inTransaction( ds, ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, "SELECT name FROM slow_person" );
+            return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rowNum );
+        } );
+
+        SlowQuery query = log.getSlowQueries().get( 0 );
+        Assert.assertNull( query.getName() );
+        Assert.assertEquals( query.getSql(), "SELECT name FROM slow_person" );
+        Assert.assertTrue( query.getParameterTypes().isEmpty() );
+        Assert.assertEquals( query.getRows(), 3 );
+    }
+
+    @Test
+    public void testThreshold() {
+        SlowQueryLog log = new SlowQueryLog( 10, 1, TimeUnit.HOURS );
+        Metrics.setSlowQueryLog( log );
+
+        JDBC.inTransaction( ds, ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, "SELECT name FROM slow_person" );
+            return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rowNum );
+        } );
+
+        Assert.assertTrue( log.getSlowQueries().isEmpty() );
+    }
+
+    @Test
+    public void testInterleavedStatements() {
+        SlowQueryLog log = new SlowQueryLog( 10, 0, TimeUnit.MILLISECONDS );
+        Metrics.setSlowQueryLog( log );
+
+        ParsedSql findBob = OliveUtils.parseSql( "SELECT name FROM slow_person WHERE name = :name" );
+        findBob.setName( "/sql/person.sql#findByName" );
+
+        JDBC.inTransaction( ds, ctx -> {
+            PreparedStatement first = OliveUtils.prepareStatement( ctx, findBob, new SqlParams().set( "name", "Bob" ) );
+            PreparedStatement second = OliveUtils.prepareStatement( ctx, "SELECT name FROM slow_person" );
+
+            OliveUtils.mapToList( first, ( rs, rowNum ) -> rowNum );
+            return OliveUtils.mapToList( second, ( rs, rowNum ) -> rowNum );
+        } );
+
+        // Slow queries are sorted by duration, so find them by their row count
+        List<SlowQuery> queries = log.getSlowQueries();
+        Assert.assertEquals( queries.size(), 2 );
+        queries.sort( ( q1, q2 ) -> Integer.compare( q1.getRows(), q2.getRows() ) );
+
+        SlowQuery second = queries.get( 1 );
+        Assert.assertNull( second.getName() );
+        Assert.assertEquals( second.getSql(), "SELECT name FROM slow_person" );
+        Assert.assertEquals( second.getRows(), 3 );
+
+        SlowQuery first = queries.get( 0 );
+        Assert.assertEquals( first.getName(), "/sql/person.sql#findByName" );
+        Assert.assertEquals( first.getSql(), "SELECT name FROM slow_person WHERE name = ?" );
+        Assert.assertEquals( first.getParameterTypes(), Arrays.asList( "String" ) );
+        Assert.assertEquals( first.getRows(), 2 );
+    }
+
+    @Test
+    public void testPreparedStatementForgottenWhenContextCloses() {
+        Metrics.setSlowQueryLog( new SlowQueryLog( 10, 0, TimeUnit.MILLISECONDS ) );
+
+        PreparedStatement[] statement = new PreparedStatement[1];
+
+        JDBC.inTransaction( ds, ctx -> {
+            statement[0] = OliveUtils.prepareStatement( ctx, "SELECT name FROM slow_person WHERE name = :name", new SqlParams().set( "name", "Bob" ) );
+            Assert.assertNotNull( Metrics.getPreparedInfo( statement[0] ) );
+        } );
+
+        Assert.assertNull( Metrics.getPreparedInfo( statement[0] ) );
+    }
+
+    @Test
+    public void testRingBufferKeepsLatest() {
+        SlowQueryLog log = new SlowQueryLog( 3, 0, TimeUnit.NANOSECONDS );
+
+        for ( int i = 1; i <= 5; i++ ) {
+            log.executed( null, i * 1000, i );
+        }
+
+        List<SlowQuery> queries = log.getSlowQueries();
+        Assert.assertEquals( log.getCount(), 5 );
+        Assert.assertEquals( queries.size(), 3 );
+        Assert.assertEquals( queries.get( 0 ).getRows(), 5 );
+        Assert.assertEquals( queries.get( 2 ).getRows(), 3 );
+
+        log.clear();
+        Assert.assertTrue( log.getSlowQueries().isEmpty() );
+    }
+}
@@ -0,0 +1,76 @@
+package za.sabob.olive.mustache;
+
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+
+public class DefaultCollectorTest {
+
+    @Test
+    public void testPublicGetterUsesGeneratedAccessor() throws Exception {
+        DefaultCollector collector = new DefaultCollector();
+
+        Assert.assertNotNull( collector.createAccessor( Bean.class.getMethod( "getName" ) ) );
+        Assert.assertNotNull( collector.createAccessor( Bean.class.getMethod( "getAge" ) ) );
+
+        Bean bean = new Bean();
+        Assert.assertEquals( collector.createFetcher( bean, "name" ).get( bean, "name" ), "Steve" );
+        Assert.assertEquals( collector.createFetcher( bean, "age" ).get( bean, "age" ), 21 );
+        Assert.assertEquals( collector.createFetcher( bean, "active" ).get( bean, "active" ), true );
+    }
+
+    @Test
+    public void testNonPublicGetterFallsBackToReflection() throws Exception {
+        DefaultCollector collector = new DefaultCollector();
+
+        Assert.assertNull( collector.createAccessor( HiddenBean.class.getDeclaredMethod( "getName" ) ) );
+
+        HiddenBean bean = new HiddenBean();
+        Assert.assertEquals( collector.createFetcher( bean, "name" ).get( bean, "name" ), "hidden" );
+    }
+
+    @Test
+    public void testTemplateOverBeansAndMaps() {
+        Template template = Mustache.compiler().compile( "{{name}} {{age}} {{#active}}yes{{/active}} {{named}}" );
+
+        Assert.assertEquals( template.execute( new Bean() ), "Steve 21 yes Bean Steve" );
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put( "name", "John" );
+        data.put( "age", 30 );
+        data.put( "active", false );
+        data.put( "named", "Map" );
+        Assert.assertEquals( template.execute( data ), "John 30  Map" );
+    }
+
+    public interface Named {
+
+        String getName();
+
+        default String getNamed() {
+            return "Bean " + getName();
+        }
+    }
+
+    public static class Bean implements Named {
+
+        public String getName() {
+            return "Steve";
+        }
+
+        public int getAge() {
+            return 21;
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+    }
+
+    static class HiddenBean {
+
+        String getName() {
+            return "hidden";
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package za.sabob.olive.mustache;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.domain.*;
+
+public class FetcherCacheTest {
+
+    @Test
+    public void testFetchersSharedAcrossTemplates() {
+        Mustache.Compiler compiler = Mustache.compiler();
+
+        Person person = new Person();
+        person.name = "Steve";
+
+        Template first = compiler.compile( "{{name}}" );
+        Template second = compiler.compile( "Hello {{name}}" );
+
+        Assert.assertEquals( first.execute( person ), "Steve" );
+
+        Mustache.FetcherCache cache = compiler.collector.createFetcherCache();
+        Mustache.VariableFetcher fetcher = cache.get( Person.class, "name" );
+        Assert.assertNotNull( fetcher );
+
+        Assert.assertEquals( second.execute( person ), "Hello Steve" );
+        Assert.assertSame( cache.get( Person.class, "name" ), fetcher );
+    }
+
+    @Test
+    public void testNamesPerClassAreBounded() {
+        ClassValueFetcherCache cache = new ClassValueFetcherCache( 2 );
+        Mustache.VariableFetcher fetcher = new Mustache.VariableFetcher() {
+            public Object get( Object ctx, String name ) {
+                return name;
+            }
+        };
+
+        cache.put( HashMap.class, "a", fetcher );
+        cache.put( HashMap.class, "b", fetcher );
+        cache.put( HashMap.class, "c", fetcher );
+
+        Assert.assertSame( cache.get( HashMap.class, "a" ), fetcher );
+        Assert.assertSame( cache.get( HashMap.class, "b" ), fetcher );
+        Assert.assertNull( cache.get( HashMap.class, "c" ) );
+
+        // other classes have their own bound
+        cache.put( TreeMap.class, "c", fetcher );
+        Assert.assertSame( cache.get( TreeMap.class, "c" ), fetcher );
+    }
+
+    @Test
+    public void testConcurrentRendering() throws Exception {
+        final Template template = Mustache.compiler().compile( "{{#people}}{{name}},{{/people}}" );
+
+        final Map<String, Object> data = new HashMap<String, Object>();
+        List<Person> people = new ArrayList<Person>();
+        for ( int i = 0; i < 10; i++ ) {
+            Person person = new Person();
+            person.name = "p" + i;
+            people.add( person );
+        }
+        data.put( "people", people );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for ( int i = 0; i < 100; i++ ) {
+                results.add( executor.submit( new Callable<String>() {
+                    public String call() {
+                        return template.execute( data );
+                    }
+                } ) );
+            }
+
+            for ( Future<String> result : results ) {
+                Assert.assertEquals( result.get(), "p0,p1,p2,p3,p4,p5,p6,p7,p8,p9," );
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
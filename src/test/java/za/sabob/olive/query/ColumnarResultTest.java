@@ -0,0 +1,77 @@
+package za.sabob.olive.query;
+
+import java.sql.*;
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.transaction.*;
+import za.sabob.olive.util.*;
+
+public class ColumnarResultTest extends HSQLDBBaseTest {
+
+    @BeforeClass( alwaysRun = true, dependsOnMethods = "beforeClass" )
+    public void createTable() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            Statement stmt = OliveUtils.createStatement( ctx );
+            stmt.executeUpdate( "CREATE TABLE IF NOT EXISTS sales (id bigint, region varchar(20), sale_year int, amount decimal(10, 2), units numeric(10))" );
+            stmt.executeUpdate( "INSERT INTO sales VALUES (1, 'north', 2019, 10.5, 3), (2, 'south', 2019, 20.25, NULL), "
+                + "(3, NULL, NULL, 1.0, 7), (4, 'north', 2020, 4.0, 1)" );
+        } );
+    }
+
+    @Test
+    public void testMapToColumns() {
+        ColumnarResult result = mapToColumns( "SELECT * FROM sales ORDER BY id", 1 );
+
+        Assert.assertEquals( result.getRowCount(), 4 );
+        Assert.assertEquals( result.getColumnCount(), 5 );
+        Assert.assertEquals( result.getColumnName( 2 ), "REGION" );
+        Assert.assertEquals( result.getColumnIndex( "amount" ), 4 );
+
+        Assert.assertEquals( result.getColumnType( "id" ), ColumnarResult.ColumnType.LONG );
+        Assert.assertEquals( result.getColumnType( "region" ), ColumnarResult.ColumnType.STRING );
+        Assert.assertEquals( result.getColumnType( "sale_year" ), ColumnarResult.ColumnType.INT );
+        Assert.assertEquals( result.getColumnType( "amount" ), ColumnarResult.ColumnType.DOUBLE );
+        Assert.assertEquals( result.getColumnType( "units" ), ColumnarResult.ColumnType.LONG );
+
+        Assert.assertEquals( result.getLongs( "id" ), new long[] { 1, 2, 3, 4 } );
+        Assert.assertEquals( result.getInts( "sale_year" ), new int[] { 2019, 2019, 0, 2020 } );
+        Assert.assertTrue( Arrays.equals( result.getDoubles( "amount" ), new double[] { 10.5, 20.25, 1.0, 4.0 } ) );
+        Assert.assertEquals( result.getLongs( "units" ), new long[] { 3, 0, 7, 1 } );
+
+        Assert.assertEquals( result.getDictionary( "region" ), new String[] { "north", "south" } );
+        Assert.assertEquals( result.getStringCodes( "region" ), new int[] { 0, 1, -1, 0 } );
+        Assert.assertEquals( result.getString( 2, 3 ), "north" );
+        Assert.assertNull( result.getString( 2, 2 ) );
+
+        Assert.assertTrue( result.isNull( 3, 2 ) );
+        Assert.assertFalse( result.isNull( 3, 1 ) );
+        Assert.assertTrue( result.isNull( 5, 1 ) );
+        Assert.assertTrue( result.isNull( 2, 2 ) );
+        Assert.assertFalse( result.isNull( 1, 0 ) );
+    }
+
+    @Test
+    public void testEmpty() {
+        ColumnarResult result = mapToColumns( "SELECT * FROM sales WHERE id < 0", 64 );
+
+        Assert.assertEquals( result.getRowCount(), 0 );
+        Assert.assertEquals( result.getLongs( 1 ).length, 0 );
+        Assert.assertEquals( result.getDictionary( 2 ).length, 0 );
+    }
+
+    @Test( expectedExceptions = IllegalArgumentException.class )
+    public void testWrongType() {
+        ColumnarResult result = mapToColumns( "SELECT * FROM sales WHERE id < 0", 64 );
+        result.getInts( "id" );
+    }
+
+    private ColumnarResult mapToColumns( String sql, int expectedRows ) {
+        return JDBC.inOperation( ds, ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, sql );
+            return OliveUtils.mapToColumns( ps, expectedRows );
+        } );
+    }
+}
@@ -0,0 +1,158 @@
+package za.sabob.olive.query;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.operation.*;
+import za.sabob.olive.jdbc.transaction.*;
+import za.sabob.olive.ps.*;
+import za.sabob.olive.util.*;
+
+public class QueryCacheTest extends HSQLDBBaseTest {
+
+    private final ParsedSql select = OliveUtils.parseSql( "SELECT count(*) FROM person WHERE name = :name" );
+
+    private final ParsedSql insert = OliveUtils.parseSql( "INSERT INTO person (name) VALUES (:name)" );
+
+    private final RowMapper<String> nameMapper = ( rs, rowNum ) -> rs.getString( "name" );
+
+    @BeforeMethod
+    public void beforeMethod() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            OliveUtils.createStatement( ctx ).executeUpdate( "DELETE FROM person" );
+
+            for ( String name : Arrays.asList( "bob", "john", "john" ) ) {
+                OliveUtils.executeUpdate( OliveUtils.prepareStatement( ctx, insert, new SqlParams().set( "name", name ) ) );
+            }
+        } );
+    }
+
+    @Test
+    public void testCacheByParams() {
+        QueryCache cache = new QueryCache( 10, 1, TimeUnit.HOURS );
+
+        Assert.assertEquals( count( cache, "bob" ), 1 );
+        Assert.assertEquals( count( cache, "bob" ), 1 );
+        Assert.assertEquals( count( cache, "john" ), 2 );
+
+        Assert.assertEquals( cache.getHitCount(), 1 );
+        Assert.assertEquals( cache.getMissCount(), 2 );
+    }
+
+    @Test
+    public void testCacheByMapping() {
+        QueryCache cache = new QueryCache( 10, 1, TimeUnit.HOURS );
+        SqlParams params = new SqlParams().set( "name", "john" );
+        ParsedSql selectNames = OliveUtils.parseSql( "SELECT name FROM person WHERE name = :name" );
+
+        List<String> names = JDBC.inOperation( ds, (Query<List<String>, RuntimeException>) ctx -> cache.mapToList( ctx, selectNames, params, nameMapper, "person" ) );
+        String name = JDBC.inOperation( ds, (Query<String, RuntimeException>) ctx -> cache.mapToBean( ctx, selectNames, params, nameMapper, "person" ) );
+        Integer count = JDBC.inOperation( ds, (Query<Integer, RuntimeException>) ctx -> cache.mapToPrimitive( Integer.class, ctx, select, params, "person" ) );
+        Long longCount = JDBC.inOperation( ds, (Query<Long, RuntimeException>) ctx -> cache.mapToPrimitive( Long.class, ctx, select, params, "person" ) );
+
+        // The same query and parameters mapped differently are cached separately
+        Assert.assertEquals( names, Arrays.asList( "john", "john" ) );
+        Assert.assertEquals( name, "john" );
+        Assert.assertEquals( count, Integer.valueOf( 2 ) );
+        Assert.assertEquals( longCount, Long.valueOf( 2 ) );
+        Assert.assertEquals( cache.getMissCount(), 4 );
+        Assert.assertEquals( cache.size(), 4 );
+
+        Assert.assertSame( JDBC.inOperation( ds, (Query<List<String>, RuntimeException>) ctx -> cache.mapToList( ctx, selectNames, params, nameMapper, "person" ) ), names );
+        Assert.assertEquals( cache.getHitCount(), 1 );
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        QueryCache cache = new QueryCache( 10, 20, TimeUnit.MILLISECONDS );
+
+        count( cache, "bob" );
+        Thread.sleep( 50 );
+        count( cache, "bob" );
+
+        Assert.assertEquals( cache.getHitCount(), 0 );
+        Assert.assertEquals( cache.getMissCount(), 2 );
+        Assert.assertEquals( cache.size(), 1 );
+    }
+
+    @Test
+    public void testMaxSizeEvictsLeastRecentlyUsed() {
+        QueryCache cache = new QueryCache( 2, 1, TimeUnit.HOURS );
+
+        count( cache, "bob" );
+        count( cache, "john" );
+        count( cache, "bob" );
+        count( cache, "jane" );
+        Assert.assertEquals( cache.size(), 2 );
+
+        // "john" was used least recently, so it was evicted
+        count( cache, "bob" );
+        Assert.assertEquals( cache.getHitCount(), 2 );
+
+        count( cache, "john" );
+        Assert.assertEquals( cache.getMissCount(), 4 );
+    }
+
+    @Test
+    public void testInvalidateOnCommit() {
+        QueryCache cache = new QueryCache( 10, 1, TimeUnit.HOURS );
+        Assert.assertEquals( count( cache, "bob" ), 1 );
+
+        JDBC.inTransaction( ds, (TransactionalOperation<RuntimeException>) ctx -> {
+            cache.executeUpdate( ctx, insert, new SqlParams().set( "name", "bob" ), "person" );
+
+            // Not invalidated before commit, so other transactions still get the committed result
+            Assert.assertEquals( cache.size(), 1 );
+            Assert.assertEquals( ctx.getTransactionListeners().size(), 1 );
+
+            // This transaction sees its own write and does not cache it
+            SqlParams params = new SqlParams().set( "name", "bob" );
+            Assert.assertEquals( cache.mapToPrimitive( Integer.class, ctx, select, params, "person" ), Integer.valueOf( 2 ) );
+            Assert.assertEquals( cache.getHitCount(), 0 );
+        } );
+
+        Assert.assertEquals( count( cache, "bob" ), 2 );
+        Assert.assertEquals( count( cache, "bob" ), 2 );
+        Assert.assertEquals( cache.getHitCount(), 1 );
+    }
+
+    @Test
+    public void testRollbackKeepsCache() {
+        QueryCache cache = new QueryCache( 10, 1, TimeUnit.HOURS );
+        Assert.assertEquals( count( cache, "bob" ), 1 );
+
+        try {
+            JDBC.inTransaction( ds, (TransactionalOperation<RuntimeException>) ctx -> {
+                cache.executeUpdate( ctx, insert, new SqlParams().set( "name", "bob" ), "person" );
+                throw new IllegalStateException( "rollback" );
+            } );
+            Assert.fail( "Expected the transaction to roll back" );
+
+        } catch ( IllegalStateException expected ) {
+        }
+
+        Assert.assertEquals( count( cache, "bob" ), 1 );
+        Assert.assertEquals( cache.getHitCount(), 1 );
+    }
+
+    @Test
+    public void testInvalidateOutsideTransaction() {
+        QueryCache cache = new QueryCache( 10, 1, TimeUnit.HOURS );
+        Assert.assertEquals( count( cache, "bob" ), 1 );
+
+        JDBC.inOperation( ds, (Operation<RuntimeException>) ctx -> {
+            cache.executeUpdate( ctx, insert, new SqlParams().set( "name", "bob" ), "person" );
+        } );
+
+        Assert.assertEquals( count( cache, "bob" ), 2 );
+    }
+
+    private int count( QueryCache cache, String name ) {
+        SqlParams params = new SqlParams().set( "name", name );
+        return JDBC.inOperation( ds, (Query<Integer, RuntimeException>) ctx -> cache.mapToPrimitive( Integer.class, ctx, select, params, "person" ) );
+    }
+}
@@ -0,0 +1,53 @@
+package za.sabob.olive.statements;
+
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.ps.*;
+import za.sabob.olive.util.*;
+
+public class SqlStatementsTest {
+
+    @Test
+    public void testLoadStatements() {
+        Olive olive = new Olive( Mode.PRODUCTION );
+        String filename = OliveUtils.normalize( SqlStatementsTest.class, "person.sql" );
+
+        Map<String, ParsedSql> statements = olive.loadParsedSqlStatements( filename );
+        Assert.assertEquals( new ArrayList<>( statements.keySet() ), Arrays.asList( "findPerson", "findPersonsByName", "deletePerson" ) );
+
+        ParsedSql findPerson = olive.loadParsedSql( filename, "findPerson" );
+        Assert.assertEquals( findPerson.getOriginalSql(), "SELECT * FROM person\nWHERE id = :id" );
+        Assert.assertEquals( findPerson.getParameterNames(), Collections.singletonList( "id" ) );
+
+        Assert.assertEquals( olive.loadParsedSql( filename, "findPersonsByName" ).getOriginalSql(),
+                             "SELECT * FROM person WHERE name = :name -- the name: is matched exactly" );
+        Assert.assertEquals( olive.loadParsedSql( filename, "deletePerson" ).getOriginalSql(), "DELETE FROM person WHERE id = :id" );
+
+        // The file is parsed once and cached
+        Assert.assertSame( olive.loadParsedSqlStatements( filename ), statements );
+        Assert.assertSame( olive.loadParsedSql( filename, "findPerson" ), findPerson );
+    }
+
+    @Test( expectedExceptions = IllegalStateException.class )
+    public void testMissingStatement() {
+        new Olive().loadParsedSql( OliveUtils.normalize( SqlStatementsTest.class, "person.sql" ), "updatePerson" );
+    }
+
+    @Test
+    public void testNoStatements() {
+        Assert.assertFalse( OliveUtils.hasSqlStatements( "SELECT * FROM person" ) );
+        Assert.assertTrue( OliveUtils.parseSqlStatements( "SELECT * FROM person" ).isEmpty() );
+    }
+
+    @Test( expectedExceptions = IllegalArgumentException.class )
+    public void testDuplicateStatement() {
+        OliveUtils.parseSqlStatements( "-- name: a\nSELECT 1;\r\n-- name: a\r\nSELECT 2" );
+    }
+
+    @Test( expectedExceptions = IllegalArgumentException.class )
+    public void testEmptyStatement() {
+        OliveUtils.parseSqlStatements( "-- name: a\n;\n-- name: b\nSELECT 2" );
+    }
+}
@@ -0,0 +1,11 @@
+-- Statements for the person table
+
+-- name: findPerson
+SELECT * FROM person
+WHERE id = :id;
+
+-- name: findPersonsByName
+SELECT * FROM person WHERE name = :name -- the name: is matched exactly
+
+--name:deletePerson
+DELETE FROM person WHERE id = :id
@@ -0,0 +1,150 @@
+package za.sabob.olive.template;
+
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.mustache.*;
+import static za.sabob.olive.util.OliveUtils.path;
+
+public class PartialTest {
+
+    @Test
+    public void testRegisteredPartial() {
+        Olive olive = new Olive();
+        TemplateService templateService = olive.getTemplateService();
+        templateService.registerPartial( "where", "WHERE {{column}} = :value" );
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put( "column", "name" );
+
+        String result = olive.executeTemplate( "SELECT * FROM person {{>where}}", data );
+        Assert.assertEquals( result, "SELECT * FROM person WHERE name = :value" );
+
+        // partials are compiled once and shared
+        Assert.assertSame( templateService.getPartial( "where" ), templateService.getPartial( "where" ) );
+
+        templateService.registerPartial( "where", "WHERE id = :id" );
+        result = olive.executeTemplate( "SELECT * FROM person {{>where}}", data );
+        Assert.assertEquals( result, "SELECT * FROM person WHERE id = :id" );
+    }
+
+    @Test
+    public void testFilePartial() {
+        Olive olive = new Olive( Mode.PRODUCTION );
+        String filename = path( this, "sql/select-person.sql" );
+
+        String result = olive.executeTemplateFile( filename, new HashMap() );
+        Assert.assertEquals( result, "SELECT * FROM person WHERE name = :name\n" );
+
+        Template partial = olive.loadCompiledTemplate( path( this, "sql/person-where.sql" ) );
+        Assert.assertSame( olive.getTemplateService().getPartial( path( this, "sql/person-where.sql" ) ), partial );
+        Assert.assertSame( olive.loadCompiledTemplate( filename ), olive.loadCompiledTemplate( filename ) );
+    }
+
+    @Test
+    public void testCompilerSharedUntilSettingsChange() {
+        TemplateService templateService = new TemplateService();
+        Mustache.Compiler compiler = templateService.getCompiler();
+        Assert.assertSame( templateService.getCompiler(), compiler );
+
+        templateService.setTemplateEscaper( Escapers.NONE );
+        Assert.assertNotSame( templateService.getCompiler(), compiler );
+    }
+
+    @Test
+    public void testReplacedPartialReachesCompiledTemplates() {
+        TemplateService templateService = new TemplateService();
+        templateService.registerPartial( "where", "WHERE name = :name" );
+
+        Template template = templateService.compileTemplate( "SELECT * FROM person {{>where}}" );
+        Assert.assertEquals( templateService.executeTemplate( template, new HashMap() ), "SELECT * FROM person WHERE name = :name" );
+
+        templateService.registerPartial( "where", "WHERE id = :id" );
+        Assert.assertEquals( templateService.executeTemplate( template, new HashMap() ), "SELECT * FROM person WHERE id = :id" );
+    }
+
+    @Test
+    public void testCompilerChangeDiscardsCompiledTemplates() {
+        Olive olive = new Olive( Mode.PRODUCTION );
+        String filename = path( this, "sql/select-person.sql" );
+
+        Template template = olive.loadCompiledTemplate( filename );
+        Assert.assertSame( olive.loadCompiledTemplate( filename ), template );
+
+        olive.getTemplateService().setTemplateEscaper( Escapers.NONE );
+        Assert.assertNotSame( olive.loadCompiledTemplate( filename ), template );
+    }
+
+    @Test
+    public void testDataPartial() {
+        Olive olive = new Olive( Mode.PRODUCTION );
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put( "where", "WHERE name = :name" );
+
+        // Partials passed in the data, as before partials could be registered
+        Assert.assertEquals( olive.executeTemplate( "SELECT * FROM person {{>where}}", data ), "SELECT * FROM person WHERE name = :name" );
+
+        Template template = olive.compileTemplate( "SELECT * FROM person {{>where}}" );
+        data.put( "where", "WHERE id = :id" );
+        Assert.assertEquals( olive.executeTemplate( template, data ), "SELECT * FROM person WHERE id = :id" );
+    }
+
+    @Test
+    public void testDataPartialCompiledOnce() {
+        TemplateService templateService = new TemplateService();
+        List<Template> partials = new ArrayList<>();
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put( "where", "name = :name" );
+        data.put( "items", Arrays.asList( 1, 2, 3 ) );
+        data.put( "check", (Mustache.Lambda) ( frag, out ) -> partials.add( templateService.getPartial( "where" ) ) );
+
+        Template template = templateService.compileTemplate( "{{#items}}{{>where}};{{#check}}{{/check}}{{/items}}" );
+        Assert.assertEquals( templateService.executeTemplate( template, data ), "name = :name;name = :name;name = :name;" );
+
+        Assert.assertEquals( partials.size(), 3 );
+        Assert.assertSame( partials.get( 0 ), partials.get( 1 ) );
+        Assert.assertSame( partials.get( 0 ), partials.get( 2 ) );
+    }
+
+    @Test
+    @SuppressWarnings( "deprecation" )
+    public void testCompileWithData() {
+        TemplateService templateService = new TemplateService();
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put( "where", "WHERE name = :name" );
+
+        // The template is bound to the data, so it finds the partial when executed directly
+        Template template = templateService.compileTemplate( "SELECT * FROM person {{>where}}", data );
+        Assert.assertEquals( template.execute( data ), "SELECT * FROM person WHERE name = :name" );
+        Assert.assertEquals( template.execute( new HashMap() ), "SELECT * FROM person WHERE name = :name" );
+
+        templateService.registerPartial( "where", "WHERE id = :id" );
+        Assert.assertEquals( template.execute( data ), "SELECT * FROM person WHERE id = :id" );
+    }
+
+    @Test
+    public void testMissingPartial() {
+        TemplateService templateService = new TemplateService();
+        Template template = templateService.compileTemplate( "SELECT * FROM person {{>missing}}" );
+
+        try {
+            templateService.executeTemplate( template, new HashMap() );
+            Assert.fail( "A missing partial must fail the render" );
+
+        } catch ( MustacheException expected ) {
+        }
+
+        Olive olive = new Olive( Mode.PRODUCTION );
+
+        try {
+            olive.executeTemplate( "SELECT * FROM person {{>missing}}", new HashMap() );
+            Assert.fail( "A missing partial must fail the render" );
+
+        } catch ( MustacheException expected ) {
+        }
+    }
+}
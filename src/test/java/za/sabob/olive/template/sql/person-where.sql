@@ -0,0 +1 @@
+WHERE name = :name
@@ -0,0 +1 @@
+SELECT * FROM person {{>/za/sabob/olive/template/sql/person-where.sql}}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+import java.util.*;
+import javax.sql.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.context.*;
+import za.sabob.olive.jdbc.operation.*;
+import za.sabob.olive.jdbc.transaction.*;
+import za.sabob.olive.postgres.*;
+import za.sabob.olive.ps.*;
+
+public class FetchSizeTest extends HSQLDBBaseTest {
+
+    private DataSource pgDs;
+
+    @BeforeClass( alwaysRun = true, dependsOnMethods = "beforeClass" )
+    public void createPostgres() {
+        pgDs = PostgresTestUtils.createDS();
+        PostgresTestUtils.createPersonTable( pgDs );
+    }
+
+    @AfterClass( alwaysRun = true )
+    public void shutdownPostgres() {
+        PostgresTestUtils.shutdown( pgDs );
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        Olive.setDefaultFetchSize( 0 );
+        Olive.setTransactionFetchSize( 1000 );
+    }
+
+    @Test
+    public void testParseHint() {
+        Assert.assertEquals( OliveUtils.parseSql( "-- fetchSize: 500\nSELECT * FROM person" ).getFetchSize(), 500 );
+        Assert.assertEquals( OliveUtils.parseSql( "  -- Find people\r\n--fetchSize:50\r\nSELECT * FROM person" ).getFetchSize(), 50 );
+        Assert.assertEquals( OliveUtils.parseSql( "SELECT * FROM person\n-- fetchSize: 500" ).getFetchSize(), 0 );
+        Assert.assertEquals( OliveUtils.parseSql( "-- fetchSize: lots\nSELECT * FROM person" ).getFetchSize(), 0 );
+
+        Map<String, ParsedSql> statements = OliveUtils.parseSqlStatements(
+            "-- name: findAll\n-- fetchSize: 200\nSELECT * FROM person;\n\n-- name: findOne\nSELECT * FROM person WHERE id = :id;" );
+        Assert.assertEquals( statements.get( "findAll" ).getFetchSize(), 200 );
+        Assert.assertEquals( statements.get( "findOne" ).getFetchSize(), 0 );
+    }
+
+    @Test
+    public void testApplyHint() {
+        ParsedSql parsedSql = OliveUtils.parseSql( "-- fetchSize: 500\nSELECT * FROM person" );
+
+        JDBC.inOperation( ds, (Operation<SQLException>) ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, parsedSql, new SqlParams() );
+            Assert.assertEquals( ps.getFetchSize(), 500 );
+            Assert.assertEquals( ps.getResultSetType(), ResultSet.TYPE_FORWARD_ONLY );
+            Assert.assertEquals( ps.getResultSetConcurrency(), ResultSet.CONCUR_READ_ONLY );
+
+            ps = OliveUtils.prepareStatement( ctx, "SELECT * FROM person", new SqlParams() );
+            Assert.assertEquals( ps.getFetchSize(), 0 );
+
+            Olive.setDefaultFetchSize( 100 );
+            ps = OliveUtils.prepareStatement( ctx, "SELECT * FROM person", new SqlParams() );
+            Assert.assertEquals( ps.getFetchSize(), 100 );
+
+            // Plain SQL gets the default fetch size too
+            ps = OliveUtils.prepareStatement( ctx, "SELECT * FROM person" );
+            Assert.assertEquals( ps.getFetchSize(), 100 );
+            Assert.assertEquals( ps.getResultSetConcurrency(), ResultSet.CONCUR_READ_ONLY );
+        } );
+    }
+
+    @Test
+    public void testPostgresTransaction() {
+        ParsedSql parsedSql = OliveUtils.parseSql( "SELECT * FROM person" );
+
+        JDBC.inTransaction( pgDs, (TransactionalOperation<SQLException>) ctx -> {
+            Assert.assertEquals( prepare( ctx, parsedSql ).getFetchSize(), 1000 );
+            Assert.assertEquals( OliveUtils.prepareStatement( ctx, "SELECT * FROM person" ).getFetchSize(), 1000 );
+            Assert.assertTrue( ConnectionInfo.get( ctx.getConnection() ).isPostgres() );
+
+            // A statement's own fetch size wins
+            ParsedSql hinted = OliveUtils.parseSql( "-- fetchSize: 20\nSELECT * FROM person" );
+            Assert.assertEquals( prepare( ctx, hinted ).getFetchSize(), 20 );
+
+            Olive.setTransactionFetchSize( 0 );
+            Assert.assertEquals( prepare( ctx, parsedSql ).getFetchSize(), 0 );
+        } );
+
+        // Outside a transaction the Postgres driver ignores the fetch size
+        Olive.setTransactionFetchSize( 1000 );
+        JDBC.inOperation( pgDs, (Operation<SQLException>) ctx -> {
+            Assert.assertEquals( prepare( ctx, parsedSql ).getFetchSize(), 0 );
+        } );
+
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            Assert.assertEquals( prepare( ctx, parsedSql ).getFetchSize(), 0 );
+            Assert.assertFalse( ConnectionInfo.get( ctx.getConnection() ).isPostgres() );
+        } );
+    }
+
+    private static PreparedStatement prepare( JDBCContext ctx, ParsedSql parsedSql ) {
+        return OliveUtils.prepareStatement( ctx, parsedSql, new SqlParams() );
+    }
+}
@@ -0,0 +1,110 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.context.*;
+import za.sabob.olive.jdbc.transaction.*;
+import za.sabob.olive.ps.*;
+
+public class GeneratedKeysTest extends HSQLDBBaseTest {
+
+    private final ParsedSql insert = OliveUtils.parseSql( "INSERT INTO key_person (name) VALUES (:name)" );
+
+    @BeforeMethod
+    public void beforeMethod() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            Statement stmt = OliveUtils.createStatement( ctx );
+            stmt.executeUpdate( "CREATE TABLE IF NOT EXISTS key_person (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name varchar(100))" );
+            stmt.executeUpdate( "DELETE FROM key_person" );
+        } );
+    }
+
+    @Test
+    public void testGeneratedKeyArray() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, insert, new SqlParams().set( "name", "Bob" ), Statement.RETURN_GENERATED_KEYS );
+            OliveUtils.executeUpdate( ps );
+            long[] keys = OliveUtils.getGeneratedKeyArray( ps );
+
+            ps = OliveUtils.prepareStatement( ctx, insert, new SqlParams().set( "name", "John" ), Statement.RETURN_GENERATED_KEYS );
+            OliveUtils.executeUpdate( ps );
+            List<String> mapped = OliveUtils.getGeneratedKeys( ps, ( rs, rowNum ) -> rs.getString( 1 ) + "#" + rowNum );
+
+            List<Long> ids = selectIds( ctx );
+            Assert.assertEquals( keys, new long[] { ids.get( 0 ) } );
+            Assert.assertEquals( mapped, Arrays.asList( ids.get( 1 ) + "#0" ) );
+        } );
+    }
+
+    @Test
+    public void testInsertBatch() {
+        List<SqlParams> rows = new ArrayList<>();
+        for ( int i = 0; i < 5; i++ ) {
+            rows.add( new SqlParams().set( "name", "person" + i ) );
+        }
+
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            long[] keys = OliveUtils.insertBatch( ctx, insert, rows, 2 );
+
+            Assert.assertEquals( keys.length, 5 );
+            Assert.assertEquals( selectIds( ctx ), toList( keys ) );
+            Assert.assertEquals( selectNames( ctx ), Arrays.asList( "person0", "person1", "person2", "person3", "person4" ) );
+            Assert.assertEquals( ctx.getStatements().size(), 3 );
+        } );
+    }
+
+    @Test
+    public void testInsertBatchMapped() {
+        List<SqlParams> rows = new ArrayList<>();
+        for ( int i = 0; i < 3; i++ ) {
+            rows.add( new SqlParams().set( "name", "person" + i ) );
+        }
+
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            List<String> mapped = OliveUtils.insertBatch( ctx, insert, rows, 10, ( rs, rowNum ) -> "id" + rs.getLong( 1 ) );
+
+            List<String> expected = new ArrayList<>();
+            for ( Long id : selectIds( ctx ) ) {
+                expected.add( "id" + id );
+            }
+
+            Assert.assertEquals( mapped, expected );
+            Assert.assertEquals( OliveUtils.insertBatch( ctx, insert, Collections.<SqlParams>emptyList(), 10 ).length, 0 );
+        } );
+    }
+
+    @Test( expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Row 1 has 2 placeholders but the first row has 1.*" )
+    public void testInsertBatchRowsWithDifferentSql() {
+        ParsedSql copy = OliveUtils.parseSql( "INSERT INTO key_person (name) SELECT name FROM key_person WHERE name IN (:names)" );
+
+        List<SqlParams> rows = new ArrayList<>();
+        rows.add( new SqlParams().set( "names", Arrays.asList( "Bob" ) ) );
+        rows.add( new SqlParams().set( "names", Arrays.asList( "Bob", "John" ) ) );
+
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            OliveUtils.insertBatch( ctx, copy, rows, 10 );
+        } );
+    }
+
+    private static List<Long> selectIds( JDBCContext ctx ) {
+        PreparedStatement ps = OliveUtils.prepareStatement( ctx, "SELECT id FROM key_person ORDER BY id" );
+        return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getLong( 1 ) );
+    }
+
+    private static List<String> selectNames( JDBCContext ctx ) {
+        PreparedStatement ps = OliveUtils.prepareStatement( ctx, "SELECT name FROM key_person ORDER BY id" );
+        return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getString( 1 ) );
+    }
+
+    private static List<Long> toList( long[] keys ) {
+        List<Long> list = new ArrayList<>();
+        for ( long key : keys ) {
+            list.add( key );
+        }
+        return list;
+    }
+}
@@ -0,0 +1,122 @@
+package za.sabob.olive.util;
+
+import java.math.*;
+import java.sql.*;
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.transaction.*;
+import za.sabob.olive.ps.*;
+
+public class ParameterBindersTest extends HSQLDBBaseTest {
+
+    enum Color {
+        RED, GREEN
+    }
+
+    @BeforeClass( alwaysRun = true, dependsOnMethods = "beforeClass" )
+    public void createTables() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            Statement stmt = OliveUtils.createStatement( ctx );
+            stmt.executeUpdate( "CREATE TABLE IF NOT EXISTS employee (name varchar(100), age int, born timestamp, salary decimal(10, 2))" );
+            stmt.executeUpdate( "CREATE TABLE IF NOT EXISTS color (name varchar(100), ordinal int)" );
+        } );
+    }
+
+    @BeforeMethod
+    public void beforeMethod() {
+        ParameterBinders.clear();
+
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            Statement stmt = OliveUtils.createStatement( ctx );
+            stmt.executeUpdate( "DELETE FROM employee" );
+            stmt.executeUpdate( "DELETE FROM color" );
+        } );
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        ParameterBinders.clear();
+    }
+
+    @Test
+    public void testBuiltInBinders() {
+        SqlParams params = new SqlParams();
+        params.set( "name", new StringBuilder( "Bob" ) );
+        params.set( "age", 21 );
+        params.set( "born", new java.util.Date( 0 ) );
+        params.set( new SqlParam( "salary", 10, Types.DECIMAL ) );
+
+        update( "INSERT INTO employee (name, age, born, salary) VALUES (:name, :age, :born, :salary)", params );
+
+        List<String> rows = JDBC.inOperation( ds, ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, "SELECT * FROM employee" );
+            return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getString( "name" ) + " " + rs.getInt( "age" ) + " "
+                + rs.getTimestamp( "born" ).getTime() + " " + rs.getBigDecimal( "salary" ) );
+        } );
+
+        Assert.assertEquals( rows, Arrays.asList( "Bob 21 0 " + new BigDecimal( "10.00" ) ) );
+        Assert.assertSame( ParameterBinders.getBinder( Integer.class, OliveUtils.TYPE_UNKNOWN ),
+            ParameterBinders.getBinder( Integer.class, OliveUtils.TYPE_UNKNOWN ) );
+    }
+
+    @Test
+    public void testBindersCachedPerSqlType() {
+        ParameterBinder decimal = ParameterBinders.getBinder( Integer.class, Types.DECIMAL );
+        ParameterBinder integer = ParameterBinders.getBinder( Integer.class, Types.INTEGER );
+        ParameterBinder varchar = ParameterBinders.getBinder( Integer.class, Types.VARCHAR );
+
+        Assert.assertSame( ParameterBinders.getBinder( Integer.class, Types.DECIMAL ), decimal );
+        Assert.assertSame( ParameterBinders.getBinder( Integer.class, Types.INTEGER ), integer );
+        Assert.assertSame( ParameterBinders.getBinder( Integer.class, Types.VARCHAR ), varchar );
+    }
+
+    @Test
+    public void testRegister() {
+        ParameterBinders.register( Enum.class, ( ps, paramIndex, value, sqlType, scale ) -> ps.setString( paramIndex, ( (Enum) value ).name() ) );
+        ParameterBinders.register( Enum.class, Types.INTEGER, ( ps, paramIndex, value, sqlType, scale ) -> ps.setInt( paramIndex, ( (Enum) value ).ordinal() ) );
+
+        SqlParams params = new SqlParams();
+        params.set( "name", Color.GREEN );
+        params.set( new SqlParam( "ordinal", Color.GREEN, Types.INTEGER ) );
+
+        update( "INSERT INTO color (name, ordinal) VALUES (:name, :ordinal)", params );
+        Assert.assertEquals( selectColors(), Arrays.asList( "GREEN 1" ) );
+
+        ParameterBinders.unregister( Enum.class );
+
+        try {
+            update( "INSERT INTO color (name, ordinal) VALUES (:name, :ordinal)", params );
+            Assert.fail( "An enum cannot be bound to an int column without a binder" );
+
+        } catch ( RuntimeException expected ) {
+        }
+    }
+
+    @Test
+    public void testExactClassWins() {
+        ParameterBinders.register( Color.class, ( ps, paramIndex, value, sqlType, scale ) -> ps.setString( paramIndex, "color" ) );
+        ParameterBinders.register( Enum.class, ( ps, paramIndex, value, sqlType, scale ) -> ps.setString( paramIndex, "enum" ) );
+        ParameterBinders.register( Object.class, ( ps, paramIndex, value, sqlType, scale ) -> ps.setString( paramIndex, "object" ) );
+
+        update( "INSERT INTO color (name) VALUES (:name)", new SqlParams().set( "name", Color.RED ) );
+        update( "INSERT INTO color (name) VALUES (:name)", new SqlParams().set( "name", za.sabob.olive.Mode.DEVELOPMENT ) );
+
+        Assert.assertEquals( selectColors(), Arrays.asList( "color 0", "object 0" ) );
+    }
+
+    private void update( String sql, SqlParams params ) {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            OliveUtils.executeUpdate( OliveUtils.prepareStatement( ctx, sql, params ) );
+        } );
+    }
+
+    private List<String> selectColors() {
+        return JDBC.inOperation( ds, ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, "SELECT * FROM color ORDER BY name" );
+            return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getString( "name" ) + " " + rs.getInt( "ordinal" ) );
+        } );
+    }
+}
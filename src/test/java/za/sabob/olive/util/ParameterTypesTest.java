@@ -0,0 +1,135 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.transaction.*;
+import za.sabob.olive.ps.*;
+
+public class ParameterTypesTest extends HSQLDBBaseTest {
+
+    private static final String INSERT = "INSERT INTO person_age (name, age) VALUES (?, ?)";
+
+    @BeforeClass( alwaysRun = true, dependsOnMethods = "beforeClass" )
+    public void createTable() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            OliveUtils.createStatement( ctx ).executeUpdate( "CREATE TABLE IF NOT EXISTS person_age (name varchar(100), age int)" );
+        } );
+    }
+
+    @BeforeMethod
+    public void beforeMethod() {
+        OliveUtils.clearParameterTypes();
+
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            OliveUtils.createStatement( ctx ).executeUpdate( "DELETE FROM person_age" );
+        } );
+    }
+
+    @Test
+    public void testTypesResolvedOnce() {
+        ParsedSql parsedSql = OliveUtils.parseSql( "INSERT INTO person_age (name, age) VALUES (:name, :age)" );
+
+        SqlParams params = new SqlParams();
+        params.set( "name", null );
+        params.set( "age", null );
+
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            for ( int i = 0; i < 3; i++ ) {
+                OliveUtils.executeUpdate( OliveUtils.prepareStatement( ctx, parsedSql, params ) );
+            }
+
+            // The types were resolved by the first statement and are reused by the others
+            Assert.assertEquals( ParameterTypes.size(), 1 );
+
+            ParameterTypes types = new ParameterTypes( ctx.getConnection().prepareStatement( INSERT ), INSERT );
+            Assert.assertEquals( types.get( 1 ), Types.VARCHAR );
+            Assert.assertEquals( types.get( 2 ), Types.INTEGER );
+        } );
+
+        Assert.assertEquals( countNulls(), 3 );
+    }
+
+    @Test
+    public void testParameterResolvedWhenBoundToNull() {
+        SqlParams params = new SqlParams();
+        params.set( "name", "Bob" );
+        params.set( "age", null );
+
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            String sql = "SELECT * FROM person_age WHERE name = :name OR age = :age";
+            OliveUtils.prepareStatement( ctx, sql, params );
+
+            // A parameter bound to a value is only resolved once it is bound to null
+            String jdbcSql = "SELECT * FROM person_age WHERE name = ? OR age = ?";
+            ParameterTypes types = new ParameterTypes( ctx.getConnection().prepareStatement( jdbcSql ), jdbcSql );
+            Assert.assertEquals( types.get( 1 ), OliveUtils.TYPE_UNKNOWN );
+            Assert.assertEquals( types.get( 2 ), Types.INTEGER );
+        } );
+    }
+
+    @Test
+    public void testDriverResolvedOncePerConnection() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            Connection conn = ctx.getConnection();
+
+            ConnectionInfo info = ConnectionInfo.get( conn );
+            Assert.assertEquals( info.getDriverName(), conn.getMetaData().getDriverName() );
+            Assert.assertSame( ConnectionInfo.get( conn ), info );
+        } );
+    }
+
+    @Test
+    public void testTypesPublishedAsCopies() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            ParameterTypes first = new ParameterTypes( ctx.getConnection().prepareStatement( INSERT ), INSERT );
+            ParameterTypes second = new ParameterTypes( ctx.getConnection().prepareStatement( INSERT ), INSERT );
+            Assert.assertEquals( first.get( 1 ), OliveUtils.TYPE_UNKNOWN );
+            Assert.assertEquals( second.get( 1 ), OliveUtils.TYPE_UNKNOWN );
+
+            // Each statement keeps the types it read, while the cache gains the types resolved by both
+            first.set( 2, Types.INTEGER );
+            second.set( 1, Types.VARCHAR );
+            Assert.assertEquals( first.get( 1 ), OliveUtils.TYPE_UNKNOWN );
+
+            ParameterTypes third = new ParameterTypes( ctx.getConnection().prepareStatement( INSERT ), INSERT );
+            Assert.assertEquals( third.get( 1 ), Types.VARCHAR );
+            Assert.assertEquals( third.get( 2 ), Types.INTEGER );
+
+            // A type resolved after the cache is cleared does not bring the statement back
+            ParameterTypes.clear();
+            third.set( 2, ParameterTypes.USE_SET_OBJECT );
+            Assert.assertEquals( ParameterTypes.size(), 0 );
+            Assert.assertEquals( third.get( 2 ), ParameterTypes.USE_SET_OBJECT );
+        } );
+    }
+
+    @Test
+    public void testWithoutSql() {
+        ParsedSql parsedSql = OliveUtils.parseSql( "INSERT INTO person_age (name, age) VALUES (:name, :age)" );
+        SqlParams params = new SqlParams().set( "name", null ).set( "age", null );
+
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            PreparedStatement ps = ctx.getConnection().prepareStatement( INSERT );
+            ctx.add( ps );
+
+            OliveUtils.setParams( ps, parsedSql, params );
+            ps.executeUpdate();
+            OliveUtils.setParams( ps, parsedSql, params );
+            ps.executeUpdate();
+        } );
+
+        Assert.assertEquals( ParameterTypes.size(), 0 );
+        Assert.assertEquals( countNulls(), 2 );
+    }
+
+    private int countNulls() {
+        return JDBC.inOperation( ds, ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, "SELECT count(*) FROM person_age WHERE name IS NULL AND age IS NULL" );
+            return OliveUtils.mapToPrimitive( Integer.class, ps );
+        } );
+    }
+}
@@ -0,0 +1,97 @@
+package za.sabob.olive.util;
+
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.mustache.*;
+import za.sabob.olive.ps.*;
+
+public class ParseSqlTest {
+
+    @Test
+    public void testParseNamedParameters() {
+        ParsedSql parsedSql = OliveUtils.parseSql( "select * from person where name = :name and age > :age or name = :name and id = ?" );
+
+        Assert.assertEquals( parsedSql.getParameterNames(), Arrays.asList( "name", "age", "name" ) );
+        Assert.assertEquals( parsedSql.getNamedParameterCount(), 2 );
+        Assert.assertEquals( parsedSql.getUnnamedParameterCount(), 1 );
+        Assert.assertEquals( parsedSql.getTotalParameterCount(), 4 );
+        Assert.assertEquals( parsedSql.getParameterIndexes( 0 ), new int[] { 34, 39 } );
+    }
+
+    @Test
+    public void testRepeatedNamesShareString() {
+        StringBuilder sql = new StringBuilder( "select * from sales where " );
+        for ( int i = 0; i < 40; i++ ) {
+            sql.append( "col" ).append( i ).append( " = :p" ).append( i ).append( " and :from <= day and day < :{to} and " );
+        }
+        sql.append( "1 = 1" );
+
+        ParsedSql parsedSql = OliveUtils.parseSql( sql );
+        List<String> names = parsedSql.getParameterNames();
+
+        Assert.assertEquals( parsedSql.getNamedParameterCount(), 42 );
+        Assert.assertEquals( parsedSql.getTotalParameterCount(), 120 );
+        Assert.assertEquals( names.get( 117 ), "p39" );
+        Assert.assertSame( names.get( 1 ), names.get( 4 ) );
+        Assert.assertSame( names.get( 2 ), names.get( 119 ) );
+        Assert.assertEquals( names.get( 2 ), "to" );
+
+        List<int[]> indexes = parsedSql.getParameterIndexes();
+        Assert.assertEquals( indexes.size(), 120 );
+        Assert.assertEquals( indexes.get( 2 ), parsedSql.getParameterIndexes( 2 ) );
+        Assert.assertEquals( parsedSql.getOriginalSql().substring( parsedSql.getParameterStartIndex( 2 ), parsedSql.getParameterEndIndex( 2 ) ), ":{to}" );
+    }
+
+    @Test
+    public void testUnterminatedQuotesAndComments() {
+        Assert.assertEquals( OliveUtils.parseSql( "select :a from t where b = ':b" ).getParameterNames(), Arrays.asList( "a" ) );
+        Assert.assertEquals( OliveUtils.parseSql( "select :a from t /* :b *" ).getParameterNames(), Arrays.asList( "a" ) );
+        Assert.assertEquals( OliveUtils.parseSql( "select :a -- :b" ).getParameterNames(), Arrays.asList( "a" ) );
+        Assert.assertEquals( OliveUtils.parseSql( "select :a\u2003from t where x = :b/2-:c" ).getParameterNames(), Arrays.asList( "a", "b", "c" ) );
+        Assert.assertEquals( OliveUtils.parseSql( "select 1" ).getParameterIndexes().size(), 0 );
+    }
+
+    @Test
+    public void testSkipsQuotesCommentsAndCasts() {
+        ParsedSql parsedSql = OliveUtils.parseSql( "select ':no', \"a:b\", x::text -- :comment\n from t /* :block */ where a = :{id} -" );
+
+        Assert.assertEquals( parsedSql.getParameterNames(), Arrays.asList( "id" ) );
+    }
+
+    @Test
+    public void testEscapedColons() {
+        ParsedSql parsedSql = OliveUtils.parseSql( "select '1' \\:a, :b from t where c = \\:d and e = :e" );
+
+        Assert.assertEquals( parsedSql.getOriginalSql(), "select '1' :a, :b from t where c = :d and e = :e" );
+        Assert.assertEquals( parsedSql.getParameterNames(), Arrays.asList( "b", "e" ) );
+
+        SqlParams params = new SqlParams();
+        params.set( "b", 1 );
+        params.set( "e", 2 );
+        Assert.assertEquals( OliveUtils.substituteNamedParameters( parsedSql, params ), "select '1' :a, ? from t where c = :d and e = ?" );
+    }
+
+    @Test
+    public void testParseRenderBuffer() {
+        Olive olive = new Olive();
+        Template template = olive.compileTemplate( "select * from person where {{column}} = :value" );
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put( "column", "name" );
+
+        CharSequence sql = olive.getTemplateService().executeTemplateToBuffer( template, data );
+        ParsedSql parsedSql = OliveUtils.parseSql( sql );
+
+        Assert.assertEquals( parsedSql.getOriginalSql(), "select * from person where name = :value" );
+        Assert.assertEquals( parsedSql.getParameterNames(), Arrays.asList( "value" ) );
+
+        // the buffer is reused by the next render on this thread
+        data.put( "column", "id" );
+        CharSequence next = olive.getTemplateService().executeTemplateToBuffer( template, data );
+        Assert.assertSame( next, sql );
+        Assert.assertEquals( next.toString(), "select * from person where id = :value" );
+        Assert.assertEquals( parsedSql.getOriginalSql(), "select * from person where name = :value" );
+    }
+}
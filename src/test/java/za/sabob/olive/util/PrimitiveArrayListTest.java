@@ -0,0 +1,97 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.transaction.*;
+import za.sabob.olive.ps.*;
+
+public class PrimitiveArrayListTest extends HSQLDBBaseTest {
+
+    @BeforeMethod
+    public void beforeMethod() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            Statement stmt = OliveUtils.createStatement( ctx );
+            stmt.executeUpdate( "CREATE TABLE IF NOT EXISTS primitive_person (id bigint PRIMARY KEY, name varchar(100))" );
+            stmt.executeUpdate( "DELETE FROM primitive_person" );
+            stmt.executeUpdate( "INSERT INTO primitive_person (id, name) VALUES (0, 'Bob'), (1, 'John'), (2, 'Mary'), (3, 'Jane')" );
+        } );
+    }
+
+    @Test
+    public void testToListCopies() {
+        long[] ids = { 1, 2, 3 };
+        List list = OliveUtils.toList( ids );
+
+        Assert.assertEquals( list, Arrays.asList( 1L, 2L, 3L ) );
+
+        list.add( 4L );
+        list.set( 0, 5L );
+        Assert.assertEquals( ids[0], 1L );
+        Assert.assertEquals( list, Arrays.asList( 5L, 2L, 3L, 4L ) );
+
+        List nested = OliveUtils.toList( new Object[] { new int[] { 1, 2 }, "a" } );
+        Assert.assertEquals( nested.get( 0 ), Arrays.asList( 1, 2 ) );
+        Assert.assertEquals( nested.get( 1 ), "a" );
+        Assert.assertTrue( nested.get( 0 ) instanceof ArrayList );
+    }
+
+    @Test
+    public void testBindListView() {
+        long[] ids = { 1, 2, 3 };
+        List<?> list = OliveUtils.toBindList( ids );
+
+        Assert.assertTrue( list instanceof PrimitiveArrayList );
+        Assert.assertSame( ( (PrimitiveArrayList) list ).getArray(), ids );
+        Assert.assertEquals( list, Arrays.asList( 1L, 2L, 3L ) );
+
+        List<?> nested = OliveUtils.toBindList( new Object[] { new int[] { 1, 2 }, "a" } );
+        Assert.assertTrue( nested.get( 0 ) instanceof PrimitiveArrayList );
+        Assert.assertEquals( nested.get( 1 ), "a" );
+    }
+
+    @Test
+    public void testBindPrimitives() {
+        SqlParams params = new SqlParams();
+        params.set( "ids", new long[] { 0, 2, 3 } );
+        params.set( "name", "Mary" );
+
+        List<String> names = selectNames( "SELECT name FROM primitive_person WHERE id IN (:ids) AND name <> :name ORDER BY id", params );
+        Assert.assertEquals( names, Arrays.asList( "Bob", "Jane" ) );
+    }
+
+    @Test
+    public void testBindTuples() {
+        // id + 0 keeps HSQLDB from matching the row values against the primary key index, which only compares the first column
+        SqlParams params = new SqlParams().set( "pairs", new int[][] { { 1, 4 }, { 2, 3 }, { 3, 4 } } );
+
+        List<String> names = selectNames( "SELECT name FROM primitive_person WHERE (id + 0, LENGTH(name)) IN (:pairs) ORDER BY id", params );
+        Assert.assertEquals( names, Arrays.asList( "John", "Jane" ) );
+    }
+
+    @Test
+    public void testBindChars() {
+        SqlParams params = new SqlParams().set( "initials", new char[] { 'B', 'M' } );
+
+        List<String> names = selectNames( "SELECT name FROM primitive_person WHERE SUBSTRING(name FROM 1 FOR 1) IN (:initials) ORDER BY id", params );
+        Assert.assertEquals( names, Arrays.asList( "Bob", "Mary" ) );
+    }
+
+    @Test
+    public void testTypedElementsUseSqlType() {
+        SqlParams params = new SqlParams().set( new SqlParam( "ids", new long[] { 1, 2 }, Types.NUMERIC ) );
+
+        List<String> names = selectNames( "SELECT name FROM primitive_person WHERE id IN (:ids) ORDER BY id", params );
+        Assert.assertEquals( names, Arrays.asList( "John", "Mary" ) );
+    }
+
+    private List<String> selectNames( String sql, SqlParams params ) {
+        return JDBC.inOperation( ds, ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, sql, params );
+            return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getString( "name" ) );
+        } );
+    }
+}
@@ -0,0 +1,86 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+import java.util.*;
+import java.util.stream.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.context.*;
+import za.sabob.olive.jdbc.transaction.*;
+import za.sabob.olive.ps.*;
+
+public class ScalarColumnTest extends HSQLDBBaseTest {
+
+    @BeforeClass( alwaysRun = true, dependsOnMethods = "beforeClass" )
+    public void createTable() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            OliveUtils.createStatement( ctx ).executeUpdate( "CREATE TABLE IF NOT EXISTS scalar (n int, d double)" );
+
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, "INSERT INTO scalar (n, d) VALUES (?, ?)" );
+            for ( int i = 0; i < 100; i++ ) {
+                ps.setInt( 1, i );
+                ps.setDouble( 2, i + 0.5 );
+                ps.addBatch();
+            }
+            ps.setNull( 1, Types.INTEGER );
+            ps.setNull( 2, Types.DOUBLE );
+            ps.addBatch();
+            OliveUtils.executeBatch( ps );
+        } );
+    }
+
+    @Test
+    public void testArrays() {
+        JDBC.inOperation( ds, ctx -> {
+            PreparedStatement ps = select( ctx, "SELECT n FROM scalar WHERE n IS NOT NULL ORDER BY n" );
+            long[] longs = OliveUtils.mapToLongs( ps );
+            Assert.assertEquals( longs.length, 100 );
+            Assert.assertEquals( longs[99], 99L );
+            assertResultSetClosed( ps );
+
+            ps = select( ctx, "SELECT n FROM scalar WHERE n IS NULL OR n IN (1, 3) ORDER BY n NULLS FIRST" );
+            Assert.assertEquals( OliveUtils.mapToInts( ps ), new int[] { 0, 1, 3 } );
+            assertResultSetClosed( ps );
+
+            ps = select( ctx, "SELECT d FROM scalar WHERE n IN (1, 2) ORDER BY n" );
+            Assert.assertTrue( Arrays.equals( OliveUtils.mapToDoubles( ps ), new double[] { 1.5, 2.5 } ) );
+
+            ps = select( ctx, "SELECT n FROM scalar WHERE n < 0" );
+            Assert.assertEquals( OliveUtils.mapToLongs( ps ).length, 0 );
+            return null;
+        } );
+    }
+
+    @Test
+    public void testStreams() {
+        JDBC.inOperation( ds, ctx -> {
+            try ( LongStream ids = OliveUtils.mapToLongStream( ctx, select( ctx, "SELECT n FROM scalar WHERE n IN (1, 2, 3)" ) ) ) {
+                Assert.assertEquals( ids.sum(), 6L );
+            }
+            Assert.assertEquals( ctx.getResultSets().size(), 1 );
+            Assert.assertTrue( ctx.getResultSets().get( 0 ).isClosed() );
+
+            try ( IntStream ns = OliveUtils.mapToIntStream( ctx, select( ctx, "SELECT n FROM scalar WHERE n IS NOT NULL ORDER BY n" ) ) ) {
+                // Rows are only read as far as the stream needs
+                Assert.assertEquals( ns.filter( n -> n > 25 ).findFirst().getAsInt(), 26 );
+            }
+            Assert.assertTrue( ctx.getResultSets().get( 1 ).isClosed() );
+
+            try ( DoubleStream values = OliveUtils.mapToDoubleStream( ctx, select( ctx, "SELECT d FROM scalar WHERE n IN (1, 2) ORDER BY n" ) ) ) {
+                Assert.assertTrue( Arrays.equals( values.toArray(), new double[] { 1.5, 2.5 } ) );
+            }
+            return null;
+        } );
+    }
+
+    private static PreparedStatement select( JDBCContext ctx, String sql ) {
+        return OliveUtils.prepareStatement( ctx, sql );
+    }
+
+    private static void assertResultSetClosed( PreparedStatement ps ) throws SQLException {
+        ResultSet rs = ps.getResultSet();
+        Assert.assertTrue( rs == null || rs.isClosed() );
+    }
+}
@@ -0,0 +1,72 @@
+package za.sabob.olive.util;
+
+import java.sql.*;
+import java.util.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.hsqldb.*;
+import za.sabob.olive.jdbc.*;
+import za.sabob.olive.jdbc.transaction.*;
+import za.sabob.olive.ps.*;
+
+public class SqlArrayValueTest extends HSQLDBBaseTest {
+
+    @BeforeMethod
+    public void beforeMethod() {
+        JDBC.inTransaction( ds, (TransactionalOperation<SQLException>) ctx -> {
+            Statement stmt = OliveUtils.createStatement( ctx );
+            stmt.executeUpdate( "CREATE TABLE IF NOT EXISTS array_person (id bigint, name varchar(100))" );
+            stmt.executeUpdate( "DELETE FROM array_person" );
+            stmt.executeUpdate( "INSERT INTO array_person VALUES (10, 'Bob'), (11, 'John'), (12, 'Mary')" );
+        } );
+    }
+
+    @Test
+    public void testSameSqlForAnySize() {
+        ParsedSql parsedSql = OliveUtils.parseSql( "SELECT name FROM array_person WHERE id IN (UNNEST(:ids)) ORDER BY id" );
+
+        SqlParams three = new SqlParams().setArrayOf( "ids", new long[] { 10, 11, 12 } );
+        SqlParams one = new SqlParams().setArrayOf( "ids", new long[] { 11 } );
+
+        Assert.assertEquals( OliveUtils.substituteNamedParameters( parsedSql, three ), "SELECT name FROM array_person WHERE id IN (UNNEST(?)) ORDER BY id" );
+        Assert.assertEquals( OliveUtils.substituteNamedParameters( parsedSql, one ), OliveUtils.substituteNamedParameters( parsedSql, three ) );
+
+        Assert.assertEquals( selectNames( parsedSql, three ), Arrays.asList( "Bob", "John", "Mary" ) );
+        Assert.assertEquals( selectNames( parsedSql, one ), Arrays.asList( "John" ) );
+    }
+
+    @Test
+    public void testTypeName() {
+        ParsedSql parsedSql = OliveUtils.parseSql( "SELECT name FROM array_person WHERE name IN (UNNEST(:names)) ORDER BY id" );
+        SqlParams params = new SqlParams().setArrayOf( "names", "varchar", Arrays.asList( "Mary", "Bob", "Jane" ) );
+
+        Assert.assertEquals( selectNames( parsedSql, params ), Arrays.asList( "Bob", "Mary" ) );
+    }
+
+    @Test
+    public void testTypeNames() {
+        Assert.assertEquals( new SqlArrayValue( new int[0] ).getTypeName(), "INTEGER" );
+        Assert.assertEquals( new SqlArrayValue( new String[] { "a" } ).getTypeName(), "VARCHAR" );
+        Assert.assertEquals( new SqlArrayValue( Arrays.asList( null, 1.5d ) ).getTypeName(), "FLOAT" );
+        Assert.assertEquals( new SqlArrayValue( new Object[] { new java.sql.Date( 0 ) } ).getTypeName(), "DATE" );
+    }
+
+    @Test
+    public void testEquals() {
+        Assert.assertEquals( new SqlArrayValue( new long[] { 1, 2 } ), new SqlArrayValue( new long[] { 1, 2 } ) );
+        Assert.assertEquals( new SqlArrayValue( new long[] { 1, 2 } ).hashCode(), new SqlArrayValue( new long[] { 1, 2 } ).hashCode() );
+        Assert.assertFalse( new SqlArrayValue( new long[] { 1, 2 } ).equals( new SqlArrayValue( new long[] { 1, 3 } ) ) );
+    }
+
+    @Test( expectedExceptions = IllegalArgumentException.class )
+    public void testNotAnArray() {
+        new SqlParams().setArrayOf( "ids", 1L );
+    }
+
+    private List<String> selectNames( ParsedSql parsedSql, SqlParams params ) {
+        return JDBC.inOperation( ds, ctx -> {
+            PreparedStatement ps = OliveUtils.prepareStatement( ctx, parsedSql, params );
+            return OliveUtils.mapToList( ps, ( rs, rowNum ) -> rs.getString( "name" ) );
+        } );
+    }
+}
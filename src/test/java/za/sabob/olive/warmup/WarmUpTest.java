@@ -0,0 +1,60 @@
+package za.sabob.olive.warmup;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.testng.*;
+import org.testng.annotations.*;
+import za.sabob.olive.*;
+import za.sabob.olive.loader.*;
+
+public class WarmUpTest {
+
+    @Test
+    public void testListResources() {
+        Collection<String> names = new ClasspathResourceLoader().getResourceNames( "/za/sabob/olive/warmup/sql" );
+
+        Assert.assertTrue( names.contains( "/za/sabob/olive/warmup/sql/select-person.sql" ) );
+        Assert.assertTrue( names.contains( "/za/sabob/olive/warmup/sql/partials/where-name.sql" ) );
+        Assert.assertTrue( names.contains( "/za/sabob/olive/warmup/sql/readme.txt" ) );
+    }
+
+    @Test
+    public void testWarmUp() {
+        Olive olive = new Olive( Mode.PRODUCTION );
+        olive.clearCache();
+
+        ForkJoinPool pool = new ForkJoinPool( 2 );
+        WarmUpResult result;
+        try {
+            result = olive.warmUp( pool, "/za/sabob/olive/warmup/sql" );
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertTrue( result.getSqlFiles().contains( "/za/sabob/olive/warmup/sql/select-person.sql" ) );
+        Assert.assertTrue( result.getSqlFiles().contains( "/za/sabob/olive/warmup/sql/partials/where-name.sql" ) );
+        Assert.assertEquals( result.getTemplateFiles(), Collections.singleton( "/za/sabob/olive/warmup/sql/search-person.sql" ) );
+        Assert.assertEquals( result.getPartials(), Collections.singleton( "/za/sabob/olive/warmup/sql/partials/where-name.sql" ) );
+        Assert.assertFalse( result.getSqlFiles().contains( "/za/sabob/olive/warmup/sql/readme.txt" ) );
+
+        Assert.assertTrue( result.hasFailures() );
+        Assert.assertEquals( result.getFailures().keySet(), Collections.singleton( "/za/sabob/olive/warmup/sql/broken.sql" ) );
+
+        // The warmed up resources are cached
+        Assert.assertSame( olive.loadParsedSql( "/za/sabob/olive/warmup/sql/select-person.sql" ),
+                           olive.loadParsedSql( "/za/sabob/olive/warmup/sql/select-person.sql" ) );
+    }
+
+    @Test
+    public void testLoaderWithoutListing() {
+        ResourceLoader loader = name -> {
+            throw new IllegalStateException( "Could not load " + name );
+        };
+        Olive olive = new Olive( Mode.PRODUCTION, loader );
+
+        WarmUpResult result = olive.warmUp( "/za/sabob/olive/warmup/sql" );
+
+        Assert.assertTrue( result.getSqlFiles().isEmpty() );
+        Assert.assertFalse( result.hasFailures() );
+    }
+}
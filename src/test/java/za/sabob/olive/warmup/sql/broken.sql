@@ -0,0 +1 @@
+SELECT * FROM person {{#name}} WHERE name = :name
@@ -0,0 +1 @@
+WHERE name = :name
\ No newline at end of file
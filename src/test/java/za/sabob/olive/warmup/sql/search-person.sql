@@ -0,0 +1,2 @@
+SELECT * FROM person
+{{#name}}{{>/za/sabob/olive/warmup/sql/partials/where-name.sql}}{{/name}}
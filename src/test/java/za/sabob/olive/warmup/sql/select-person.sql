@@ -0,0 +1 @@
+SELECT * FROM person WHERE id = :id